@@ -59,6 +59,11 @@ import javax.ws.rs.Path;
  * a {@link HttpContentConsumer} to avoid running out of memory. Similarly, to return a response
  * with a large body, it is preferable to return respond with {@link HttpContentProducer}.
  *
+ * A handler method that waits on other services can return a {@link java.util.concurrent.CompletionStage}
+ * instead of blocking. The response is sent once the returned stage completes, and the request thread is
+ * freed to serve other requests in the meantime. If the stage completes exceptionally, an error response is sent.
+ * Note that the implicit transaction only covers the part of the method that runs before it returns.
+ *
  * By default, all handler methods are executed within an implicit transaction, that is, you
  * can access datasets and perform transactional data operations from the handler method.
  * In some cases, for example, if the handler does not need to perform data operations, or if
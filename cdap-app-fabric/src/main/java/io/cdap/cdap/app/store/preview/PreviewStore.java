@@ -43,6 +43,15 @@ public interface PreviewStore {
    */
   void put(ApplicationId applicationId, String tracerName, String propertyName, Object value);
 
+  /**
+   * Add a batch of preview data of the same tracer. This is more efficient than adding them one by one.
+   *
+   * @param applicationId the id of the program which is logging the preview data
+   * @param tracerName the name of the logger used to put the preview data
+   * @param properties list of property name and value pairs to be added, in the order as they were logged
+   */
+  void put(ApplicationId applicationId, String tracerName, List<? extends Map.Entry<String, ?>> properties);
+
   /**
    * Get the preview data associated with the given application id.
    *
@@ -49,8 +49,12 @@ import org.apache.tephra.TxConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -124,6 +128,7 @@ public class PreviewDataSubscriberService extends AbstractMessagingSubscriberSer
   protected void processMessages(StructuredTableContext structuredTableContext,
                                  Iterator<ImmutablePair<String, PreviewMessage>> messages) throws Exception {
     Map<PreviewMessage.Type, PreviewMessageProcessor> processors = new HashMap<>();
+    PreviewDataBuffer dataBuffer = new PreviewDataBuffer();
 
     // Loop over all fetched messages and process them with corresponding PreviewMessageProcessor
     while (messages.hasNext()) {
@@ -131,10 +136,14 @@ public class PreviewDataSubscriberService extends AbstractMessagingSubscriberSer
       String messageId = next.getFirst();
       PreviewMessage message = next.getSecond();
 
+      if (message.getType() == PreviewMessage.Type.DATA) {
+        // Preview data are written in batches. Failures are handled per message when the batch is flushed.
+        dataBuffer.add(messageId, message);
+        continue;
+      }
+
       PreviewMessageProcessor processor = processors.computeIfAbsent(message.getType(), type -> {
         switch (type) {
-          case DATA:
-            return new PreviewDataProcessor();
           case STATUS:
             return new PreviewStatusWriter();
           case PROGRAM_RUN_ID:
@@ -149,24 +158,46 @@ public class PreviewDataSubscriberService extends AbstractMessagingSubscriberSer
         LOG.warn("Unsupported preview message type {}. Message ignored.", message.getType());
         continue;
       }
+
+      // Write out the buffered preview data first to preserve the ordering with other preview messages
+      dataBuffer.flush();
       try {
         processor.processMessage(message);
-        errorCount = 0;
+        processed(messageId);
       } catch (Exception e) {
-        if (messageId.equals(erroredMessageId)) {
-          errorCount++;
-          if (errorCount >= maxRetriesOnError) {
-            LOG.warn("Skipping preview message {} after processing it has caused {} consecutive errors: {}",
-                     message, errorCount, e.getMessage());
-            continue;
-          }
-        } else {
-          erroredMessageId = messageId;
-          errorCount = 1;
-        }
-        throw e;
+        handleError(messageId, message, e);
       }
     }
+    dataBuffer.flush();
+  }
+
+  /**
+   * Resets the error count after the message that previously failed is processed successfully.
+   */
+  private void processed(String messageId) {
+    if (messageId.equals(erroredMessageId)) {
+      errorCount = 0;
+    }
+  }
+
+  /**
+   * Handles the failure of processing a message. The exception is rethrown, so that the message will be retried,
+   * unless the same message has failed for {@link #maxRetriesOnError} consecutive times, in which case the message
+   * is skipped.
+   */
+  private void handleError(String messageId, PreviewMessage message, Exception e) throws Exception {
+    if (messageId.equals(erroredMessageId)) {
+      errorCount++;
+      if (errorCount >= maxRetriesOnError) {
+        LOG.warn("Skipping preview message {} after processing it has caused {} consecutive errors: {}",
+                 message, errorCount, e.getMessage());
+        return;
+      }
+    } else {
+      erroredMessageId = messageId;
+      errorCount = 1;
+    }
+    throw e;
   }
 
   @Override
@@ -191,11 +222,14 @@ public class PreviewDataSubscriberService extends AbstractMessagingSubscriberSer
   }
 
   /**
-   * The {@link PreviewMessageProcessor} for processing preview data.
+   * Buffers preview data messages, which are written to the preview store in one batch per application and tracer
+   * when {@link #flush()} is called.
    */
-  private final class PreviewDataProcessor implements PreviewMessageProcessor {
-    @Override
-    public void processMessage(PreviewMessage message) {
+  private final class PreviewDataBuffer {
+
+    private final Map<ApplicationId, Map<String, PreviewDataBatch>> buffer = new LinkedHashMap<>();
+
+    void add(String messageId, PreviewMessage message) {
       if (!(message.getEntityId() instanceof ApplicationId)) {
         LOG.warn("Missing application id from the preview data information. Ignoring the message {}", message);
         return;
@@ -210,7 +244,60 @@ public class PreviewDataSubscriberService extends AbstractMessagingSubscriberSer
                  message, t);
         return;
       }
-      previewStore.put(applicationId, payload.getTracerName(), payload.getPropertyName(), payload.getPropertyValue());
+      buffer.computeIfAbsent(applicationId, k -> new LinkedHashMap<>())
+        .computeIfAbsent(payload.getTracerName(), k -> new PreviewDataBatch())
+        .add(messageId, message, payload);
+    }
+
+    /**
+     * Writes all the buffered preview data to the preview store. If writing a batch fails, the preview data in the
+     * batch are written one by one, so that the failure is attributed to the message that caused it.
+     */
+    void flush() throws Exception {
+      Iterator<Map.Entry<ApplicationId, Map<String, PreviewDataBatch>>> appIterator = buffer.entrySet().iterator();
+      while (appIterator.hasNext()) {
+        Map.Entry<ApplicationId, Map<String, PreviewDataBatch>> entry = appIterator.next();
+        ApplicationId applicationId = entry.getKey();
+        Iterator<Map.Entry<String, PreviewDataBatch>> tracerIterator = entry.getValue().entrySet().iterator();
+        while (tracerIterator.hasNext()) {
+          Map.Entry<String, PreviewDataBatch> tracerEntry = tracerIterator.next();
+          PreviewDataBatch batch = tracerEntry.getValue();
+          try {
+            previewStore.put(applicationId, tracerEntry.getKey(), batch.properties);
+            batch.messageIds.forEach(PreviewDataSubscriberService.this::processed);
+          } catch (Exception e) {
+            LOG.debug("Failed to write preview data in batch for application {} and tracer {}. " +
+                        "Writing them one by one.", applicationId, tracerEntry.getKey(), e);
+            for (int i = 0; i < batch.properties.size(); i++) {
+              Map.Entry<String, Object> property = batch.properties.get(i);
+              String messageId = batch.messageIds.get(i);
+              try {
+                previewStore.put(applicationId, tracerEntry.getKey(), property.getKey(), property.getValue());
+                processed(messageId);
+              } catch (Exception ex) {
+                handleError(messageId, batch.messages.get(i), ex);
+              }
+            }
+          }
+          tracerIterator.remove();
+        }
+        appIterator.remove();
+      }
+    }
+  }
+
+  /**
+   * The preview data of one application and tracer, together with the messages they came from.
+   */
+  private static final class PreviewDataBatch {
+    private final List<String> messageIds = new ArrayList<>();
+    private final List<PreviewMessage> messages = new ArrayList<>();
+    private final List<Map.Entry<String, Object>> properties = new ArrayList<>();
+
+    void add(String messageId, PreviewMessage message, PreviewDataPayload payload) {
+      messageIds.add(messageId);
+      messages.add(message);
+      properties.add(new AbstractMap.SimpleImmutableEntry<>(payload.getPropertyName(), payload.getPropertyValue()));
     }
   }
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import io.cdap.cdap.api.artifact.ArtifactVersion;
+import io.cdap.cdap.common.id.Id;
+import io.cdap.cdap.proto.id.ArtifactId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * An in-memory snapshot of the artifact and plugin metadata stored by the {@link ArtifactStore}. The metadata
+ * is parsed once when the snapshot is loaded, and is indexed the same way as the tables, with entries kept in the
+ * same order as the table rows. This turns the table scans for artifact and plugin lookups into map lookups.
+ *
+ * An instance is populated by a single thread and is read-only after it is published.
+ */
+final class ArtifactCatalog implements ArtifactStore.MetaReader {
+
+  private final long createTimeNanos;
+  private final Map<ArtifactId, ArtifactStore.ArtifactEntry> artifacts;
+  // artifact namespace -> artifact name -> artifacts of all versions
+  private final Map<String, Map<String, List<ArtifactStore.ArtifactEntry>>> artifactsByName;
+  // [parent namespace, parent name] -> plugin type -> plugin name -> plugins extending the parent
+  private final Map<List<String>, Map<String, Map<String, List<ArtifactStore.PluginEntry>>>> plugins;
+  // namespace -> plugin type -> plugin name -> plugins usable by any artifact in the namespace
+  private final Map<String, Map<String, Map<String, List<ArtifactStore.PluginEntry>>>> universalPlugins;
+
+  ArtifactCatalog() {
+    this.createTimeNanos = System.nanoTime();
+    this.artifacts = new HashMap<>();
+    this.artifactsByName = new HashMap<>();
+    this.plugins = new HashMap<>();
+    this.universalPlugins = new HashMap<>();
+  }
+
+  /**
+   * Returns {@code true} if this catalog was created more than the given amount of time ago.
+   */
+  boolean isExpired(long maxAgeNanos) {
+    return System.nanoTime() - createTimeNanos >= maxAgeNanos;
+  }
+
+  /**
+   * Adds an artifact. Artifacts must be added in the order of the artifact_data table.
+   */
+  void addArtifact(ArtifactStore.ArtifactEntry entry) {
+    artifacts.put(entry.artifactEntityId, entry);
+    artifactsByName.computeIfAbsent(entry.artifactId.getNamespace().getId(), k -> new LinkedHashMap<>())
+      .computeIfAbsent(entry.artifactId.getName(), k -> new ArrayList<>())
+      .add(entry);
+  }
+
+  /**
+   * Adds a plugin that extends the given parent artifact. Plugins must be added in the order of the
+   * plugin_data table.
+   */
+  void addPlugin(String parentNamespace, String parentName, String type, String name,
+                 ArtifactStore.PluginEntry entry) {
+    plugins.computeIfAbsent(Arrays.asList(parentNamespace, parentName), k -> new LinkedHashMap<>())
+      .computeIfAbsent(type, k -> new LinkedHashMap<>())
+      .computeIfAbsent(name, k -> new ArrayList<>())
+      .add(entry);
+  }
+
+  /**
+   * Adds a plugin that is usable by any artifact in the given namespace. Plugins must be added in the order of the
+   * universal_plugin_data table.
+   */
+  void addUniversalPlugin(String namespace, String type, String name, ArtifactStore.PluginEntry entry) {
+    universalPlugins.computeIfAbsent(namespace, k -> new LinkedHashMap<>())
+      .computeIfAbsent(type, k -> new LinkedHashMap<>())
+      .computeIfAbsent(name, k -> new ArrayList<>())
+      .add(entry);
+  }
+
+  @Nullable
+  @Override
+  public ArtifactStore.ArtifactEntry getArtifact(Id.Artifact artifactId) {
+    return artifacts.get(artifactId.toEntityId());
+  }
+
+  @Override
+  public List<ArtifactStore.ArtifactEntry> getArtifacts(String namespace, @Nullable String name,
+                                                        Predicate<ArtifactVersion> versionFilter) {
+    Map<String, List<ArtifactStore.ArtifactEntry>> byName = artifactsByName.getOrDefault(namespace,
+                                                                                         Collections.emptyMap());
+    Iterable<List<ArtifactStore.ArtifactEntry>> candidates = name == null
+      ? byName.values()
+      : Collections.singleton(byName.getOrDefault(name, Collections.emptyList()));
+
+    List<ArtifactStore.ArtifactEntry> result = new ArrayList<>();
+    for (List<ArtifactStore.ArtifactEntry> entries : candidates) {
+      for (ArtifactStore.ArtifactEntry entry : entries) {
+        if (versionFilter.test(entry.artifactId.getVersion())) {
+          result.add(entry);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public List<ArtifactStore.PluginEntry> getPlugins(String parentNamespace, String parentName,
+                                                    @Nullable String type, @Nullable String name,
+                                                    Predicate<ArtifactId> artifactFilter) {
+    return select(plugins.get(Arrays.asList(parentNamespace, parentName)), type, name, artifactFilter);
+  }
+
+  @Override
+  public List<ArtifactStore.PluginEntry> getUniversalPlugins(String namespace, @Nullable String type,
+                                                             @Nullable String name,
+                                                             Predicate<ArtifactId> artifactFilter) {
+    return select(universalPlugins.get(namespace), type, name, artifactFilter);
+  }
+
+  /**
+   * Selects plugins of the given type and name from the given index.
+   */
+  private List<ArtifactStore.PluginEntry> select(@Nullable Map<String, Map<String, List<ArtifactStore.PluginEntry>>>
+                                                   pluginsByType,
+                                                 @Nullable String type, @Nullable String name,
+                                                 Predicate<ArtifactId> artifactFilter) {
+    if (pluginsByType == null) {
+      return Collections.emptyList();
+    }
+    Iterable<Map<String, List<ArtifactStore.PluginEntry>>> byTypes = type == null
+      ? pluginsByType.values()
+      : Collections.singleton(pluginsByType.getOrDefault(type, Collections.emptyMap()));
+
+    List<ArtifactStore.PluginEntry> result = new ArrayList<>();
+    for (Map<String, List<ArtifactStore.PluginEntry>> byName : byTypes) {
+      Iterable<List<ArtifactStore.PluginEntry>> candidates = name == null
+        ? byName.values()
+        : Collections.singleton(byName.getOrDefault(name, Collections.emptyList()));
+      for (List<ArtifactStore.PluginEntry> entries : candidates) {
+        for (ArtifactStore.PluginEntry entry : entries) {
+          if (artifactFilter.test(entry.artifactEntityId)) {
+            result.add(entry);
+          }
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -19,9 +19,9 @@ package io.cdap.cdap.internal.app.runtime.artifact;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.MinMaxPriorityQueue;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.inject.Inject;
@@ -29,7 +29,6 @@ import io.cdap.cdap.api.artifact.ApplicationClass;
 import io.cdap.cdap.api.artifact.ArtifactClasses;
 import io.cdap.cdap.api.artifact.ArtifactId;
 import io.cdap.cdap.api.artifact.ArtifactRange;
-import io.cdap.cdap.api.artifact.ArtifactScope;
 import io.cdap.cdap.api.artifact.ArtifactVersion;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
@@ -41,7 +40,6 @@ import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.id.Id;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.namespace.NamespacePathLocator;
-import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.internal.app.runtime.plugin.PluginNotExistsException;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
 import io.cdap.cdap.proto.artifact.ArtifactSortOrder;
@@ -62,6 +60,8 @@ import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import io.cdap.cdap.store.StoreDefinition;
 import org.apache.twill.filesystem.Location;
 import org.apache.twill.filesystem.LocationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -75,22 +75,26 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 
 /**
@@ -169,8 +173,15 @@ import javax.annotation.Nullable;
  *
  * In order to prevent deadlock if the storage backend is SQL, if a transaction needs to use multiple tables, the order
  * to use the table will be: artifact_data -> app_data -> plugin_data -> universal_plugin_data
+ *
+ * Lookups of artifacts and plugins are served from an {@link ArtifactCatalog}, which is an in-memory snapshot of the
+ * artifact_data, plugin_data and universal_plugin_data tables. The snapshot is dropped whenever this class modifies
+ * the tables, and is reloaded after it reaches the age set by {@link Constants.AppFabric#ARTIFACT_CATALOG_MAX_AGE}
+ * to pick up changes made by other processes. While there is no valid snapshot, lookups read the tables and the
+ * snapshot is reloaded in the background, so that lookups never wait for a reload.
  */
 public class ArtifactStore {
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactStore.class);
   private static final String ARTIFACTS_PATH = "artifacts";
 
   private static final Gson GSON = new GsonBuilder()
@@ -184,6 +195,10 @@ public class ArtifactStore {
   private final Impersonator impersonator;
   private final Set<String> requirementBlacklist;
   private final TransactionRunner transactionRunner;
+  private final long catalogMaxAgeNanos;
+  private final AtomicReference<CatalogHolder> catalogHolder;
+  private final AtomicBoolean catalogLoading;
+  private final Executor catalogLoader;
 
   @Inject
   ArtifactStore(CConfiguration cConf,
@@ -198,6 +213,16 @@ public class ArtifactStore {
       new HashSet<>(cConf.getTrimmedStringCollection(Constants.REQUIREMENTS_DATASET_TYPE_EXCLUDE))
         .stream().map(String::toLowerCase).collect(Collectors.toSet());
     this.transactionRunner = transactionRunner;
+    this.catalogMaxAgeNanos = TimeUnit.SECONDS.toNanos(cConf.getLong(Constants.AppFabric.ARTIFACT_CATALOG_MAX_AGE));
+    this.catalogHolder = new AtomicReference<>(new CatalogHolder(0L, null));
+    this.catalogLoading = new AtomicBoolean();
+    // Don't keep the thread around if there is no reload for more than 60 seconds
+    ThreadPoolExecutor catalogLoader = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                              new ThreadFactoryBuilder()
+                                                                .setDaemon(true)
+                                                                .setNameFormat("artifact-catalog-loader").build());
+    catalogLoader.allowCoreThreadTimeOut(true);
+    this.catalogLoader = catalogLoader;
   }
 
   /**
@@ -209,16 +234,8 @@ public class ArtifactStore {
    * @throws IOException if there was an exception reading the artifact information from the metastore
    */
   public List<ArtifactDetail> getArtifacts(final NamespaceId namespace) throws IOException {
-    return TransactionRunners.run(transactionRunner, context -> {
-      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      List<ArtifactDetail> artifacts = Lists.newArrayList();
-      Range scanRange = createArtifactScanRange(namespace);
-      // TODO: CDAP-14636 add scan method without limit
-      try (CloseableIterator<StructuredRow> iterator = table.scan(scanRange, Integer.MAX_VALUE)) {
-        getArtifacts(iterator, Integer.MAX_VALUE, null, () -> artifacts);
-      }
-      return Collections.unmodifiableList(artifacts);
-    }, IOException.class);
+    return read(reader -> getArtifacts(reader.getArtifacts(namespace.getNamespace(), null, version -> true),
+                                       Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED), IOException.class);
   }
 
   /**
@@ -231,48 +248,26 @@ public class ArtifactStore {
    *         is returned
    */
   public List<ArtifactDetail> getArtifacts(ArtifactRange range, int limit, ArtifactSortOrder order) {
-    return TransactionRunners.run(transactionRunner, context -> {
-      return getArtifacts(getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE), range, limit, order);
-    });
+    return read(reader -> getArtifacts(reader.getArtifacts(range.getNamespace(), range.getName(),
+                                                           range::versionIsInRange), limit, order));
   }
 
-  private List<ArtifactDetail> getArtifacts(StructuredTable artifactDataTable, ArtifactRange range,
-                                            int limit,
-                                            ArtifactSortOrder order) throws IOException {
-    Collection<Field<?>> keys =
-      Arrays.asList(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD, range.getNamespace()),
-                    Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD, range.getName()));
-    // here we have to query with Integer.MAX_VALUE since we want to sort the result
-    try (CloseableIterator<StructuredRow> iterator = artifactDataTable.scan(Range.singleton(keys), Integer.MAX_VALUE)) {
-      return getArtifacts(iterator, limit, order, range);
-    }
-  }
-
-  private List<ArtifactDetail> getArtifacts(Iterator<StructuredRow> iterator, int limit,
-                                            ArtifactSortOrder order,
-                                            @Nullable ArtifactRange range) {
-    if (!iterator.hasNext()) {
+  private List<ArtifactDetail> getArtifacts(List<ArtifactEntry> entries, int limit, ArtifactSortOrder order) {
+    if (entries.isEmpty()) {
       return Collections.emptyList();
     }
 
     List<ArtifactDetail> result = (order == ArtifactSortOrder.UNORDERED)
-      ? getArtifacts(iterator, limit, range, ArrayList::new)
-      : getSortedArtifacts(iterator, limit, order, range, ArrayList::new);
+      ? collectArtifacts(entries, limit, Collector.of(ArrayList::new, List::add, createUnsupportedCombiner()))
+      : getSortedArtifacts(entries, limit, order, ArrayList::new);
 
     return Collections.unmodifiableList(result);
   }
 
-  private List<ArtifactDetail> getArtifacts(Iterator<StructuredRow> iterator, int limit, @Nullable ArtifactRange range,
-                                            Supplier<List<ArtifactDetail>> resultSupplier) {
-    return collectArtifacts(iterator, range, limit,
-                            Collector.of(resultSupplier, List::add, createUnsupportedCombiner()));
-  }
-
-  private List<ArtifactDetail> getSortedArtifacts(Iterator<StructuredRow> iterator, int limit,
-                                                  ArtifactSortOrder order, @Nullable ArtifactRange range,
+  private List<ArtifactDetail> getSortedArtifacts(List<ArtifactEntry> entries, int limit, ArtifactSortOrder order,
                                                   Supplier<List<ArtifactDetail>> resultSupplier) {
     // Create a priority queue for remembering the highest/lowest N
-    return collectArtifacts(iterator, range, Integer.MAX_VALUE, Collector.of(
+    return collectArtifacts(entries, Integer.MAX_VALUE, Collector.of(
       () -> MinMaxPriorityQueue.orderedBy(Comparator.comparing(ArtifactDetail::getDescriptor)).create(),
       (queue, artifactDetail) -> {
         queue.add(artifactDetail);
@@ -304,26 +299,15 @@ public class ArtifactStore {
     };
   }
 
-  private <A, R> R collectArtifacts(Iterator<StructuredRow> iterator, @Nullable ArtifactRange range, int limit,
+  private <A, R> R collectArtifacts(List<ArtifactEntry> entries, int limit,
                                     Collector<ArtifactDetail, A, R> collector) {
-
-    // Includes artifacts with version matching the one from the given range
-    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0), false)
-      .map(row -> Maps.immutableEntry(
-        new ArtifactVersion(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_VER_FIELD)), row))
-      .filter(e -> range == null || range.versionIsInRange(e.getKey()))
+    return entries.stream()
       .limit(limit)
-      .map(e -> {
-        StructuredRow row = e.getValue();
-        ArtifactKey artifactKey = ArtifactKey.fromRow(row);
-        ArtifactData data = GSON.fromJson(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
-                                          ArtifactData.class);
-        ArtifactMeta filteredArtifactMeta = filterPlugins(data.meta);
-        ArtifactId artifactId = new ArtifactId(artifactKey.name, e.getKey(),
-                                               artifactKey.namespace.equals(NamespaceId.SYSTEM.getNamespace()) ?
-                                                 ArtifactScope.SYSTEM : ArtifactScope.USER);
+      .map(entry -> {
+        ArtifactData data = entry.data;
         Location artifactLocation = Locations.getLocationFromAbsolutePath(locationFactory, data.getLocationPath());
-        return new ArtifactDetail(new ArtifactDescriptor(artifactId, artifactLocation), filteredArtifactMeta);
+        return new ArtifactDetail(new ArtifactDescriptor(entry.artifactId.toArtifactId(), artifactLocation),
+                                  filterPlugins(data.meta));
       })
       .collect(collector);
   }
@@ -343,22 +327,13 @@ public class ArtifactStore {
                                            String artifactName,
                                            int limit,
                                            ArtifactSortOrder order) throws ArtifactNotFoundException, IOException {
-    return TransactionRunners.run(transactionRunner, context -> {
-      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      Collection<Field<?>> keys =
-        Arrays.asList(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD,
-                                         namespace.getNamespace()),
-                      Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD, artifactName));
-
-      try (CloseableIterator<StructuredRow> iterator =
-             table.scan(Range.singleton(keys), Integer.MAX_VALUE)) {
-        List<ArtifactDetail> artifacts = getArtifacts(iterator, limit, order, null);
-        if (artifacts.isEmpty()) {
-          throw new ArtifactNotFoundException(namespace, artifactName);
-        }
-
-        return artifacts;
+    return read(reader -> {
+      List<ArtifactDetail> artifacts = getArtifacts(reader.getArtifacts(namespace.getNamespace(), artifactName,
+                                                                        version -> true), limit, order);
+      if (artifacts.isEmpty()) {
+        throw new ArtifactNotFoundException(namespace, artifactName);
       }
+      return artifacts;
     }, ArtifactNotFoundException.class, IOException.class);
   }
 
@@ -371,14 +346,12 @@ public class ArtifactStore {
    * @throws IOException if there was an exception reading the artifact information from the metastore
    */
   public ArtifactDetail getArtifact(final Id.Artifact artifactId) throws ArtifactNotFoundException, IOException {
-    ArtifactData artifactData = TransactionRunners.run(transactionRunner, context -> {
-      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      ArtifactCell artifactCell = new ArtifactCell(artifactId);
-      Optional<StructuredRow> row = table.read(artifactCell.keys);
-      if (!row.isPresent()) {
+    ArtifactData artifactData = read(reader -> {
+      ArtifactEntry entry = reader.getArtifact(artifactId);
+      if (entry == null) {
         throw new ArtifactNotFoundException(artifactId.toEntityId());
       }
-      return GSON.fromJson(row.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD), ArtifactData.class);
+      return entry.data;
     }, IOException.class, ArtifactNotFoundException.class);
 
     try {
@@ -484,35 +457,27 @@ public class ArtifactStore {
                                                                           @Nullable String type)
     throws ArtifactNotFoundException, IOException {
 
-    return TransactionRunners.run(transactionRunner, context -> {
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+    return read(reader -> {
       SortedMap<ArtifactDescriptor, Set<PluginClass>> plugins =
-        getPluginsInArtifact(artifactDataTable, parentArtifactId,
+        getPluginsInArtifact(reader, parentArtifactId,
                              input -> (type == null || type.equals(input.getType())) && isAllowed(input));
 
+      // only include plugins from artifacts in the system namespace or in the given namespace
+      Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter = artifactId -> {
+        NamespaceId namespaceId = artifactId.getNamespaceId();
+        return NamespaceId.SYSTEM.equals(namespaceId) || namespace.equals(namespaceId);
+      };
+
       // Scan plugins
-      StructuredTable pluginTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-      try (CloseableIterator<StructuredRow> iterator =
-             pluginTable.scan(createPluginScanRange(parentArtifactId, type), Integer.MAX_VALUE)) {
-        while (iterator.hasNext()) {
-          StructuredRow row = iterator.next();
-          addPluginToMap(namespace, parentArtifactId, plugins, row);
-        }
+      for (PluginEntry entry : reader.getPlugins(parentArtifactId.getNamespace().getId(), parentArtifactId.getName(),
+                                                 type, null, artifactFilter)) {
+        addPluginToMap(parentArtifactId, plugins, entry);
       }
 
       // Scan universal plugins
-      StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
-      List<Range> ranges = Arrays.asList(
-        createUniversalPluginScanRange(namespace.getNamespace(), type),
-        createUniversalPluginScanRange(NamespaceId.SYSTEM.getNamespace(), type)
-      );
-
-      for (Range range : ranges) {
-        try (CloseableIterator<StructuredRow> iterator = uniPluginTable.scan(range, Integer.MAX_VALUE)) {
-          while (iterator.hasNext()) {
-            StructuredRow row = iterator.next();
-            addPluginToMap(namespace, parentArtifactId, plugins, row);
-          }
+      for (String ns : Arrays.asList(namespace.getNamespace(), NamespaceId.SYSTEM.getNamespace())) {
+        for (PluginEntry entry : reader.getUniversalPlugins(ns, type, null, artifactFilter)) {
+          addPluginToMap(parentArtifactId, plugins, entry);
         }
       }
 
@@ -568,10 +533,10 @@ public class ArtifactStore {
     @Nullable final Predicate<io.cdap.cdap.proto.id.ArtifactId> pluginRange, int limit, ArtifactSortOrder order)
     throws IOException, ArtifactNotFoundException, PluginNotExistsException {
 
-    SortedMap<ArtifactDescriptor, PluginClass> result = TransactionRunners.run(transactionRunner, context -> {
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      List<ArtifactDetail> parentArtifactDetails = getArtifacts(artifactDataTable, parentArtifactRange,
-                                                                Integer.MAX_VALUE, null);
+    SortedMap<ArtifactDescriptor, PluginClass> result = read(reader -> {
+      List<ArtifactDetail> parentArtifactDetails = getArtifacts(
+        reader.getArtifacts(parentArtifactRange.getNamespace(), parentArtifactRange.getName(),
+                            parentArtifactRange::versionIsInRange), Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED);
 
       if (parentArtifactDetails.isEmpty()) {
         throw new ArtifactNotFoundException(parentArtifactRange.getNamespace(), parentArtifactRange.getName());
@@ -595,23 +560,21 @@ public class ArtifactStore {
         }
       }
 
+      // if predicate is null,
+      // filter out plugins whose artifacts are not in the system namespace and not in this namespace
+      Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter = pluginRange != null
+        ? pluginRange
+        : input -> NamespaceId.SYSTEM.equals(input.getParent()) || input.getParent().equals(namespace);
+
       // Add all plugins that extends from the given set of parents
-      StructuredTable pluginTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-      PluginKeyPrefix pluginKey = new PluginKeyPrefix(parentArtifactRange.getNamespace(),
-                                                      parentArtifactRange.getName(), type, name);
-      try (CloseableIterator<StructuredRow> iterator =
-             pluginTable.scan(Range.singleton(pluginKey.keys), Integer.MAX_VALUE)) {
-        addPluginsInRangeToMap(namespace, parentArtifacts, iterator, plugins, pluginRange, limit);
-      }
+      addPluginsInRangeToMap(parentArtifacts, reader.getPlugins(parentArtifactRange.getNamespace(),
+                                                                parentArtifactRange.getName(), type, name,
+                                                                artifactFilter), plugins, limit);
 
       // Add all universal plugins
-      StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
       for (String ns : Arrays.asList(namespace.getNamespace(), NamespaceId.SYSTEM.getNamespace())) {
-        UniversalPluginKeyPrefix universalPluginKey = new UniversalPluginKeyPrefix(ns, type, name);
-        try (CloseableIterator<StructuredRow> iterator =
-               uniPluginTable.scan(Range.singleton(universalPluginKey.keys), Integer.MAX_VALUE)) {
-          addPluginsInRangeToMap(namespace, parentArtifacts, iterator, plugins, pluginRange, limit);
-        }
+        addPluginsInRangeToMap(parentArtifacts, reader.getUniversalPlugins(ns, type, name, artifactFilter),
+                               plugins, limit);
       }
 
       return Collections.unmodifiableSortedMap(plugins);
@@ -635,28 +598,32 @@ public class ArtifactStore {
                                        Function<Map<String, String>, Map<String, String>> updateFunction)
     throws ArtifactNotFoundException, IOException {
 
-    TransactionRunners.run(transactionRunner, context -> {
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      ArtifactCell artifactCell = new ArtifactCell(artifactId);
-      Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
-      if (!optional.isPresent()) {
-        throw new ArtifactNotFoundException(artifactId.toEntityId());
-      }
+    try {
+      TransactionRunners.run(transactionRunner, context -> {
+        StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+        ArtifactCell artifactCell = new ArtifactCell(artifactId);
+        Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
+        if (!optional.isPresent()) {
+          throw new ArtifactNotFoundException(artifactId.toEntityId());
+        }
 
-      ArtifactData old = GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
-                                       ArtifactData.class);
-      ArtifactMeta updatedMeta = new ArtifactMeta(old.meta.getClasses(), old.meta.getUsableBy(),
-                                                  updateFunction.apply(old.meta.getProperties()));
-      ArtifactData updatedData =
-        new ArtifactData(Locations.getLocationFromAbsolutePath(locationFactory, old.getLocationPath()),
-                         updatedMeta);
-      // write artifact metadata
-      List<Field<?>> fields = ImmutableList.<Field<?>>builder()
-        .addAll(artifactCell.keys)
-        .add(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD, GSON.toJson(updatedData)))
-        .build();
-      artifactDataTable.upsert(fields);
-    }, ArtifactNotFoundException.class, IOException.class);
+        ArtifactData old = GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
+                                         ArtifactData.class);
+        ArtifactMeta updatedMeta = new ArtifactMeta(old.meta.getClasses(), old.meta.getUsableBy(),
+                                                    updateFunction.apply(old.meta.getProperties()));
+        ArtifactData updatedData =
+          new ArtifactData(Locations.getLocationFromAbsolutePath(locationFactory, old.getLocationPath()),
+                           updatedMeta);
+        // write artifact metadata
+        List<Field<?>> fields = ImmutableList.<Field<?>>builder()
+          .addAll(artifactCell.keys)
+          .add(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD, GSON.toJson(updatedData)))
+          .build();
+        artifactDataTable.upsert(fields);
+      }, ArtifactNotFoundException.class, IOException.class);
+    } finally {
+      invalidateCatalog();
+    }
   }
 
   /**
@@ -727,6 +694,8 @@ public class ArtifactStore {
       // TODO: CDAP-14672 define TransactionConflictException for the SPI
       // should throw WriteConflictException(artifactId) on transaction conflict
       throw TransactionRunners.propagate(e, ArtifactAlreadyExistsException.class, IOException.class);
+    } finally {
+      invalidateCatalog();
     }
   }
 
@@ -757,18 +726,22 @@ public class ArtifactStore {
   public void delete(final Id.Artifact artifactId) throws ArtifactNotFoundException, IOException {
 
     // delete everything in a transaction
-    TransactionRunners.run(transactionRunner, context -> {
-      // first look up details to get plugins and apps in the artifact
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      ArtifactCell artifactCell = new ArtifactCell(artifactId);
-      Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
-      if (!optional.isPresent()) {
-        throw new ArtifactNotFoundException(artifactId.toEntityId());
-      }
-      deleteMeta(context, artifactId,
-                 GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
-                               ArtifactData.class));
-    }, IOException.class, ArtifactNotFoundException.class);
+    try {
+      TransactionRunners.run(transactionRunner, context -> {
+        // first look up details to get plugins and apps in the artifact
+        StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+        ArtifactCell artifactCell = new ArtifactCell(artifactId);
+        Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
+        if (!optional.isPresent()) {
+          throw new ArtifactNotFoundException(artifactId.toEntityId());
+        }
+        deleteMeta(context, artifactId,
+                   GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
+                                 ArtifactData.class));
+      }, IOException.class, ArtifactNotFoundException.class);
+    } finally {
+      invalidateCatalog();
+    }
   }
 
   /**
@@ -782,54 +755,59 @@ public class ArtifactStore {
     final Id.Namespace namespaceId = Id.Namespace.fromEntityId(namespace);
     namespacePathLocator.get(namespace).append(ARTIFACTS_PATH).delete(true);
 
-    TransactionRunners.run(transactionRunner, context -> {
-      // delete all rows about artifacts in the namespace
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      Range artifactScanRange = createArtifactScanRange(namespace);
-      deleteRangeFromTable(artifactDataTable, artifactScanRange);
-
-      // delete all rows about artifacts in the namespace and the plugins they have access to
-      StructuredTable pluginDataTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-      Collection<Field<?>> pluginKey =
-        Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
-                                                 namespace.getNamespace()));
-      deleteRangeFromTable(pluginDataTable, Range.singleton(pluginKey));
-
-      // delete all rows about universal plugins
-      StructuredTable univPluginsDataTable  = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
-      deleteRangeFromTable(univPluginsDataTable,
-                           createUniversalPluginScanRange(namespace.getNamespace(), null));
-
-      // delete app classes in this namespace
-      StructuredTable appClassTable = getTable(context, StoreDefinition.ArtifactStore.APP_DATA_TABLE);
-      deleteRangeFromTable(appClassTable, createAppClassRange(namespace));
-
-      // delete plugins in this namespace from system artifacts
-      // for example, if there was an artifact in this namespace that extends a system artifact
-      Collection<Field<?>> systemPluginKey =
-        Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
-                                                 Id.Namespace.SYSTEM.getId()));
-      try (CloseableIterator<StructuredRow> iterator =
-             pluginDataTable.scan(Range.singleton(systemPluginKey), Integer.MAX_VALUE)) {
-        while (iterator.hasNext()) {
-          StructuredRow row = iterator.next();
+    try {
+      TransactionRunners.run(transactionRunner, context -> {
+        // delete all rows about artifacts in the namespace
+        StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+        Range artifactScanRange = createArtifactScanRange(namespace);
+        deleteRangeFromTable(artifactDataTable, artifactScanRange);
+
+        // delete all rows about artifacts in the namespace and the plugins they have access to
+        StructuredTable pluginDataTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+        Collection<Field<?>> pluginKey =
+          Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
+                                                   namespace.getNamespace()));
+        deleteRangeFromTable(pluginDataTable, Range.singleton(pluginKey));
+
+        // delete all rows about universal plugins
+        StructuredTable univPluginsDataTable  = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+        deleteRangeFromTable(univPluginsDataTable,
+                             createUniversalPluginScanRange(namespace.getNamespace(), null));
+
+        // delete app classes in this namespace
+        StructuredTable appClassTable = getTable(context, StoreDefinition.ArtifactStore.APP_DATA_TABLE);
+        deleteRangeFromTable(appClassTable, createAppClassRange(namespace));
+
+        // delete plugins in this namespace from system artifacts
+        // for example, if there was an artifact in this namespace that extends a system artifact
+        Collection<Field<?>> systemPluginKey =
+          Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
+                                                   Id.Namespace.SYSTEM.getId()));
+        try (CloseableIterator<StructuredRow> iterator =
+               pluginDataTable.scan(Range.singleton(systemPluginKey), Integer.MAX_VALUE)) {
+          while (iterator.hasNext()) {
+            StructuredRow row = iterator.next();
 
-          // if the plugin artifact is in the namespace we're deleting, delete this column.
-          if (namespaceId.getId().equals(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD))) {
-            pluginDataTable.delete(concatFields(PluginKeyPrefix.fromRow(row), ArtifactCell.fromRow(row)));
+            // if the plugin artifact is in the namespace we're deleting, delete this column.
+            if (namespaceId.getId().equals(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD))) {
+              pluginDataTable.delete(concatFields(PluginKeyPrefix.fromRow(row), ArtifactCell.fromRow(row)));
+            }
           }
         }
-      }
-    }, IOException.class);
+      }, IOException.class);
+    } finally {
+      invalidateCatalog();
+    }
   }
 
   private void deleteRangeFromTable(StructuredTable table, Range range) throws IOException {
+    List<Collection<Field<?>>> keys = new ArrayList<>();
     try (CloseableIterator<StructuredRow> iterator = table.scan(range, Integer.MAX_VALUE)) {
       while (iterator.hasNext()) {
-        StructuredRow row = iterator.next();
-        table.delete(row.getPrimaryKeys());
+        keys.add(iterator.next().getPrimaryKeys());
       }
     }
+    table.multiDelete(keys);
   }
 
   private Map.Entry<ArtifactDescriptor, ApplicationClass> extractApplicationClass(StructuredRow row) {
@@ -861,16 +839,19 @@ public class ArtifactStore {
     // write appClass metadata
     StructuredTable appTable = getTable(context, StoreDefinition.ArtifactStore.APP_DATA_TABLE);
     ArtifactCell artifactkeys = new ArtifactCell(artifactId);
+    List<Collection<Field<?>>> appRows = new ArrayList<>();
     for (ApplicationClass appClass : classes.getApps()) {
       // a:{namespace}:{classname}
       AppClassKey appClassKey = new AppClassKey(artifactId.getNamespace().toEntityId(), appClass.getClassName());
       Field<String> appDataField = Fields.stringField(StoreDefinition.ArtifactStore.APP_DATA_FIELD,
                                                       GSON.toJson(new AppData(appClass, artifactLocation)));
-      appTable.upsert(concatFields(appClassKey.keys, artifactkeys.keys, Collections.singleton(appDataField)));
+      appRows.add(concatFields(appClassKey.keys, artifactkeys.keys, Collections.singleton(appDataField)));
     }
+    appTable.multiUpsert(appRows);
 
     // write pluginClass metadata, we loop twice to only access to one table at a time to prevent deadlock
     StructuredTable pluginTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+    List<Collection<Field<?>>> pluginRows = new ArrayList<>();
     for (PluginClass pluginClass : classes.getPlugins()) {
       // write metadata for each artifact this plugin extends
       for (ArtifactRange artifactRange : data.meta.getUsableBy()) {
@@ -881,12 +862,14 @@ public class ArtifactStore {
         Field<String> pluginDataField = Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_DATA_FIELD,
                                                            GSON.toJson(new PluginData(pluginClass, artifactLocation,
                                                                                       artifactRange)));
-        pluginTable.upsert(concatFields(pluginKey.keys, artifactkeys.keys, Collections.singleton(pluginDataField)));
+        pluginRows.add(concatFields(pluginKey.keys, artifactkeys.keys, Collections.singleton(pluginDataField)));
       }
     }
+    pluginTable.multiUpsert(pluginRows);
 
     // write universal plugin class metadata
     StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+    List<Collection<Field<?>>> uniPluginRows = new ArrayList<>();
     for (PluginClass pluginClass : classes.getPlugins()) {
       // If the artifact is deployed without any parent, add a special row to indicate that it can be used
       // by any other artifact in the same namespace.
@@ -897,9 +880,10 @@ public class ArtifactStore {
         Field<String> pluginDataField = Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_DATA_FIELD,
                                                            GSON.toJson(new PluginData(pluginClass, artifactLocation,
                                                                                       null)));
-        uniPluginTable.upsert(concatFields(pluginKey.keys, artifactkeys.keys, Collections.singleton(pluginDataField)));
+        uniPluginRows.add(concatFields(pluginKey.keys, artifactkeys.keys, Collections.singleton(pluginDataField)));
       }
     }
+    uniPluginTable.multiUpsert(uniPluginRows);
   }
 
   private Collection<Field<?>> concatFields(Collection<Field<?>> fields1, Collection<Field<?>> fields2) {
@@ -932,6 +916,7 @@ public class ArtifactStore {
 
     // delete old plugins, we loop twice to only access to one table at a time to prevent deadlock
     StructuredTable pluginDataTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+    List<Collection<Field<?>>> pluginKeys = new ArrayList<>();
     for (PluginClass pluginClass : oldMeta.meta.getClasses().getPlugins()) {
       // delete metadata for each artifact this plugin extends
       for (ArtifactRange artifactRange : oldMeta.meta.getUsableBy()) {
@@ -939,19 +924,22 @@ public class ArtifactStore {
         PluginKeyPrefix pluginKey = new PluginKeyPrefix(artifactRange.getNamespace(),
                                                         artifactRange.getName(), pluginClass.getType(),
                                                         pluginClass.getName());
-        pluginDataTable.delete(concatFields(pluginKey.keys, artifactCell.keys));
+        pluginKeys.add(concatFields(pluginKey.keys, artifactCell.keys));
       }
     }
+    pluginDataTable.multiDelete(pluginKeys);
 
     // Delete the universal plugin row
     StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+    List<Collection<Field<?>>> uniPluginKeys = new ArrayList<>();
     for (PluginClass pluginClass : oldMeta.meta.getClasses().getPlugins()) {
       if (oldMeta.meta.getUsableBy().isEmpty()) {
         UniversalPluginKeyPrefix pluginKey = new UniversalPluginKeyPrefix(artifactId.getNamespace().getId(),
                                                                           pluginClass.getType(), pluginClass.getName());
-        uniPluginTable.delete(concatFields(pluginKey.keys, artifactCell.keys));
+        uniPluginKeys.add(concatFields(pluginKey.keys, artifactCell.keys));
       }
     }
+    uniPluginTable.multiDelete(uniPluginKeys);
 
     // delete the old jar file
     try {
@@ -979,21 +967,141 @@ public class ArtifactStore {
     }
   }
 
-  private SortedMap<ArtifactDescriptor, Set<PluginClass>> getPluginsInArtifact(StructuredTable artifactDataTable,
+  /**
+   * Executes the given function with a {@link MetaReader}. The {@link ArtifactCatalog} is used if it is enabled and
+   * valid, otherwise the function reads from the tables in a transaction.
+   */
+  private <V> V read(MetaReadFunction<V> function) {
+    return read(function, RuntimeException.class, RuntimeException.class);
+  }
+
+  private <V, X extends Exception> V read(MetaReadFunction<V> function, Class<X> exception) throws X {
+    return read(function, exception, exception);
+  }
+
+  private <V, X1 extends Exception, X2 extends Exception> V read(MetaReadFunction<V> function,
+                                                                 Class<X1> exception1,
+                                                                 Class<X2> exception2) throws X1, X2 {
+    ArtifactCatalog catalog = catalogMaxAgeNanos <= 0 ? null : getCatalog();
+    if (catalog == null) {
+      return TransactionRunners.run(transactionRunner, context -> {
+        return function.apply(new TableMetaReader(context));
+      }, exception1, exception2);
+    }
+    try {
+      return function.apply(catalog);
+    } catch (Exception e) {
+      Throwables.propagateIfPossible(e, exception1, exception2);
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Returns the {@link ArtifactCatalog}, or {@code null} if it is not loaded or has expired, in which case it is
+   * reloaded in the background.
+   */
+  @Nullable
+  private ArtifactCatalog getCatalog() {
+    CatalogHolder holder = catalogHolder.get();
+    if (holder.isValid(catalogMaxAgeNanos)) {
+      return holder.catalog;
+    }
+    // Only one reload runs at a time. Modifications during a reload are picked up by the reload after it.
+    if (catalogLoading.compareAndSet(false, true)) {
+      try {
+        catalogLoader.execute(this::reloadCatalog);
+      } catch (RejectedExecutionException e) {
+        catalogLoading.set(false);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Loads the {@link ArtifactCatalog} from the tables and publishes it if there was no modification since the load
+   * started.
+   */
+  private void reloadCatalog() {
+    try {
+      CatalogHolder holder = catalogHolder.get();
+      if (holder.isValid(catalogMaxAgeNanos)) {
+        return;
+      }
+      // Only publish the loaded catalog if there was no modification since the load started,
+      // otherwise the catalog might not contain the modification. Every invalidation replaces the holder,
+      // hence the compare and set fails if there was any.
+      ArtifactCatalog catalog = TransactionRunners.run(transactionRunner, this::loadCatalog, IOException.class);
+      catalogHolder.compareAndSet(holder, new CatalogHolder(holder.generation, catalog));
+    } catch (Exception e) {
+      LOG.warn("Failed to load the artifact catalog. Artifacts will be read from the tables.", e);
+    } finally {
+      catalogLoading.set(false);
+    }
+  }
+
+  /**
+   * Returns {@code true} if lookups are currently served from the {@link ArtifactCatalog}.
+   */
+  @VisibleForTesting
+  boolean isCatalogValid() {
+    return catalogMaxAgeNanos > 0 && catalogHolder.get().isValid(catalogMaxAgeNanos);
+  }
+
+  /**
+   * Drops the {@link ArtifactCatalog}. This must be called after every modification to the tables.
+   */
+  private void invalidateCatalog() {
+    catalogHolder.updateAndGet(holder -> new CatalogHolder(holder.generation + 1, null));
+  }
+
+  private ArtifactCatalog loadCatalog(StructuredTableContext context) throws IOException {
+    ArtifactCatalog catalog = new ArtifactCatalog();
+
+    StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+    try (CloseableIterator<StructuredRow> iterator = artifactDataTable.scan(Range.all(), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        catalog.addArtifact(toArtifactEntry(iterator.next()));
+      }
+    }
+
+    StructuredTable pluginTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+    try (CloseableIterator<StructuredRow> iterator = pluginTable.scan(Range.all(), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        catalog.addPlugin(row.getString(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD),
+                          row.getString(StoreDefinition.ArtifactStore.PARENT_NAME_FIELD),
+                          row.getString(StoreDefinition.ArtifactStore.PLUGIN_TYPE_FIELD),
+                          row.getString(StoreDefinition.ArtifactStore.PLUGIN_NAME_FIELD),
+                          toPluginEntry(row, getArtifactId(row)));
+      }
+    }
+
+    StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+    try (CloseableIterator<StructuredRow> iterator = uniPluginTable.scan(Range.all(), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        catalog.addUniversalPlugin(row.getString(StoreDefinition.ArtifactStore.NAMESPACE_FIELD),
+                                   row.getString(StoreDefinition.ArtifactStore.PLUGIN_TYPE_FIELD),
+                                   row.getString(StoreDefinition.ArtifactStore.PLUGIN_NAME_FIELD),
+                                   toPluginEntry(row, getArtifactId(row)));
+      }
+    }
+    return catalog;
+  }
+
+  private SortedMap<ArtifactDescriptor, Set<PluginClass>> getPluginsInArtifact(MetaReader reader,
                                                                                Id.Artifact artifactId,
                                                                                Predicate<PluginClass> filter)
     throws ArtifactNotFoundException, IOException {
     SortedMap<ArtifactDescriptor, Set<PluginClass>> result = new TreeMap<>();
 
     // Make sure the artifact exists
-    ArtifactCell artifactCell = new ArtifactCell(artifactId);
-    Optional<StructuredRow> row = artifactDataTable.read(artifactCell.keys);
-    if (!row.isPresent()) {
+    ArtifactEntry entry = reader.getArtifact(artifactId);
+    if (entry == null) {
       throw new ArtifactNotFoundException(artifactId.toEntityId());
     }
     // include any plugin classes that are inside the artifact itself and is accepted by the filter
-    ArtifactData artifactData = GSON.fromJson(row.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
-                                              ArtifactData.class);
+    ArtifactData artifactData = entry.data;
     Set<PluginClass> plugins = artifactData.meta.getClasses().getPlugins().stream()
       .filter(filter).collect(Collectors.toCollection(LinkedHashSet::new));
 
@@ -1005,66 +1113,25 @@ public class ArtifactStore {
     return result;
   }
 
-  // this method examines the plugin in the given row and checks if they extend the given parent artifact
-  // and are from an artifact in the given namespace.
+  // this method checks if the given plugin extends the given parent artifact.
   // if so, information about the plugin artifact and the plugin details are added to the given map.
-  private void addPluginToMap(NamespaceId namespace, Id.Artifact parentArtifactId,
-                              SortedMap<ArtifactDescriptor, Set<PluginClass>> map,
-                              StructuredRow row) {
-    ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry = getPluginEntry(namespace, parentArtifactId, row);
-    if (pluginEntry != null && isAllowed(pluginEntry.getSecond())) {
-      map.computeIfAbsent(pluginEntry.getFirst(), k -> new HashSet<>()).add(pluginEntry.getSecond());
-    }
-  }
-
-  /**
-   * Decode the PluginClass from the table column if it is from an artifact in the given namespace and
-   * extends the given parent artifact. If the plugin's artifact is not in the given namespace, or it does not
-   * extend the given parent artifact, return null.
-   */
-  @Nullable
-  private ImmutablePair<ArtifactDescriptor, PluginClass> getPluginEntry(
-    NamespaceId namespace, Id.Artifact parentArtifactId, StructuredRow row) {
-    ImmutablePair<ArtifactDescriptor, PluginData> pluginPair = getPlugin(row, artifactId -> {
-      NamespaceId namespaceId = artifactId.getNamespaceId();
-      return NamespaceId.SYSTEM.equals(namespaceId) || namespace.equals(namespaceId);
-    });
-
-    if (pluginPair == null) {
-      return null;
-    }
-
-    PluginData pluginData = pluginPair.getSecond();
+  private void addPluginToMap(Id.Artifact parentArtifactId, SortedMap<ArtifactDescriptor, Set<PluginClass>> map,
+                              PluginEntry entry) {
+    PluginData pluginData = entry.data;
     // filter out plugins that don't extend this version of the parent artifact
-    if (pluginData.isUsableBy(parentArtifactId.toEntityId())) {
-      return ImmutablePair.of(pluginPair.getFirst(), pluginData.pluginClass);
+    if (pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(pluginData.pluginClass)) {
+      map.computeIfAbsent(getDescriptor(entry), k -> new HashSet<>()).add(pluginData.pluginClass);
     }
-    return null;
   }
 
-  private void addPluginsInRangeToMap(final NamespaceId namespace, List<Id.Artifact> parentArtifacts,
-                                      Iterator<StructuredRow> iterator,
-                                      SortedMap<ArtifactDescriptor, PluginClass> plugins,
-                                      @Nullable Predicate<io.cdap.cdap.proto.id.ArtifactId> range,
-                                      int limit) {
-    // if predicate is null,
-    // filter out plugins whose artifacts are not in the system namespace and not in this namespace
-    range = range != null
-      ? range
-      : input -> NamespaceId.SYSTEM.equals(input.getParent()) || input.getParent().equals(namespace);
-
-    while (iterator.hasNext()) {
-      StructuredRow row = iterator.next();
-      ImmutablePair<ArtifactDescriptor, PluginData> pluginPair = getPlugin(row, range);
-      if (pluginPair == null) {
-        continue;
-      }
-
-      PluginData pluginData = pluginPair.getSecond();
+  private void addPluginsInRangeToMap(List<Id.Artifact> parentArtifacts, List<PluginEntry> entries,
+                                      SortedMap<ArtifactDescriptor, PluginClass> plugins, int limit) {
+    for (PluginEntry entry : entries) {
+      PluginData pluginData = entry.data;
       // filter out plugins that don't extend this version of the parent artifact
       for (Id.Artifact parentArtifactId : parentArtifacts) {
         if (pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(pluginData.pluginClass)) {
-          plugins.put(pluginPair.getFirst(), pluginData.pluginClass);
+          plugins.put(getDescriptor(entry), pluginData.pluginClass);
           break;
         }
       }
@@ -1074,49 +1141,70 @@ public class ArtifactStore {
     }
   }
 
-  @Nullable
-  private ImmutablePair<ArtifactDescriptor, PluginData> getPlugin(StructuredRow row,
-                                                                  Predicate<io.cdap.cdap.proto.id.ArtifactId> range) {
+  private ArtifactDescriptor getDescriptor(PluginEntry entry) {
+    return new ArtifactDescriptor(
+      entry.artifactId.toArtifactId(),
+      Locations.getLocationFromAbsolutePath(locationFactory, entry.data.getArtifactLocationPath()));
+  }
+
+  private ArtifactEntry toArtifactEntry(StructuredRow row) {
+    return new ArtifactEntry(getArtifactId(row),
+                             GSON.fromJson(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
+                                           ArtifactData.class));
+  }
+
+  private PluginEntry toPluginEntry(StructuredRow row, Id.Artifact artifactId) {
     // column is the artifact namespace, name, and version. value is the serialized PluginData
+    return new PluginEntry(artifactId, GSON.fromJson(row.getString(StoreDefinition.ArtifactStore.PLUGIN_DATA_FIELD),
+                                                     PluginData.class));
+  }
+
+  private static Id.Artifact getArtifactId(StructuredRow row) {
     Id.Namespace artifactNamespace =
       Id.Namespace.from(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD));
-    Id.Artifact artifactId =
-      Id.Artifact.from(artifactNamespace, row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD),
-                       row.getString(StoreDefinition.ArtifactStore.ARTIFACT_VER_FIELD));
-
-    if (!range.test(artifactId.toEntityId())) {
-      return null;
-    }
-    PluginData pluginData = GSON.fromJson(row.getString(StoreDefinition.ArtifactStore.PLUGIN_DATA_FIELD),
-                                          PluginData.class);
-    return ImmutablePair.of(new ArtifactDescriptor(
-      artifactId.toArtifactId(),
-      Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath())), pluginData);
-
+    return Id.Artifact.from(artifactNamespace, row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD),
+                            row.getString(StoreDefinition.ArtifactStore.ARTIFACT_VER_FIELD));
   }
 
   private Range createArtifactScanRange(NamespaceId namespace) {
-    Field<String> stringField = Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD,
-                                                   namespace.getNamespace());
-    return Range.singleton(Collections.singleton(stringField));
+    return createArtifactScanRange(namespace.getNamespace(), null);
+  }
+
+  private Range createArtifactScanRange(String namespace, @Nullable String name) {
+    List<Field<?>> keys = new ArrayList<>();
+    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD, namespace));
+    if (name != null) {
+      keys.add(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD, name));
+    }
+    return Range.singleton(keys);
   }
 
-  private Range createPluginScanRange(Id.Artifact parentArtifactId, @Nullable String type) {
+  private Range createPluginScanRange(String parentNamespace, String parentName,
+                                      @Nullable String type, @Nullable String name) {
     List<Field<?>> keys = new ArrayList<>();
-    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
-                                parentArtifactId.getNamespace().getId()));
-    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAME_FIELD, parentArtifactId.getName()));
+    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD, parentNamespace));
+    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAME_FIELD, parentName));
     if (type != null) {
       keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_TYPE_FIELD, type));
+      if (name != null) {
+        keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_NAME_FIELD, name));
+      }
     }
     return Range.singleton(keys);
   }
 
   private Range createUniversalPluginScanRange(String namespace, @Nullable String type) {
+    return createUniversalPluginScanRange(namespace, type, null);
+  }
+
+  private Range createUniversalPluginScanRange(String namespace, @Nullable String type, @Nullable String name) {
     List<Field<?>> keys = new ArrayList<>();
     keys.add(Fields.stringField(StoreDefinition.ArtifactStore.NAMESPACE_FIELD, namespace));
     if (type != null) {
       keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_TYPE_FIELD, type));
+      if (name != null) {
+        keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_NAME_FIELD, name));
+      }
     }
     return Range.singleton(keys);
   }
@@ -1206,22 +1294,6 @@ public class ArtifactStore {
     }
   }
 
-  // utilities for creating and parsing row keys for artifacts. Keys are of the form 'r:{namespace}:{artifact-name}'
-  private static class ArtifactKey {
-    private final String namespace;
-    private final String name;
-
-    private ArtifactKey(String namespace, String name) {
-      this.namespace = namespace;
-      this.name = name;
-    }
-
-    private static ArtifactKey fromRow(StructuredRow row) {
-      return new ArtifactKey(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD),
-                             row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD));
-    }
-  }
-
   private static class ArtifactCell {
     private final Collection<Field<?>> keys;
 
@@ -1244,8 +1316,177 @@ public class ArtifactStore {
     }
   }
 
+  /**
+   * Holds the published {@link ArtifactCatalog} together with the generation of the tables it was loaded for.
+   * The generation is incremented on every modification.
+   */
+  private static final class CatalogHolder {
+    private final long generation;
+    @Nullable
+    private final ArtifactCatalog catalog;
+
+    CatalogHolder(long generation, @Nullable ArtifactCatalog catalog) {
+      this.generation = generation;
+      this.catalog = catalog;
+    }
+
+    boolean isValid(long maxAgeNanos) {
+      return catalog != null && !catalog.isExpired(maxAgeNanos);
+    }
+  }
+
+  /**
+   * Provides the artifact and plugin metadata, either by reading the tables or from the {@link ArtifactCatalog}.
+   * Entries are returned in the same order as the table rows.
+   */
+  interface MetaReader {
+
+    /**
+     * Returns the artifact of the given id, or {@code null} if the artifact does not exist.
+     */
+    @Nullable
+    ArtifactEntry getArtifact(Id.Artifact artifactId) throws IOException;
+
+    /**
+     * Returns artifacts in the given namespace with versions accepted by the given filter.
+     *
+     * @param namespace the namespace of the artifacts
+     * @param name the name of the artifacts, or {@code null} for artifacts of any name
+     * @param versionFilter the filter on the artifact version
+     */
+    List<ArtifactEntry> getArtifacts(String namespace, @Nullable String name,
+                                     Predicate<ArtifactVersion> versionFilter) throws IOException;
+
+    /**
+     * Returns plugins that extend artifacts of the given parent name, from artifacts accepted by the given filter.
+     * The plugin name is only used if the plugin type is provided.
+     */
+    List<PluginEntry> getPlugins(String parentNamespace, String parentName,
+                                 @Nullable String type, @Nullable String name,
+                                 Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter) throws IOException;
+
+    /**
+     * Returns plugins usable by any artifact in the given namespace, from artifacts accepted by the given filter.
+     * The plugin name is only used if the plugin type is provided.
+     */
+    List<PluginEntry> getUniversalPlugins(String namespace, @Nullable String type, @Nullable String name,
+                                          Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter)
+      throws IOException;
+  }
+
+  /**
+   * A function that reads from a {@link MetaReader}.
+   */
+  private interface MetaReadFunction<V> {
+    V apply(MetaReader reader) throws Exception;
+  }
+
+  /**
+   * A {@link MetaReader} that reads from the tables.
+   */
+  private final class TableMetaReader implements MetaReader {
+
+    private final StructuredTableContext context;
+
+    private TableMetaReader(StructuredTableContext context) {
+      this.context = context;
+    }
+
+    @Nullable
+    @Override
+    public ArtifactEntry getArtifact(Id.Artifact artifactId) throws IOException {
+      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+      Optional<StructuredRow> row = table.read(new ArtifactCell(artifactId).keys);
+      return row.map(ArtifactStore.this::toArtifactEntry).orElse(null);
+    }
+
+    @Override
+    public List<ArtifactEntry> getArtifacts(String namespace, @Nullable String name,
+                                            Predicate<ArtifactVersion> versionFilter) throws IOException {
+      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+      List<ArtifactEntry> result = new ArrayList<>();
+      // TODO: CDAP-14636 add scan method without limit
+      try (CloseableIterator<StructuredRow> iterator =
+             table.scan(createArtifactScanRange(namespace, name), Integer.MAX_VALUE)) {
+        while (iterator.hasNext()) {
+          StructuredRow row = iterator.next();
+          // only parse the artifact data if the version is accepted
+          String version = row.getString(StoreDefinition.ArtifactStore.ARTIFACT_VER_FIELD);
+          if (versionFilter.test(new ArtifactVersion(version))) {
+            result.add(toArtifactEntry(row));
+          }
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public List<PluginEntry> getPlugins(String parentNamespace, String parentName,
+                                        @Nullable String type, @Nullable String name,
+                                        Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter)
+      throws IOException {
+      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+      return scanPlugins(table, createPluginScanRange(parentNamespace, parentName, type, name), artifactFilter);
+    }
+
+    @Override
+    public List<PluginEntry> getUniversalPlugins(String namespace, @Nullable String type, @Nullable String name,
+                                                 Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter)
+      throws IOException {
+      StructuredTable table = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+      return scanPlugins(table, createUniversalPluginScanRange(namespace, type, name), artifactFilter);
+    }
+
+    private List<PluginEntry> scanPlugins(StructuredTable table, Range range,
+                                          Predicate<io.cdap.cdap.proto.id.ArtifactId> artifactFilter)
+      throws IOException {
+      List<PluginEntry> result = new ArrayList<>();
+      try (CloseableIterator<StructuredRow> iterator = table.scan(range, Integer.MAX_VALUE)) {
+        while (iterator.hasNext()) {
+          StructuredRow row = iterator.next();
+          // only parse the plugin data if the artifact is accepted
+          Id.Artifact artifactId = getArtifactId(row);
+          if (artifactFilter.test(artifactId.toEntityId())) {
+            result.add(toPluginEntry(row, artifactId));
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * An artifact with its parsed {@link ArtifactData}.
+   */
+  static final class ArtifactEntry {
+    final Id.Artifact artifactId;
+    final io.cdap.cdap.proto.id.ArtifactId artifactEntityId;
+    final ArtifactData data;
+
+    private ArtifactEntry(Id.Artifact artifactId, ArtifactData data) {
+      this.artifactId = artifactId;
+      this.artifactEntityId = artifactId.toEntityId();
+      this.data = data;
+    }
+  }
+
+  /**
+   * A plugin with its parsed {@link PluginData} and the id of the artifact that contains the plugin.
+   */
+  static final class PluginEntry {
+    final Id.Artifact artifactId;
+    final io.cdap.cdap.proto.id.ArtifactId artifactEntityId;
+    final PluginData data;
+
+    private PluginEntry(Id.Artifact artifactId, PluginData data) {
+      this.artifactId = artifactId;
+      this.artifactEntityId = artifactId.toEntityId();
+      this.data = data;
+    }
+  }
+
   // Data that will be stored for an artifact. Same as ArtifactDetail, expected without the id since that is redundant.
-  private static class ArtifactData {
+  static class ArtifactData {
     // For Backward Compatibility
     private final URI locationURI;
     private final String locationPath;
@@ -1263,7 +1504,7 @@ public class ArtifactStore {
   }
 
   // Data that will be stored for a plugin.
-  private static class PluginData {
+  static class PluginData {
     private final PluginClass pluginClass;
     // URI For Backward Compatibility
     private final URI artifactLocationURI;
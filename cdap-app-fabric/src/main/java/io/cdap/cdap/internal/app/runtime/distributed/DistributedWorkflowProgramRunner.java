@@ -41,6 +41,7 @@ import io.cdap.cdap.app.runtime.ProgramRunner;
 import io.cdap.cdap.app.runtime.ProgramRunnerFactory;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.twill.DescribableClassAcceptor;
 import io.cdap.cdap.internal.app.runtime.BasicArguments;
 import io.cdap.cdap.internal.app.runtime.SimpleProgramOptions;
 import io.cdap.cdap.internal.app.runtime.SystemArguments;
@@ -67,6 +68,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * A {@link ProgramRunner} to start a {@link Workflow} program in distributed mode.
@@ -253,7 +255,7 @@ public final class DistributedWorkflowProgramRunner extends DistributedProgramRu
   /**
    * A {@link ClassAcceptor} that accepts if and only if a list of acceptors all accept.
    */
-  private static final class AndClassAcceptor extends ClassAcceptor {
+  private static final class AndClassAcceptor extends ClassAcceptor implements DescribableClassAcceptor {
 
     private final List<ClassAcceptor> acceptors;
 
@@ -270,5 +272,19 @@ public final class DistributedWorkflowProgramRunner extends DistributedProgramRu
       }
       return true;
     }
+
+    @Nullable
+    @Override
+    public String getExclusions() {
+      StringBuilder exclusions = new StringBuilder();
+      for (ClassAcceptor acceptor : acceptors) {
+        String acceptorExclusions = DescribableClassAcceptor.getExclusions(acceptor);
+        if (acceptorExclusions == null) {
+          return null;
+        }
+        exclusions.append('[').append(acceptorExclusions).append(']');
+      }
+      return exclusions.toString();
+    }
   }
 }
@@ -31,6 +31,7 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.logging.LoggingContext;
 import io.cdap.cdap.common.logging.LoggingContextAccessor;
+import io.cdap.cdap.common.twill.DescribableClassAcceptor;
 import io.cdap.cdap.common.utils.DirUtils;
 import io.cdap.cdap.logging.context.LoggingContextHelper;
 import io.cdap.cdap.proto.id.ProgramRunId;
@@ -70,6 +71,7 @@ import java.io.InputStream;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -86,12 +88,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * An abstract base implementation for implementing {@link TwillPreparer} for program runtime.
@@ -439,7 +443,7 @@ abstract class AbstractRuntimeTwillPreparer implements TwillPreparer {
       try {
         Map<String, LocalFile> localFiles = new HashMap<>();
         addLocalFiles(stagingDir, localFiles);
-        createApplicationJar(createBundler(stagingDir), localFiles);
+        createApplicationJar(createBundler(stagingDir), localFiles, stagingDir);
         createResourcesJar(createBundler(stagingDir), localFiles, stagingDir);
 
         throwIfTimeout(startTime, timeout, timeoutUnit);
@@ -477,8 +481,8 @@ abstract class AbstractRuntimeTwillPreparer implements TwillPreparer {
     return controllerFactory.create(startupTask, timeout, timeoutUnit);
   }
 
-  private void createApplicationJar(ApplicationBundler bundler,
-                                    Map<String, LocalFile> localFiles) throws IOException {
+  private void createApplicationJar(ApplicationBundler bundler, Map<String, LocalFile> localFiles,
+                                    Path stagingDir) throws IOException {
     Set<Class<?>> classes = Sets.newIdentityHashSet();
     classes.addAll(dependencies);
 
@@ -508,23 +512,25 @@ abstract class AbstractRuntimeTwillPreparer implements TwillPreparer {
       }
     }
 
-    // The location name is computed from the MD5 of all the classes names
+    // The location name is computed from the MD5 of all the inputs to the bundler
     // The localized name is always APPLICATION_JAR
-    List<String> classList = classes.stream().map(Class::getName).sorted().collect(Collectors.toList());
-    Hasher hasher = Hashing.md5().newHasher();
-    for (String name : classList) {
-      hasher.putString(name);
-    }
-    // Only depends on class list so that it can be reused across different launches
-    String name = hasher.hash().toString() + "-" + Constants.Files.APPLICATION_JAR;
+    // Only depends on the bundle inputs so that it can be reused across different launches
+    String digest = computeBundleDigest(classes);
 
     LOG.debug("Create and copy {}", Constants.Files.APPLICATION_JAR);
-    Location location = locationCache.get(name, new LocationCache.Loader() {
-      @Override
-      public void load(String name, Location targetLocation) throws IOException {
-        bundler.createBundle(targetLocation, classes);
-      }
-    });
+    Location location;
+    if (digest == null) {
+      // The bundle inputs can't be identified, hence the jar can't be reused
+      location = Locations.toLocation(new File(stagingDir.toFile(), Constants.Files.APPLICATION_JAR));
+      bundler.createBundle(location, classes);
+    } else {
+      location = locationCache.get(digest + "-" + Constants.Files.APPLICATION_JAR, new LocationCache.Loader() {
+        @Override
+        public void load(String name, Location targetLocation) throws IOException {
+          bundler.createBundle(targetLocation, classes);
+        }
+      });
+    }
 
     LOG.debug("Done {}", Constants.Files.APPLICATION_JAR);
 
@@ -532,6 +538,63 @@ abstract class AbstractRuntimeTwillPreparer implements TwillPreparer {
                    createLocalFile(Constants.Files.APPLICATION_JAR, location, true));
   }
 
+  /**
+   * Computes a digest of everything that determines the content of the application jar, which includes the
+   * classes to trace, the classes excluded by the class acceptor, and the classpath entries the classes are loaded
+   * from. Classpath entries are identified by their path, size and last modified time, so that a changed jar results
+   * in a different digest without reading its content.
+   *
+   * @return the digest, or {@code null} if the class acceptor cannot describe the classes it excludes
+   */
+  @Nullable
+  private String computeBundleDigest(Set<Class<?>> classes) {
+    String exclusions = DescribableClassAcceptor.getExclusions(classAcceptor);
+    if (exclusions == null) {
+      LOG.debug("Not caching {} for class acceptor {} that does not describe its exclusions",
+                Constants.Files.APPLICATION_JAR, classAcceptor.getClass().getName());
+      return null;
+    }
+    Hasher hasher = Hashing.md5().newHasher();
+    classes.stream().map(Class::getName).sorted().forEach(hasher::putString);
+    hasher.putString(exclusions);
+
+    Set<String> classPath = new TreeSet<>(Arrays.asList(
+      System.getProperty("java.class.path").split(File.pathSeparator)));
+    Set<ClassLoader> visited = Sets.newIdentityHashSet();
+    for (Class<?> cls : classes) {
+      for (ClassLoader cl = cls.getClassLoader(); cl != null && visited.add(cl); cl = cl.getParent()) {
+        if (cl instanceof URLClassLoader) {
+          for (URL url : ((URLClassLoader) cl).getURLs()) {
+            classPath.add(url.toString());
+          }
+        }
+      }
+    }
+    for (String entry : classPath) {
+      hasher.putString(entry);
+      File file = toFile(entry);
+      if (file != null) {
+        hasher.putLong(file.lastModified()).putLong(file.isFile() ? file.length() : 0L);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the {@link File} represented by the given classpath entry, or {@code null} if it is not a local file.
+   */
+  @Nullable
+  private File toFile(String classPathEntry) {
+    if (!classPathEntry.startsWith("file:")) {
+      return new File(classPathEntry);
+    }
+    try {
+      return new File(URI.create(classPathEntry));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
   private void createResourcesJar(ApplicationBundler bundler, Map<String, LocalFile> localFiles,
                                   Path stagingDir) throws IOException {
     // If there is no resources, no need to create the jar file.
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.distributed.remote;
+
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.internal.io.LocationCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link LocationCache} that can be used by multiple preparers concurrently. Unlike
+ * {@link org.apache.twill.internal.io.BasicLocationCache}, which holds a single lock while loading, cache hits never
+ * wait and loading of different names can happen in parallel. Concurrent requests for the same name only load once.
+ *
+ * Entries are loaded into a temporary location first and then renamed, so that a partially written file
+ * is never returned from the cache.
+ */
+final class ConcurrentLocationCache implements LocationCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrentLocationCache.class);
+
+  private final Location cacheDir;
+  private final ConcurrentMap<String, Object> locks;
+
+  ConcurrentLocationCache(Location cacheDir) {
+    this.cacheDir = cacheDir;
+    this.locks = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public Location get(String name, Loader loader) throws IOException {
+    Location location = cacheDir.append(name);
+    if (location.exists()) {
+      LOG.debug("Cache hit for {} in {}", name, location);
+      return location;
+    }
+
+    synchronized (locks.computeIfAbsent(name, k -> new Object())) {
+      // Check again, as it can be loaded by another thread while waiting for the lock
+      if (location.exists()) {
+        LOG.debug("Cache hit for {} in {}", name, location);
+        return location;
+      }
+
+      Location tmpLocation = cacheDir.append(name + "." + UUID.randomUUID() + ".tmp");
+      LOG.debug("Cache miss for {}. Use Loader to save to {}", name, tmpLocation);
+      try {
+        loader.load(name, tmpLocation);
+        if (tmpLocation.renameTo(location) == null) {
+          throw new IOException("Failed to rename " + tmpLocation + " to " + location);
+        }
+      } finally {
+        if (tmpLocation.exists() && !tmpLocation.delete()) {
+          LOG.warn("Failed to delete temporary file {}", tmpLocation);
+        }
+      }
+      return location;
+    }
+  }
+}
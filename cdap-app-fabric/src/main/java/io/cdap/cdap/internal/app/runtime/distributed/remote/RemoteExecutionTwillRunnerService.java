@@ -80,7 +80,6 @@ import org.apache.twill.filesystem.Location;
 import org.apache.twill.filesystem.LocationFactory;
 import org.apache.twill.internal.ServiceListenerAdapter;
 import org.apache.twill.internal.SingleRunnableApplication;
-import org.apache.twill.internal.io.BasicLocationCache;
 import org.apache.twill.internal.io.LocationCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -167,7 +166,7 @@ public class RemoteExecutionTwillRunnerService implements TwillRunnerService, Pr
       Path tempDir = Files.createDirectories(Paths.get(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                                                        cConf.get(Constants.AppFabric.TEMP_DIR)).toAbsolutePath());
       cachePath = Files.createTempDirectory(tempDir, "runner.cache");
-      locationCache = new BasicLocationCache(Locations.toLocation(cachePath));
+      locationCache = new ConcurrentLocationCache(Locations.toLocation(cachePath));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
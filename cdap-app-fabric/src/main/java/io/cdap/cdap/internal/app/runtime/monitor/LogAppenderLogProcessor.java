@@ -21,7 +21,7 @@ import io.cdap.cdap.common.logging.LoggingContext;
 import io.cdap.cdap.logging.appender.LogAppender;
 import io.cdap.cdap.logging.appender.LogMessage;
 import io.cdap.cdap.logging.context.LoggingContextHelper;
-import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.logging.serialize.LoggingEventBlockSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,8 +36,8 @@ import javax.inject.Inject;
 public class LogAppenderLogProcessor implements RemoteExecutionLogProcessor {
 
   private static final Logger LOG = LoggerFactory.getLogger(LogAppenderLogProcessor.class);
-  private static final ThreadLocal<LoggingEventSerializer> LOGGING_EVENT_SERIALIZER =
-          ThreadLocal.withInitial(LoggingEventSerializer::new);
+  private static final ThreadLocal<LoggingEventBlockSerializer> LOGGING_EVENT_SERIALIZER =
+          ThreadLocal.withInitial(LoggingEventBlockSerializer::new);
   private final LogAppender logAppender;
 
   @Inject
@@ -47,17 +47,19 @@ public class LogAppenderLogProcessor implements RemoteExecutionLogProcessor {
 
   @Override
   public void process(Iterator<byte[]> loggingEventBytes) {
-    LoggingEventSerializer serializer = LOGGING_EVENT_SERIALIZER.get();
+    LoggingEventBlockSerializer serializer = LOGGING_EVENT_SERIALIZER.get();
     loggingEventBytes.forEachRemaining(bytes -> {
       try {
-        ILoggingEvent iLoggingEvent = serializer.fromBytes(ByteBuffer.wrap(bytes));
-        LoggingContext loggingContext = LoggingContextHelper.getLoggingContext(iLoggingEvent.getMDCPropertyMap());
-        if (loggingContext == null) {
-          // This shouldn't happen
-          LOG.debug("Ignore logging event due to missing logging context: {}", iLoggingEvent);
-          return;
+        // Each message is either a block of logging events or a single logging event
+        for (ILoggingEvent iLoggingEvent : serializer.fromBytes(ByteBuffer.wrap(bytes))) {
+          LoggingContext loggingContext = LoggingContextHelper.getLoggingContext(iLoggingEvent.getMDCPropertyMap());
+          if (loggingContext == null) {
+            // This shouldn't happen
+            LOG.debug("Ignore logging event due to missing logging context: {}", iLoggingEvent);
+            continue;
+          }
+          logAppender.append(new LogMessage(iLoggingEvent, loggingContext));
         }
-        logAppender.append(new LogMessage(iLoggingEvent, loggingContext));
       } catch (IOException e) {
         LOG.warn("Ignore logging event due to decode failure: {}", e.getMessage());
         LOG.debug("Ignore logging event stack trace", e);
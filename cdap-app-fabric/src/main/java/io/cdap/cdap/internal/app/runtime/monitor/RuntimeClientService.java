@@ -17,7 +17,8 @@
 package io.cdap.cdap.internal.app.runtime.monitor;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.AbstractIterator;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.Gson;
 import com.google.inject.Inject;
 import io.cdap.cdap.api.common.Bytes;
@@ -44,25 +45,37 @@ import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Spliterators;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
 
 /**
- * A service that periodically relay messages from local TMS to the runtime server.
+ * A service that relays messages from local TMS to the runtime server.
  * This service runs in the remote runtime.
+ *
+ * Each topic is relayed independently by a {@link TopicRelayer} on its own thread, so that a slow topic doesn't
+ * delay the other topics. While a batch of messages is being sent, the next batch is fetched ahead from TMS.
+ * The program status topic is relayed on a dedicated executor, so that program state changes reach the
+ * runtime server promptly even when other topics are busy.
  */
 public class RuntimeClientService extends AbstractRetryableScheduledService {
 
@@ -70,6 +83,8 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
   private static final Logger OUTAGE_LOG = Loggers.sampling(
     LOG, LogSamplers.all(LogSamplers.skipFirstN(5), LogSamplers.limitRate(TimeUnit.SECONDS.toMillis(30))));
   private static final Gson GSON = new Gson();
+  // The batch size adapts between the configured batch size and this multiple of it
+  private static final int MAX_BATCH_SIZE_MULTIPLIER = 4;
 
   private final Map<String, TopicRelayer> topicRelayers;
   private final MessagingContext messagingContext;
@@ -78,7 +93,11 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
   private final ProgramRunId programRunId;
   private final RuntimeClient runtimeClient;
   private final int fetchLimit;
-  private long programFinishTime;
+  private volatile long programFinishTime;
+  private volatile Exception relayFailure;
+  private ScheduledExecutorService programStatusExecutor;
+  private ScheduledExecutorService relayExecutor;
+  private ExecutorService fetchExecutor;
 
   @Inject
   RuntimeClientService(CConfiguration cConf, MessagingService messagingService,
@@ -95,12 +114,28 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
       .collect(Collectors.toMap(Map.Entry::getKey, e -> createTopicRelayer(cConf, e.getValue())));
   }
 
+  @Override
+  protected void doStartUp() throws Exception {
+    super.doStartUp();
+    programStatusExecutor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("runtime-client-program-status-relayer"));
+    // One thread per topic, so that every topic always has a thread to relay on
+    relayExecutor = Executors.newScheduledThreadPool(Math.max(1, topicRelayers.size()),
+                                                     Threads.createDaemonThreadFactory("runtime-client-relayer-%d"));
+    fetchExecutor = Executors.newCachedThreadPool(Threads.createDaemonThreadFactory("runtime-client-fetcher-%d"));
+
+    for (TopicRelayer topicRelayer : topicRelayers.values()) {
+      topicRelayer.start(topicRelayer instanceof ProgramStatusTopicRelayer ? programStatusExecutor : relayExecutor);
+    }
+  }
+
   @Override
   protected long runTask() throws Exception {
-    long nextPollDelay = pollTimeMillis;
-    for (Map.Entry<String, TopicRelayer> entry : topicRelayers.entrySet()) {
-      TopicRelayer topicRelayer = entry.getValue();
-      nextPollDelay = Math.min(nextPollDelay, topicRelayer.publishMessages());
+    // Topics are relayed by the TopicRelayer themselves. This task only watches for relay failure and
+    // program termination.
+    Exception failure = relayFailure;
+    if (failure != null) {
+      throw failure;
     }
 
     // If we got the program finished state, determine when to shutdown
@@ -109,33 +144,58 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
       // Essentially is the wait time for any unpublished events on the remote runtime to publish
       // E.g. Metrics from the remote runtime process might have some delay after the program state changed,
       // even though we explicitly flush the metrics on program completion.
-      // If the nextPollDelay returned by all topicRelays equals to the pollTimeMillis,
-      // that means all of them fetched till the end of the corresponding topic in the latest fetch.
+      // If all topicRelayers are caught up, that means all of them fetched till the end of the corresponding topic
+      // in the latest fetch.
       long now = System.currentTimeMillis();
-      if ((nextPollDelay == pollTimeMillis && now - (gracefulShutdownMillis >> 1) > programFinishTime)
+      boolean caughtUp = topicRelayers.values().stream().allMatch(TopicRelayer::isCaughtUp);
+      if ((caughtUp && now - (gracefulShutdownMillis >> 1) > programFinishTime)
           || (now - gracefulShutdownMillis > programFinishTime)) {
         LOG.debug("Program {} terminated. Shutting down runtime client service.", programRunId);
         stop();
       }
     }
 
-    return nextPollDelay;
+    return pollTimeMillis;
   }
 
   @Override
   protected boolean shouldRetry(Exception e) {
-    OUTAGE_LOG.warn("Failed to send runtime status. Will be retried.", e);
-    return true;
+    // Each TopicRelayer retries by itself. Failure is only raised by runTask if retries were exhausted.
+    LOG.error("Failed to send runtime status. Retries exhausted.", e);
+    return false;
   }
 
   @Override
   protected void doShutdown() throws Exception {
-    // Close all the TopicRelay, which will flush out all pending messages
+    // Stop the relaying threads
     for (TopicRelayer topicRelayer : topicRelayers.values()) {
-      Retries.callWithRetries((Retries.Callable<Void, IOException>) () -> {
-        topicRelayer.close();
-        return null;
-      }, getRetryStrategy(), t -> t instanceof IOException || t instanceof RetryableException);
+      topicRelayer.stop();
+    }
+    for (ExecutorService executor : new ExecutorService[] { programStatusExecutor, relayExecutor }) {
+      if (executor != null) {
+        executor.shutdown();
+        // A relay that is still in progress after the timeout is waited for by TopicRelayer.close()
+        executor.awaitTermination(gracefulShutdownMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    try {
+      // Close all the TopicRelay, which will flush out all pending messages.
+      // The program status is closed last, so that other topics are flushed before the program terminal status
+      // is sent to the runtime server.
+      List<TopicRelayer> relayers = new ArrayList<>(topicRelayers.values());
+      relayers.sort((r1, r2) -> Boolean.compare(r1 instanceof ProgramStatusTopicRelayer,
+                                                r2 instanceof ProgramStatusTopicRelayer));
+      for (TopicRelayer topicRelayer : relayers) {
+        Retries.callWithRetries((Retries.Callable<Void, IOException>) () -> {
+          topicRelayer.close();
+          return null;
+        }, getRetryStrategy(), t -> t instanceof IOException || t instanceof RetryableException);
+      }
+    } finally {
+      if (fetchExecutor != null) {
+        fetchExecutor.shutdownNow();
+      }
     }
   }
 
@@ -159,6 +219,8 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
 
   /**
    * Helper class to fetch and publish messages from one topic.
+   * Relaying and closing are serialized on the relayer, so that closing waits for the relaying in progress, and
+   * no message is published by relaying once closing started.
    */
   private class TopicRelayer implements Closeable {
 
@@ -166,64 +228,160 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
 
     private final TopicId topicId;
     private String lastMessageId;
-    private long nextPublishTimeMillis;
     private int totalPublished;
+    private int batchSize;
+    private Prefetch prefetch;
+    private volatile boolean caughtUp;
 
+    private ScheduledExecutorService executor;
+    private volatile boolean stopped;
+    private boolean closed;
+    private int failureCount;
+    private long nonFailureStartTime;
 
     TopicRelayer(TopicId topicId) {
       this.topicId = topicId;
+      this.batchSize = fetchLimit;
+    }
+
+    /**
+     * Starts relaying messages repeatedly using the given executor.
+     */
+    void start(ScheduledExecutorService executor) {
+      this.executor = executor;
+      schedule(0L);
+    }
+
+    /**
+     * Stops relaying messages. Relaying that is already in progress will be completed.
+     */
+    void stop() {
+      stopped = true;
+    }
+
+    /**
+     * Returns {@code true} if the last fetch fetched till the end of the topic.
+     */
+    boolean isCaughtUp() {
+      return caughtUp;
+    }
+
+    private void schedule(long delayMillis) {
+      if (stopped) {
+        return;
+      }
+      try {
+        executor.schedule(this::relay, delayMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // The executor is shutting down
+        LOG.trace("Relaying of topic {} is stopped", topicId);
+      }
+    }
+
+    /**
+     * Publishes messages and schedules the next relay, with retry on failure.
+     */
+    private synchronized void relay() {
+      if (stopped || closed) {
+        return;
+      }
+      long delayMillis;
+      try {
+        if (nonFailureStartTime == 0L) {
+          nonFailureStartTime = System.currentTimeMillis();
+        }
+        delayMillis = publishMessages();
+        nonFailureStartTime = 0L;
+        failureCount = 0;
+      } catch (Exception e) {
+        OUTAGE_LOG.warn("Failed to send runtime messages of topic {}. Will be retried.", topicId, e);
+        delayMillis = getRetryStrategy().nextRetry(++failureCount, nonFailureStartTime);
+        if (delayMillis < 0) {
+          // Let the service fail with the relay failure
+          relayFailure = e;
+          return;
+        }
+      }
+      schedule(delayMillis);
     }
 
     /**
      * Fetches messages from the {@link MessagingContext} and publish them using {@link RuntimeClient}.
+     * If the fetch is full, the next batch is fetched ahead while the current batch is being published.
      *
      * @return delay in milliseconds till the next poll
      * @throws TopicNotFoundException if the TMS topic to fetch from does not exist
      * @throws IOException if failed to read from TMS or write to RuntimeClient
      */
     long publishMessages() throws TopicNotFoundException, IOException, BadRequestException {
-      long currentTimeMillis = System.currentTimeMillis();
+      Prefetch prefetch = this.prefetch;
+      this.prefetch = null;
+
+      // Use the prefetched messages only if it was fetched from the last published message.
+      // It is not if publishing of the previous batch failed.
+      int limit;
+      List<Message> messages;
+      if (prefetch != null && Objects.equals(prefetch.lastMessageId, lastMessageId)) {
+        limit = prefetch.limit;
+        messages = prefetch.getMessages();
+      } else {
+        if (prefetch != null) {
+          prefetch.future.cancel(true);
+        }
+        limit = batchSize;
+        messages = fetchMessages(lastMessageId, limit);
+      }
+
+      // If we fetched all messages, then delay the next poll by pollTimeMillis.
+      // Otherwise, fetch ahead the next batch and poll again immediately.
+      caughtUp = messages.size() < limit;
+      if (messages.isEmpty()) {
+        return pollTimeMillis;
+      }
+      String messageId = messages.get(messages.size() - 1).getId();
+      if (!caughtUp) {
+        int nextLimit = batchSize;
+        this.prefetch = new Prefetch(messageId, nextLimit,
+                                     fetchExecutor.submit(() -> fetchMessages(messageId, nextLimit)));
+      }
+
+      long startTime = System.currentTimeMillis();
+      processMessages(messages.iterator());
+      adjustBatchSize(!caughtUp, System.currentTimeMillis() - startTime);
 
-      // Not too publish more than necessary in one topic.
-      // This method might get called more than once even before the next publish time is hit.
-      if (currentTimeMillis < nextPublishTimeMillis) {
-        return nextPublishTimeMillis - currentTimeMillis;
+      // Update the lastMessageId if sendMessages succeeded
+      lastMessageId = messageId;
+      totalPublished += messages.size();
+      progressLog.debug("Processed in total {} messages on topic {}", totalPublished, topicId);
+
+      return caughtUp ? pollTimeMillis : 0L;
+    }
+
+    /**
+     * Adjusts the batch size based on how long it took to publish the last batch. The batch size grows when there
+     * is backlog and publishing is fast, and shrinks when publishing is slow, so that the topic is relayed with
+     * fewer calls when the runtime server keeps up, and without delaying the next poll for too long when it doesn't.
+     */
+    private void adjustBatchSize(boolean hasBacklog, long publishTimeMillis) {
+      if (hasBacklog && publishTimeMillis < (pollTimeMillis >> 1)) {
+        batchSize = (int) Math.min((long) fetchLimit * MAX_BATCH_SIZE_MULTIPLIER, (long) batchSize << 1);
+      } else if (publishTimeMillis > pollTimeMillis) {
+        batchSize = Math.max(fetchLimit, batchSize >> 1);
       }
+    }
 
+    /**
+     * Fetches messages from the {@link MessagingContext}.
+     */
+    private List<Message> fetchMessages(@Nullable String afterMessageId,
+                                        int limit) throws TopicNotFoundException, IOException {
       try (CloseableIterator<Message> iterator = messagingContext.getMessageFetcher().fetch(topicId.getNamespace(),
                                                                                             topicId.getTopic(),
-                                                                                            fetchLimit,
-                                                                                            lastMessageId)) {
-        AtomicInteger messageCount = new AtomicInteger();
-        if (iterator.hasNext()) {
-          String[] messageId = new String[1];
-          processMessages(new AbstractIterator<Message>() {
-            @Override
-            protected Message computeNext() {
-              if (!iterator.hasNext()) {
-                return endOfData();
-              }
-              Message message = iterator.next();
-              messageId[0] = message.getId();
-              messageCount.incrementAndGet();
-              return message;
-            }
-          });
-
-          // Update the lastMessageId if sendMessages succeeded
-          lastMessageId = messageId[0] == null ? lastMessageId : messageId[0];
-          totalPublished += messageCount.get();
-          progressLog.debug("Processed in total {} messages on topic {}", totalPublished, topicId);
-        }
-
-        // If we fetched all messages, then delay the next poll by pollTimeMillis.
-        // Otherwise, try to poll again immediately.
-        nextPublishTimeMillis = System.currentTimeMillis();
-        if (messageCount.get() >= fetchLimit) {
-          return 0L;
-        }
-        nextPublishTimeMillis += pollTimeMillis;
-        return pollTimeMillis;
+                                                                                            limit,
+                                                                                            afterMessageId)) {
+        List<Message> messages = new ArrayList<>();
+        iterator.forEachRemaining(messages::add);
+        return messages;
       }
     }
 
@@ -235,10 +393,10 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
+      closed = true;
       try {
         // Force one extra poll with retry
-        nextPublishTimeMillis = 0L;
         // Retry on all errors
         Retries.runWithRetries(this::publishMessages, getRetryStrategy(), t -> true);
       } catch (TopicNotFoundException | BadRequestException e) {
@@ -247,6 +405,35 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
         LOG.error("Failed to publish messages on close for topic {}", topicId, e);
       } catch (Exception e) {
         LOG.error("Retry exhausted when trying to publish message on close for topic {}", topicId, e);
+      } finally {
+        if (prefetch != null) {
+          prefetch.future.cancel(true);
+          prefetch = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * The messages being fetched ahead for a topic.
+   */
+  private static final class Prefetch {
+    private final String lastMessageId;
+    private final int limit;
+    private final Future<List<Message>> future;
+
+    Prefetch(String lastMessageId, int limit, Future<List<Message>> future) {
+      this.lastMessageId = lastMessageId;
+      this.limit = limit;
+      this.future = future;
+    }
+
+    List<Message> getMessages() throws TopicNotFoundException, IOException {
+      try {
+        return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), TopicNotFoundException.class, IOException.class);
+        throw Throwables.propagate(e.getCause());
       }
     }
   }
@@ -267,8 +454,8 @@ public class RuntimeClientService extends AbstractRetryableScheduledService {
 
     @Override
     protected void processMessages(Iterator<Message> iterator) throws IOException, BadRequestException {
-      List<Message> message = StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0), false)
-        .collect(Collectors.toList());
+      List<Message> message = new ArrayList<>();
+      iterator.forEachRemaining(message::add);
 
       if (programFinishTime < 0) {
         programFinishTime = findProgramFinishTime(message);
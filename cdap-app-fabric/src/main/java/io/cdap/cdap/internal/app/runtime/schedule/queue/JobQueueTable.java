@@ -51,6 +51,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -92,11 +93,13 @@ public class JobQueueTable implements JobQueue {
   private final StructuredTable jobQueueTable;
   private final AppMetadataStore appMetadataStore;
   private final int numPartitions;
+  private final Set<Integer> pendingConstraintPartitions;
 
   JobQueueTable(StructuredTable jobQueueTable, AppMetadataStore appMetadataStore, int numPartitions) {
     this.jobQueueTable = jobQueueTable;
     this.appMetadataStore = appMetadataStore;
     this.numPartitions = numPartitions;
+    this.pendingConstraintPartitions = new HashSet<>();
   }
 
   public static JobQueueTable getJobQueue(StructuredTableContext context, CConfiguration cConf) {
@@ -252,6 +255,15 @@ public class JobQueueTable implements JobQueue {
     return createJobIterator(jobQueueTable.scan(range, Integer.MAX_VALUE));
   }
 
+  /**
+   * Returns the set of partitions in which at least one job was written in the
+   * {@link Job.State#PENDING_CONSTRAINT} state through this instance. Callers can use it to signal the constraint
+   * checkers of those partitions once the transaction that wrote the jobs has been committed.
+   */
+  public Set<Integer> getPendingConstraintPartitions() {
+    return Collections.unmodifiableSet(pendingConstraintPartitions);
+  }
+
   // full scan of JobQueueTable
   public CloseableIterator<Job> fullScan() throws IOException {
     return createJobIterator(jobQueueTable.scan(Range.all(), Integer.MAX_VALUE));
@@ -357,6 +369,8 @@ public class JobQueueTable implements JobQueue {
     jobQueueTable.upsert(fields);
     if (job.isToBeDeleted()) {
       writeJobDelete(job, job.getDeleteTimeMillis());
+    } else if (job.getState() == Job.State.PENDING_CONSTRAINT) {
+      pendingConstraintPartitions.add(getPartition(job.getSchedule().getScheduleId()));
     }
   }
 
@@ -150,11 +150,13 @@ public class ProgramScheduleStoreDataset {
     scheduleStore.upsert(scheduleFields);
 
     int count = 0;
+    List<Collection<Field<?>>> triggerRows = new ArrayList<>();
     for (String triggerKey : extractTriggerKeys(schedule)) {
       Collection<Field<?>> triggerFields = getTriggerKeys(scheduleKeys, count++);
       triggerFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey));
-      triggerStore.upsert(triggerFields);
+      triggerRows.add(triggerFields);
     }
+    triggerStore.multiUpsert(triggerRows);
   }
 
   /**
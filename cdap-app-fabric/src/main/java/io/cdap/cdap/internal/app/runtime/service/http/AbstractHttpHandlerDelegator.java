@@ -31,6 +31,11 @@ import io.cdap.http.HttpHandler;
 import io.cdap.http.HttpResponder;
 import io.netty.handler.codec.http.HttpRequest;
 import org.apache.twill.common.Cancellable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * An abstract base class for all {@link HttpHandler} generated through the {@link HttpHandlerGenerator}.
@@ -39,6 +44,8 @@ import org.apache.twill.common.Cancellable;
  */
 public abstract class AbstractHttpHandlerDelegator<T> implements HttpHandler {
 
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractHttpHandlerDelegator.class);
+
   private final DelegatorContext<T> context;
   private MetricsContext metricsContext;
 
@@ -131,4 +138,48 @@ public abstract class AbstractHttpHandlerDelegator<T> implements HttpHandler {
       new BodyProducerAdapter(contentProducer, txServiceContext, contextReleaser, defaultTxControl)
     ), consumer, taskExecutor, contextReleaser, defaultTxControl);
   }
+
+  /**
+   * Sends the response buffered in the given {@link DelayedHttpServiceResponder} once the given
+   * {@link CompletionStage} returned by an asynchronous handler method completes. If the stage completes
+   * exceptionally, a failure response is sent instead.
+   *
+   * IMPORTANT: This method will also capture the context associated with the current thread, so that the handler
+   * instance stays with the request until the response is sent, while the current thread is free to serve
+   * other requests. After this method is called, no other methods on this class should be called from
+   * the current thread.
+   *
+   * This method is called from handler class generated by {@link HttpHandlerGenerator}.
+   */
+  @SuppressWarnings("unused")
+  protected final void completeAsync(CompletionStage<?> stage, DelayedHttpServiceResponder responder,
+                                     TransactionControl defaultTxControl) {
+    Cancellable contextReleaser = context.capture();
+
+    stage.whenComplete((result, failure) -> {
+      boolean released = false;
+      try {
+        if (failure != null) {
+          responder.setFailure(failure instanceof CompletionException && failure.getCause() != null
+                                 ? failure.getCause() : failure);
+        } else if (!responder.hasBufferedResponse()) {
+          responder.setFailure(new IllegalStateException(
+            "Handler method completed without sending a response"));
+        }
+        // Transfer the captured context to the content producer, if there is one
+        DelayedHttpServiceResponder completedResponder = new DelayedHttpServiceResponder(
+          responder, (contentProducer, taskExecutor) ->
+          new BodyProducerAdapter(contentProducer, taskExecutor, contextReleaser, defaultTxControl));
+        responder.close();
+        released = completedResponder.hasContentProducer();
+        completedResponder.execute();
+      } catch (Throwable t) {
+        LOG.error("Failed to send response for asynchronous handler method", t);
+      } finally {
+        if (!released) {
+          contextReleaser.cancel();
+        }
+      }
+    });
+  }
 }
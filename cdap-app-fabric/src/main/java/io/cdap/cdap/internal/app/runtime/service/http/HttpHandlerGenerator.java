@@ -70,6 +70,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -107,6 +108,12 @@ import javax.ws.rs.Path;
  *     public HttpContentConsumer userUpload(HttpRequest request, HttpResponder responder) {
  *       // see generateDelegateBody() for generated method body.
  *     }
+ *
+ *     @literal @GET
+ *     @literal @Path("/async")
+ *     public void userAsyncMethod(HttpRequest request, HttpResponder responder) {
+ *       // user method returns a CompletionStage; see generateDelegateBody() for generated method body.
+ *     }
  *   }
  * }</pre>
  */
@@ -127,6 +134,7 @@ final class HttpHandlerGenerator {
   private static final Type EXCEPTION_TYPE = Type.getType(Exception.class);
   private static final Type DELAYED_HTTP_SERVICE_RESPONDER_TYPE = Type.getType(DelayedHttpServiceResponder.class);
   private static final Type HTTP_CONTENT_CONSUMER_TYPE = Type.getType(HttpContentConsumer.class);
+  private static final Type COMPLETION_STAGE_TYPE = Type.getType(CompletionStage.class);
 
   // Method descriptor of the LambdaMetafactory.metafactory method.
   private static final String LAMBDA_META_FACTORY_METHOD_DESC =
@@ -454,29 +462,38 @@ final class HttpHandlerGenerator {
 
       // If the return type is an instance of HttpContentConsumer, the generated method need to have
       // netty-http BodyConsumer as return type.
+      // If the return type is a CompletionStage, the generated method returns void and
+      // the response is sent when the CompletionStage completes.
       // Otherwise, the return type must be void
+      boolean async = false;
       if (returnType.getSort() == Type.OBJECT) {
         try {
           Class<?> returnClass = delegateType.getRawType().getClassLoader().loadClass(returnType.getClassName());
-          if (!HttpContentConsumer.class.isAssignableFrom(returnClass)) {
-            throw new IllegalArgumentException("Handler method must either return void or a "
-                                                 + HttpContentConsumer.class.getName());
+          if (CompletionStage.class.isAssignableFrom(returnClass)) {
+            async = true;
+            returnType = Type.VOID_TYPE;
+          } else if (HttpContentConsumer.class.isAssignableFrom(returnClass)) {
+            returnType = Type.getType(BodyConsumer.class);
+          } else {
+            throw new IllegalArgumentException("Handler method must either return void, a "
+                                                 + HttpContentConsumer.class.getName() + " or a "
+                                                 + CompletionStage.class.getName());
           }
-          returnType = Type.getType(BodyConsumer.class);
         } catch (ClassNotFoundException e) {
           // Shouldn't happen since the delegateType (user handler class) is already loaded and the method return
           // type should be loadable through the same classloader
           throw Throwables.propagate(e);
         }
       } else if (!returnType.equals(Type.VOID_TYPE)) {
-        throw new IllegalArgumentException("Handler method must either return void or a "
-                                             + HttpContentConsumer.class.getName());
+        throw new IllegalArgumentException("Handler method must either return void, a "
+                                             + HttpContentConsumer.class.getName() + " or a "
+                                             + CompletionStage.class.getName());
       }
 
       // Copy the method signature with the first two parameter types changed and return type changed
       String methodDesc = Type.getMethodDescriptor(returnType, argTypes);
       MethodVisitor methodVisitor = classWriter.visitMethod(access, name, methodDesc,
-                                                            rewriteMethodSignature(signature), exceptions);
+                                                            rewriteMethodSignature(signature, async), exceptions);
       GeneratorAdapter mg = new GeneratorAdapter(methodVisitor, access, name, methodDesc);
 
       // Replay all annotations before generating the body.
@@ -490,7 +507,7 @@ final class HttpHandlerGenerator {
       }
 
       // Generate the method body
-      generateDelegateBody(classWriter, mg, new Method(name, desc), txCtrl);
+      generateDelegateBody(classWriter, mg, new Method(name, desc), txCtrl, async);
 
       super.visitEnd();
     }
@@ -528,12 +545,20 @@ final class HttpHandlerGenerator {
     /**
      * Rewrite the handler method signature to have the first two parameters rewritten from
      * {@link HttpServiceRequest} and {@link HttpServiceResponder} into
-     * {@link HttpRequest} and {@link HttpResponder}.
+     * {@link HttpRequest} and {@link HttpResponder}. If {@code voidReturn} is {@code true}, the return type is
+     * rewritten to {@code void}.
      */
-    private String rewriteMethodSignature(String signature) {
+    private String rewriteMethodSignature(String signature, boolean voidReturn) {
       if (signature == null) {
         return null;
       }
+      if (voidReturn) {
+        // Method signature is in the form of "<typeParams>(params)returnType^exceptions"
+        int returnIdx = signature.indexOf(')') + 1;
+        int exceptionIdx = signature.indexOf('^', returnIdx);
+        signature = signature.substring(0, returnIdx) + "V"
+          + (exceptionIdx < 0 ? "" : signature.substring(exceptionIdx));
+      }
 
       SignatureReader reader = new SignatureReader(signature);
       SignatureWriter writer = new SignatureWriter() {
@@ -593,13 +618,36 @@ final class HttpHandlerGenerator {
      *   }
      * }
      * </pre>
+     *
+     * For handler that returns {@link CompletionStage}, it has the following form:
+     *
+     * <pre>
+     * public void handle(HttpRequest request, HttpResponder responder, ...) {
+     *   T handler = getHandler();
+     *   DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder, defaultTxControl);
+     *   AtomicReference resultRef = new AtomicReference();
+     *   try {
+     *     execute(context -> resultRef.set(handler.handle(wrapRequest(request), wrappedResponder, ...)), useTx);
+     *   } catch (Exception e) {
+     *     wrappedResponder.setFailure(e);
+     *     resultRef.set(null);
+     *   }
+     *   CompletionStage stage = (CompletionStage) resultRef.get();
+     *   if (stage == null) {
+     *     wrappedResponder.execute();
+     *   } else {
+     *     completeAsync(stage, wrappedResponder, defaultTxControl);
+     *   }
+     * }
+     * </pre>
      */
     private void generateDelegateBody(ClassWriter classWriter, GeneratorAdapter mg,
-                                      Method method, TransactionControl txControl) {
-      boolean useBodyConsumer = method.getReturnType().getSort() == Type.OBJECT;
+                                      Method method, TransactionControl txControl, boolean async) {
+      boolean useResultRef = method.getReturnType().getSort() == Type.OBJECT;
+      boolean useBodyConsumer = useResultRef && !async;
 
       // Generate the synthetic static method for lambda invoke first
-      Method lambdaMethod = generateRunnableLambda(classWriter, method, useBodyConsumer);
+      Method lambdaMethod = generateRunnableLambda(classWriter, method, useResultRef);
 
       Type handlerType = Type.getType(delegateType.getRawType());
 
@@ -628,7 +676,7 @@ final class HttpHandlerGenerator {
       mg.storeLocal(wrappedResponder, DELAYED_HTTP_SERVICE_RESPONDER_TYPE);
 
       int consumerRef = 0;
-      if (useBodyConsumer) {
+      if (useResultRef) {
         // AtomicReference<HttpContentConsumer> consumerRef = new AtomicReference<>();
         consumerRef = mg.newLocal(ATOMIC_REFERENCE_TYPE);
         mg.newInstance(ATOMIC_REFERENCE_TYPE);
@@ -653,7 +701,7 @@ final class HttpHandlerGenerator {
       mg.loadThis();
 
       // Populate the parameters needed for the lambda method. See generateRunnableLambda for the signature.
-      if (useBodyConsumer) {
+      if (useResultRef) {
         mg.loadLocal(consumerRef);
       }
       mg.loadLocal(handler);
@@ -708,7 +756,7 @@ final class HttpHandlerGenerator {
       mg.invokeVirtual(DELAYED_HTTP_SERVICE_RESPONDER_TYPE,
                        Methods.getMethod(void.class, "setFailure", Throwable.class));
 
-      if (useBodyConsumer) {
+      if (useResultRef) {
         // consumerRef.set(null);
         mg.loadLocal(consumerRef);
         mg.visitInsn(Opcodes.ACONST_NULL);
@@ -759,6 +807,44 @@ final class HttpHandlerGenerator {
                                                       DelayedHttpServiceResponder.class,
                                                       TransactionControl.class));
         mg.returnValue();
+      } else if (async) {
+        // CompletionStage stage = consumerRef.get();
+        // if (stage == null) {
+        //   wrappedResponder.execute();
+        // } else {
+        //   completeAsync(stage, wrappedResponder, defaultTxControl);
+        // }
+        Label hasStage = mg.newLabel();
+
+        int stage = mg.newLocal(COMPLETION_STAGE_TYPE);
+        mg.loadLocal(consumerRef);
+        mg.invokeVirtual(ATOMIC_REFERENCE_TYPE, Methods.getMethod(Object.class, "get"));
+        mg.checkCast(COMPLETION_STAGE_TYPE);
+        mg.storeLocal(stage);
+
+        mg.loadLocal(stage);
+        mg.ifNonNull(hasStage);
+
+        //   wrappedResponder.execute();
+        //   return;
+        mg.loadLocal(wrappedResponder);
+        mg.invokeVirtual(DELAYED_HTTP_SERVICE_RESPONDER_TYPE, Methods.getMethod(void.class, "execute"));
+        mg.returnValue();
+
+        mg.mark(hasStage);
+
+        // IMPORTANT: Calling completeAsync must be the last thing to do in this generated method
+        // since the current context will be captured
+        // completeAsync(stage, wrappedResponder, defaultTxControl);
+        mg.loadThis();
+        mg.loadLocal(stage);
+        mg.loadLocal(wrappedResponder);
+        mg.getStatic(TX_CONTROL_TYPE, defaultTxControl.name(), TX_CONTROL_TYPE);
+        mg.invokeVirtual(classType, Methods.getMethod(void.class, "completeAsync",
+                                                      CompletionStage.class,
+                                                      DelayedHttpServiceResponder.class,
+                                                      TransactionControl.class));
+        mg.returnValue();
       } else {
         // wrappedResponder.execute();
         mg.loadLocal(wrappedResponder);
@@ -779,7 +865,8 @@ final class HttpHandlerGenerator {
      *   }
      * </pre>
      *
-     * For handler method that returns {@link HttpContentConsumer}, it has the following form:
+     * For handler method that returns {@link HttpContentConsumer} or {@link CompletionStage},
+     * it has the following form:
      *
      * <pre>
      *   private static [synthetic] void methodName(AtomicReference consumerRef, T handler, HttpServiceRequest request,
@@ -789,12 +876,12 @@ final class HttpHandlerGenerator {
      * </pre>
      *
      */
-    private Method generateRunnableLambda(ClassWriter classWriter, Method handlerMethod, boolean useBodyConsumer) {
+    private Method generateRunnableLambda(ClassWriter classWriter, Method handlerMethod, boolean useResultRef) {
       Type handlerType = Type.getType(delegateType.getRawType());
 
       // Setup the method argument types
       List<Type> argumentTypes = new ArrayList<>();
-      if (useBodyConsumer) {
+      if (useResultRef) {
         argumentTypes.add(ATOMIC_REFERENCE_TYPE);
       }
       argumentTypes.add(handlerType);
@@ -812,7 +899,7 @@ final class HttpHandlerGenerator {
       mg.loadArgs();
       mg.invokeVirtual(handlerType, handlerMethod);
 
-      if (useBodyConsumer) {
+      if (useResultRef) {
         // consumerRef.set([top_of_stack])
         mg.invokeVirtual(ATOMIC_REFERENCE_TYPE, Methods.getMethod(void.class, "set", Object.class));
       }
@@ -233,7 +233,9 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
       RunRecordDetail runRecordMeta = appMetadataStore.getRun(programRunId);
       long heartBeatTimeInSeconds =
         TimeUnit.MILLISECONDS.toSeconds(Long.parseLong(properties.get(ProgramOptionConstants.HEART_BEAT_TIME)));
-      writeToHeartBeatTable(runRecordMeta, heartBeatTimeInSeconds, programHeartbeatTable);
+      if (runRecordMeta != null) {
+        programHeartbeatTable.writeHeartbeat(runRecordMeta, heartBeatTimeInSeconds);
+      }
       // we can return after writing to heart beat table
       return Collections.emptyList();
     }
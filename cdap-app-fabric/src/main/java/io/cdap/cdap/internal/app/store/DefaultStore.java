@@ -119,7 +119,7 @@ public class DefaultStore implements Store {
 
   @Override
   public ProgramDescriptor loadProgram(ProgramId id) throws NotFoundException {
-    ApplicationMeta appMeta = TransactionRunners.run(transactionRunner, context -> {
+    ApplicationMeta appMeta = TransactionRunners.runReadOnly(transactionRunner, context -> {
       return getAppMetadataStore(context).getApplication(id.getNamespace(), id.getApplication(), id.getVersion());
     });
 
@@ -261,14 +261,14 @@ public class DefaultStore implements Store {
   @Nullable
   public WorkflowStatistics getWorkflowStatistics(WorkflowId id, long startTime,
                                                   long endTime, List<Double> percentiles) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getWorkflowTable(context).getStatistics(id, startTime, endTime, percentiles);
     });
   }
 
   @Override
   public WorkflowTable.WorkflowRunRecord getWorkflowRun(WorkflowId workflowId, String runId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnly(transactionRunner, context -> {
       return getWorkflowTable(context).getRecord(workflowId, runId);
     });
   }
@@ -278,7 +278,7 @@ public class DefaultStore implements Store {
                                                                            String runId,
                                                                            int limit,
                                                                            long timeInterval) {
-    return  TransactionRunners.run(transactionRunner, context -> {
+    return  TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getWorkflowTable(context).getDetailsOfRange(workflow, runId, limit, timeInterval);
     });
   }
@@ -286,7 +286,7 @@ public class DefaultStore implements Store {
   @Override
   public Map<ProgramRunId, RunRecordDetail> getRuns(ProgramId id, ProgramRunStatus status,
                                                     long startTime, long endTime, int limit) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRuns(id, status, startTime, endTime, limit, null);
     });
   }
@@ -301,7 +301,7 @@ public class DefaultStore implements Store {
   public Map<ProgramRunId, RunRecordDetail> getRuns(ProgramRunStatus status, long startTime,
                                                     long endTime, int limit,
                                                     Predicate<RunRecordDetail> filter) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRuns(null, status, startTime, endTime, limit, filter);
     });
   }
@@ -309,27 +309,27 @@ public class DefaultStore implements Store {
   @Override
   public Map<ProgramRunId, RunRecordDetail> getRuns(ApplicationId applicationId, ProgramRunStatus status, int limit,
                                                     @Nullable Predicate<RunRecordDetail> filter) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRuns(applicationId, status, limit, filter);
     });
   }
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getRuns(Set<ProgramRunId> programRunIds) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRuns(programRunIds);
     });
   }
 
   @Override
   public int countActiveRuns(@Nullable Integer limit) {
-    return TransactionRunners.run(transactionRunner,
-                                  context -> (int) getAppMetadataStore(context).countActiveRuns(limit));
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner,
+                                                  context -> (int) getAppMetadataStore(context).countActiveRuns(limit));
   }
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(NamespaceId namespaceId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(namespaceId);
     });
   }
@@ -337,28 +337,28 @@ public class DefaultStore implements Store {
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(Set<NamespaceId> namespaces,
                                                           Predicate<RunRecordDetail> filter) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(namespaces, filter);
     });
   }
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(ApplicationId applicationId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(applicationId);
     });
   }
 
   @Override
   public Map<ProgramRunId, RunRecordDetail> getActiveRuns(ProgramId programId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getActiveRuns(programId);
     });
   }
 
   @Override
   public Map<ProgramId, Collection<RunRecordDetail>> getActiveRuns(Collection<ProgramId> programIds) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       AppMetadataStore appMetadataStore = getAppMetadataStore(context);
       // Get the active runs for programs that exist
       return getAppMetadataStore(context).getActiveRuns(appMetadataStore.filterProgramsExistence(programIds));
@@ -373,7 +373,7 @@ public class DefaultStore implements Store {
    */
   @Override
   public RunRecordDetail getRun(ProgramRunId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRun(id);
     });
   }
@@ -390,7 +390,7 @@ public class DefaultStore implements Store {
   public List<ProgramSpecification> getDeletedProgramSpecifications(ApplicationId id,
                                                                     ApplicationSpecification appSpec) {
 
-    ApplicationMeta existing = TransactionRunners.run(transactionRunner, context -> {
+    ApplicationMeta existing = TransactionRunners.runReadOnly(transactionRunner, context -> {
       return getAppMetadataStore(context).getApplication(id.getNamespace(), id.getApplication(), id.getVersion());
     });
 
@@ -468,7 +468,7 @@ public class DefaultStore implements Store {
 
   @Override
   public int getServiceInstances(ProgramId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnly(transactionRunner, context -> {
       ApplicationSpecification appSpec = getAppSpecOrFail(getAppMetadataStore(context), id);
       ServiceSpecification serviceSpec = getServiceSpecOrFail(id, appSpec);
       return serviceSpec.getInstances();
@@ -477,7 +477,7 @@ public class DefaultStore implements Store {
 
   @Override
   public int getWorkerInstances(ProgramId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnly(transactionRunner, context -> {
       ApplicationSpecification appSpec = getAppSpecOrFail(getAppMetadataStore(context), id);
       WorkerSpecification workerSpec = getWorkerSpecOrFail(id, appSpec);
       return workerSpec.getInstances();
@@ -508,7 +508,7 @@ public class DefaultStore implements Store {
 
   @Override
   public Map<String, String> getRuntimeArguments(ProgramRunId programRunId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       RunRecordDetail runRecord = getAppMetadataStore(context).getRun(programRunId);
       if (runRecord != null) {
         return runRecord.getUserArgs();
@@ -522,14 +522,14 @@ public class DefaultStore implements Store {
   @Nullable
   @Override
   public ApplicationSpecification getApplication(ApplicationId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnly(transactionRunner, context -> {
       return getApplicationSpec(getAppMetadataStore(context), id);
     });
   }
 
   @Override
   public Collection<ApplicationSpecification> getAllApplications(NamespaceId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getAllApplications(id.getNamespace()).stream()
         .map(ApplicationMeta::getSpec).collect(Collectors.toList());
     });
@@ -559,7 +559,7 @@ public class DefaultStore implements Store {
 
   @Override
   public Map<ApplicationId, ApplicationSpecification> getApplications(Collection<ApplicationId> ids) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getApplicationsForAppIds(ids).entrySet().stream()
         .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getSpec()));
     });
@@ -567,7 +567,7 @@ public class DefaultStore implements Store {
 
   @Override
   public Collection<ApplicationSpecification> getAllAppVersions(ApplicationId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getAllAppVersions(id.getNamespace(), id.getApplication()).stream()
         .map(ApplicationMeta::getSpec).collect(Collectors.toList());
     });
@@ -575,21 +575,21 @@ public class DefaultStore implements Store {
 
   @Override
   public Collection<ApplicationId> getAllAppVersionsAppIds(ApplicationId id) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getAllAppVersionsAppIds(id.getNamespace(), id.getApplication());
     });
   }
 
   @Override
   public WorkflowToken getWorkflowToken(WorkflowId workflowId, String workflowRunId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnly(transactionRunner, context -> {
       return getAppMetadataStore(context).getWorkflowToken(workflowId, workflowRunId);
     });
   }
 
   @Override
   public List<WorkflowNodeStateDetail> getWorkflowNodeStates(ProgramRunId workflowRunId) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getWorkflowNodeStates(workflowRunId);
     });
   }
@@ -696,10 +696,10 @@ public class DefaultStore implements Store {
   @Override
   public Set<RunId> getRunningInRange(long startTimeInSecs, long endTimeInSecs) {
     Set<RunId> runs = new HashSet<>();
-    runs.addAll(TransactionRunners.run(transactionRunner, context -> {
+    runs.addAll(TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRunningInRangeActive(startTimeInSecs, endTimeInSecs);
     }));
-    runs.addAll(TransactionRunners.run(transactionRunner, context -> {
+    runs.addAll(TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       return getAppMetadataStore(context).getRunningInRangeCompleted(startTimeInSecs, endTimeInSecs);
     }));
     return runs;
@@ -707,7 +707,7 @@ public class DefaultStore implements Store {
 
   @Override
   public long getProgramRunCount(ProgramId programId) throws NotFoundException {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       AppMetadataStore appMetadataStore = getAppMetadataStore(context);
       ApplicationSpecification appSpec = getApplicationSpec(appMetadataStore, programId.getParent());
       // app not found
@@ -725,7 +725,7 @@ public class DefaultStore implements Store {
 
   @Override
   public List<RunCountResult> getProgramRunCounts(Collection<ProgramId> programIds) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       List<RunCountResult> result = new ArrayList<>();
       AppMetadataStore appMetadataStore = getAppMetadataStore(context);
 
@@ -747,7 +747,7 @@ public class DefaultStore implements Store {
   @Override
   public List<ProgramHistory> getRuns(Collection<ProgramId> programs, ProgramRunStatus status,
                                       long startTime, long endTime, int limitPerProgram) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       List<ProgramHistory> result = new ArrayList<>(programs.size());
       AppMetadataStore appMetadataStore = getAppMetadataStore(context);
 
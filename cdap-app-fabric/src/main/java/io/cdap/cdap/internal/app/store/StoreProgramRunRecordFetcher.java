@@ -40,7 +40,7 @@ public class StoreProgramRunRecordFetcher implements ProgramRunRecordFetcher {
 
   @Override
   public RunRecordDetail getRunRecordMeta(ProgramRunId runId) throws IOException, NotFoundException {
-    return Optional.ofNullable(TransactionRunners.run(txRunner, context -> {
+    return Optional.ofNullable(TransactionRunners.runReadOnlySnapshot(txRunner, context -> {
       return AppMetadataStore.create(context).getRun(runId);
     }, IOException.class)).orElseThrow(() -> new NotFoundException(runId));
   }
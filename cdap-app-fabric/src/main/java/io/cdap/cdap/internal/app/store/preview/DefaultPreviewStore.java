@@ -19,10 +19,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.cdap.cdap.api.common.Bytes;
-import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
@@ -47,6 +47,7 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -60,12 +61,13 @@ import javax.annotation.Nullable;
  * Default implementation of the {@link PreviewStore} that stores data in a level db table.
  */
 public class DefaultPreviewStore implements PreviewStore {
+  private static final JsonParser JSON_PARSER = new JsonParser();
   private static final DatasetId PREVIEW_TABLE_ID = NamespaceId.SYSTEM.dataset("preview.table");
   private static final byte[] DATA_ROW_KEY_PREFIX = Bytes.toBytes("dr");
   private static final byte[] META_ROW_KEY_PREFIX = Bytes.toBytes("mr");
-  private static final byte[] TRACER = Bytes.toBytes("t");
   private static final byte[] PROPERTY = Bytes.toBytes("p");
   private static final byte[] VALUE = Bytes.toBytes("v");
+  private static final byte[] BATCH = Bytes.toBytes("b");
   private static final byte[] RUN = Bytes.toBytes("r");
   private static final byte[] STATUS = Bytes.toBytes("s");
   private static final byte[] POLLERINFO = Bytes.toBytes("i");
@@ -102,27 +104,30 @@ public class DefaultPreviewStore implements PreviewStore {
 
   @Override
   public void put(ApplicationId applicationId, String tracerName, String propertyName, Object value) {
-    // PreviewStore is a singleton and we have to create gson for each operation since gson is not thread safe.
-    Gson gson = new GsonBuilder().registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
-      .registerTypeAdapter(StructuredRecord.class, new PreviewJsonSerializer()).create();
+    put(applicationId, tracerName, Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(propertyName,
+                                                                                                     value)));
+  }
+
+  @Override
+  public void put(ApplicationId applicationId, String tracerName, List<? extends Map.Entry<String, ?>> properties) {
+    if (properties.isEmpty()) {
+      return;
+    }
     MDSKey mdsKey = getPreviewRowKeyBuilder(DATA_ROW_KEY_PREFIX, applicationId)
       .add(tracerName).add(counter.getAndIncrement()).build();
 
     try {
-      table.put(mdsKey.getKey(), TRACER, Bytes.toBytes(tracerName), 1L);
-      table.put(mdsKey.getKey(), PROPERTY, Bytes.toBytes(propertyName), 1L);
-      table.put(mdsKey.getKey(), VALUE, Bytes.toBytes(gson.toJson(value)), 1L);
+      // The whole batch is stored in one cell, which is only converted to json when it is read
+      table.put(mdsKey.getKey(), BATCH, PreviewDataCodec.encode(properties), 1L);
     } catch (IOException e) {
-      String message = String.format("Error while putting property '%s' for application '%s' and tracer '%s' in" +
-                                       " preview table.", propertyName, applicationId, tracerName);
+      String message = String.format("Error while putting %d properties for application '%s' and tracer '%s' in" +
+                                       " preview table.", properties.size(), applicationId, tracerName);
       throw new RuntimeException(message, e);
     }
   }
 
   @Override
   public Map<String, List<JsonElement>> get(ApplicationId applicationId, String tracerName) {
-    // PreviewStore is a singleton and we have to create gson for each operation since gson is not thread safe.
-    Gson gson = new GsonBuilder().registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
     byte[] startRowKey = getPreviewRowKeyBuilder(DATA_ROW_KEY_PREFIX, applicationId)
       .add(tracerName).build().getKey();
     byte[] stopRowKey = new MDSKey(Bytes.stopKeyForPrefix(startRowKey)).getKey();
@@ -132,8 +137,15 @@ public class DefaultPreviewStore implements PreviewStore {
       Row indexRow;
       while ((indexRow = scanner.next()) != null) {
         Map<byte[], byte[]> columns = indexRow.getColumns();
+        byte[] batch = columns.get(BATCH);
+        if (batch != null) {
+          PreviewDataCodec.decode(batch, (propertyName, value) ->
+            result.computeIfAbsent(propertyName, k -> new ArrayList<>()).add(value));
+          continue;
+        }
+        // Row written with one property per row
         String propertyName = Bytes.toString(columns.get(PROPERTY));
-        JsonElement value = gson.fromJson(Bytes.toString(columns.get(VALUE)), JsonElement.class);
+        JsonElement value = JSON_PARSER.parse(Bytes.toString(columns.get(VALUE)));
         List<JsonElement> values = result.computeIfAbsent(propertyName, k -> new ArrayList<>());
         values.add(value);
       }
@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store.preview;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.io.Encoder;
+import io.cdap.cdap.format.io.JsonEncoder;
+import io.cdap.cdap.format.io.JsonStructuredRecordDatumWriter;
+import io.cdap.cdap.format.io.StructuredRecordDatumReader;
+import io.cdap.cdap.format.io.StructuredRecordDatumWriter;
+import io.cdap.cdap.internal.io.SchemaTypeAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Encodes a batch of preview data into a compact binary form to be stored in a single cell of the preview table,
+ * and decodes it back to json. The encoded batch is of the format:
+ *
+ * <pre>
+ *   [number of schemas][schema]...[number of properties][property]...
+ * </pre>
+ *
+ * where each property is the property name followed by one of:
+ *
+ * <ul>
+ *   <li>{@link #RECORD}, the index of the record schema and the binary encoded {@link StructuredRecord}</li>
+ *   <li>
+ *     {@link #JSON_RECORD}, the index of the record schema and the json of the record fields. This is for records
+ *     that were already converted to json, in the form of {@code {"schema": ..., "fields": ...}}
+ *   </li>
+ *   <li>{@link #JSON}, the json of the value</li>
+ * </ul>
+ *
+ * Schemas are stored once per batch, hence records of the same schema only pay for the record values.
+ * Conversion of records to json is deferred until the batch is decoded.
+ */
+final class PreviewDataCodec {
+
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
+    .registerTypeAdapter(StructuredRecord.class, new PreviewJsonSerializer())
+    .create();
+  private static final StructuredRecordDatumWriter RECORD_WRITER = new StructuredRecordDatumWriter();
+  private static final StructuredRecordDatumReader RECORD_READER = new StructuredRecordDatumReader();
+  private static final JsonStructuredRecordDatumWriter JSON_RECORD_WRITER = new JsonStructuredRecordDatumWriter(true);
+  private static final String SCHEMA = "schema";
+  private static final String FIELDS = "fields";
+
+  private static final int JSON = 0;
+  private static final int RECORD = 1;
+  private static final int JSON_RECORD = 2;
+
+  private PreviewDataCodec() {
+    // no-op
+  }
+
+  /**
+   * Encodes the given preview data.
+   *
+   * @param properties list of property name and value pairs
+   * @return the encoded bytes
+   * @throws IOException if failed to encode
+   */
+  static byte[] encode(List<? extends Map.Entry<String, ?>> properties) throws IOException {
+    // Schemas are only known after all properties are encoded, hence properties are encoded to a separate buffer
+    Map<Object, Integer> schemaIndices = new HashMap<>();
+    List<String> schemas = new ArrayList<>();
+    ByteArrayOutputStream propertiesOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream recordOut = new ByteArrayOutputStream();
+    Encoder encoder = new BinaryEncoder(propertiesOut);
+    Encoder recordEncoder = new BinaryEncoder(recordOut);
+
+    encoder.writeInt(properties.size());
+    for (Map.Entry<String, ?> property : properties) {
+      encoder.writeString(property.getKey());
+      Object value = property.getValue();
+
+      if (value instanceof StructuredRecord) {
+        StructuredRecord record = (StructuredRecord) value;
+        recordOut.reset();
+        try {
+          RECORD_WRITER.encode(record, recordEncoder);
+        } catch (IOException | RuntimeException e) {
+          // The record doesn't match its schema. Fallback to json, which is more lenient.
+          encoder.writeInt(JSON).writeString(GSON.toJson(record));
+          continue;
+        }
+        Schema schema = record.getSchema();
+        encoder.writeInt(RECORD).writeInt(getSchemaIndex(schema, schemaIndices, schemas));
+        recordOut.writeTo(propertiesOut);
+        continue;
+      }
+
+      Object schema = null;
+      Object fields = null;
+      if (value instanceof Map && isJsonRecord(((Map<?, ?>) value).keySet().iterator())) {
+        schema = ((Map<?, ?>) value).get(SCHEMA);
+        fields = ((Map<?, ?>) value).get(FIELDS);
+      } else if (value instanceof JsonObject
+        && isJsonRecord(((JsonObject) value).entrySet().stream().map(Map.Entry::getKey).iterator())) {
+        schema = ((JsonObject) value).get(SCHEMA);
+        fields = ((JsonObject) value).get(FIELDS);
+      }
+
+      if (schema != null) {
+        encoder.writeInt(JSON_RECORD).writeInt(getSchemaIndex(schema, schemaIndices, schemas))
+          .writeString(GSON.toJson(fields));
+      } else {
+        encoder.writeInt(JSON).writeString(GSON.toJson(value));
+      }
+    }
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream(propertiesOut.size() + 64 * schemas.size());
+    encoder = new BinaryEncoder(os);
+    encoder.writeInt(schemas.size());
+    for (String schema : schemas) {
+      encoder.writeString(schema);
+    }
+    propertiesOut.writeTo(os);
+    return os.toByteArray();
+  }
+
+  /**
+   * Decodes the given preview data bytes produced by {@link #encode(List)}.
+   *
+   * @param bytes the encoded preview data
+   * @param consumer the consumer to receive the property name and json value of each property, in the order
+   *                 as they were encoded
+   * @throws IOException if failed to decode
+   */
+  static void decode(byte[] bytes, BiConsumer<String, JsonElement> consumer) throws IOException {
+    JsonParser parser = new JsonParser();
+    Decoder decoder = new BinaryDecoder(new ByteArrayInputStream(bytes));
+
+    int schemaCount = decoder.readInt();
+    String[] schemaStrings = new String[schemaCount];
+    for (int i = 0; i < schemaCount; i++) {
+      schemaStrings[i] = decoder.readString();
+    }
+    // Schemas are parsed on first use
+    Schema[] schemas = new Schema[schemaCount];
+    JsonElement[] schemaJsons = new JsonElement[schemaCount];
+
+    int count = decoder.readInt();
+    for (int i = 0; i < count; i++) {
+      String propertyName = decoder.readString();
+      int type = decoder.readInt();
+      switch (type) {
+        case JSON:
+          consumer.accept(propertyName, parser.parse(decoder.readString()));
+          break;
+        case RECORD: {
+          int idx = decoder.readInt();
+          if (schemas[idx] == null) {
+            schemas[idx] = Schema.parseJson(schemaStrings[idx]);
+          }
+          if (schemaJsons[idx] == null) {
+            schemaJsons[idx] = parser.parse(schemaStrings[idx]);
+          }
+          StructuredRecord record = RECORD_READER.read(decoder, schemas[idx]);
+          StringWriter writer = new StringWriter();
+          try (JsonWriter jsonWriter = new JsonWriter(writer)) {
+            // Same as the json produced by Gson for the StructuredRecord
+            jsonWriter.setSerializeNulls(false);
+            JSON_RECORD_WRITER.encode(record, new JsonEncoder(jsonWriter));
+          }
+          consumer.accept(propertyName, toJsonRecord(schemaJsons[idx], parser.parse(writer.toString())));
+          break;
+        }
+        case JSON_RECORD: {
+          int idx = decoder.readInt();
+          if (schemaJsons[idx] == null) {
+            schemaJsons[idx] = parser.parse(schemaStrings[idx]);
+          }
+          consumer.accept(propertyName, toJsonRecord(schemaJsons[idx], parser.parse(decoder.readString())));
+          break;
+        }
+        default:
+          throw new IOException("Unsupported preview data type " + type + " for property " + propertyName);
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given keys are exactly the {@link #SCHEMA} and the {@link #FIELDS}.
+   */
+  private static boolean isJsonRecord(Iterator<?> keys) {
+    boolean hasSchema = false;
+    boolean hasFields = false;
+    while (keys.hasNext()) {
+      Object key = keys.next();
+      if (SCHEMA.equals(key) && !hasSchema) {
+        hasSchema = true;
+      } else if (FIELDS.equals(key) && !hasFields) {
+        hasFields = true;
+      } else {
+        return false;
+      }
+    }
+    return hasSchema && hasFields;
+  }
+
+  /**
+   * Returns the index of the given schema in the schema list, adding the schema to the list if it is not there.
+   *
+   * @param schema the schema, which is either a {@link Schema} or a json representation of it
+   */
+  private static int getSchemaIndex(Object schema, Map<Object, Integer> schemaIndices, List<String> schemas) {
+    return schemaIndices.computeIfAbsent(schema, k -> {
+      schemas.add(schema instanceof Schema ? schema.toString() : GSON.toJson(schema));
+      return schemas.size() - 1;
+    });
+  }
+
+  private static JsonElement toJsonRecord(JsonElement schema, JsonElement fields) {
+    JsonObject json = new JsonObject();
+    json.add(SCHEMA, schema);
+    json.add(FIELDS, fields);
+    return json;
+  }
+}
@@ -19,7 +19,9 @@ package io.cdap.cdap.reporting;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.internal.app.runtime.schedule.TriggeringScheduleInfoAdapter;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.proto.ProgramType;
@@ -33,25 +35,56 @@ import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.store.StoreDefinition;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Heartbeat Store that writes heart beat messages and program status messages
  * to program heartbeat table. This is used for efficiently
  * scanning and returning results for dashboard status queries.
+ *
+ * Besides the heart beat rows, each program run has one row in the run index table, which holds the states the run
+ * went through, each with the time it was written at. Heart beats don't change the state of a run, hence they are
+ * not written to the run index. The run index row of a run that has not finished is keyed by
+ * {@link #ACTIVE_DURATION_CLASS}. Once the run finishes, its row is keyed by the duration class of the run, which is
+ * the number of bits of the number of time buckets the run spans, and the bucket of its last state. A run of duration
+ * class {@code c} that overlaps a time range must have its last bucket in the range, or less than {@code 2^c}
+ * buckets after it, so scans only read the runs that overlap the time range, plus the runs of each duration class
+ * that finished shortly after it.
+ *
+ * Heart beats written before the run index was created are not in the run index, so scans read the heart beat rows
+ * for the part of the time range before the index start time instead.
  */
 public class ProgramHeartbeatTable {
   private static final Gson GSON = TriggeringScheduleInfoAdapter.addTypeAdapters(new GsonBuilder()).create();
+  private static final Type RUN_STATES_TYPE = new TypeToken<List<RunState>>() { }.getType();
+
+  @VisibleForTesting
+  static final long BUCKET_SIZE_SECONDS = TimeUnit.HOURS.toSeconds(1);
+  // duration class of the program runs that have not finished yet, which sorts after all other duration classes
+  private static final int ACTIVE_DURATION_CLASS = Integer.MAX_VALUE;
+  // namespace of the row that keeps the index start time, which is not a valid namespace name
+  private static final String INDEX_INFO_NAMESPACE = "";
+  // runs of this or larger duration class are read regardless of their last bucket
+  private static final int MAX_BOUNDED_DURATION_CLASS = 40;
+
   private final StructuredTable table;
+  private final StructuredTable indexTable;
+  private Long indexStartTime;
 
   // TODO: CDAP-14950 add service to clean up this table periodically
   public ProgramHeartbeatTable(StructuredTableContext context) {
     this.table = context.getTable(StoreDefinition.ProgramHeartbeatStore.PROGRAM_HEARTBEATS);
+    this.indexTable = context.getTable(StoreDefinition.ProgramHeartbeatStore.PROGRAM_RUN_INDEX);
   }
 
   /**
@@ -61,14 +94,99 @@ public class ProgramHeartbeatTable {
    * @param timestampInSeconds used for creating rowKey
    */
   public void writeRunRecordMeta(RunRecordDetail runRecordMeta, long timestampInSeconds) throws IOException {
-    List<Field<?>> fields = createRowKey(timestampInSeconds, runRecordMeta.getProgramRunId());
-    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_RECORD, GSON.toJson(runRecordMeta)));
-    table.upsert(fields);
+    writeHeartbeatRow(runRecordMeta, timestampInSeconds);
+    writeRunState(runRecordMeta, timestampInSeconds);
+  }
+
+  /**
+   * Write the {@link RunRecordDetail} of a heart beat to heart beat table as value. Unlike
+   * {@link #writeRunRecordMeta(RunRecordDetail, long)}, this doesn't update the run index, unless the program run
+   * started before the run index was created and hence might not be in it yet.
+   *
+   * @param runRecordMeta row value to write
+   * @param timestampInSeconds used for creating rowKey
+   */
+  public void writeHeartbeat(RunRecordDetail runRecordMeta, long timestampInSeconds) throws IOException {
+    writeHeartbeatRow(runRecordMeta, timestampInSeconds);
+    Long indexStart = getIndexStartTime();
+    if (indexStart == null || getRunStartTime(runRecordMeta.getProgramRunId()) < indexStart) {
+      writeRunState(runRecordMeta, timestampInSeconds);
+    }
   }
 
   @VisibleForTesting
   public void deleteAll() throws IOException {
     table.deleteAll(Range.all());
+    indexTable.deleteAll(Range.all());
+    indexStartTime = null;
+  }
+
+  private void writeHeartbeatRow(RunRecordDetail runRecordMeta, long timestampInSeconds) throws IOException {
+    List<Field<?>> fields = createRowKey(timestampInSeconds, runRecordMeta.getProgramRunId());
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_RECORD, GSON.toJson(runRecordMeta)));
+    table.upsert(fields);
+  }
+
+  /**
+   * Adds the given run record to the states of the program run in the run index, if it is different from the
+   * latest state of the run. Once the run reaches an end state, its row is moved from the active runs to the
+   * finished runs.
+   */
+  private void writeRunState(RunRecordDetail runRecordMeta, long timestampInSeconds) throws IOException {
+    if (getIndexStartTime() == null) {
+      List<Field<?>> fields = createIndexInfoKey();
+      fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.INDEX_START_TIME_FIELD, timestampInSeconds));
+      indexTable.upsert(fields);
+      indexStartTime = timestampInSeconds;
+    }
+
+    ProgramRunId programRunId = runRecordMeta.getProgramRunId();
+    List<Field<?>> activeKey = createIndexRowKey(programRunId, ACTIVE_DURATION_CLASS, Long.MAX_VALUE);
+    Optional<StructuredRow> row = indexTable.read(activeKey);
+    List<RunState> runStates = row.isPresent() ? getRunStates(row.get()) : new ArrayList<>();
+    String runRecord = GSON.toJson(runRecordMeta);
+    if (!runStates.isEmpty() && runRecord.equals(GSON.toJson(runStates.get(runStates.size() - 1).runRecord))) {
+      return;
+    }
+    runStates.add(new RunState(timestampInSeconds, runRecordMeta));
+
+    List<Field<?>> fields = activeKey;
+    if (runRecordMeta.getStatus().isEndState()) {
+      long firstTimestamp = runStates.stream().mapToLong(state -> state.timestamp).min().getAsLong();
+      long span = Math.max(0L, getBucket(timestampInSeconds) - getBucket(firstTimestamp));
+      int durationClass = Long.SIZE - Long.numberOfLeadingZeros(span);
+      fields = createIndexRowKey(programRunId, durationClass, getBucket(timestampInSeconds));
+      if (row.isPresent()) {
+        indexTable.delete(activeKey);
+      }
+    }
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_STATES_FIELD, GSON.toJson(runStates)));
+    indexTable.upsert(fields);
+  }
+
+  /**
+   * Returns the time when the run index started to be written, or {@code null} if it was never written.
+   */
+  @Nullable
+  private Long getIndexStartTime() throws IOException {
+    if (indexStartTime == null) {
+      indexStartTime = indexTable.read(createIndexInfoKey())
+        .map(row -> row.getLong(StoreDefinition.ProgramHeartbeatStore.INDEX_START_TIME_FIELD))
+        .orElse(null);
+    }
+    return indexStartTime;
+  }
+
+  private static long getRunStartTime(ProgramRunId programRunId) {
+    return RunIds.getTime(programRunId.getRun(), TimeUnit.SECONDS);
+  }
+
+  private static List<RunState> getRunStates(StructuredRow row) {
+    return GSON.fromJson(row.getString(StoreDefinition.ProgramHeartbeatStore.RUN_STATES_FIELD), RUN_STATES_TYPE);
+  }
+
+  private static long getBucket(long timestampInSeconds) {
+    return Math.floorDiv(timestampInSeconds, BUCKET_SIZE_SECONDS);
   }
 
   private List<Field<?>> createRowKey(long timestampInSeconds, ProgramRunId programRunId) {
@@ -77,6 +195,35 @@ public class ProgramHeartbeatTable {
     fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.NAMESPACE_FIELD, programRunId.getNamespace()));
     // add timestamp
     fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.TIMESTAMP_SECONDS_FIELD, timestampInSeconds));
+    addProgramRunIdFields(fields, programRunId);
+    return fields;
+  }
+
+  private List<Field<?>> createIndexRowKey(ProgramRunId programRunId, int durationClass, long lastBucket) {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.NAMESPACE_FIELD, programRunId.getNamespace()));
+    fields.add(Fields.intField(StoreDefinition.ProgramHeartbeatStore.DURATION_CLASS_FIELD, durationClass));
+    fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.LAST_BUCKET_FIELD, lastBucket));
+    fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.START_BUCKET_FIELD,
+                                getBucket(getRunStartTime(programRunId))));
+    addProgramRunIdFields(fields, programRunId);
+    return fields;
+  }
+
+  private List<Field<?>> createIndexInfoKey() {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.NAMESPACE_FIELD, INDEX_INFO_NAMESPACE));
+    fields.add(Fields.intField(StoreDefinition.ProgramHeartbeatStore.DURATION_CLASS_FIELD, 0));
+    fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.LAST_BUCKET_FIELD, 0L));
+    fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.START_BUCKET_FIELD, 0L));
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.APPLICATION_FIELD, ""));
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.PROGRAM_TYPE_FIELD, ""));
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.PROGRAM_FIELD, ""));
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_FIELD, ""));
+    return fields;
+  }
+
+  private void addProgramRunIdFields(List<Field<?>> fields, ProgramRunId programRunId) {
     // add program runId fields, skip namespace as that is part of row key
     fields.add(
       Fields.stringField(StoreDefinition.ProgramHeartbeatStore.APPLICATION_FIELD, programRunId.getApplication()));
@@ -84,7 +231,6 @@ public class ProgramHeartbeatTable {
       Fields.stringField(StoreDefinition.ProgramHeartbeatStore.PROGRAM_TYPE_FIELD, programRunId.getType().name()));
     fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.PROGRAM_FIELD, programRunId.getProgram()));
     fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_FIELD, programRunId.getRun()));
-    return fields;
   }
 
   /**
@@ -98,6 +244,19 @@ public class ProgramHeartbeatTable {
     return fields;
   }
 
+  private List<Field<?>> getIndexScanKey(String namespace, int durationClass) {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.NAMESPACE_FIELD, namespace));
+    fields.add(Fields.intField(StoreDefinition.ProgramHeartbeatStore.DURATION_CLASS_FIELD, durationClass));
+    return fields;
+  }
+
+  private List<Field<?>> getIndexScanKey(String namespace, int durationClass, long lastBucket) {
+    List<Field<?>> fields = getIndexScanKey(namespace, durationClass);
+    fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.LAST_BUCKET_FIELD, lastBucket));
+    return fields;
+  }
+
   /**
    * Scan the table for the time range for each of the namespace provided
    * and return collection of latest {@link RunRecordDetail}
@@ -113,29 +272,38 @@ public class ProgramHeartbeatTable {
   public Collection<RunRecordDetail> scan(long startTimestampInSeconds, long endTimestampInSeconds,
                                           Set<String> namespaces) throws IOException {
     List<RunRecordDetail> resultRunRecordList = new ArrayList<>();
+    Long indexStart = getIndexStartTime();
+    long heartbeatScanEnd = indexStart == null ? endTimestampInSeconds
+      : Math.min(indexStart, endTimestampInSeconds);
     for (String namespace : namespaces) {
-      List<Field<?>> startRowKey = getScanKey(namespace, startTimestampInSeconds);
-      List<Field<?>> endRowKey = getScanKey(namespace, endTimestampInSeconds);
-      performScanAddToList(startRowKey, endRowKey, resultRunRecordList);
+      // the run index is read last, since its run records are later than the heart beat rows before its start time
+      Map<ProgramRunId, RunRecordDetail> latestRunRecords = new LinkedHashMap<>();
+      scanHeartbeats(namespace, startTimestampInSeconds, heartbeatScanEnd, latestRunRecords);
+      if (indexStart != null) {
+        scanRunIndex(namespace, startTimestampInSeconds, endTimestampInSeconds, latestRunRecords);
+      }
+      resultRunRecordList.addAll(latestRunRecords.values());
     }
     return resultRunRecordList;
   }
 
   /**
-   * Scan is executed based on the given startRowKey and endRowKey, for each of the scanned rows, we maintain
-   * the latest {@link RunRecordDetail} identified by its {@link ProgramRunId} in a map. Finally after scan is
-   * complete add the runrecords to the result list
+   * Scan is executed on the heart beat table for the given namespace and time range, for each of the scanned rows,
+   * we maintain the latest {@link RunRecordDetail} identified by its {@link ProgramRunId} in a map.
    *
-   * @param startRowKey byte array used as start row key in scan
-   * @param endRowKey byte array used as end row key in scan
-   * @param runRecordMetas result list to which the run records to be added
+   * @param namespace the namespace to scan
+   * @param start inclusive start of the time range
+   * @param end exclusive end of the time range
+   * @param latestRunRecords map to which the run records are added
    */
-  private void performScanAddToList(List<Field<?>> startRowKey, List<Field<?>> endRowKey,
-                                    List<RunRecordDetail> runRecordMetas) throws IOException {
-    Map<ProgramRunId, RunRecordDetail> latestRunRecords = new LinkedHashMap<>();;
-    try (CloseableIterator<StructuredRow> iterator =
-      table.scan(Range.create(startRowKey, Range.Bound.INCLUSIVE, endRowKey, Range.Bound.EXCLUSIVE),
-                 Integer.MAX_VALUE)) {
+  private void scanHeartbeats(String namespace, long start, long end,
+                              Map<ProgramRunId, RunRecordDetail> latestRunRecords) throws IOException {
+    if (start >= end) {
+      return;
+    }
+    Range range = Range.create(getScanKey(namespace, start), Range.Bound.INCLUSIVE,
+                               getScanKey(namespace, end), Range.Bound.EXCLUSIVE);
+    try (CloseableIterator<StructuredRow> iterator = table.scan(range, Integer.MAX_VALUE)) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         RunRecordDetail existing = GSON.fromJson(row.getString(StoreDefinition.ProgramHeartbeatStore.RUN_RECORD),
@@ -144,7 +312,83 @@ public class ProgramHeartbeatTable {
         latestRunRecords.put(runId, RunRecordDetail.builder(existing).setProgramRunId(runId).build());
       }
     }
-    runRecordMetas.addAll(latestRunRecords.values());
+  }
+
+  /**
+   * Scans the run index for the program runs in the given namespace that overlap with the time range, and puts the
+   * latest {@link RunRecordDetail} of each of them within the time range to the given map. Program runs that have not
+   * finished overlap with every time range that ends after they started.
+   *
+   * @param namespace the namespace to scan
+   * @param start inclusive start of the time range
+   * @param end exclusive end of the time range
+   * @param latestRunRecords map to which the run records are added
+   */
+  private void scanRunIndex(String namespace, long start, long end,
+                            Map<ProgramRunId, RunRecordDetail> latestRunRecords) throws IOException {
+    if (start >= end) {
+      return;
+    }
+    scanRunIndex(Range.singleton(getIndexScanKey(namespace, ACTIVE_DURATION_CLASS)), start, end, latestRunRecords);
+
+    long startBucket = getBucket(start);
+    long endBucket = getBucket(end - 1);
+    Optional<Integer> durationClass = getNextDurationClass(namespace, 0);
+    while (durationClass.isPresent() && durationClass.get() != ACTIVE_DURATION_CLASS) {
+      int currentClass = durationClass.get();
+      // runs of the duration class span less than 2^durationClass buckets, so the ones that overlap with the time
+      // range have their last bucket within 2^durationClass buckets after the end bucket
+      long lastBucketEnd = currentClass < MAX_BOUNDED_DURATION_CLASS ? endBucket + (1L << currentClass)
+        : Long.MAX_VALUE;
+      scanRunIndex(Range.create(getIndexScanKey(namespace, currentClass, startBucket), Range.Bound.INCLUSIVE,
+                                getIndexScanKey(namespace, currentClass, lastBucketEnd), Range.Bound.EXCLUSIVE),
+                   start, end, latestRunRecords);
+      durationClass = getNextDurationClass(namespace, currentClass + 1);
+    }
+  }
+
+  private void scanRunIndex(Range range, long start, long end,
+                            Map<ProgramRunId, RunRecordDetail> latestRunRecords) throws IOException {
+    try (CloseableIterator<StructuredRow> iterator = indexTable.scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        List<RunState> runStates = getRunStates(row);
+        long firstTimestamp = runStates.stream().mapToLong(state -> state.timestamp).min().getAsLong();
+        long lastTimestamp = runStates.stream().mapToLong(state -> state.timestamp).max().getAsLong();
+        boolean active =
+          row.getInteger(StoreDefinition.ProgramHeartbeatStore.DURATION_CLASS_FIELD) == ACTIVE_DURATION_CLASS;
+        if (firstTimestamp >= end || (!active && lastTimestamp < start)) {
+          continue;
+        }
+        // the latest state before the end of the time range, later states of the same timestamp replace earlier ones
+        RunState latestState = null;
+        for (RunState runState : runStates) {
+          if (runState.timestamp < end && (latestState == null || runState.timestamp >= latestState.timestamp)) {
+            latestState = runState;
+          }
+        }
+        ProgramRunId runId = getProgramRunIdFromRow(row);
+        latestRunRecords.put(runId, RunRecordDetail.builder(latestState.runRecord).setProgramRunId(runId).build());
+      }
+    }
+  }
+
+  /**
+   * Returns the smallest duration class of the program runs in the given namespace that is not smaller than the given
+   * one, or an empty {@link Optional} if there is none. Since {@link #ACTIVE_DURATION_CLASS} sorts last, it is only
+   * returned if there are no finished program runs of larger duration classes.
+   */
+  private Optional<Integer> getNextDurationClass(String namespace, int durationClass) throws IOException {
+    Range range = Range.create(getIndexScanKey(namespace, durationClass), Range.Bound.INCLUSIVE,
+                               Collections.singletonList(
+                                 Fields.stringField(StoreDefinition.ProgramHeartbeatStore.NAMESPACE_FIELD, namespace)),
+                               Range.Bound.INCLUSIVE);
+    try (CloseableIterator<StructuredRow> iterator = indexTable.scan(range, 1)) {
+      if (!iterator.hasNext()) {
+        return Optional.empty();
+      }
+      return Optional.of(iterator.next().getInteger(StoreDefinition.ProgramHeartbeatStore.DURATION_CLASS_FIELD));
+    }
   }
 
   /**
@@ -158,4 +402,17 @@ public class ProgramHeartbeatTable {
                             row.getString(StoreDefinition.ProgramHeartbeatStore.PROGRAM_FIELD),
                             row.getString(StoreDefinition.ProgramHeartbeatStore.RUN_FIELD));
   }
+
+  /**
+   * A state of a program run in the run index, with the time it was written at.
+   */
+  private static final class RunState {
+    private final long timestamp;
+    private final RunRecordDetail runRecord;
+
+    RunState(long timestamp, RunRecordDetail runRecord) {
+      this.timestamp = timestamp;
+      this.runRecord = runRecord;
+    }
+  }
 }
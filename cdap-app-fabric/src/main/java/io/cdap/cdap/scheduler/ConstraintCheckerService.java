@@ -34,6 +34,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.constraint.CheckableConstraint
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintContext;
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintResult;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobKey;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueue;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
@@ -49,12 +50,19 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Each partition of the JobQueue is scanned by its own thread, which only rescans the partition when it is signaled
+ * through the {@link JobQueueSignal}, when a job in the partition is due to be re-evaluated, or when the
+ * maximum check interval elapsed.
  */
 class ConstraintCheckerService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
@@ -65,6 +73,8 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final CConfiguration cConf;
   private final TransactionRunner transactionRunner;
+  private final JobQueueSignal jobQueueSignal;
+  private final long maxCheckIntervalMillis;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
   private volatile boolean stopping = false;
@@ -74,13 +84,16 @@ class ConstraintCheckerService extends AbstractIdleService {
                            ProgramLifecycleService lifecycleService, PropertiesResolver propertiesResolver,
                            NamespaceQueryAdmin namespaceQueryAdmin,
                            CConfiguration cConf,
-                           TransactionRunner transactionRunner) {
+                           TransactionRunner transactionRunner,
+                           JobQueueSignal jobQueueSignal) {
     this.store = store;
     this.lifecycleService = lifecycleService;
     this.propertiesResolver = propertiesResolver;
     this.namespaceQueryAdmin = namespaceQueryAdmin;
     this.cConf = cConf;
     this.transactionRunner = transactionRunner;
+    this.jobQueueSignal = jobQueueSignal;
+    this.maxCheckIntervalMillis = cConf.getLong(Constants.Scheduler.JOB_QUEUE_MAX_CHECK_INTERVAL_MILLIS);
   }
 
   @Override
@@ -101,6 +114,8 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    // wake up all the checker threads so that they can exit
+    jobQueueSignal.signalAll();
     try {
       // Shutdown the executor and wait for all pending task to be completed for max of 5 seconds
       taskExecutorService.shutdown();
@@ -119,8 +134,14 @@ class ConstraintCheckerService extends AbstractIdleService {
     private final RetryStrategy scheduleStrategy;
     private final int partition;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+    // the time at which jobs that were not satisfied in a previous scan need to be checked again
+    private final Map<JobKey, Long> nextCheckTimes = new HashMap<>();
+    // the jobs seen in the current pass over the partition, used to evict entries from nextCheckTimes
+    private final Set<JobKey> seenJobs = new HashSet<>();
     private Job lastConsumed;
     private int failureCount;
+    // the earliest time at which a job in the partition needs to be looked at again
+    private long nextDeadline = Long.MAX_VALUE;
 
     ConstraintCheckerThread(int partition) {
       // TODO: [CDAP-11370] Need to be configured in cdap-default.xml. Retry with delay ranging from 0.1s to 30s
@@ -138,7 +159,12 @@ class ConstraintCheckerService extends AbstractIdleService {
           long sleepTime = checkJobQueue();
           // Don't sleep if sleepTime returned is 0
           if (sleepTime > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepTime);
+            if (failureCount > 0) {
+              TimeUnit.MILLISECONDS.sleep(sleepTime);
+            } else {
+              // wait until either new jobs become pending constraint in the partition or the next deadline
+              jobQueueSignal.await(partition, sleepTime, TimeUnit.MILLISECONDS);
+            }
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -152,9 +178,9 @@ class ConstraintCheckerService extends AbstractIdleService {
      * @return sleep time in milliseconds before next fetch
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
+      boolean passCompleted = false;
       try {
-        emptyFetch = TransactionRunners.run(transactionRunner, context -> {
+        passCompleted = TransactionRunners.run(transactionRunner, context -> {
           return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
         });
 
@@ -172,12 +198,25 @@ class ConstraintCheckerService extends AbstractIdleService {
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
 
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      // Continue the scan immediately if the pass over the partition is not completed yet
+      if (!passCompleted || !readyJobs.isEmpty()) {
+        return 0L;
+      }
+      // Otherwise wait until the next deadline, bounded by the maximum check interval
+      return Math.max(0L, Math.min(nextDeadline - System.currentTimeMillis(), maxCheckIntervalMillis));
     }
 
+    /**
+     * Scans the partition from the last consumed job and checks the jobs for constraint satisfaction.
+     *
+     * @return {@code true} if the scan reached the end of the partition
+     */
     private boolean checkJobConstraints(JobQueue jobQueue) throws IOException {
-      boolean emptyScan = true;
+      if (lastConsumed == null) {
+        // starting a new pass over the partition
+        nextDeadline = Long.MAX_VALUE;
+        seenJobs.clear();
+      }
 
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
@@ -185,15 +224,32 @@ class ConstraintCheckerService extends AbstractIdleService {
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            // forget about jobs that are no longer in the partition
+            nextCheckTimes.keySet().retainAll(seenJobs);
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
+          seenJobs.add(job.getJobKey());
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+      return false;
+    }
+
+    /**
+     * Records a time at which the partition needs to be scanned again.
+     */
+    private void addDeadline(long deadline) {
+      nextDeadline = Math.min(nextDeadline, deadline);
+    }
+
+    /**
+     * Adds the given delay to the given time, saturating at {@link Long#MAX_VALUE} instead of overflowing.
+     */
+    private long addMillis(long time, long delay) {
+      long result = time + delay;
+      return result < time ? Long.MAX_VALUE : result;
     }
 
     private void checkAndUpdateJob(JobQueue jobQueue, Job job) throws IOException {
@@ -209,22 +265,36 @@ class ConstraintCheckerService extends AbstractIdleService {
           (job.getState() == Job.State.PENDING_TRIGGER &&
             now - job.getDeleteTimeMillis() > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+        } else if (job.getState() == Job.State.PENDING_TRIGGER) {
+          addDeadline(job.getDeleteTimeMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS + 1);
         }
         return;
       }
-      if (now - job.getCreationTime() >= job.getSchedule().getTimeoutMillis() +
-        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
+      long timeoutTime = addMillis(job.getCreationTime(),
+                                   addMillis(job.getSchedule().getTimeoutMillis(),
+                                             2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS));
+      if (now >= timeoutTime) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(), job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
         return;
       }
+      addDeadline(timeoutTime);
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
         return;
       }
+      // Skip the job if it was not satisfied in a previous scan and it is not yet time to check it again.
+      // A job in PENDING_CONSTRAINT state is never modified other than being marked for deletion, which
+      // is handled above.
+      Long nextCheckTime = nextCheckTimes.get(job.getJobKey());
+      if (nextCheckTime != null && now < nextCheckTime) {
+        addDeadline(nextCheckTime);
+        return;
+      }
       ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now);
       if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
         return;
       }
+      nextCheckTimes.remove(job.getJobKey());
       if (satisfiedState == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
         jobQueue.deleteJob(job);
         return;
@@ -283,8 +353,13 @@ class ConstraintCheckerService extends AbstractIdleService {
       return true;
     }
 
+    /**
+     * Checks all the constraints of the given job. If any of the constraints is not satisfied, the earliest
+     * time to check the job again is recorded.
+     */
     private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now) {
       ConstraintResult.SatisfiedState satisfiedState = ConstraintResult.SatisfiedState.SATISFIED;
+      long nextCheckTime = Long.MAX_VALUE;
 
       ConstraintContext constraintContext = new ConstraintContext(job, now, store);
       for (Constraint constraint : job.getSchedule().getConstraints()) {
@@ -303,8 +378,14 @@ class ConstraintCheckerService extends AbstractIdleService {
         }
         if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
           satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+          // NOT_SATISFIED result always carries the next check time
+          nextCheckTime = Math.min(nextCheckTime, result.getNextCheckTime());
         }
       }
+      if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+        nextCheckTimes.put(job.getJobKey(), nextCheckTime);
+        addDeadline(nextCheckTime);
+      }
       return satisfiedState;
     }
 
@@ -476,58 +476,58 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   @Override
   public ProgramSchedule getSchedule(ScheduleId scheduleId) throws NotFoundException {
     checkStarted();
-    return execute(store -> store.getSchedule(scheduleId), NotFoundException.class);
+    return executeReadOnly(store -> store.getSchedule(scheduleId), NotFoundException.class);
   }
 
   @Override
   public ProgramScheduleRecord getScheduleRecord(ScheduleId scheduleId) throws NotFoundException {
     checkStarted();
-    return execute(store -> store.getScheduleRecord(scheduleId), NotFoundException.class);
+    return executeReadOnly(store -> store.getScheduleRecord(scheduleId), NotFoundException.class);
   }
 
   @Override
   public ProgramScheduleStatus getScheduleStatus(ScheduleId scheduleId) throws NotFoundException {
     checkStarted();
-    return execute(store -> store.getScheduleRecord(scheduleId).getMeta().getStatus(), NotFoundException.class);
+    return executeReadOnly(store -> store.getScheduleRecord(scheduleId).getMeta().getStatus(), NotFoundException.class);
   }
 
   @Override
   public List<ProgramSchedule> listSchedules(ApplicationId appId) {
     checkStarted();
-    return execute(store -> store.listSchedules(appId), RuntimeException.class);
+    return executeReadOnlySnapshot(store -> store.listSchedules(appId), RuntimeException.class);
   }
 
   @Override
   public List<ProgramSchedule> listSchedules(ProgramId programId) {
     checkStarted();
-    return execute(store -> store.listSchedules(programId), RuntimeException.class);
+    return executeReadOnlySnapshot(store -> store.listSchedules(programId), RuntimeException.class);
   }
 
   @Override
   public List<ProgramSchedule> listSchedules(NamespaceId namespaceId,
                                              Predicate<ProgramSchedule> filter) {
     checkStarted();
-    return execute(store -> store.listSchedules(namespaceId, filter).stream()
-                     .map(this::getProgramScheduleWithUserAndArtifactId).collect(Collectors.toList()),
-                   RuntimeException.class);
+    return executeReadOnlySnapshot(store -> store.listSchedules(namespaceId, filter).stream()
+                                     .map(this::getProgramScheduleWithUserAndArtifactId).collect(Collectors.toList()),
+                                   RuntimeException.class);
   }
 
   @Override
   public List<ProgramScheduleRecord> listScheduleRecords(ApplicationId appId) {
     checkStarted();
-    return execute(store -> store.listScheduleRecords(appId), RuntimeException.class);
+    return executeReadOnlySnapshot(store -> store.listScheduleRecords(appId), RuntimeException.class);
   }
 
   @Override
   public List<ProgramScheduleRecord> listScheduleRecords(ProgramId programId) {
     checkStarted();
-    return execute(store -> store.listScheduleRecords(programId), RuntimeException.class);
+    return executeReadOnlySnapshot(store -> store.listScheduleRecords(programId), RuntimeException.class);
   }
 
   @Override
   public Collection<ProgramScheduleRecord> findSchedules(String triggerKey) {
     checkStarted();
-    return execute(store -> store.findSchedules(triggerKey), RuntimeException.class);
+    return executeReadOnlySnapshot(store -> store.findSchedules(triggerKey), RuntimeException.class);
   }
 
   @Override
@@ -626,6 +626,22 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
     }, tClass);
   }
 
+  private <V, T extends Exception> V executeReadOnly(StoreTxRunnable<V, ? extends Exception> runnable,
+                                                     Class<? extends T> tClass) throws T {
+    return TransactionRunners.runReadOnly(transactionRunner, context -> {
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      return runnable.run(store);
+    }, tClass);
+  }
+
+  private <V, T extends Exception> V executeReadOnlySnapshot(StoreTxRunnable<V, ? extends Exception> runnable,
+                                                             Class<? extends T> tClass) throws T {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      return runnable.run(store);
+    }, tClass);
+  }
+
   @SuppressWarnings("UnusedReturnValue")
   private <V, T extends Exception> V execute(StoreAndQueueTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
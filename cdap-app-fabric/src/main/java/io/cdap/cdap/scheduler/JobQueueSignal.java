@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process signal for waking up the {@link ConstraintCheckerService} thread of a job queue partition
+ * when jobs in that partition become pending constraint. Each partition carries a dirty flag, so a signal
+ * raised while the checker thread is busy is not lost, but is observed on the next wait.
+ */
+@Singleton
+class JobQueueSignal {
+
+  private final Partition[] partitions;
+
+  @Inject
+  JobQueueSignal(CConfiguration cConf) {
+    this(cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS));
+  }
+
+  JobQueueSignal(int numPartitions) {
+    this.partitions = new Partition[numPartitions];
+    for (int i = 0; i < numPartitions; i++) {
+      partitions[i] = new Partition();
+    }
+  }
+
+  /**
+   * Marks the given partition as dirty and wakes up the thread waiting on it, if any.
+   */
+  void signal(int partition) {
+    partitions[partition].signal();
+  }
+
+  /**
+   * Marks all partitions as dirty and wakes up all waiting threads.
+   */
+  void signalAll() {
+    for (Partition partition : partitions) {
+      partition.signal();
+    }
+  }
+
+  /**
+   * Waits until the given partition is signaled or the timeout elapsed, whichever comes first.
+   * The dirty flag of the partition is cleared upon return.
+   *
+   * @param partition the partition to wait on
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return {@code true} if the partition was signaled, {@code false} if the timeout elapsed
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   */
+  boolean await(int partition, long timeout, TimeUnit unit) throws InterruptedException {
+    return partitions[partition].await(unit.toMillis(timeout));
+  }
+
+  /**
+   * The signal state of a single partition.
+   */
+  private static final class Partition {
+
+    private boolean dirty;
+
+    synchronized void signal() {
+      dirty = true;
+      notifyAll();
+    }
+
+    synchronized boolean await(long timeoutMillis) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      long remaining = timeoutMillis;
+      while (!dirty && remaining > 0) {
+        wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+      boolean signaled = dirty;
+      dirty = false;
+      return signaled;
+    }
+  }
+}
@@ -49,9 +49,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -68,16 +70,19 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final MetricsCollectionService metricsCollectionService;
+  private final JobQueueSignal jobQueueSignal;
   private final List<Service> subscriberServices;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
                                         MetricsCollectionService metricsCollectionService,
+                                        JobQueueSignal jobQueueSignal,
                                         TransactionRunner transactionRunner) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.metricsCollectionService = metricsCollectionService;
+    this.jobQueueSignal = jobQueueSignal;
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(transactionRunner),
                                             new DataEventSubscriberService(transactionRunner),
                                             new ProgramStatusEventSubscriberService(transactionRunner));
@@ -120,6 +125,9 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
    */
   private abstract class AbstractSchedulerSubscriberService extends AbstractNotificationSubscriberService {
 
+    // Partitions of the job queue that have jobs became pending constraint in the last processed batch
+    private final Set<Integer> pendingConstraintPartitions = new HashSet<>();
+
     AbstractSchedulerSubscriberService(String name, String topic, int fetchSize,
                                        TransactionRunner transactionRunner) {
       super(name, cConf, topic, fetchSize, cConf.getLong(Constants.Scheduler.EVENT_POLL_DELAY_MILLIS),
@@ -146,6 +154,16 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       while (messages.hasNext()) {
         processNotification(scheduleStore, jobQueue, messages.next().getSecond());
       }
+      pendingConstraintPartitions.addAll(jobQueue.getPendingConstraintPartitions());
+    }
+
+    @Override
+    protected void postProcess() {
+      // Wake up the constraint checkers only after the jobs are committed, so that they are visible to the checkers
+      for (int partition : pendingConstraintPartitions) {
+        jobQueueSignal.signal(partition);
+      }
+      pendingConstraintPartitions.clear();
     }
 
     @Override
@@ -89,6 +89,12 @@ public class DefaultPreviewRequestQueueTest {
 
     }
 
+    @Override
+    public void put(ApplicationId applicationId, String tracerName,
+                    List<? extends Map.Entry<String, ?>> properties) {
+
+    }
+
     @Override
     public Map<String, List<JsonElement>> get(ApplicationId applicationId, String tracerName) {
       return null;
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.preview;
+
+import com.google.gson.Gson;
+import io.cdap.cdap.app.preview.PreviewMessage;
+import io.cdap.cdap.app.preview.PreviewStatus;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.utils.ImmutablePair;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link PreviewDataSubscriberService}.
+ */
+public class PreviewDataSubscriberServiceTest {
+
+  private static final Gson GSON = new Gson();
+  private static final int MAX_RETRIES = 3;
+
+  @Test
+  public void testSkipFailingData() throws Exception {
+    ApplicationId app = NamespaceId.DEFAULT.app("app");
+    FailingPreviewStore previewStore = new FailingPreviewStore("bad");
+
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Metadata.MESSAGING_RETRIES_ON_CONFLICT, MAX_RETRIES);
+    PreviewDataSubscriberService service = new PreviewDataSubscriberService(
+      cConf, null, new NoOpMetricsCollectionService(), previewStore, null);
+
+    PreviewStatus status = new PreviewStatus(PreviewStatus.Status.RUNNING, 1L, null, 1L, null);
+    List<ImmutablePair<String, PreviewMessage>> messages = Arrays.asList(
+      ImmutablePair.of("1", createDataMessage(app, "tracer", "good1")),
+      ImmutablePair.of("2", createDataMessage(app, "tracer", "bad")),
+      ImmutablePair.of("3", new PreviewMessage(PreviewMessage.Type.STATUS, app, GSON.toJsonTree(status))),
+      ImmutablePair.of("4", createDataMessage(app, "tracer", "good2"))
+    );
+
+    // The data that always fails is retried, and then skipped. It must not fail the whole batch forever.
+    for (int i = 1; i < MAX_RETRIES; i++) {
+      try {
+        service.processMessages(null, messages.iterator());
+        Assert.fail("Expected failure on writing preview data");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      // The failure must be charged to the data, not to the status message that comes after it
+      Assert.assertNull(previewStore.getPreviewStatus(app));
+    }
+    service.processMessages(null, messages.iterator());
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList("good1", "good2")), previewStore.getProperties());
+    Assert.assertEquals(PreviewStatus.Status.RUNNING, previewStore.getPreviewStatus(app).getStatus());
+  }
+
+  private PreviewMessage createDataMessage(ApplicationId app, String tracerName, String propertyName) {
+    PreviewDataPayload payload = new PreviewDataPayload(app, tracerName, propertyName, "value");
+    return new PreviewMessage(PreviewMessage.Type.DATA, app, GSON.toJsonTree(payload));
+  }
+
+  /**
+   * A {@link DefaultPreviewRequestQueueTest.MockPreviewStore} that fails on writing the given property.
+   */
+  private static final class FailingPreviewStore extends DefaultPreviewRequestQueueTest.MockPreviewStore {
+
+    private final String failingProperty;
+    private final Set<String> properties = new HashSet<>();
+    private final Map<ApplicationId, PreviewStatus> statuses = new HashMap<>();
+
+    FailingPreviewStore(String failingProperty) {
+      this.failingProperty = failingProperty;
+    }
+
+    Set<String> getProperties() {
+      return properties;
+    }
+
+    @Override
+    public void put(ApplicationId applicationId, String tracerName, String propertyName, Object value) {
+      put(applicationId, tracerName, Collections.singletonList(new AbstractMap.SimpleEntry<>(propertyName, value)));
+    }
+
+    @Override
+    public void put(ApplicationId applicationId, String tracerName,
+                    List<? extends Map.Entry<String, ?>> properties) {
+      List<String> names = new ArrayList<>();
+      for (Map.Entry<String, ?> property : properties) {
+        if (failingProperty.equals(property.getKey())) {
+          throw new IllegalStateException("Failed to write " + property.getKey());
+        }
+        names.add(property.getKey());
+      }
+      this.properties.addAll(names);
+    }
+
+    @Override
+    public void setPreviewStatus(ApplicationId applicationId, PreviewStatus previewStatus) {
+      statuses.put(applicationId, previewStatus);
+    }
+
+    @Override
+    public PreviewStatus getPreviewStatus(ApplicationId applicationId) {
+      return statuses.get(applicationId);
+    }
+  }
+}
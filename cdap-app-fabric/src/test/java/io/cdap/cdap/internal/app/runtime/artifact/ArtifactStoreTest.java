@@ -42,6 +42,7 @@ import io.cdap.cdap.common.ArtifactAlreadyExistsException;
 import io.cdap.cdap.common.ArtifactNotFoundException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.id.Id;
+import io.cdap.cdap.common.utils.Tasks;
 import io.cdap.cdap.internal.app.runtime.artifact.app.inspection.InspectionApp;
 import io.cdap.cdap.internal.app.runtime.plugin.PluginNotExistsException;
 import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
@@ -79,6 +80,8 @@ import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -1305,6 +1308,69 @@ public abstract class ArtifactStoreTest {
     assertEqual(artifactId, expectedMeta, successfulWriter, info);
   }
 
+  @Category(SlowTests.class)
+  @Test
+  public void testConcurrentWriteAndRead() throws Exception {
+    // readers keep reloading the artifacts while artifacts are being written. Every write must be visible to
+    // reads that start after the write returns.
+    int numReaders = 4;
+    int numArtifacts = 50;
+    AtomicBoolean stopped = new AtomicBoolean();
+    ExecutorService executorService = Executors.newFixedThreadPool(numReaders);
+    List<Future> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < numReaders; i++) {
+        futures.add(executorService.submit(() -> {
+          while (!stopped.get()) {
+            artifactStore.getArtifacts(NamespaceId.DEFAULT);
+          }
+          return null;
+        }));
+      }
+
+      ArtifactMeta meta = new ArtifactMeta(ArtifactClasses.builder().build());
+      for (int i = 0; i < numArtifacts; i++) {
+        Id.Artifact artifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "artifact" + i, "1.0.0");
+        writeArtifact(artifactId, meta, "contents" + i);
+        Assert.assertEquals(artifactId.getName(),
+                            artifactStore.getArtifact(artifactId).getDescriptor().getArtifactId().getName());
+        Assert.assertEquals(i + 1, artifactStore.getArtifacts(NamespaceId.DEFAULT).size());
+      }
+    } finally {
+      stopped.set(true);
+      for (Future future : futures) {
+        future.get();
+      }
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCatalogReload() throws Exception {
+    ArtifactMeta meta = new ArtifactMeta(ArtifactClasses.builder().build());
+    Id.Artifact artifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "artifact", "1.0.0");
+    writeArtifact(artifactId, meta, "contents");
+
+    // lookups don't wait for the catalog to be reloaded after the write
+    Assert.assertEquals(artifactId.getName(),
+                        artifactStore.getArtifact(artifactId).getDescriptor().getArtifactId().getName());
+    if (isCatalogEnabled()) {
+      Tasks.waitFor(true, artifactStore::isCatalogValid, 10, TimeUnit.SECONDS);
+    } else {
+      Assert.assertFalse(artifactStore.isCatalogValid());
+    }
+    Assert.assertEquals(artifactId.getName(),
+                        artifactStore.getArtifact(artifactId).getDescriptor().getArtifactId().getName());
+    Assert.assertEquals(1, artifactStore.getArtifacts(NamespaceId.DEFAULT).size());
+  }
+
+  /**
+   * Returns whether the {@link ArtifactStore} under test serves lookups from the artifact catalog.
+   */
+  protected boolean isCatalogEnabled() {
+    return true;
+  }
+
   @Test
   public void testUpdateProperties() throws Exception {
     Id.Artifact artifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "abc", "1.2.3");
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.distributed.remote;
+
+import io.cdap.cdap.common.io.Locations;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.internal.io.LocationCache;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link ConcurrentLocationCache}.
+ */
+public class ConcurrentLocationCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testConcurrentLoad() throws Exception {
+    LocationCache cache = new ConcurrentLocationCache(Locations.toLocation(TEMP_FOLDER.newFolder()));
+    AtomicInteger loadCount = new AtomicInteger();
+    CountDownLatch loadLatch = new CountDownLatch(1);
+
+    LocationCache.Loader loader = new LocationCache.Loader() {
+      @Override
+      public void load(String name, Location targetLocation) throws IOException {
+        loadCount.incrementAndGet();
+        try {
+          loadLatch.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        try (OutputStream os = targetLocation.getOutputStream()) {
+          os.write(name.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<Location>> futures = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        futures.add(executor.submit(() -> cache.get("bundle.jar", loader)));
+      }
+
+      // Loading of a different name shouldn't be blocked by the pending load
+      Location other = executor.submit(() -> cache.get("other.jar", new LocationCache.Loader() {
+        @Override
+        public void load(String name, Location targetLocation) throws IOException {
+          targetLocation.getOutputStream().close();
+        }
+      })).get(10, TimeUnit.SECONDS);
+      Assert.assertTrue(other.exists());
+
+      loadLatch.countDown();
+      for (Future<Location> future : futures) {
+        Location location = future.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("bundle.jar", location.getName());
+        Assert.assertEquals("bundle.jar".length(), location.length());
+      }
+      Assert.assertEquals(1, loadCount.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailedLoad() throws Exception {
+    File cacheDir = TEMP_FOLDER.newFolder();
+    LocationCache cache = new ConcurrentLocationCache(Locations.toLocation(cacheDir));
+
+    try {
+      cache.get("bundle.jar", new LocationCache.Loader() {
+        @Override
+        public void load(String name, Location targetLocation) throws IOException {
+          targetLocation.getOutputStream().close();
+          throw new IOException("Failed");
+        }
+      });
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // Nothing should be left in the cache directory
+    String[] files = cacheDir.list();
+    Assert.assertNotNull(files);
+    Assert.assertEquals(0, files.length);
+
+    // A subsequent call should load again
+    Location location = cache.get("bundle.jar", new LocationCache.Loader() {
+      @Override
+      public void load(String name, Location targetLocation) throws IOException {
+        targetLocation.getOutputStream().close();
+      }
+    });
+    Assert.assertTrue(location.exists());
+  }
+}
@@ -18,10 +18,13 @@ package io.cdap.cdap.internal.app.runtime.monitor;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.Gson;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Scopes;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.messaging.Message;
 import io.cdap.cdap.api.messaging.MessageFetcher;
@@ -31,6 +34,7 @@ import io.cdap.cdap.api.messaging.TopicNotFoundException;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.app.guice.RuntimeServerModule;
 import io.cdap.cdap.app.runtime.ProgramStateWriter;
+import io.cdap.cdap.common.BadRequestException;
 import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
@@ -47,6 +51,7 @@ import io.cdap.cdap.proto.Notification;
 import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.proto.id.TopicId;
 import org.apache.twill.discovery.DiscoveryService;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.apache.twill.discovery.InMemoryDiscoveryService;
@@ -61,9 +66,13 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -98,6 +107,7 @@ public class RuntimeClientServiceTest {
   // Services for the runtime client side
   private CConfiguration clientCConf;
   private MessagingService clientMessagingService;
+  private BlockingRuntimeClient runtimeClient;
   private RuntimeClientService runtimeClientService;
 
   @Before
@@ -166,6 +176,7 @@ public class RuntimeClientServiceTest {
           bind(DiscoveryService.class).toInstance(discoveryService);
           bind(DiscoveryServiceClient.class).toInstance(discoveryService);
           bind(ProgramRunId.class).toInstance(PROGRAM_RUN_ID);
+          bind(RuntimeClient.class).to(BlockingRuntimeClient.class).in(Scopes.SINGLETON);
         }
       }
     );
@@ -174,6 +185,7 @@ public class RuntimeClientServiceTest {
     if (clientMessagingService instanceof Service) {
       ((Service) clientMessagingService).startAndWait();
     }
+    runtimeClient = (BlockingRuntimeClient) injector.getInstance(RuntimeClient.class);
     runtimeClientService = injector.getInstance(RuntimeClientService.class);
     runtimeClientService.startAndWait();
   }
@@ -232,6 +244,45 @@ public class RuntimeClientServiceTest {
     programStateWriter.completed(PROGRAM_RUN_ID);
   }
 
+  @Test
+  public void testSlowTopic() throws Exception {
+    MessagingContext messagingContext = new MultiThreadMessagingContext(clientMessagingService);
+    MessagePublisher messagePublisher = messagingContext.getDirectMessagePublisher();
+    ProgramStateWriter programStateWriter = new MessagingProgramStateWriter(clientCConf, clientMessagingService);
+    MessagingContext serverMessagingContext = new MultiThreadMessagingContext(messagingService);
+
+    // Block the sending of the metadata topic
+    String metadataTopic = topicConfigs.get(Constants.Metadata.MESSAGING_TOPIC);
+    CountDownLatch blockLatch = runtimeClient.block(metadataTopic);
+    try {
+      messagePublisher.publish(NamespaceId.SYSTEM.getNamespace(), metadataTopic, "metadata");
+      programStateWriter.running(PROGRAM_RUN_ID, null);
+
+      // The program status should get relayed even the metadata topic is blocked
+      Tasks.waitFor(Collections.singletonList(ProgramRunStatus.RUNNING),
+                    () -> fetchMessages(serverMessagingContext,
+                                        topicConfigs.get(Constants.AppFabric.PROGRAM_STATUS_EVENT_TOPIC), 10, null)
+                      .stream()
+                      .map(Message::getPayloadAsString)
+                      .map(s -> GSON.fromJson(s, Notification.class))
+                      .map(n -> n.getProperties().get(ProgramOptionConstants.PROGRAM_STATUS))
+                      .map(ProgramRunStatus::valueOf)
+                      .collect(Collectors.toList()), 5, TimeUnit.SECONDS);
+      Assert.assertTrue(fetchMessages(serverMessagingContext, metadataTopic, 10, null).isEmpty());
+    } finally {
+      blockLatch.countDown();
+    }
+
+    // Once unblocked, the metadata message should get relayed
+    Tasks.waitFor(Collections.singletonList("metadata"),
+                  () -> fetchMessages(serverMessagingContext, metadataTopic, 10, null)
+                    .stream().map(Message::getPayloadAsString).collect(Collectors.toList()),
+                  5, TimeUnit.SECONDS);
+
+    // Writes a program terminate message to unblock stopping of the client service
+    programStateWriter.completed(PROGRAM_RUN_ID);
+  }
+
   /**
    * Test for {@link RuntimeClientService} that will terminate itself when seeing program completed message.
    */
@@ -302,6 +353,84 @@ public class RuntimeClientServiceTest {
     stopFuture.get();
   }
 
+  @Test
+  public void testStopWaitsForRelay() throws Exception {
+    MessagingContext messagingContext = new MultiThreadMessagingContext(clientMessagingService);
+    MessagePublisher messagePublisher = messagingContext.getDirectMessagePublisher();
+    ProgramStateWriter programStateWriter = new MessagingProgramStateWriter(clientCConf, clientMessagingService);
+    MessagingContext serverMessagingContext = new MultiThreadMessagingContext(messagingService);
+
+    // Block the relaying of the metadata topic while it is sending a message
+    String metadataTopic = topicConfigs.get(Constants.Metadata.MESSAGING_TOPIC);
+    CountDownLatch blockLatch = runtimeClient.block(metadataTopic);
+    ListenableFuture<Service.State> stopFuture;
+    try {
+      messagePublisher.publish(NamespaceId.SYSTEM.getNamespace(), metadataTopic, "metadata");
+      Tasks.waitFor(true, () -> runtimeClient.isBlocked(metadataTopic), 5, TimeUnit.SECONDS);
+
+      programStateWriter.completed(PROGRAM_RUN_ID);
+      stopFuture = runtimeClientService.stop();
+
+      // The stop should wait for the relay in progress, even after the graceful shutdown timeout
+      try {
+        stopFuture.get(clientCConf.getLong(Constants.RuntimeMonitor.GRACEFUL_SHUTDOWN_MS) + 1000,
+                       TimeUnit.MILLISECONDS);
+        Assert.fail("Expected runtime client service not stopped");
+      } catch (TimeoutException e) {
+        // Expected
+      }
+    } finally {
+      blockLatch.countDown();
+    }
+    stopFuture.get(10, TimeUnit.SECONDS);
+
+    // The message should be sent only once, since closing doesn't send concurrently with the relay in progress
+    Assert.assertEquals(Collections.singletonList("metadata"),
+                        fetchMessages(serverMessagingContext, metadataTopic, 10, null)
+                          .stream().map(Message::getPayloadAsString).collect(Collectors.toList()));
+  }
+
+  /**
+   * A {@link RuntimeClient} that can block the sending of messages of a topic.
+   */
+  private static final class BlockingRuntimeClient extends RuntimeClient {
+
+    private final Map<String, CountDownLatch> blockLatches = new ConcurrentHashMap<>();
+    private final Set<String> blockedTopics = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    BlockingRuntimeClient(CConfiguration cConf, DiscoveryServiceClient discoveryClient) {
+      super(cConf, discoveryClient);
+    }
+
+    /**
+     * Blocks the sending of messages of the given topic until the returned latch is counted down.
+     */
+    CountDownLatch block(String topic) {
+      CountDownLatch latch = new CountDownLatch(1);
+      blockLatches.put(topic, latch);
+      return latch;
+    }
+
+    /**
+     * Returns {@code true} if the sending of messages of the given topic was blocked.
+     */
+    boolean isBlocked(String topic) {
+      return blockedTopics.contains(topic);
+    }
+
+    @Override
+    public void sendMessages(ProgramRunId programRunId, TopicId topicId,
+                             Iterator<Message> messages) throws IOException, BadRequestException {
+      CountDownLatch latch = blockLatches.get(topicId.getTopic());
+      if (latch != null) {
+        blockedTopics.add(topicId.getTopic());
+        Uninterruptibles.awaitUninterruptibly(latch);
+      }
+      super.sendMessages(programRunId, topicId, messages);
+    }
+  }
+
   private List<Message> fetchMessages(MessagingContext messagingContext, String topic, int limit,
                                       @Nullable String lastMessageId) throws TopicNotFoundException, IOException {
     MessageFetcher messageFetcher = messagingContext.getMessageFetcher();
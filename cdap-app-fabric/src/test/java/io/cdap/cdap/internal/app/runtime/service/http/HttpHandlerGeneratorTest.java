@@ -90,6 +90,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nullable;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -185,6 +187,41 @@ public class HttpHandlerGeneratorTest {
     }
   }
 
+  /**
+   * A testing handler for testing handler methods that return a {@link CompletionStage}.
+   */
+  @Path("/async")
+  public static final class AsyncHandler extends AbstractHttpServiceHandler {
+
+    @Path("/echo/{name}")
+    @GET
+    public CompletionStage<Void> echo(HttpServiceRequest request, HttpServiceResponder responder,
+                                      @PathParam("name") String name) {
+      Assert.assertNotNull(System.getProperty(IN_TX));
+      return CompletableFuture.runAsync(() -> responder.sendString("Hello " + name));
+    }
+
+    @Path("/failure")
+    @GET
+    public CompletableFuture<Void> failure(HttpServiceRequest request, HttpServiceResponder responder) {
+      return CompletableFuture.runAsync(() -> {
+        throw new IllegalStateException("failure");
+      });
+    }
+
+    @Path("/noResponse")
+    @GET
+    public CompletionStage<String> noResponse(HttpServiceRequest request, HttpServiceResponder responder) {
+      return CompletableFuture.completedFuture("ignored");
+    }
+
+    @Path("/exception")
+    @GET
+    public CompletionStage<Void> exception(HttpServiceRequest request, HttpServiceResponder responder) {
+      throw new IllegalArgumentException("exception");
+    }
+  }
+
   /**
    * A testing handler for testing file upload and download through usage of {@link HttpContentConsumer}
    * and {@link HttpContentProducer}.
@@ -590,6 +627,60 @@ public class HttpHandlerGeneratorTest {
     }
   }
 
+  @Test
+  public void testCompletionStage() throws Exception {
+    HttpHandlerFactory factory = new HttpHandlerFactory("/prefix", TransactionControl.IMPLICIT);
+
+    HttpHandler httpHandler = factory.createHttpHandler(
+      TypeToken.of(AsyncHandler.class), new AbstractDelegatorContext<AsyncHandler>() {
+      @Override
+      protected AsyncHandler createHandler() {
+        return new AsyncHandler();
+      }
+    }, new NoopMetricsContext());
+
+    NettyHttpService service = NettyHttpService.builder("test-completion-stage")
+      .setHttpHandlers(httpHandler)
+      .build();
+
+    service.start();
+    try {
+      InetSocketAddress bindAddress = service.getBindAddress();
+
+      // Response is sent from another thread when the returned future completes
+      HttpURLConnection urlConn = (HttpURLConnection) new URL(
+        String.format("http://%s:%d/prefix/async/echo/test",
+                      bindAddress.getHostName(), bindAddress.getPort())).openConnection();
+      urlConn.setReadTimeout(2000);
+      Assert.assertEquals(200, urlConn.getResponseCode());
+      Assert.assertEquals("Hello test", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+
+      // Future that completes exceptionally should result in an error response
+      urlConn = (HttpURLConnection) new URL(String.format("http://%s:%d/prefix/async/failure",
+                                                          bindAddress.getHostName(),
+                                                          bindAddress.getPort())).openConnection();
+      Assert.assertEquals(500, urlConn.getResponseCode());
+      Assert.assertEquals("Exception occurred while handling request: failure",
+                          new String(ByteStreams.toByteArray(urlConn.getErrorStream()), Charsets.UTF_8));
+
+      // Future that completes without a response being sent
+      urlConn = (HttpURLConnection) new URL(String.format("http://%s:%d/prefix/async/noResponse",
+                                                          bindAddress.getHostName(),
+                                                          bindAddress.getPort())).openConnection();
+      Assert.assertEquals(500, urlConn.getResponseCode());
+
+      // Exception thrown before returning a future
+      urlConn = (HttpURLConnection) new URL(String.format("http://%s:%d/prefix/async/exception",
+                                                          bindAddress.getHostName(),
+                                                          bindAddress.getPort())).openConnection();
+      Assert.assertEquals(500, urlConn.getResponseCode());
+      Assert.assertEquals("Exception occurred while handling request: exception",
+                          new String(ByteStreams.toByteArray(urlConn.getErrorStream()), Charsets.UTF_8));
+    } finally {
+      service.stop();
+    }
+  }
+
   private abstract static class AbstractDelegatorContext<T extends HttpServiceHandler> implements DelegatorContext<T> {
 
     private final ThreadLocal<T> threadLocal = new ThreadLocal<T>() {
@@ -16,12 +16,15 @@
 package io.cdap.cdap.internal.app.store.preview;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import io.cdap.cdap.api.artifact.ArtifactSummary;
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.app.preview.PreviewConfigModule;
 import io.cdap.cdap.app.preview.PreviewRequest;
 import io.cdap.cdap.app.preview.PreviewStatus;
@@ -30,6 +33,7 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.conf.SConfiguration;
 import io.cdap.cdap.internal.AppFabricTestHelper;
+import io.cdap.cdap.internal.io.SchemaTypeAdapter;
 import io.cdap.cdap.proto.NamespaceMeta;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.artifact.AppRequest;
@@ -47,6 +51,9 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +67,10 @@ public class DefaultPreviewStoreTest {
   public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
 
   private static final Gson GSON = new Gson();
+  private static final Gson PREVIEW_GSON = new GsonBuilder()
+    .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
+    .registerTypeAdapter(StructuredRecord.class, new PreviewJsonSerializer())
+    .create();
   private static DefaultPreviewStore store;
 
   @BeforeClass
@@ -125,6 +136,36 @@ public class DefaultPreviewStoreTest {
     Assert.assertEquals(0, firstApplicationData.size());
   }
 
+  @Test
+  public void testBatchPut() {
+    ApplicationId applicationId = new ApplicationId(NamespaceMeta.DEFAULT.getName(), RunIds.generate().getId());
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    StructuredRecord record1 = StructuredRecord.builder(schema).set("name", "samuel").set("age", 10).build();
+    StructuredRecord record2 = StructuredRecord.builder(schema).set("name", "bob").build();
+
+    // Records that were already converted to json, as received from the preview runner
+    Map<String, Object> jsonRecord = GSON.fromJson(PREVIEW_GSON.toJson(record1),
+                                                   new TypeToken<Map<String, Object>>() { }.getType());
+
+    store.put(applicationId, "mytracer", Arrays.asList(
+      new AbstractMap.SimpleImmutableEntry<>("records.out", record1),
+      new AbstractMap.SimpleImmutableEntry<>("records.out", record2),
+      new AbstractMap.SimpleImmutableEntry<>("records.in", jsonRecord),
+      new AbstractMap.SimpleImmutableEntry<>("count", 2)
+    ));
+    store.put(applicationId, "mytracer", "records.out", record1);
+
+    Map<String, List<JsonElement>> data = store.get(applicationId, "mytracer");
+    Assert.assertEquals(3, data.size());
+    Assert.assertEquals(Arrays.asList(PREVIEW_GSON.toJsonTree(record1), PREVIEW_GSON.toJsonTree(record2),
+                                      PREVIEW_GSON.toJsonTree(record1)),
+                        data.get("records.out"));
+    Assert.assertEquals(Collections.singletonList(PREVIEW_GSON.toJsonTree(record1)), data.get("records.in"));
+    Assert.assertEquals(2, data.get("count").get(0).getAsInt());
+  }
+
   @Test
   public void testPreviewInfo() throws IOException {
     // test non existing preview
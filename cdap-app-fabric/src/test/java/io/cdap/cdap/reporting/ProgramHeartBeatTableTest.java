@@ -17,22 +17,34 @@
 package io.cdap.cdap.reporting;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import io.cdap.cdap.api.artifact.ArtifactId;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.app.RunIds;
+import io.cdap.cdap.internal.app.runtime.schedule.TriggeringScheduleInfoAdapter;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProgramId;
+import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.spi.data.StructuredTable;
+import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -40,6 +52,7 @@ public abstract class ProgramHeartBeatTableTest {
   protected static TransactionRunner transactionRunner;
   private static final ArtifactId ARTIFACT_ID = NamespaceId.DEFAULT.artifact("testArtifact", "1.0").toApiArtifactId();
   private static final byte[] SOURCE_ID = Bytes.toBytes("sourceId");
+  private static final Gson GSON = TriggeringScheduleInfoAdapter.addTypeAdapters(new GsonBuilder()).create();
 
   @Before
   public void before() {
@@ -129,11 +142,64 @@ public abstract class ProgramHeartBeatTableTest {
     TransactionRunners.run(transactionRunner, context -> {
       ProgramHeartbeatTable programHeartbeatTable = new ProgramHeartbeatTable(context);
       for (long time = startTime + interval; time < endTime; time += interval) {
-        programHeartbeatTable.writeRunRecordMeta(runRecordMeta, time);
+        programHeartbeatTable.writeHeartbeat(runRecordMeta, time);
       }
     });
   }
 
+  /**
+   * writes heart beat rows starting from startTime up to endTime the same way as before the run index was created
+   */
+  private void setUpHeartBeatsBeforeIndex(RunRecordDetail runRecordMeta, long startTime, long endTime, long interval) {
+    TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable table = context.getTable(StoreDefinition.ProgramHeartbeatStore.PROGRAM_HEARTBEATS);
+      ProgramRunId programRunId = runRecordMeta.getProgramRunId();
+      for (long time = startTime; time < endTime; time += interval) {
+        List<Field<?>> fields = new ArrayList<>();
+        fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.NAMESPACE_FIELD,
+                                      programRunId.getNamespace()));
+        fields.add(Fields.longField(StoreDefinition.ProgramHeartbeatStore.TIMESTAMP_SECONDS_FIELD, time));
+        fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.APPLICATION_FIELD,
+                                      programRunId.getApplication()));
+        fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.PROGRAM_TYPE_FIELD,
+                                      programRunId.getType().name()));
+        fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.PROGRAM_FIELD, programRunId.getProgram()));
+        fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_FIELD, programRunId.getRun()));
+        fields.add(Fields.stringField(StoreDefinition.ProgramHeartbeatStore.RUN_RECORD, GSON.toJson(runRecordMeta)));
+        table.upsert(fields);
+      }
+    });
+  }
+
+  /**
+   * writes a program status change of the given run
+   */
+  private RunRecordDetail writeProgramStatus(RunId runId, ProgramRunStatus status, long time) {
+    RunRecordDetail.Builder builder = getMockRunRecordMeta(NamespaceId.DEFAULT, runId);
+    builder.setStatus(status);
+    if (status.isEndState()) {
+      builder.setRunTime(RunIds.getTime(runId, TimeUnit.SECONDS));
+      builder.setStopTime(time);
+    } else {
+      builder.setRunTime(time);
+    }
+    RunRecordDetail meta = builder.build();
+    TransactionRunners.run(transactionRunner, context -> {
+      new ProgramHeartbeatTable(context).writeRunRecordMeta(meta, time);
+    });
+    return meta;
+  }
+
+  private Set<RunRecordDetail> scan(long startTime, long endTime) {
+    return TransactionRunners.run(transactionRunner, context -> {
+      Collection<RunRecordDetail> result = new ProgramHeartbeatTable(context)
+        .scan(startTime, endTime, ImmutableSet.of(NamespaceId.DEFAULT.getNamespace()));
+      Set<RunRecordDetail> runRecords = new HashSet<>(result);
+      Assert.assertEquals("Program run returned more than once", result.size(), runRecords.size());
+      return runRecords;
+    });
+  }
+
   @Test
   public void testScanningProgramStatus() throws Exception {
     // p1 : x           ->    x + 5
@@ -184,4 +250,158 @@ public abstract class ProgramHeartBeatTableTest {
       Assert.assertEquals(metaKilled, runRecordMetaList.iterator().next());
     });
   }
+
+  @Test
+  public void testScanningAcrossBuckets() throws Exception {
+    // p1 : x + 100 -> x + 5 buckets + 30 min, where x is the start of a bucket
+    // p2 : x + 200 -> still running, in another namespace
+    long bucketSize = ProgramHeartbeatTable.BUCKET_SIZE_SECONDS;
+    long bucketStart = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) / bucketSize * bucketSize;
+    long interval = TimeUnit.MINUTES.toSeconds(10);
+
+    RunId runId = RunIds.generate();
+    RunRecordDetail.Builder metaRunningBuilder = getMockRunRecordMeta(NamespaceId.DEFAULT, runId);
+    metaRunningBuilder.setStatus(ProgramRunStatus.RUNNING);
+    metaRunningBuilder.setRunTime(bucketStart + 100);
+    RunRecordDetail metaRunning = metaRunningBuilder.build();
+    TransactionRunners.run(transactionRunner, context -> {
+      new ProgramHeartbeatTable(context).writeRunRecordMeta(metaRunning, bucketStart + 100);
+    });
+    setUpProgramHeartBeats(metaRunning, bucketStart + 100, bucketStart + 5 * bucketSize, interval);
+
+    long programEndTime = bucketStart + 5 * bucketSize + TimeUnit.MINUTES.toSeconds(30);
+    RunRecordDetail.Builder metaKilledBuilder = getMockRunRecordMeta(NamespaceId.DEFAULT, runId);
+    metaKilledBuilder.setStatus(ProgramRunStatus.KILLED);
+    metaKilledBuilder.setStopTime(programEndTime);
+    RunRecordDetail metaKilled = metaKilledBuilder.build();
+    TransactionRunners.run(transactionRunner, context -> {
+      new ProgramHeartbeatTable(context).writeRunRecordMeta(metaKilled, programEndTime);
+    });
+
+    NamespaceId otherNamespace = new NamespaceId("other");
+    RunRecordDetail.Builder otherBuilder = getMockRunRecordMeta(otherNamespace, RunIds.generate());
+    otherBuilder.setStatus(ProgramRunStatus.RUNNING);
+    otherBuilder.setRunTime(bucketStart + 200);
+    RunRecordDetail otherRunning = otherBuilder.build();
+    TransactionRunners.run(transactionRunner, context -> {
+      new ProgramHeartbeatTable(context).writeRunRecordMeta(otherRunning, bucketStart + 200);
+    });
+    setUpProgramHeartBeats(otherRunning, bucketStart + 200, bucketStart + 7 * bucketSize, interval);
+
+    TransactionRunners.run(transactionRunner, context -> {
+      ProgramHeartbeatTable programHeartbeatTable = new ProgramHeartbeatTable(context);
+      Set<String> namespaces = ImmutableSet.of(NamespaceId.DEFAULT.getNamespace());
+
+      // time range that is aligned with the buckets
+      Collection<RunRecordDetail> result = programHeartbeatTable.scan(bucketStart, bucketStart + 3 * bucketSize,
+                                                                      namespaces);
+      Assert.assertEquals(Collections.singletonList(metaRunning), new ArrayList<>(result));
+
+      // time range that ends before the program is killed, with partial buckets on both ends
+      result = programHeartbeatTable.scan(bucketStart + 150, bucketStart + 5 * bucketSize + 600, namespaces);
+      Assert.assertEquals(Collections.singletonList(metaRunning), new ArrayList<>(result));
+
+      // time range that includes the program being killed
+      result = programHeartbeatTable.scan(bucketStart + 3 * bucketSize + 1, bucketStart + 6 * bucketSize,
+                                          namespaces);
+      Assert.assertEquals(Collections.singletonList(metaKilled), new ArrayList<>(result));
+
+      // time range within a single bucket
+      result = programHeartbeatTable.scan(programEndTime, programEndTime + 1, namespaces);
+      Assert.assertEquals(Collections.singletonList(metaKilled), new ArrayList<>(result));
+
+      // time range after the program is killed
+      result = programHeartbeatTable.scan(programEndTime + 1, bucketStart + 7 * bucketSize, namespaces);
+      Assert.assertTrue(result.isEmpty());
+
+      // time range over both namespaces
+      result = programHeartbeatTable.scan(bucketStart + 2 * bucketSize, bucketStart + 4 * bucketSize,
+                                          ImmutableSet.of(NamespaceId.DEFAULT.getNamespace(),
+                                                          otherNamespace.getNamespace()));
+      Assert.assertEquals(ImmutableSet.of(metaRunning, otherRunning), new HashSet<>(result));
+    });
+  }
+
+  @Test
+  public void testScanningLongRuns() throws Exception {
+    // p1 : x -> x + 20 buckets
+    // p2 : x + 1 bucket + 10 min -> x + 1 bucket + 20 min
+    // p3 : x + 5 buckets -> x + 8 buckets
+    long bucketSize = ProgramHeartbeatTable.BUCKET_SIZE_SECONDS;
+    long bucketStart = (TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) / bucketSize - 30) * bucketSize;
+    long interval = TimeUnit.MINUTES.toSeconds(10);
+
+    RunId runId1 = RunIds.generate(TimeUnit.SECONDS.toMillis(bucketStart));
+    RunRecordDetail running1 = writeProgramStatus(runId1, ProgramRunStatus.RUNNING, bucketStart);
+    setUpProgramHeartBeats(running1, bucketStart, bucketStart + 20 * bucketSize, interval);
+    RunRecordDetail completed1 = writeProgramStatus(runId1, ProgramRunStatus.COMPLETED,
+                                                    bucketStart + 20 * bucketSize);
+
+    RunId runId2 = RunIds.generate(TimeUnit.SECONDS.toMillis(bucketStart + bucketSize + 600));
+    writeProgramStatus(runId2, ProgramRunStatus.RUNNING, bucketStart + bucketSize + 600);
+    RunRecordDetail failed2 = writeProgramStatus(runId2, ProgramRunStatus.FAILED, bucketStart + bucketSize + 1200);
+
+    RunId runId3 = RunIds.generate(TimeUnit.SECONDS.toMillis(bucketStart + 5 * bucketSize));
+    RunRecordDetail running3 = writeProgramStatus(runId3, ProgramRunStatus.RUNNING, bucketStart + 5 * bucketSize);
+    setUpProgramHeartBeats(running3, bucketStart + 5 * bucketSize, bucketStart + 8 * bucketSize, interval);
+    RunRecordDetail killed3 = writeProgramStatus(runId3, ProgramRunStatus.KILLED, bucketStart + 8 * bucketSize);
+
+    // runs that span the whole time range are returned with their state at the end of the range
+    Assert.assertEquals(ImmutableSet.of(running1), scan(bucketStart + 10 * bucketSize,
+                                                        bucketStart + 11 * bucketSize));
+    Assert.assertEquals(ImmutableSet.of(running1, running3), scan(bucketStart + 7 * bucketSize,
+                                                                  bucketStart + 7 * bucketSize + 1));
+    Assert.assertEquals(ImmutableSet.of(running1, failed2), scan(bucketStart + bucketSize + 1200,
+                                                                 bucketStart + bucketSize + 1201));
+    Assert.assertEquals(ImmutableSet.of(completed1, failed2, killed3), scan(bucketStart,
+                                                                            bucketStart + 30 * bucketSize));
+    Assert.assertEquals(ImmutableSet.of(completed1), scan(bucketStart + 8 * bucketSize + 1,
+                                                          bucketStart + 30 * bucketSize));
+    Assert.assertEquals(ImmutableSet.of(), scan(bucketStart + 20 * bucketSize + 1, bucketStart + 30 * bucketSize));
+  }
+
+  @Test
+  public void testScanningHeartBeatsBeforeIndex() throws Exception {
+    // p1 : x -> x + 2 buckets, finished before the run index was created
+    // p2 : x + 100 -> still running, started before the run index was created
+    // p3 : x + 3 buckets -> still running, started after the run index was created
+    long bucketSize = ProgramHeartbeatTable.BUCKET_SIZE_SECONDS;
+    long bucketStart = (TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) / bucketSize - 10) * bucketSize;
+    long interval = TimeUnit.MINUTES.toSeconds(10);
+
+    RunId runId1 = RunIds.generate(TimeUnit.SECONDS.toMillis(bucketStart));
+    RunRecordDetail.Builder running1Builder = getMockRunRecordMeta(NamespaceId.DEFAULT, runId1);
+    running1Builder.setStatus(ProgramRunStatus.RUNNING);
+    running1Builder.setRunTime(bucketStart);
+    RunRecordDetail running1 = running1Builder.build();
+    setUpHeartBeatsBeforeIndex(running1, bucketStart, bucketStart + 2 * bucketSize, interval);
+    RunRecordDetail.Builder killed1Builder = getMockRunRecordMeta(NamespaceId.DEFAULT, runId1);
+    killed1Builder.setStatus(ProgramRunStatus.KILLED);
+    killed1Builder.setStopTime(bucketStart + 2 * bucketSize);
+    RunRecordDetail killed1 = killed1Builder.build();
+    setUpHeartBeatsBeforeIndex(killed1, bucketStart + 2 * bucketSize, bucketStart + 2 * bucketSize + 1, interval);
+
+    RunId runId2 = RunIds.generate(TimeUnit.SECONDS.toMillis(bucketStart + 100));
+    RunRecordDetail.Builder running2Builder = getMockRunRecordMeta(NamespaceId.DEFAULT, runId2);
+    running2Builder.setStatus(ProgramRunStatus.RUNNING);
+    running2Builder.setRunTime(bucketStart + 100);
+    RunRecordDetail running2 = running2Builder.build();
+    setUpHeartBeatsBeforeIndex(running2, bucketStart + 100, bucketStart + 3 * bucketSize, interval);
+
+    // the run index is created with the first program status change after the upgrade
+    RunId runId3 = RunIds.generate(TimeUnit.SECONDS.toMillis(bucketStart + 3 * bucketSize));
+    RunRecordDetail running3 = writeProgramStatus(runId3, ProgramRunStatus.RUNNING, bucketStart + 3 * bucketSize);
+    setUpProgramHeartBeats(running2, bucketStart + 3 * bucketSize, bucketStart + 6 * bucketSize, interval);
+    setUpProgramHeartBeats(running3, bucketStart + 3 * bucketSize, bucketStart + 6 * bucketSize, interval);
+
+    // time ranges before the run index was created, including buckets that are fully covered
+    Assert.assertEquals(ImmutableSet.of(running1, running2), scan(bucketStart, bucketStart + 2 * bucketSize));
+    Assert.assertEquals(ImmutableSet.of(killed1, running2), scan(bucketStart, bucketStart + 2 * bucketSize + 1));
+    // time ranges that start before the run index was created and end after it
+    Assert.assertEquals(ImmutableSet.of(running2, running3), scan(bucketStart + 2 * bucketSize + 1,
+                                                                  bucketStart + 6 * bucketSize));
+    // time range after the run index was created, with the run that started before it
+    Assert.assertEquals(ImmutableSet.of(running2, running3), scan(bucketStart + 4 * bucketSize,
+                                                                  bucketStart + 5 * bucketSize));
+  }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link JobQueueSignal}.
+ */
+public class JobQueueSignalTest {
+
+  @Test
+  public void testSignalBeforeWait() throws InterruptedException {
+    JobQueueSignal signal = new JobQueueSignal(2);
+
+    // A signal raised before waiting should not be lost
+    signal.signal(1);
+    Assert.assertTrue(signal.await(1, 10, TimeUnit.SECONDS));
+
+    // The dirty flag is cleared after the wait returned
+    Assert.assertFalse(signal.await(1, 10, TimeUnit.MILLISECONDS));
+
+    // Signal on one partition doesn't affect the others
+    signal.signal(0);
+    Assert.assertFalse(signal.await(1, 10, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(signal.await(0, 10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testWakeup() throws Exception {
+    JobQueueSignal signal = new JobQueueSignal(4);
+
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    Thread t = new Thread(() -> {
+      try {
+        result.complete(signal.await(2, 1, TimeUnit.HOURS));
+      } catch (InterruptedException e) {
+        result.completeExceptionally(e);
+      }
+    });
+    t.start();
+
+    signal.signalAll();
+    Assert.assertTrue(result.get(10, TimeUnit.SECONDS));
+    t.join();
+  }
+}
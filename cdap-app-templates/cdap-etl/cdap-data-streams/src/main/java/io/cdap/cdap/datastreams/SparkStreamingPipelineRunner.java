@@ -143,6 +143,7 @@ public class SparkStreamingPipelineRunner extends SparkPipelineRunner {
                                                PipelinePhase pipelinePhase, PluginFunctionContext pluginFunctionContext,
                                                StageSpec stageSpec, Object plugin, Integer numPartitions,
                                                StageStatisticsCollector collector,
+                                               Map<String, StageStatisticsCollector> collectors,
                                                Set<String> shufflers) throws Exception {
     String stageName = stageSpec.getName();
     BatchJoiner<?, ?, ?> joiner;
@@ -40,6 +40,7 @@ import io.cdap.cdap.etl.mock.alert.NullAlertTransform;
 import io.cdap.cdap.etl.mock.alert.TMSAlertPublisher;
 import io.cdap.cdap.etl.mock.batch.MockExternalSink;
 import io.cdap.cdap.etl.mock.batch.MockSink;
+import io.cdap.cdap.etl.mock.batch.RunTrackingSink;
 import io.cdap.cdap.etl.mock.batch.aggregator.FieldCountAggregator;
 import io.cdap.cdap.etl.mock.batch.aggregator.FieldCountReducibleAggregator;
 import io.cdap.cdap.etl.mock.batch.aggregator.GroupFilterAggregator;
@@ -59,6 +60,7 @@ import io.cdap.cdap.etl.mock.transform.NullFieldSplitterTransform;
 import io.cdap.cdap.etl.mock.transform.SleepTransform;
 import io.cdap.cdap.etl.mock.transform.StringValueFilterTransform;
 import io.cdap.cdap.etl.proto.v2.DataStreamsConfig;
+import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
 import io.cdap.cdap.etl.spark.Compat;
 import io.cdap.cdap.metadata.DatasetFieldLineageSummary;
@@ -605,6 +607,15 @@ public class DataStreamsTest extends HydratorTestBase {
 
   @Test
   public void testWindower() throws Exception {
+    testWindower(false);
+  }
+
+  @Test
+  public void testIncrementalWindowAggregation() throws Exception {
+    testWindower(true);
+  }
+
+  private void testWindower(boolean isIncremental) throws Exception {
     /*
      * source --> window(width=10,interval=1) --> aggregator --> filter --> sink
      */
@@ -614,12 +625,13 @@ public class DataStreamsTest extends HydratorTestBase {
       StructuredRecord.builder(schema).set("x", "abc").build(),
       StructuredRecord.builder(schema).set("x", "abc").build());
 
-    String sinkName = "windowOut";
+    String sinkName = isIncremental ? "incrementalWindowOut" : "windowOut";
     // source sleeps 1 second between outputs
     DataStreamsConfig etlConfig = DataStreamsConfig.builder()
       .addStage(new ETLStage("source", MockSource.getPlugin(schema, input, 1000L)))
       .addStage(new ETLStage("window", Window.getPlugin(30, 1)))
-      .addStage(new ETLStage("agg", FieldCountAggregator.getPlugin("x", "string")))
+      .addStage(new ETLStage("agg", isIncremental ? FieldCountReducibleAggregator.getPlugin("x", "string") :
+        FieldCountAggregator.getPlugin("x", "string")))
       .addStage(new ETLStage("filter", StringValueFilterTransform.getPlugin("x", "all")))
       .addStage(new ETLStage("sink", MockSink.getPlugin(sinkName)))
       .addConnection("source", "window")
@@ -628,10 +640,13 @@ public class DataStreamsTest extends HydratorTestBase {
       .addConnection("filter", "sink")
       .setBatchInterval("1s")
       .setCheckpointDir(checkpointDir)
+      .setProperties(Collections.singletonMap(
+        "system.spark." + io.cdap.cdap.etl.common.Constants.SPARK_PIPELINE_WINDOW_AGGREGATION_INCREMENTAL_ENABLED,
+        Boolean.toString(isIncremental)))
       .build();
 
     AppRequest<DataStreamsConfig> appRequest = new AppRequest<>(APP_ARTIFACT, etlConfig);
-    ApplicationId appId = NamespaceId.DEFAULT.app("WindowerApp");
+    ApplicationId appId = NamespaceId.DEFAULT.app(isIncremental ? "IncrementalWindowerApp" : "WindowerApp");
     ApplicationManager appManager = deployApplication(appId, appRequest);
 
     SparkManager sparkManager = appManager.getSparkManager(DataStreamsSparkLauncher.NAME);
@@ -665,6 +680,99 @@ public class DataStreamsTest extends HydratorTestBase {
     sparkManager.stop();
   }
 
+  @Test
+  public void testReusedSinkFinishesEveryBatch() throws Exception {
+    Schema schema = Schema.recordOf("data", Schema.Field.of("x", Schema.of(Schema.Type.STRING)));
+    List<StructuredRecord> input = ImmutableList.of(
+      StructuredRecord.builder(schema).set("x", "a").build(),
+      StructuredRecord.builder(schema).set("x", "b").build());
+
+    SparkManager sparkManager = startSinkReusePipeline("ReusedSinkApp", schema, input,
+                                                       RunTrackingSink.getPlugin("reusedOut", "reusedTracking"));
+    DataSetManager<Table> outputManager = getDataset("reusedOut");
+    DataSetManager<Table> trackingManager = getDataset("reusedTracking");
+
+    // the sink is prepared for the first batch only, but finished after every batch while the pipeline is running
+    Tasks.waitFor(true, () -> new HashSet<>(input).equals(new HashSet<>(MockSink.readOutput(outputManager))) &&
+                    RunTrackingSink.getCount(trackingManager, RunTrackingSink.SUCCEEDED) >= 3,
+                  2, TimeUnit.MINUTES);
+    // one more prepare comes from the pipeline preparer when the program starts
+    Assert.assertEquals(2L, RunTrackingSink.getCount(trackingManager, RunTrackingSink.PREPARED));
+    Assert.assertEquals(0L, RunTrackingSink.getCount(trackingManager, RunTrackingSink.FAILED));
+
+    sparkManager.stop();
+    sparkManager.waitForStopped(1, TimeUnit.MINUTES);
+  }
+
+  @Test
+  public void testReusedSinkAfterFailedBatch() throws Exception {
+    Schema schema = Schema.recordOf("data", Schema.Field.of("x", Schema.of(Schema.Type.STRING)));
+    StructuredRecord before = StructuredRecord.builder(schema).set("x", "a").build();
+    StructuredRecord after = StructuredRecord.builder(schema).set("x", "b").build();
+    List<StructuredRecord> input = ImmutableList.of(
+      before, StructuredRecord.builder(schema).set("x", "fail").build(), after);
+
+    SparkManager sparkManager = startSinkReusePipeline(
+      "FailedBatchSinkApp", schema, input, RunTrackingSink.getPlugin("failedBatchOut", "failedBatchTracking",
+                                                                     "fail", false));
+    DataSetManager<Table> outputManager = getDataset("failedBatchOut");
+    DataSetManager<Table> trackingManager = getDataset("failedBatchTracking");
+
+    // the failed batch finishes the sink as failed, and the next batch prepares a new one
+    Tasks.waitFor(true, () -> MockSink.readOutput(outputManager).containsAll(ImmutableSet.of(before, after)) &&
+                    RunTrackingSink.getCount(trackingManager, RunTrackingSink.FAILED) == 1L,
+                  2, TimeUnit.MINUTES);
+    // prepared by the pipeline preparer, for the first batch, and for the batch after the failed one
+    Assert.assertEquals(3L, RunTrackingSink.getCount(trackingManager, RunTrackingSink.PREPARED));
+    Assert.assertTrue(RunTrackingSink.getCount(trackingManager, RunTrackingSink.SUCCEEDED) >= 2L);
+
+    sparkManager.stop();
+    sparkManager.waitForStopped(1, TimeUnit.MINUTES);
+  }
+
+  @Test
+  public void testSinkWithOutputArgumentsPreparedEveryBatch() throws Exception {
+    Schema schema = Schema.recordOf("data", Schema.Field.of("x", Schema.of(Schema.Type.STRING)));
+    List<StructuredRecord> input = ImmutableList.of(StructuredRecord.builder(schema).set("x", "a").build());
+
+    SparkManager sparkManager = startSinkReusePipeline(
+      "OutputArgumentsSinkApp", schema, input, RunTrackingSink.getPlugin("outputArgsOut", "outputArgsTracking",
+                                                                         null, true));
+    DataSetManager<Table> trackingManager = getDataset("outputArgsTracking");
+
+    // outputs with dataset arguments are not reused, so the sink is prepared for every batch
+    Tasks.waitFor(true, () -> RunTrackingSink.getCount(trackingManager, RunTrackingSink.SUCCEEDED) >= 3,
+                  2, TimeUnit.MINUTES);
+    long succeeded = RunTrackingSink.getCount(trackingManager, RunTrackingSink.SUCCEEDED);
+    Assert.assertTrue(RunTrackingSink.getCount(trackingManager, RunTrackingSink.PREPARED) >= succeeded);
+    Assert.assertEquals(0L, RunTrackingSink.getCount(trackingManager, RunTrackingSink.FAILED));
+
+    sparkManager.stop();
+    sparkManager.waitForStopped(1, TimeUnit.MINUTES);
+  }
+
+  private SparkManager startSinkReusePipeline(String appName, Schema schema, List<StructuredRecord> input,
+                                              ETLPlugin sinkPlugin) throws Exception {
+    // source sleeps 2 seconds between outputs, so each record is written by a different batch
+    DataStreamsConfig etlConfig = DataStreamsConfig.builder()
+      .addStage(new ETLStage("source", MockSource.getPlugin(schema, input, 2000L)))
+      .addStage(new ETLStage("sink", sinkPlugin))
+      .addConnection("source", "sink")
+      .setBatchInterval("1s")
+      .setCheckpointDir(checkpointDir)
+      .setProperties(Collections.singletonMap(
+        "system.spark." + io.cdap.cdap.etl.common.Constants.SPARK_PIPELINE_STREAMING_SINK_REUSE_ENABLED, "true"))
+      .build();
+
+    AppRequest<DataStreamsConfig> appRequest = new AppRequest<>(APP_ARTIFACT, etlConfig);
+    ApplicationManager appManager = deployApplication(NamespaceId.DEFAULT.app(appName), appRequest);
+
+    SparkManager sparkManager = appManager.getSparkManager(DataStreamsSparkLauncher.NAME);
+    sparkManager.start();
+    sparkManager.waitForRun(ProgramRunStatus.RUNNING, 10, TimeUnit.SECONDS);
+    return sparkManager;
+  }
+
   @Test
   public void testJoin() throws Exception {
     /*
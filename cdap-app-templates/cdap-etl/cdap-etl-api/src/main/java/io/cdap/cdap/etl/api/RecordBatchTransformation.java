@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.api;
+
+import io.cdap.cdap.api.annotation.Beta;
+
+import java.util.List;
+
+/**
+ * Transforms a batch of input objects into zero or more output objects. A {@link Transform} can implement this
+ * interface in addition to {@link Transformation} to process a whole batch of records in a single call when the
+ * pipeline runs with batched transform execution enabled. Implementations must produce the same output as calling
+ * {@link Transformation#transform(Object, Emitter)} on each input in order.
+ *
+ * @param <IN> Type of input object
+ * @param <OUT> Type of output object
+ */
+@Beta
+public interface RecordBatchTransformation<IN, OUT> {
+
+  /**
+   * Transform the batch of inputs and emit output using {@link Emitter}.
+   *
+   * @param inputs the batch of input data to be transformed. The list is not reused by the caller after
+   *               this method returns
+   * @param emitter {@link Emitter} to emit data to the next stage
+   * @throws Exception if there's an error during this method invocation
+   */
+  void transformBatch(List<IN> inputs, Emitter<OUT> emitter) throws Exception;
+}
@@ -41,13 +41,28 @@ public class MapReduceStageStatisticsCollector implements StageStatisticsCollect
     context.getCounter(Constants.StageStatistics.PREFIX, inputRecordCountKey).increment(1);
   }
 
+  @Override
+  public void incrementInputRecordCount(long count) {
+    context.getCounter(Constants.StageStatistics.PREFIX, inputRecordCountKey).increment(count);
+  }
+
   @Override
   public void incrementOutputRecordCount() {
     context.getCounter(Constants.StageStatistics.PREFIX, outputRecordCountKey).increment(1);
   }
 
+  @Override
+  public void incrementOutputRecordCount(long count) {
+    context.getCounter(Constants.StageStatistics.PREFIX, outputRecordCountKey).increment(count);
+  }
+
   @Override
   public void incrementErrorRecordCount() {
     context.getCounter(Constants.StageStatistics.PREFIX, errorRecordCountKey).increment(1);
   }
+
+  @Override
+  public void incrementErrorRecordCount(long count) {
+    context.getCounter(Constants.StageStatistics.PREFIX, errorRecordCountKey).increment(count);
+  }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.Map;
+
+/**
+ * Wrapper around another emitter that tracks how many records were emitted, similar to {@link TrackedEmitter}.
+ * Instead of emitting metrics for every record, counts are accumulated locally and only emitted when
+ * {@link #flush()} is called, which is done once per batch of input records.
+ *
+ * @param <T> the type of object to emit
+ */
+public class BatchTrackedEmitter<T> implements Emitter<T> {
+  private final Emitter<T> delegate;
+  private final StageMetrics stageMetrics;
+  private final String emitMetricName;
+  private final DataTracer dataTracer;
+  private final StageStatisticsCollector collector;
+  private final boolean tracingEnabled;
+  private int emitCount;
+  private int errorCount;
+  private int alertCount;
+
+  public BatchTrackedEmitter(Emitter<T> delegate, StageMetrics stageMetrics, String emitMetricName,
+                             DataTracer dataTracer, StageStatisticsCollector collector) {
+    this.delegate = delegate;
+    this.stageMetrics = stageMetrics;
+    this.emitMetricName = emitMetricName;
+    this.dataTracer = dataTracer;
+    this.collector = collector;
+    this.tracingEnabled = dataTracer.isEnabled();
+  }
+
+  @Override
+  public void emit(T value) {
+    emitCount++;
+    if (tracingEnabled) {
+      dataTracer.info(emitMetricName, value);
+    }
+    delegate.emit(value);
+  }
+
+  @Override
+  public void emitError(InvalidEntry<T> value) {
+    errorCount++;
+    if (tracingEnabled) {
+      dataTracer.info(Constants.Metrics.RECORDS_ERROR, value);
+    }
+    delegate.emitError(value);
+  }
+
+  @Override
+  public void emitAlert(Map<String, String> payload) {
+    alertCount++;
+    if (tracingEnabled) {
+      dataTracer.info(Constants.Metrics.RECORDS_ALERT, payload);
+    }
+    delegate.emitAlert(payload);
+  }
+
+  /**
+   * Emits the metrics accumulated since the last flush.
+   */
+  public void flush() {
+    if (emitCount > 0) {
+      stageMetrics.count(emitMetricName, emitCount);
+      if (emitMetricName.equals(Constants.Metrics.RECORDS_OUT)) {
+        collector.incrementOutputRecordCount(emitCount);
+      }
+    }
+    if (errorCount > 0) {
+      stageMetrics.count(Constants.Metrics.RECORDS_ERROR, errorCount);
+      collector.incrementErrorRecordCount(errorCount);
+    }
+    if (alertCount > 0) {
+      stageMetrics.count(Constants.Metrics.RECORDS_ALERT, alertCount);
+    }
+    emitCount = 0;
+    errorCount = 0;
+    alertCount = 0;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.MultiOutputEmitter;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wrapper around another emitter that tracks how many records were emitted to each port, similar to
+ * {@link TrackedMultiOutputEmitter}. Instead of emitting metrics for every record, counts are accumulated locally
+ * and only emitted when {@link #flush()} is called, which is done once per batch of input records.
+ *
+ * @param <E> the type of error object
+ */
+public class BatchTrackedMultiOutputEmitter<E> implements MultiOutputEmitter<E> {
+  private final MultiOutputEmitter<E> delegate;
+  private final StageMetrics stageMetrics;
+  private final DataTracer dataTracer;
+  private final StageStatisticsCollector collector;
+  private final boolean tracingEnabled;
+  private final Map<String, Integer> portCounts;
+  private int errorCount;
+  private int alertCount;
+
+  public BatchTrackedMultiOutputEmitter(MultiOutputEmitter<E> delegate, StageMetrics stageMetrics,
+                                        DataTracer dataTracer, StageStatisticsCollector collector) {
+    this.delegate = delegate;
+    this.stageMetrics = stageMetrics;
+    this.dataTracer = dataTracer;
+    this.collector = collector;
+    this.tracingEnabled = dataTracer.isEnabled();
+    this.portCounts = new HashMap<>();
+  }
+
+  @Override
+  public void emit(String port, Object value) {
+    portCounts.merge(port, 1, Integer::sum);
+    if (tracingEnabled) {
+      dataTracer.info(Constants.Metrics.RECORDS_OUT + "." + port, value);
+    }
+    delegate.emit(port, value);
+  }
+
+  @Override
+  public void emitError(InvalidEntry<E> value) {
+    errorCount++;
+    if (tracingEnabled) {
+      dataTracer.info(Constants.Metrics.RECORDS_ERROR, value);
+    }
+    delegate.emitError(value);
+  }
+
+  @Override
+  public void emitAlert(Map<String, String> payload) {
+    alertCount++;
+    if (tracingEnabled) {
+      dataTracer.info(Constants.Metrics.RECORDS_ALERT, payload);
+    }
+    delegate.emitAlert(payload);
+  }
+
+  /**
+   * Emits the metrics accumulated since the last flush.
+   */
+  public void flush() {
+    long outputCount = 0;
+    for (Map.Entry<String, Integer> entry : portCounts.entrySet()) {
+      stageMetrics.count(Constants.Metrics.RECORDS_OUT + "." + entry.getKey(), entry.getValue());
+      outputCount += entry.getValue();
+    }
+    if (outputCount > 0) {
+      collector.incrementOutputRecordCount(outputCount);
+    }
+    if (errorCount > 0) {
+      stageMetrics.count(Constants.Metrics.RECORDS_ERROR, errorCount);
+      collector.incrementErrorRecordCount(errorCount);
+    }
+    if (alertCount > 0) {
+      stageMetrics.count(Constants.Metrics.RECORDS_ALERT, alertCount);
+    }
+    portCounts.clear();
+    errorCount = 0;
+    alertCount = 0;
+  }
+}
@@ -34,6 +34,24 @@ public final class Constants {
   public static final String SPARK_PIPELINE_CACHING_STORAGE_LEVEL = "spark.cdap.pipeline.caching.storage.level";
   public static final String CONSOLIDATE_STAGES = "spark.cdap.pipeline.consolidate.stages";
   public static final String DEFAULT_CACHING_STORAGE_LEVEL = "DISK_ONLY";
+  // number of records passed to a transform at a time. Batched transform execution is disabled if not positive.
+  public static final String SPARK_PIPELINE_TRANSFORM_BATCH_SIZE = "spark.cdap.pipeline.transform.batch.size";
+  // whether aggregators read each group from a partition sorted by group key instead of collecting it in memory
+  public static final String SPARK_PIPELINE_AGGREGATION_SORT_ENABLED = "spark.cdap.pipeline.aggregation.sort.enabled";
+  // whether joins sample their keys to automatically handle skew and prune records with a bloom filter
+  public static final String SPARK_PIPELINE_JOIN_OPTIMIZATION_ENABLED = "spark.cdap.pipeline.join.optimization.enabled";
+  // fraction of records sampled to find hot join keys
+  public static final String SPARK_PIPELINE_JOIN_SAMPLE_FRACTION = "spark.cdap.pipeline.join.sample.fraction";
+  // minimum fraction of records that must share a join key for the key to be salted
+  public static final String SPARK_PIPELINE_JOIN_HOT_KEY_RATIO = "spark.cdap.pipeline.join.hot.key.ratio";
+  // maximum number of ways a hot join key is split
+  public static final String SPARK_PIPELINE_JOIN_MAX_SALT_FACTOR = "spark.cdap.pipeline.join.max.salt.factor";
+  // whether streaming batch sinks with reusable outputs are prepared once instead of once per micro-batch
+  public static final String SPARK_PIPELINE_STREAMING_SINK_REUSE_ENABLED =
+    "spark.cdap.pipeline.streaming.sink.reuse.enabled";
+  // whether reducible aggregators that follow a window aggregate each batch once and merge the partial aggregates
+  public static final String SPARK_PIPELINE_WINDOW_AGGREGATION_INCREMENTAL_ENABLED =
+    "spark.cdap.pipeline.window.aggregation.incremental.enabled";
 
   private Constants() {
     throw new AssertionError("Suppress default constructor for noninstantiability");
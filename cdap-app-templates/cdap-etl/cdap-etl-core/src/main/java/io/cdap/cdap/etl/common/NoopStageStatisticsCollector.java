@@ -41,4 +41,19 @@ public class NoopStageStatisticsCollector implements StageStatisticsCollector, S
   public void incrementErrorRecordCount() {
     // no-op
   }
+
+  @Override
+  public void incrementInputRecordCount(long count) {
+    // no-op
+  }
+
+  @Override
+  public void incrementOutputRecordCount(long count) {
+    // no-op
+  }
+
+  @Override
+  public void incrementErrorRecordCount(long count) {
+    // no-op
+  }
 }
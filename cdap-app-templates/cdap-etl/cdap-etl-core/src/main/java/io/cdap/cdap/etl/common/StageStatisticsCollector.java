@@ -34,4 +34,31 @@ public interface StageStatisticsCollector {
    * Increment the error record count.
    */
   void incrementErrorRecordCount();
+
+  /**
+   * Increment the input record count by the given amount.
+   */
+  default void incrementInputRecordCount(long count) {
+    for (long i = 0; i < count; i++) {
+      incrementInputRecordCount();
+    }
+  }
+
+  /**
+   * Increment the output record count by the given amount.
+   */
+  default void incrementOutputRecordCount(long count) {
+    for (long i = 0; i < count; i++) {
+      incrementOutputRecordCount();
+    }
+  }
+
+  /**
+   * Increment the error record count by the given amount.
+   */
+  default void incrementErrorRecordCount(long count) {
+    for (long i = 0; i < count; i++) {
+      incrementErrorRecordCount();
+    }
+  }
 }
@@ -20,18 +20,22 @@ import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.etl.api.Destroyable;
 import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.MultiOutputTransformation;
+import io.cdap.cdap.etl.api.RecordBatchMultiOutputTransformation;
 import io.cdap.cdap.etl.api.StageMetrics;
 import io.cdap.cdap.etl.api.Transformation;
 
+import java.util.List;
 
 /**
  * A {@link Transformation} that delegates transform operations while emitting metrics
  * around how many records were input into the transform and output by it.
+ * When transforming a batch of records, metrics are emitted once per batch instead of once per record.
  *
  * @param <IN> Type of input object
  * @param <ERROR> Type of error object
  */
-public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransformation<IN, ERROR>, Destroyable {
+public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransformation<IN, ERROR>,
+  RecordBatchMultiOutputTransformation<IN, ERROR>, Destroyable {
   private final MultiOutputTransformation<IN, ERROR> transform;
   private final StageMetrics metrics;
   private final DataTracer dataTracer;
@@ -57,6 +61,26 @@ public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransf
     transform.transform(input, new TrackedMultiOutputEmitter<>(emitter, metrics, dataTracer, collector));
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public void transformBatch(List<IN> inputs, MultiOutputEmitter<ERROR> emitter) throws Exception {
+    metrics.count(Constants.Metrics.RECORDS_IN, inputs.size());
+    collector.incrementInputRecordCount(inputs.size());
+    BatchTrackedMultiOutputEmitter<ERROR> trackedEmitter =
+      new BatchTrackedMultiOutputEmitter<>(emitter, metrics, dataTracer, collector);
+    try {
+      if (transform instanceof RecordBatchMultiOutputTransformation) {
+        ((RecordBatchMultiOutputTransformation<IN, ERROR>) transform).transformBatch(inputs, trackedEmitter);
+      } else {
+        for (IN input : inputs) {
+          transform.transform(input, trackedEmitter);
+        }
+      }
+    } finally {
+      trackedEmitter.flush();
+    }
+  }
+
   @Override
   public void destroy() {
     if (transform instanceof Destroyable) {
@@ -19,19 +19,23 @@ package io.cdap.cdap.etl.common;
 import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.etl.api.Destroyable;
 import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.RecordBatchTransformation;
 import io.cdap.cdap.etl.api.StageMetrics;
 import io.cdap.cdap.etl.api.Transformation;
 
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
  * A {@link Transformation} that delegates transform operations while emitting metrics
  * around how many records were input into the transform and output by it.
+ * When transforming a batch of records, metrics are emitted once per batch instead of once per record.
  *
  * @param <IN> Type of input object
  * @param <OUT> Type of output object
  */
-public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destroyable {
+public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, RecordBatchTransformation<IN, OUT>,
+  Destroyable {
   private final Transformation<IN, OUT> transform;
   private final StageMetrics metrics;
   private final String metricInName;
@@ -75,6 +79,38 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
       new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer, collector));
   }
 
+  @Override
+  public void transformBatch(List<IN> inputs, Emitter<OUT> emitter) throws Exception {
+    if (metricInName != null) {
+      metrics.count(metricInName, inputs.size());
+      if (metricInName.equals(Constants.Metrics.RECORDS_IN)) {
+        collector.incrementInputRecordCount(inputs.size());
+      }
+    }
+    if (metricOutName == null) {
+      transformAll(inputs, emitter);
+      return;
+    }
+    BatchTrackedEmitter<OUT> trackedEmitter = new BatchTrackedEmitter<>(emitter, metrics, metricOutName,
+                                                                        dataTracer, collector);
+    try {
+      transformAll(inputs, trackedEmitter);
+    } finally {
+      trackedEmitter.flush();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void transformAll(List<IN> inputs, Emitter<OUT> emitter) throws Exception {
+    if (transform instanceof RecordBatchTransformation) {
+      ((RecordBatchTransformation<IN, OUT>) transform).transformBatch(inputs, emitter);
+      return;
+    }
+    for (IN input : inputs) {
+      transform.transform(input, emitter);
+    }
+  }
+
   @Override
   public void destroy() {
     if (transform instanceof Destroyable) {
@@ -18,20 +18,24 @@ package io.cdap.cdap.etl.common.plugin;
 
 import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.MultiOutputPipelineConfigurer;
+import io.cdap.cdap.etl.api.RecordBatchMultiOutputTransformation;
 import io.cdap.cdap.etl.api.SplitterTransform;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.TransformContext;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
  * Wrapper around a {@link SplitterTransform} that makes sure logging, classloading, and other pipeline capabilities are
- * setup correctly.
+ * setup correctly. Batches of records are passed to the wrapped transform in a single call if it implements
+ * {@link RecordBatchMultiOutputTransformation}, otherwise they are transformed one record at a time.
  *
  * @param <T> type of input record
  * @param <E> type of error records emitted. Usually the same as the input record type
  */
-public class WrappedSplitterTransform<T, E> extends SplitterTransform<T, E> {
+public class WrappedSplitterTransform<T, E> extends SplitterTransform<T, E>
+  implements RecordBatchMultiOutputTransformation<T, E> {
 
   private final SplitterTransform<T, E> transform;
   private final Caller caller;
@@ -80,4 +84,25 @@ public class WrappedSplitterTransform<T, E> extends SplitterTransform<T, E> {
       operationTimer.reset();
     }
   }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void transformBatch(List<T> inputs, MultiOutputEmitter<E> emitter) throws Exception {
+    operationTimer.start();
+    try {
+      caller.call((Callable<Void>) () -> {
+        MultiOutputEmitter<E> untimedEmitter = new UntimedMultiOutputEmitter<>(emitter, operationTimer);
+        if (transform instanceof RecordBatchMultiOutputTransformation) {
+          ((RecordBatchMultiOutputTransformation<T, E>) transform).transformBatch(inputs, untimedEmitter);
+        } else {
+          for (T input : inputs) {
+            transform.transform(input, untimedEmitter);
+          }
+        }
+        return null;
+      });
+    } finally {
+      operationTimer.reset();
+    }
+  }
 }
@@ -18,20 +18,23 @@ package io.cdap.cdap.etl.common.plugin;
 
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.RecordBatchTransformation;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
  * Wrapper around a {@link Transform} that makes sure logging, classloading, and other pipeline capabilities
- * are setup correctly.
+ * are setup correctly. Batches of records are passed to the wrapped transform in a single call if it
+ * implements {@link RecordBatchTransformation}, otherwise they are transformed one record at a time.
  *
  * @param <IN> type of input
  * @param <OUT> type of output
  */
-public class WrappedTransform<IN, OUT> extends Transform<IN, OUT> {
+public class WrappedTransform<IN, OUT> extends Transform<IN, OUT> implements RecordBatchTransformation<IN, OUT> {
   private final Transform<IN, OUT> transform;
   private final Caller caller;
   private final OperationTimer operationTimer;
@@ -94,4 +97,25 @@ public class WrappedTransform<IN, OUT> extends Transform<IN, OUT> {
       operationTimer.reset();
     }
   }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void transformBatch(List<IN> inputs, Emitter<OUT> emitter) throws Exception {
+    operationTimer.start();
+    try {
+      caller.call((Callable<Void>) () -> {
+        Emitter<OUT> untimedEmitter = new UntimedEmitter<>(emitter, operationTimer);
+        if (transform instanceof RecordBatchTransformation) {
+          ((RecordBatchTransformation<IN, OUT>) transform).transformBatch(inputs, untimedEmitter);
+        } else {
+          for (IN input : inputs) {
+            transform.transform(input, untimedEmitter);
+          }
+        }
+        return null;
+      });
+    } finally {
+      operationTimer.reset();
+    }
+  }
 }
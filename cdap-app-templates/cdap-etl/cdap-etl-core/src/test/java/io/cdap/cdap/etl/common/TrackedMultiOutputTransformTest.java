@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.MultiOutputEmitter;
+import io.cdap.cdap.etl.api.RecordBatchMultiOutputTransformation;
+import io.cdap.cdap.etl.api.SplitterTransform;
+import io.cdap.cdap.internal.app.preview.NoopDataTracerFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for batch transformation in {@link TrackedMultiOutputTransform}.
+ */
+public class TrackedMultiOutputTransformTest {
+
+  @Test
+  public void testRecordTransformInBatch() throws Exception {
+    MockMetrics metrics = new MockMetrics();
+    TrackedMultiOutputTransform<Integer, Integer> transform =
+      new TrackedMultiOutputTransform<>(new ParitySplitter(), new DefaultStageMetrics(metrics, "split"),
+                                        new NoopDataTracerFactory().getDataTracer(null, "split"));
+
+    RecordingEmitter emitter = new RecordingEmitter();
+    transform.transformBatch(ImmutableList.of(1, 2, 3, 4, 5, -1), emitter);
+
+    Assert.assertEquals(ImmutableList.of("odd:1", "even:2", "odd:3", "even:4", "odd:5"), emitter.outputs);
+    Assert.assertEquals(1, emitter.errors.size());
+    Assert.assertEquals(6, metrics.getCount("split." + Constants.Metrics.RECORDS_IN));
+    Assert.assertEquals(2, metrics.getCount("split." + Constants.Metrics.RECORDS_OUT + ".even"));
+    Assert.assertEquals(3, metrics.getCount("split." + Constants.Metrics.RECORDS_OUT + ".odd"));
+    Assert.assertEquals(1, metrics.getCount("split." + Constants.Metrics.RECORDS_ERROR));
+  }
+
+  @Test
+  public void testBatchTransform() throws Exception {
+    MockMetrics metrics = new MockMetrics();
+    BatchParitySplitter splitter = new BatchParitySplitter();
+    TrackedMultiOutputTransform<Integer, Integer> transform =
+      new TrackedMultiOutputTransform<>(splitter, new DefaultStageMetrics(metrics, "split"),
+                                        new NoopDataTracerFactory().getDataTracer(null, "split"));
+
+    RecordingEmitter emitter = new RecordingEmitter();
+    transform.transformBatch(ImmutableList.of(1, 2, 3), emitter);
+    transform.transformBatch(ImmutableList.of(4), emitter);
+
+    // The whole batch should be given to the transform in one call
+    Assert.assertEquals(2, splitter.batchCount);
+    Assert.assertEquals(ImmutableList.of("odd:1", "even:2", "odd:3", "even:4"), emitter.outputs);
+    Assert.assertEquals(4, metrics.getCount("split." + Constants.Metrics.RECORDS_IN));
+    Assert.assertEquals(2, metrics.getCount("split." + Constants.Metrics.RECORDS_OUT + ".even"));
+    Assert.assertEquals(2, metrics.getCount("split." + Constants.Metrics.RECORDS_OUT + ".odd"));
+  }
+
+  private static class ParitySplitter extends SplitterTransform<Integer, Integer> {
+
+    @Override
+    public void transform(Integer input, MultiOutputEmitter<Integer> emitter) {
+      if (input < 0) {
+        emitter.emitError(new InvalidEntry<>(1, "negative", input));
+      } else {
+        emitter.emit(input % 2 == 0 ? "even" : "odd", input);
+      }
+    }
+  }
+
+  private static class BatchParitySplitter extends ParitySplitter
+    implements RecordBatchMultiOutputTransformation<Integer, Integer> {
+    private int batchCount;
+
+    @Override
+    public void transformBatch(List<Integer> inputs, MultiOutputEmitter<Integer> emitter) {
+      batchCount++;
+      for (Integer input : inputs) {
+        transform(input, emitter);
+      }
+    }
+  }
+
+  private static class RecordingEmitter implements MultiOutputEmitter<Integer> {
+    private final List<String> outputs = new ArrayList<>();
+    private final List<InvalidEntry<Integer>> errors = new ArrayList<>();
+
+    @Override
+    public void emit(String port, Object value) {
+      outputs.add(port + ":" + value);
+    }
+
+    @Override
+    public void emitError(InvalidEntry<Integer> invalidEntry) {
+      errors.add(invalidEntry);
+    }
+
+    @Override
+    public void emitAlert(Map<String, String> payload) {
+      // no-op
+    }
+  }
+}
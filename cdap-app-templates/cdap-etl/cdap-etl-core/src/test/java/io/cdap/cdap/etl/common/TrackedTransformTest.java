@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.RecordBatchTransformation;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.internal.app.preview.NoopDataTracerFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for batch transformation in {@link TrackedTransform}.
+ */
+public class TrackedTransformTest {
+
+  @Test
+  public void testRecordTransformInBatch() throws Exception {
+    MockMetrics metrics = new MockMetrics();
+    TrackedTransform<Integer, Integer> transform =
+      new TrackedTransform<>(new EvenFilter(), new DefaultStageMetrics(metrics, "filter"),
+                             new NoopDataTracerFactory().getDataTracer(null, "filter"));
+
+    DefaultEmitter<Integer> emitter = new DefaultEmitter<>();
+    transform.transformBatch(ImmutableList.of(1, 2, 3, 4, 5), emitter);
+
+    Assert.assertEquals(ImmutableList.of(2, 4), new ArrayList<>(emitter.getEntries()));
+    Assert.assertEquals(3, emitter.getErrors().size());
+    Assert.assertEquals(5, metrics.getCount("filter." + Constants.Metrics.RECORDS_IN));
+    Assert.assertEquals(2, metrics.getCount("filter." + Constants.Metrics.RECORDS_OUT));
+    Assert.assertEquals(3, metrics.getCount("filter." + Constants.Metrics.RECORDS_ERROR));
+  }
+
+  @Test
+  public void testBatchTransform() throws Exception {
+    MockMetrics metrics = new MockMetrics();
+    BatchEvenFilter filter = new BatchEvenFilter();
+    TrackedTransform<Integer, Integer> transform =
+      new TrackedTransform<>(filter, new DefaultStageMetrics(metrics, "filter"),
+                             new NoopDataTracerFactory().getDataTracer(null, "filter"));
+
+    DefaultEmitter<Integer> emitter = new DefaultEmitter<>();
+    transform.transformBatch(ImmutableList.of(1, 2, 3, 4, 5), emitter);
+    transform.transformBatch(ImmutableList.of(6), emitter);
+
+    // The whole batch should be given to the transform in one call
+    Assert.assertEquals(2, filter.batchCount);
+    Assert.assertEquals(ImmutableList.of(2, 4, 6), new ArrayList<>(emitter.getEntries()));
+    Assert.assertEquals(6, metrics.getCount("filter." + Constants.Metrics.RECORDS_IN));
+    Assert.assertEquals(3, metrics.getCount("filter." + Constants.Metrics.RECORDS_OUT));
+    Assert.assertEquals(3, metrics.getCount("filter." + Constants.Metrics.RECORDS_ERROR));
+  }
+
+  private static class EvenFilter extends Transform<Integer, Integer> {
+
+    @Override
+    public void transform(Integer input, Emitter<Integer> emitter) {
+      if (input % 2 == 0) {
+        emitter.emit(input);
+      } else {
+        emitter.emitError(new InvalidEntry<>(1, "odd", input));
+      }
+    }
+  }
+
+  private static class BatchEvenFilter extends EvenFilter implements RecordBatchTransformation<Integer, Integer> {
+    private int batchCount;
+
+    @Override
+    public void transformBatch(List<Integer> inputs, Emitter<Integer> emitter) {
+      batchCount++;
+      for (Integer input : inputs) {
+        transform(input, emitter);
+      }
+    }
+  }
+}
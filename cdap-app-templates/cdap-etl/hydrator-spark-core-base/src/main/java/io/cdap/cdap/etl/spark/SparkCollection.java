@@ -50,6 +50,12 @@ public interface SparkCollection<T> {
 
   SparkCollection<T> cache();
 
+  /**
+   * Releases the data cached by {@link #cache()}. This should only be called on the collection returned by
+   * {@link #cache()}, once nothing will read the collection anymore.
+   */
+  void unpersist();
+
   SparkCollection<T> union(SparkCollection<T> other);
 
   SparkCollection<RecordInfo<Object>> transform(StageSpec stageSpec, StageStatisticsCollector collector);
@@ -66,6 +72,10 @@ public interface SparkCollection<T> {
   SparkCollection<RecordInfo<Object>> reduceAggregate(StageSpec stageSpec, @Nullable Integer partitions,
                                                       StageStatisticsCollector collector);
 
+  SparkCollection<RecordInfo<Object>> windowReduceAggregate(StageSpec windowStageSpec, Windower windower,
+                                                            StageSpec stageSpec, @Nullable Integer partitions,
+                                                            StageStatisticsCollector collector);
+
   <K, V> SparkPairCollection<K, V> flatMapToPair(PairFlatMapFunction<T, K, V> function);
 
   <U> SparkCollection<U> compute(StageSpec stageSpec, SparkCompute<T, U> compute) throws Exception;
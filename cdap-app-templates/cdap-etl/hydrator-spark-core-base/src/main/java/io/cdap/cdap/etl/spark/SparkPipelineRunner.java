@@ -86,6 +86,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -93,6 +94,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -162,11 +164,14 @@ public abstract class SparkPipelineRunner {
       .map(StageSpec::getName)
       .collect(Collectors.toSet());
 
-    Collection<Runnable> sinkRunnables = new ArrayList<>();
+    // windows that are applied by the reducible aggregator that follows them, keyed by the aggregator name
+    Map<String, WindowStage> aggregatorWindows = new HashMap<>();
+    // sink and group tasks, keyed by their node in the grouped dag
+    Map<String, Runnable> sinkRunnables = new LinkedHashMap<>();
     for (String stageName : groupedDag.getTopologicalOrder()) {
       if (groups.containsKey(stageName)) {
-        sinkRunnables.add(handleGroup(sec, phaseSpec, groups.get(stageName), groupedDag.getNodeInputs(stageName),
-                                      emittedRecords, collectors));
+        sinkRunnables.put(stageName, handleGroup(sec, phaseSpec, groups.get(stageName),
+                                                 groupedDag.getNodeInputs(stageName), emittedRecords, collectors));
         continue;
       }
 
@@ -253,8 +258,8 @@ public abstract class SparkPipelineRunner {
 
       } else if (BatchSink.PLUGIN_TYPE.equals(pluginType) || isConnectorSink) {
 
-        sinkRunnables.add(stageData.createStoreTask(stageSpec,
-                                                    Compat.convert(new BatchSinkFunction(pluginFunctionContext))));
+        sinkRunnables.put(stageName, stageData.createStoreTask(
+          stageSpec, Compat.convert(new BatchSinkFunction(pluginFunctionContext))));
 
       } else if (Transform.PLUGIN_TYPE.equals(pluginType)) {
 
@@ -301,14 +306,21 @@ public abstract class SparkPipelineRunner {
       } else if (SparkSink.PLUGIN_TYPE.equals(pluginType)) {
 
         SparkSink<Object> sparkSink = pluginContext.newPluginInstance(stageName, macroEvaluator);
-        sinkRunnables.add(stageData.createStoreTask(stageSpec, sparkSink));
+        sinkRunnables.put(stageName, stageData.createStoreTask(stageSpec, sparkSink));
 
       } else if (BatchAggregator.PLUGIN_TYPE.equals(pluginType)) {
 
         Object plugin = pluginContext.newPluginInstance(stageName, macroEvaluator);
         Integer partitions = stagePartitions.get(stageName);
 
-        if (plugin instanceof BatchReducibleAggregator) {
+        WindowStage windowStage = aggregatorWindows.get(stageName);
+        if (windowStage != null) {
+          SparkCollection<RecordInfo<Object>> combinedData =
+            stageData.windowReduceAggregate(windowStage.stageSpec, windowStage.windower, stageSpec, partitions,
+                                            collector);
+          emittedBuilder = addEmitted(emittedBuilder, pipelinePhase, stageSpec,
+                                      combinedData, groupedDag, branchers, shufflers, hasErrorOutput, hasAlertOutput);
+        } else if (plugin instanceof BatchReducibleAggregator) {
           SparkCollection<RecordInfo<Object>> combinedData = stageData.reduceAggregate(stageSpec, partitions,
                                                                                        collector);
           emittedBuilder = addEmitted(emittedBuilder, pipelinePhase, stageSpec,
@@ -324,13 +336,32 @@ public abstract class SparkPipelineRunner {
         Integer numPartitions = stagePartitions.get(stageName);
         Object plugin = pluginContext.newPluginInstance(stageName, macroEvaluator);
         SparkCollection<Object> joined = handleJoin(inputDataCollections, pipelinePhase, pluginFunctionContext,
-                                                    stageSpec, plugin, numPartitions, collector, shufflers);
-        addEmitted(emittedBuilder, pipelinePhase, stageSpec,
-                   joined.map(new RecordInfoWrapper<>(stageName)), groupedDag, branchers, shufflers, false, false);
+                                                    stageSpec, plugin, numPartitions, collector, collectors,
+                                                    shufflers);
+        // joiners don't emit errors or alerts, so the joined collection is used as the stage output directly
+        // instead of filtering it out of the raw data. This keeps the output in the form the join produced it,
+        // which allows a join that is backed by a Spark Dataset to feed another join without any conversion.
+        if (shouldCache(pipelinePhase, groupedDag, stageName, branchers, shufflers)) {
+          joined = joined.cache();
+        }
+        // the join may have persisted its inputs in order to optimize it. Those are released together with the
+        // join output once every task that reads it has finished.
+        emittedBuilder.setCachedData(joined);
+        emittedBuilder.setRawData(joined.map(new RecordInfoWrapper<>(stageName)));
+        emittedBuilder.setOutput(joined);
 
       } else if (Windower.PLUGIN_TYPE.equals(pluginType)) {
 
         Windower windower = pluginContext.newPluginInstance(stageName, macroEvaluator);
+        String aggregatorName = getWindowedReducibleAggregator(pipelinePhase, stageName, pluginContext,
+                                                               macroEvaluator);
+        if (aggregatorName != null) {
+          // the window is applied by the aggregator, which can then merge partial aggregates of each batch
+          // instead of aggregating all records in the window on every slide
+          aggregatorWindows.put(aggregatorName, new WindowStage(stageSpec, windower));
+          emittedRecords.put(stageName, emittedBuilder.setOutput(stageData).build());
+          continue;
+        }
         SparkCollection<Object> windowed = stageData.window(stageSpec, windower);
         addEmitted(emittedBuilder, pipelinePhase, stageSpec, windowed.map(new RecordInfoWrapper<>(stageName)),
                    groupedDag, branchers, shufflers, false, false);
@@ -363,20 +394,28 @@ public abstract class SparkPipelineRunner {
       emittedRecords.put(stageName, emittedBuilder.build());
     }
 
+    Map<String, SparkCollection<?>> cachedData = new HashMap<>();
+    for (Map.Entry<String, EmittedRecords> entry : emittedRecords.entrySet()) {
+      if (entry.getValue().cachedData != null) {
+        cachedData.put(entry.getKey(), entry.getValue().cachedData);
+      }
+    }
+    Collection<Runnable> sinkTasks = releaseWhenRead(groupedDag, cachedData, sinkRunnables);
+
     boolean shouldWriteInParallel = Boolean.parseBoolean(
       sec.getRuntimeArguments().get("pipeline.spark.parallel.sinks.enabled"));
     if (!shouldWriteInParallel) {
-      for (Runnable runnable : sinkRunnables) {
+      for (Runnable runnable : sinkTasks) {
         runnable.run();
       }
       return;
     }
 
-    Collection<Future> sinkFutures = new ArrayList<>(sinkRunnables.size());
-    ExecutorService executorService = Executors.newFixedThreadPool(sinkRunnables.size(), new ThreadFactoryBuilder()
+    Collection<Future> sinkFutures = new ArrayList<>(sinkTasks.size());
+    ExecutorService executorService = Executors.newFixedThreadPool(sinkTasks.size(), new ThreadFactoryBuilder()
       .setNameFormat("pipeline-sink-task")
       .build());
-    for (Runnable runnable : sinkRunnables) {
+    for (Runnable runnable : sinkTasks) {
       sinkFutures.add(executorService.submit(runnable));
     }
 
@@ -398,6 +437,79 @@ public abstract class SparkPipelineRunner {
     }
   }
 
+  /**
+   * Wraps the given sink and group tasks so that each cached collection is unpersisted as soon as the last task
+   * that reads it has finished, rather than staying cached until the end of the program and competing with the
+   * collections that the remaining tasks still need. Cached collections that no task reads are unpersisted
+   * right away, as they were only read while the pipeline was being set up, for example by an alert publisher.
+   */
+  private Collection<Runnable> releaseWhenRead(Dag dag, Map<String, SparkCollection<?>> cachedData,
+                                               Map<String, Runnable> tasks) {
+    Map<String, Set<String>> taskCachedInputs = getCachedInputs(dag, cachedData.keySet(), tasks.keySet());
+    Map<String, AtomicInteger> remainingReaders = new HashMap<>();
+    for (Set<String> cachedInputs : taskCachedInputs.values()) {
+      for (String cachedInput : cachedInputs) {
+        remainingReaders.computeIfAbsent(cachedInput, k -> new AtomicInteger()).incrementAndGet();
+      }
+    }
+    for (Map.Entry<String, SparkCollection<?>> entry : cachedData.entrySet()) {
+      if (!remainingReaders.containsKey(entry.getKey())) {
+        entry.getValue().unpersist();
+      }
+    }
+
+    List<Runnable> result = new ArrayList<>(tasks.size());
+    for (Map.Entry<String, Runnable> entry : tasks.entrySet()) {
+      Set<String> cachedInputs = taskCachedInputs.get(entry.getKey());
+      Runnable task = entry.getValue();
+      if (cachedInputs.isEmpty()) {
+        result.add(task);
+        continue;
+      }
+      // the counters are shared by tasks that may run in parallel, so the last one to finish does the release
+      result.add(() -> {
+        try {
+          task.run();
+        } finally {
+          for (String cachedInput : cachedInputs) {
+            if (remainingReaders.get(cachedInput).decrementAndGet() == 0) {
+              LOG.debug("Releasing the cached output of stage {}", cachedInput);
+              cachedData.get(cachedInput).unpersist();
+            }
+          }
+        }
+      });
+    }
+    return result;
+  }
+
+  /**
+   * Returns the cached stages that each task reads from. A task reads from a cached stage if it is downstream of
+   * that stage, whether directly or through other stages, since computing the task's input requires the output of
+   * the cached stage.
+   *
+   * @param dag the dag containing the cached stages and the tasks
+   * @param cachedStages the stages whose output is cached
+   * @param tasks the nodes that run as tasks, which are sinks or groups of stages
+   * @return the cached stages read by each task, keyed by task
+   */
+  @VisibleForTesting
+  static Map<String, Set<String>> getCachedInputs(Dag dag, Set<String> cachedStages, Set<String> tasks) {
+    Map<String, Set<String>> result = new HashMap<>();
+    for (String task : tasks) {
+      result.put(task, new HashSet<>());
+    }
+    for (String cachedStage : cachedStages) {
+      for (String node : dag.accessibleFrom(cachedStage)) {
+        Set<String> cachedInputs = result.get(node);
+        if (cachedInputs != null) {
+          cachedInputs.add(cachedStage);
+        }
+      }
+    }
+    return result;
+  }
+
   private Runnable handleGroup(JavaSparkExecutionContext sec, PhaseSpec phaseSpec, Set<String> groupStages,
                                Set<String> groupInputs, Map<String, EmittedRecords> emittedRecords,
                                Map<String, StageStatisticsCollector> collectors) {
@@ -440,6 +552,7 @@ public abstract class SparkPipelineRunner {
                                                PipelinePhase pipelinePhase, PluginFunctionContext pluginFunctionContext,
                                                StageSpec stageSpec, Object plugin, Integer numPartitions,
                                                StageStatisticsCollector collector,
+                                               Map<String, StageStatisticsCollector> collectors,
                                                Set<String> shufflers) throws Exception {
     String stageName = stageSpec.getName();
     if (plugin instanceof BatchJoiner) {
@@ -465,7 +578,7 @@ public abstract class SparkPipelineRunner {
       if (joinDefinition.getStages().stream().noneMatch(JoinStage::isBroadcast)) {
         shufflers.add(stageName);
       }
-      return handleAutoJoin(stageName, joinDefinition, inputDataCollections, numPartitions);
+      return handleAutoJoin(stageName, joinDefinition, inputDataCollections, numPartitions, collectors);
     } else {
       // should never happen unless there is a bug in the code. should have failed during deployment
       throw new IllegalStateException(String.format("Stage '%s' is an unknown joiner type %s",
@@ -479,7 +592,8 @@ public abstract class SparkPipelineRunner {
    */
   private SparkCollection<Object> handleAutoJoin(String stageName, JoinDefinition joinDefinition,
                                                  Map<String, SparkCollection<Object>> inputDataCollections,
-                                                 @Nullable Integer numPartitions) {
+                                                 @Nullable Integer numPartitions,
+                                                 Map<String, StageStatisticsCollector> collectors) {
     // sort stages to join so that broadcasts happen last. This is to ensure that the left side is not a broadcast
     // so that we don't try to broadcast both sides of the join. It also causes less data to be shuffled for the
     // non-broadcast joins.
@@ -571,12 +685,25 @@ public abstract class SparkPipelineRunner {
                                      joinDefinition.getSelectedFields(), joinDefinition.getOutputSchema());
     }
 
+    // record counts are only known for inputs that have already been computed, for example if they were cached
+    // and used by an earlier action. They help decide how to optimize the join.
+    Map<String, Long> recordCounts = new HashMap<>();
+    for (JoinStage joinStage : joinOrder) {
+      StageStatisticsCollector inputCollector = collectors.get(joinStage.getStageName());
+      if (inputCollector instanceof SparkStageStatisticsCollector) {
+        long count = ((SparkStageStatisticsCollector) inputCollector).getOutputRecordCount();
+        if (count > 0) {
+          recordCounts.put(joinStage.getStageName(), count);
+        }
+      }
+    }
+
     // JoinRequest contains the left side of the join, plus 1 or more other stages to join to.
     JoinRequest joinRequest = new JoinRequest(stageName, leftName, leftKey, leftSchema,
                                               left.isRequired(), onKeys.isNullSafe(),
                                               joinDefinition.getSelectedFields(),
                                               joinDefinition.getOutputSchema(), toJoin, numPartitions,
-                                              joinDefinition.getDistribution());
+                                              joinDefinition.getDistribution(), recordCounts);
     return leftCollection.join(joinRequest);
   }
 
@@ -804,6 +931,28 @@ public abstract class SparkPipelineRunner {
   }
 
 
+  /**
+   * Returns the name of the {@link BatchReducibleAggregator} stage that is the only output of the given window stage,
+   * if the window is its only input. Returns {@code null} if the window is not followed by such an aggregator.
+   */
+  @Nullable
+  private String getWindowedReducibleAggregator(PipelinePhase pipelinePhase, String windowStageName,
+                                                PluginContext pluginContext,
+                                                MacroEvaluator macroEvaluator) throws Exception {
+    Set<String> outputs = pipelinePhase.getStageOutputs(windowStageName);
+    if (outputs.size() != 1) {
+      return null;
+    }
+    String outputName = outputs.iterator().next();
+    StageSpec outputSpec = pipelinePhase.getStage(outputName);
+    if (outputSpec == null || !BatchAggregator.PLUGIN_TYPE.equals(outputSpec.getPluginType())
+      || pipelinePhase.getStageInputs(outputName).size() != 1) {
+      return null;
+    }
+    Object plugin = pluginContext.newPluginInstance(outputName, macroEvaluator);
+    return plugin instanceof BatchReducibleAggregator ? outputName : null;
+  }
+
   /**
    * A stage should be cached if it prevents a source from being recomputed. For example:
    *
@@ -826,11 +975,20 @@ public abstract class SparkPipelineRunner {
    * actual plugin is instantiated and the JoinDefinition is fetched from the plugin. This method assumes it
    * will be called on stages in topological order, where any parent that is a joiner will be included in the
    * provided shufflers set.
+   *
+   * A connector source is never cached, as it reads back the serialized records written by the previous phase,
+   * which costs about the same as reading them back from the disk backed cache. Caching it would only add a write.
    */
-  private boolean shouldCache(Dag dag, String stageName, Set<String> branchers, Set<String> shufflers) {
+  private boolean shouldCache(PipelinePhase pipelinePhase, Dag dag, String stageName, Set<String> branchers,
+                              Set<String> shufflers) {
     if (!branchers.contains(stageName) || shufflers.contains(stageName)) {
       return false;
     }
+    StageSpec stageSpec = pipelinePhase.getStage(stageName);
+    if (stageSpec != null && Constants.Connector.PLUGIN_TYPE.equals(stageSpec.getPluginType())
+      && pipelinePhase.getSources().contains(stageName)) {
+      return false;
+    }
 
     // the stage is a non-shuffle stage with multiple outputs.
     // check if there is a path from this stage back to a source without passing through another branch point
@@ -845,11 +1003,11 @@ public abstract class SparkPipelineRunner {
                                             StageSpec stageSpec, SparkCollection<RecordInfo<Object>> stageData,
                                             Dag dag, Set<String> branchers, Set<String> shufflers,
                                             boolean hasErrors, boolean hasAlerts) {
-    builder.setRawData(stageData);
-
-    if (shouldCache(dag, stageSpec.getName(), branchers, shufflers)) {
+    if (shouldCache(pipelinePhase, dag, stageSpec.getName(), branchers, shufflers)) {
       stageData = stageData.cache();
+      builder.setCachedData(stageData);
     }
+    builder.setRawData(stageData);
 
     if (hasErrors) {
       SparkCollection<ErrorRecord<Object>> errors =
@@ -876,6 +1034,19 @@ public abstract class SparkPipelineRunner {
     return builder;
   }
 
+  /**
+   * A window stage that is applied by the aggregator that follows it.
+   */
+  private static class WindowStage {
+    private final StageSpec stageSpec;
+    private final Windower windower;
+
+    private WindowStage(StageSpec stageSpec, Windower windower) {
+      this.stageSpec = stageSpec;
+      this.windower = windower;
+    }
+  }
+
   /**
    * Holds all records emitted by a stage.
    */
@@ -885,17 +1056,22 @@ public abstract class SparkPipelineRunner {
     private final SparkCollection<Object> outputRecords;
     private final SparkCollection<ErrorRecord<Object>> errorRecords;
     private final SparkCollection<Alert> alertRecords;
+    // the collection that was cached for the stage, if any
+    @Nullable
+    private final SparkCollection<?> cachedData;
 
     private EmittedRecords(SparkCollection<RecordInfo<Object>> rawData,
                            Map<String, SparkCollection<Object>> outputPortRecords,
                            SparkCollection<Object> outputRecords,
                            SparkCollection<ErrorRecord<Object>> errorRecords,
-                           SparkCollection<Alert> alertRecords) {
+                           SparkCollection<Alert> alertRecords,
+                           @Nullable SparkCollection<?> cachedData) {
       this.rawData = rawData;
       this.outputPortRecords = outputPortRecords;
       this.outputRecords = outputRecords;
       this.errorRecords = errorRecords;
       this.alertRecords = alertRecords;
+      this.cachedData = cachedData;
     }
 
     private static Builder builder() {
@@ -908,6 +1084,7 @@ public abstract class SparkPipelineRunner {
       private SparkCollection<Object> outputRecords;
       private SparkCollection<ErrorRecord<Object>> errorRecords;
       private SparkCollection<Alert> alertRecords;
+      private SparkCollection<?> cachedData;
 
       private Builder() {
         outputPortRecords = new HashMap<>();
@@ -938,8 +1115,14 @@ public abstract class SparkPipelineRunner {
         return this;
       }
 
+      private Builder setCachedData(SparkCollection<?> cachedData) {
+        this.cachedData = cachedData;
+        return this;
+      }
+
       private EmittedRecords build() {
-        return new EmittedRecords(rawData, outputPortRecords, outputRecords, errorRecords, alertRecords);
+        return new EmittedRecords(rawData, outputPortRecords, outputRecords, errorRecords, alertRecords,
+                                  cachedData);
       }
     }
   }
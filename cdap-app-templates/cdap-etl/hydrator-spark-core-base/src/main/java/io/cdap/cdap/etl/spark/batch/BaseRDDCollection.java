@@ -52,13 +52,18 @@ import io.cdap.cdap.etl.spark.function.AggregatorInitializeFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorMergePartitionFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorMergeValueFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorReduceGroupByFunction;
+import io.cdap.cdap.etl.spark.function.AggregatorSortedAggregateFunction;
+import io.cdap.cdap.etl.spark.function.BatchMultiOutputTransformFunction;
+import io.cdap.cdap.etl.spark.function.BatchTransformFunction;
 import io.cdap.cdap.etl.spark.function.CountingFunction;
 import io.cdap.cdap.etl.spark.function.FlatMapFunc;
+import io.cdap.cdap.etl.spark.function.HashCodeComparator;
 import io.cdap.cdap.etl.spark.function.MultiOutputTransformFunction;
 import io.cdap.cdap.etl.spark.function.MultiSinkFunction;
 import io.cdap.cdap.etl.spark.function.PairFlatMapFunc;
 import io.cdap.cdap.etl.spark.function.PluginFunctionContext;
 import io.cdap.cdap.etl.spark.function.TransformFunction;
+import org.apache.spark.HashPartitioner;
 import org.apache.spark.SparkConf;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
@@ -115,17 +120,35 @@ public abstract class BaseRDDCollection<T> implements SparkCollection<T> {
 
   @Override
   public SparkCollection<T> cache() {
-    SparkConf sparkConf = jsc.getConf();
-    if (sparkConf.getBoolean(Constants.SPARK_PIPELINE_AUTOCACHE_ENABLE_FLAG, true)) {
-      String cacheStorageLevelString = sparkConf.get(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL, 
-                                                     Constants.DEFAULT_CACHING_STORAGE_LEVEL);
-      StorageLevel cacheStorageLevel = StorageLevel.fromString(cacheStorageLevelString);
+    StorageLevel cacheStorageLevel = getCacheStorageLevel();
+    if (cacheStorageLevel != null) {
       return wrap(rdd.persist(cacheStorageLevel));
     } else {
       return wrap(rdd);
     }
   }
 
+  @Override
+  public void unpersist() {
+    if (!StorageLevel.NONE().equals(rdd.getStorageLevel())) {
+      rdd.unpersist(false);
+    }
+  }
+
+  /**
+   * @return the storage level to use for caching, or {@code null} if auto caching is disabled
+   */
+  @Nullable
+  protected StorageLevel getCacheStorageLevel() {
+    SparkConf sparkConf = jsc.getConf();
+    if (!sparkConf.getBoolean(Constants.SPARK_PIPELINE_AUTOCACHE_ENABLE_FLAG, true)) {
+      return null;
+    }
+    String cacheStorageLevelString = sparkConf.get(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL,
+                                                   Constants.DEFAULT_CACHING_STORAGE_LEVEL);
+    return StorageLevel.fromString(cacheStorageLevelString);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public SparkCollection<T> union(SparkCollection<T> other) {
@@ -135,6 +158,10 @@ public abstract class BaseRDDCollection<T> implements SparkCollection<T> {
   @Override
   public SparkCollection<RecordInfo<Object>> transform(StageSpec stageSpec, StageStatisticsCollector collector) {
     PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec, collector);
+    int batchSize = jsc.getConf().getInt(Constants.SPARK_PIPELINE_TRANSFORM_BATCH_SIZE, 0);
+    if (batchSize > 0) {
+      return wrap(rdd.mapPartitions(Compat.convert(new BatchTransformFunction<T>(pluginFunctionContext, batchSize))));
+    }
     return wrap(rdd.flatMap(Compat.convert(new TransformFunction<T>(pluginFunctionContext))));
   }
 
@@ -142,6 +169,11 @@ public abstract class BaseRDDCollection<T> implements SparkCollection<T> {
   public SparkCollection<RecordInfo<Object>> multiOutputTransform(StageSpec stageSpec,
                                                                   StageStatisticsCollector collector) {
     PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec, collector);
+    int batchSize = jsc.getConf().getInt(Constants.SPARK_PIPELINE_TRANSFORM_BATCH_SIZE, 0);
+    if (batchSize > 0) {
+      return wrap(rdd.mapPartitions(
+        Compat.convert(new BatchMultiOutputTransformFunction<T>(pluginFunctionContext, batchSize))));
+    }
     return wrap(rdd.flatMap(Compat.convert(new MultiOutputTransformFunction<T>(pluginFunctionContext))));
   }
 
@@ -164,6 +196,19 @@ public abstract class BaseRDDCollection<T> implements SparkCollection<T> {
 
     JavaPairRDD<Object, T> keyedCollection = rdd.flatMapToPair(sparkGroupByFunction);
 
+    if (jsc.getConf().getBoolean(Constants.SPARK_PIPELINE_AGGREGATION_SORT_ENABLED, false)) {
+      // same number of partitions groupByKey() would use
+      int numPartitions = partitions != null ? partitions :
+        jsc.getConf().contains("spark.default.parallelism") ?
+          jsc.defaultParallelism() : keyedCollection.partitions().size();
+      // sorting spills to disk if needed, so groups never have to fit in memory
+      JavaPairRDD<Object, T> sortedCollection =
+        keyedCollection.repartitionAndSortWithinPartitions(new HashPartitioner(numPartitions),
+                                                           new HashCodeComparator<>());
+      return wrap(sortedCollection.mapPartitions(
+        Compat.convert(new AggregatorSortedAggregateFunction<Object, T, Object>(pluginFunctionContext))));
+    }
+
     JavaPairRDD<Object, Iterable<T>> groupedCollection = partitions == null ?
       keyedCollection.groupByKey() : keyedCollection.groupByKey(partitions);
 
@@ -199,6 +244,13 @@ public abstract class BaseRDDCollection<T> implements SparkCollection<T> {
     return wrap(groupedCollection.flatMap(postReduceFunction));
   }
 
+  @Override
+  public SparkCollection<RecordInfo<Object>> windowReduceAggregate(StageSpec windowStageSpec, Windower windower,
+                                                                   StageSpec stageSpec, @Nullable Integer partitions,
+                                                                   StageStatisticsCollector collector) {
+    throw new UnsupportedOperationException("Windowing is not supported on RDDs.");
+  }
+
   @Override
   public <K, V> SparkPairCollection<K, V> flatMapToPair(PairFlatMapFunction<T, K, V> function) {
     return new PairRDDCollection<>(sec, jsc, sqlContext, datasetContext, sinkFactory, rdd.flatMapToPair(function));
@@ -77,6 +77,25 @@ public final class SparkBatchSinkFactory {
     return uncombinableSinks;
   }
 
+  /**
+   * Returns whether all outputs of the given sink are CDAP datasets without dataset arguments. Each write to such
+   * an output is committed by the dataset, so the outputs can be written again by a later write. Outputs with an
+   * output format configuration or dataset arguments can point to a location that only applies to a single write.
+   */
+  public boolean canReuseOutputs(String sinkName) {
+    Set<String> outputNames = sinkOutputs.get(sinkName);
+    if (outputNames == null || outputNames.isEmpty()) {
+      return false;
+    }
+    for (String outputName : outputNames) {
+      DatasetInfo datasetInfo = datasetInfos.get(outputName);
+      if (datasetInfo == null || !datasetInfo.getDatasetArgs().isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void addOutput(String stageName, String alias,
                          NamedOutputFormatProvider outputFormatProvider) {
     if (outputFormatProviders.containsKey(alias) || datasetInfos.containsKey(alias)) {
@@ -49,16 +49,7 @@ public class AggregatorAggregateFunction<GROUP_KEY, GROUP_VAL, OUT>
   @Override
   public Iterable<RecordInfo<Object>> call(Tuple2<GROUP_KEY, Iterable<GROUP_VAL>> input) throws Exception {
     if (aggregateTransform == null) {
-      Object plugin = pluginFunctionContext.createPlugin();
-      BatchAggregator<GROUP_KEY, GROUP_VAL, OUT> aggregator;
-      if (plugin instanceof BatchReducibleAggregator) {
-        BatchReducibleAggregator<GROUP_KEY, GROUP_VAL, ?, OUT> reducibleAggregator =
-          (BatchReducibleAggregator<GROUP_KEY, GROUP_VAL, ?, OUT>) plugin;
-        aggregator = new AggregatorBridge<>(reducibleAggregator);
-      } else {
-        aggregator = (BatchAggregator<GROUP_KEY, GROUP_VAL, OUT>) plugin;
-      }
-      aggregator.initialize(pluginFunctionContext.createBatchRuntimeContext());
+      BatchAggregator<GROUP_KEY, GROUP_VAL, OUT> aggregator = createAggregator(pluginFunctionContext);
       aggregateTransform = new TrackedTransform<>(new AggregateTransform<>(aggregator),
                                                   pluginFunctionContext.createStageMetrics(),
                                                   Constants.Metrics.AGG_GROUPS,
@@ -71,6 +62,24 @@ public class AggregatorAggregateFunction<GROUP_KEY, GROUP_VAL, OUT>
     return emitter.getEmitted();
   }
 
+  /**
+   * Creates and initializes the aggregator plugin, bridging it to a BatchAggregator if it is reducible.
+   */
+  static <GROUP_KEY, GROUP_VAL, OUT> BatchAggregator<GROUP_KEY, GROUP_VAL, OUT> createAggregator(
+    PluginFunctionContext pluginFunctionContext) throws Exception {
+    Object plugin = pluginFunctionContext.createPlugin();
+    BatchAggregator<GROUP_KEY, GROUP_VAL, OUT> aggregator;
+    if (plugin instanceof BatchReducibleAggregator) {
+      BatchReducibleAggregator<GROUP_KEY, GROUP_VAL, ?, OUT> reducibleAggregator =
+        (BatchReducibleAggregator<GROUP_KEY, GROUP_VAL, ?, OUT>) plugin;
+      aggregator = new AggregatorBridge<>(reducibleAggregator);
+    } else {
+      aggregator = (BatchAggregator<GROUP_KEY, GROUP_VAL, OUT>) plugin;
+    }
+    aggregator.initialize(pluginFunctionContext.createBatchRuntimeContext());
+    return aggregator;
+  }
+
   private static class AggregateTransform<GROUP_KEY, GROUP_VAL, OUT_VAL>
     implements Transformation<Tuple2<GROUP_KEY, Iterable<GROUP_VAL>>, OUT_VAL> {
     private final BatchAggregator<GROUP_KEY, GROUP_VAL, OUT_VAL> aggregator;
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.collect.Iterators;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.Transformation;
+import io.cdap.cdap.etl.api.batch.BatchAggregator;
+import io.cdap.cdap.etl.common.Constants;
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.common.TrackedTransform;
+import io.cdap.cdap.etl.spark.CombinedEmitter;
+import scala.Tuple2;
+
+import java.util.Iterator;
+
+/**
+ * Function that performs the aggregate part of an aggregator on a partition that is sorted by the hash code of the
+ * group key, as done by {@link HashCodeComparator}. Unlike {@link AggregatorAggregateFunction}, the values of a group
+ * are not collected in memory first. They are passed to the aggregator as they are read from the partition by
+ * {@link SortedGroupIterator}, which means the aggregator can only iterate over them once.
+ * Non-serializable fields are lazily created since this is used in a Spark closure.
+ *
+ * @param <GROUP_KEY> type of group key
+ * @param <GROUP_VAL> type of group value
+ * @param <OUT> type of aggregate output
+ */
+public class AggregatorSortedAggregateFunction<GROUP_KEY, GROUP_VAL, OUT>
+  implements FlatMapFunc<Iterator<Tuple2<GROUP_KEY, GROUP_VAL>>, RecordInfo<Object>> {
+  private final PluginFunctionContext pluginFunctionContext;
+  private transient TrackedTransform<Tuple2<GROUP_KEY, Iterator<GROUP_VAL>>, OUT> aggregateTransform;
+  private transient CombinedEmitter<OUT> emitter;
+
+  public AggregatorSortedAggregateFunction(PluginFunctionContext pluginFunctionContext) {
+    this.pluginFunctionContext = pluginFunctionContext;
+  }
+
+  @Override
+  public Iterable<RecordInfo<Object>> call(Iterator<Tuple2<GROUP_KEY, GROUP_VAL>> input) throws Exception {
+    if (aggregateTransform == null) {
+      BatchAggregator<GROUP_KEY, GROUP_VAL, OUT> aggregator =
+        AggregatorAggregateFunction.createAggregator(pluginFunctionContext);
+      aggregateTransform = new TrackedTransform<>(new AggregateTransform<>(aggregator),
+                                                  pluginFunctionContext.createStageMetrics(),
+                                                  Constants.Metrics.AGG_GROUPS,
+                                                  Constants.Metrics.RECORDS_OUT, pluginFunctionContext.getDataTracer(),
+                                                  pluginFunctionContext.getStageStatisticsCollector());
+      emitter = new CombinedEmitter<>(pluginFunctionContext.getStageName());
+    }
+    // Spark only iterates over the result once
+    return () -> new SortedGroupIterator<>(Iterators.peekingIterator(input), (key, values) -> {
+      emitter.reset();
+      aggregateTransform.transform(new Tuple2<>(key, values), emitter);
+      return emitter.getEmitted();
+    });
+  }
+
+  private static class AggregateTransform<GROUP_KEY, GROUP_VAL, OUT_VAL>
+    implements Transformation<Tuple2<GROUP_KEY, Iterator<GROUP_VAL>>, OUT_VAL> {
+    private final BatchAggregator<GROUP_KEY, GROUP_VAL, OUT_VAL> aggregator;
+
+    AggregateTransform(BatchAggregator<GROUP_KEY, GROUP_VAL, OUT_VAL> aggregator) {
+      this.aggregator = aggregator;
+    }
+
+    @Override
+    public void transform(Tuple2<GROUP_KEY, Iterator<GROUP_VAL>> input, Emitter<OUT_VAL> emitter) throws Exception {
+      aggregator.aggregate(input._1(), input._2(), emitter);
+    }
+  }
+}
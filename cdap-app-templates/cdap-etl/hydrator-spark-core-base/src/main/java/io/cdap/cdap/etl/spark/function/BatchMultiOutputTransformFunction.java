@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import io.cdap.cdap.etl.api.SplitterTransform;
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.common.TrackedMultiOutputTransform;
+import io.cdap.cdap.etl.spark.CombinedEmitter;
+
+import java.util.Iterator;
+
+/**
+ * Function that uses a MultiOutputTransform to transform a whole partition, feeding it to the transform in batches
+ * of records instead of one record at a time. Metrics are emitted once per batch.
+ * Non-serializable fields are lazily created since this is used in a Spark closure.
+ *
+ * @param <T> type of input object
+ */
+public class BatchMultiOutputTransformFunction<T> implements FlatMapFunc<Iterator<T>, RecordInfo<Object>> {
+  private final PluginFunctionContext pluginFunctionContext;
+  private final int batchSize;
+  private transient TrackedMultiOutputTransform<T, Object> transform;
+  private transient CombinedEmitter<Object> emitter;
+
+  public BatchMultiOutputTransformFunction(PluginFunctionContext pluginFunctionContext, int batchSize) {
+    this.pluginFunctionContext = pluginFunctionContext;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public Iterable<RecordInfo<Object>> call(Iterator<T> input) throws Exception {
+    if (transform == null) {
+      SplitterTransform<T, Object> plugin = pluginFunctionContext.createPlugin();
+      plugin.initialize(pluginFunctionContext.createBatchRuntimeContext());
+      transform = new TrackedMultiOutputTransform<>(plugin, pluginFunctionContext.createStageMetrics(),
+                                                    pluginFunctionContext.getDataTracer(),
+                                                    pluginFunctionContext.getStageStatisticsCollector());
+      emitter = new CombinedEmitter<>(pluginFunctionContext.getStageName());
+    }
+    // Spark only iterates over the result once
+    return () -> new BatchingIterator<>(input, batchSize, batch -> {
+      emitter.reset();
+      transform.transformBatch(batch, emitter);
+      return emitter.getEmitted();
+    });
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Iterator that reads its input in batches of a fixed size and transforms the next batch whenever the output of the
+ * previous batch has been fully consumed, so that at most one batch of input and its output are held in memory.
+ * Every batch is a new list, so the batch function may keep a reference to it after it returns.
+ *
+ * @param <IN> type of input object
+ * @param <OUT> type of output object
+ */
+final class BatchingIterator<IN, OUT> extends AbstractIterator<OUT> {
+  private final Iterator<IN> input;
+  private final int batchSize;
+  private final BatchFunction<IN, OUT> function;
+  private Iterator<OUT> output;
+
+  BatchingIterator(Iterator<IN> input, int batchSize, BatchFunction<IN, OUT> function) {
+    this.input = input;
+    this.batchSize = batchSize;
+    this.function = function;
+    this.output = Collections.emptyIterator();
+  }
+
+  @Override
+  protected OUT computeNext() {
+    while (!output.hasNext()) {
+      if (!input.hasNext()) {
+        return endOfData();
+      }
+      List<IN> batch = new ArrayList<>(batchSize);
+      while (batch.size() < batchSize && input.hasNext()) {
+        batch.add(input.next());
+      }
+      try {
+        output = function.apply(batch).iterator();
+      } catch (Exception e) {
+        throw Throwables.propagate(e);
+      }
+    }
+    return output.next();
+  }
+
+  /**
+   * Transforms one batch of input.
+   *
+   * @param <IN> type of input object
+   * @param <OUT> type of output object
+   */
+  interface BatchFunction<IN, OUT> {
+
+    /**
+     * Transforms the given batch. The returned output is fully consumed before this method is called again.
+     */
+    Iterable<OUT> apply(List<IN> batch) throws Exception;
+  }
+}
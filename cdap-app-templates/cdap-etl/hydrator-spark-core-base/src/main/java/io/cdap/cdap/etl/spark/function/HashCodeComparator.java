@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Orders objects by their hash code. Group keys are not required to be comparable, but sorting by hash code
+ * still places all records with the same key next to each other, along with records of any key that has
+ * the same hash code.
+ *
+ * @param <T> type of object to compare
+ */
+public class HashCodeComparator<T> implements Comparator<T>, Serializable {
+  private static final long serialVersionUID = 3925162704419712520L;
+
+  @Override
+  public int compare(T o1, T o2) {
+    return Integer.compare(Objects.hashCode(o1), Objects.hashCode(o2));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.PeekingIterator;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Iterator over the output of a function applied to each group of a partition that is sorted by the hash code of
+ * the group key. The next group is passed to the function whenever the output of the previous group has been fully
+ * consumed. The values of a group are read from the partition as the function iterates over them, and values that
+ * the function does not read are skipped once it returns.
+ *
+ * Values of keys that have the same hash code as the group being read, but are not equal to its key,
+ * are kept in memory until the group is done, and are then passed to the function as groups of their own.
+ *
+ * @param <KEY> type of group key
+ * @param <VAL> type of group value
+ * @param <OUT> type of output
+ */
+final class SortedGroupIterator<KEY, VAL, OUT> extends AbstractIterator<OUT> {
+  private final PeekingIterator<Tuple2<KEY, VAL>> input;
+  private final GroupFunction<KEY, VAL, OUT> function;
+  private final Map<KEY, List<VAL>> collisions;
+  private Iterator<Map.Entry<KEY, List<VAL>>> pendingCollisions;
+  private Iterator<OUT> output;
+
+  SortedGroupIterator(PeekingIterator<Tuple2<KEY, VAL>> input, GroupFunction<KEY, VAL, OUT> function) {
+    this.input = input;
+    this.function = function;
+    this.collisions = new LinkedHashMap<>();
+    this.pendingCollisions = Collections.emptyIterator();
+    this.output = Collections.emptyIterator();
+  }
+
+  @Override
+  protected OUT computeNext() {
+    try {
+      while (!output.hasNext()) {
+        if (pendingCollisions.hasNext()) {
+          Map.Entry<KEY, List<VAL>> group = pendingCollisions.next();
+          output = function.apply(group.getKey(), group.getValue().iterator()).iterator();
+          continue;
+        }
+        if (!input.hasNext()) {
+          return endOfData();
+        }
+        GroupValues values = new GroupValues(input.peek()._1());
+        output = function.apply(values.key, values).iterator();
+        // skip whatever the function did not read, so that the next group starts at the right place
+        while (values.hasNext()) {
+          values.next();
+        }
+        if (!collisions.isEmpty()) {
+          pendingCollisions = new ArrayList<>(collisions.entrySet()).iterator();
+          collisions.clear();
+        }
+      }
+      return output.next();
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Iterates over the values of a single group, reading them from the partition as they are requested.
+   */
+  private final class GroupValues implements Iterator<VAL> {
+    private final KEY key;
+    private final int hashCode;
+
+    GroupValues(KEY key) {
+      this.key = key;
+      this.hashCode = Objects.hashCode(key);
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (input.hasNext()) {
+        KEY nextKey = input.peek()._1();
+        if (Objects.hashCode(nextKey) != hashCode) {
+          return false;
+        }
+        if (Objects.equals(nextKey, key)) {
+          return true;
+        }
+        // a different key with the same hash code. Its values are passed to the function once this group is done.
+        collisions.computeIfAbsent(nextKey, k -> new ArrayList<>()).add(input.next()._2());
+      }
+      return false;
+    }
+
+    @Override
+    public VAL next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return input.next()._2();
+    }
+  }
+
+  /**
+   * Computes the output of one group.
+   *
+   * @param <KEY> type of group key
+   * @param <VAL> type of group value
+   * @param <OUT> type of output
+   */
+  interface GroupFunction<KEY, VAL, OUT> {
+
+    /**
+     * Computes the output of the given group. The values can only be iterated over once, and only until this method
+     * returns. The returned output is fully consumed before this method is called again.
+     */
+    Iterable<OUT> apply(KEY key, Iterator<VAL> values) throws Exception;
+  }
+}
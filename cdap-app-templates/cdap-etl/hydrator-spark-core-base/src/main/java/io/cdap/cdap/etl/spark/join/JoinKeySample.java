@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Statistics about the join keys of one side of a join, gathered from a sample of its records.
+ */
+public class JoinKeySample {
+  private final String stage;
+  private final boolean required;
+  private final long sampledRecords;
+  private final Map<List<Object>, Long> keyCounts;
+  private final Long recordCount;
+
+  /**
+   * @param stage the stage whose data was sampled
+   * @param required whether the stage is required in the join
+   * @param sampledRecords the number of records in the sample
+   * @param keyCounts the most frequent keys in the sample, mapped to the number of sampled records with that key
+   * @param recordCount the actual number of records in the stage, if it is already known
+   */
+  public JoinKeySample(String stage, boolean required, long sampledRecords, Map<List<Object>, Long> keyCounts,
+                       @Nullable Long recordCount) {
+    this.stage = stage;
+    this.required = required;
+    this.sampledRecords = sampledRecords;
+    this.keyCounts = keyCounts;
+    this.recordCount = recordCount;
+  }
+
+  public String getStage() {
+    return stage;
+  }
+
+  public boolean isRequired() {
+    return required;
+  }
+
+  public long getSampledRecords() {
+    return sampledRecords;
+  }
+
+  public Map<List<Object>, Long> getKeyCounts() {
+    return keyCounts;
+  }
+
+  @Nullable
+  public Long getRecordCount() {
+    return recordCount;
+  }
+}
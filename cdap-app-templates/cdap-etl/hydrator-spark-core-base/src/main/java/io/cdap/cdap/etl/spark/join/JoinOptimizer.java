@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+import io.cdap.cdap.etl.common.Constants;
+import org.apache.spark.SparkConf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Decides how to optimize a shuffle join between two collections, based on a sample of their join keys and
+ * on record counts collected while running the pipeline.
+ *
+ * Keys that a large fraction of one side's records share are salted, so that they are spread across multiple
+ * partitions instead of being processed by a single task. When one side is much smaller than the other, a bloom
+ * filter over the smaller side's keys is used to drop records from the larger side that cannot match before they
+ * are shuffled.
+ */
+public class JoinOptimizer {
+  // a key must appear at least this many times in the sample to be considered hot, to avoid reacting to noise
+  private static final long MIN_HOT_KEY_SAMPLES = 10L;
+  // the larger side is only pruned if it is expected to be at least this many times bigger than the smaller side
+  private static final long BLOOM_FILTER_SIZE_RATIO = 10L;
+  private static final long MIN_BLOOM_FILTER_ITEMS = 1000L;
+  private static final long MAX_BLOOM_FILTER_ITEMS = 10000000L;
+  private final double sampleFraction;
+  private final double hotKeyRatio;
+  private final int maxHotKeys;
+  private final int maxSaltFactor;
+
+  public JoinOptimizer(double sampleFraction, double hotKeyRatio, int maxHotKeys, int maxSaltFactor) {
+    this.sampleFraction = sampleFraction;
+    this.hotKeyRatio = hotKeyRatio;
+    this.maxHotKeys = maxHotKeys;
+    this.maxSaltFactor = maxSaltFactor;
+  }
+
+  /**
+   * Create a JoinOptimizer based on settings in the spark conf.
+   *
+   * @return the optimizer to use, or null if join optimization is not enabled
+   */
+  @Nullable
+  public static JoinOptimizer fromConf(SparkConf conf) {
+    if (!conf.getBoolean(Constants.SPARK_PIPELINE_JOIN_OPTIMIZATION_ENABLED, false)) {
+      return null;
+    }
+    double hotKeyRatio = conf.getDouble(Constants.SPARK_PIPELINE_JOIN_HOT_KEY_RATIO, 0.05d);
+    return new JoinOptimizer(conf.getDouble(Constants.SPARK_PIPELINE_JOIN_SAMPLE_FRACTION, 0.01d), hotKeyRatio,
+                             (int) Math.ceil(1 / hotKeyRatio),
+                             conf.getInt(Constants.SPARK_PIPELINE_JOIN_MAX_SALT_FACTOR, 64));
+  }
+
+  /**
+   * @return the fraction of records to sample from each side of the join
+   */
+  public double getSampleFraction() {
+    return sampleFraction;
+  }
+
+  /**
+   * @return the maximum number of keys that need to be collected from each sample
+   */
+  public int getMaxHotKeys() {
+    return maxHotKeys;
+  }
+
+  /**
+   * Decide which optimizations to apply to a join.
+   *
+   * @param left sample of the left side of the join
+   * @param right sample of the right side of the join
+   * @param numPartitions the number of partitions the join is performed with
+   * @return the optimizations to apply
+   */
+  public JoinPlan plan(JoinKeySample left, JoinKeySample right, int numPartitions) {
+    String skewedStage = null;
+    List<List<Object>> hotKeys = Collections.emptyList();
+    double maxShare = 0d;
+    for (JoinKeySample sample : Arrays.asList(left, right)) {
+      // records of the other side with a hot key are duplicated, one for each salt value.
+      // This is only correct if the duplicates that don't match anything are dropped by the join,
+      // which means the salted side must be required.
+      if (!sample.isRequired() || sample.getSampledRecords() == 0) {
+        continue;
+      }
+      List<List<Object>> sampleHotKeys = new ArrayList<>();
+      double sampleMaxShare = 0d;
+      for (Map.Entry<List<Object>, Long> keyCount : sample.getKeyCounts().entrySet()) {
+        double share = (double) keyCount.getValue() / sample.getSampledRecords();
+        // a key is only worth salting if its records don't fit in a single partition's fair share of the data
+        if (keyCount.getValue() < MIN_HOT_KEY_SAMPLES || share < hotKeyRatio || share * numPartitions <= 1) {
+          continue;
+        }
+        sampleHotKeys.add(keyCount.getKey());
+        sampleMaxShare = Math.max(sampleMaxShare, share);
+      }
+      if (sampleMaxShare > maxShare) {
+        skewedStage = sample.getStage();
+        hotKeys = sampleHotKeys;
+        maxShare = sampleMaxShare;
+      }
+    }
+    int saltFactor = Math.min(maxSaltFactor, (int) Math.ceil(maxShare * numPartitions));
+    if (saltFactor < 2) {
+      skewedStage = null;
+      hotKeys = Collections.emptyList();
+      saltFactor = 1;
+    }
+
+    long leftRecords = estimateRecords(left);
+    long rightRecords = estimateRecords(right);
+    JoinKeySample smaller = leftRecords <= rightRecords ? left : right;
+    long smallerRecords = Math.min(leftRecords, rightRecords);
+    long largerRecords = Math.max(leftRecords, rightRecords);
+    String prunedStage = null;
+    long bloomFilterItems = 0L;
+    // pruning drops records from the larger side that don't match anything on the smaller side.
+    // This is only correct if the join would drop those records anyway, which means the smaller side must be required.
+    if (smaller.isRequired() && smallerRecords <= MAX_BLOOM_FILTER_ITEMS &&
+      largerRecords >= BLOOM_FILTER_SIZE_RATIO * Math.max(smallerRecords, 1L)) {
+      prunedStage = smaller == left ? right.getStage() : left.getStage();
+      bloomFilterItems = Math.max(smallerRecords, MIN_BLOOM_FILTER_ITEMS);
+    }
+
+    return new JoinPlan(skewedStage, hotKeys, saltFactor, prunedStage, bloomFilterItems);
+  }
+
+  private long estimateRecords(JoinKeySample sample) {
+    Long recordCount = sample.getRecordCount();
+    if (recordCount != null && recordCount > 0) {
+      return recordCount;
+    }
+    return (long) Math.ceil(sample.getSampledRecords() / sampleFraction);
+  }
+}
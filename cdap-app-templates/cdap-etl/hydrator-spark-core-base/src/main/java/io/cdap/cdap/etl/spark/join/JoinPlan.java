@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Optimizations to apply when joining two collections, as decided by a {@link JoinOptimizer}.
+ */
+public class JoinPlan {
+  public static final JoinPlan NONE = new JoinPlan(null, Collections.emptyList(), 1, null, 0L);
+  private final String skewedStage;
+  private final List<List<Object>> hotKeys;
+  private final int saltFactor;
+  private final String prunedStage;
+  private final long bloomFilterItems;
+
+  public JoinPlan(@Nullable String skewedStage, List<List<Object>> hotKeys, int saltFactor,
+                  @Nullable String prunedStage, long bloomFilterItems) {
+    this.skewedStage = skewedStage;
+    this.hotKeys = hotKeys;
+    this.saltFactor = saltFactor;
+    this.prunedStage = prunedStage;
+    this.bloomFilterItems = bloomFilterItems;
+  }
+
+  /**
+   * @return the stage whose hot keys should be salted, or null if the join is not skewed.
+   *   Records of the other stage with one of the hot keys are duplicated once for each salt value.
+   */
+  @Nullable
+  public String getSkewedStage() {
+    return skewedStage;
+  }
+
+  /**
+   * @return the join keys to salt. Each key is a list of field values, in the order of the join key fields.
+   */
+  public List<List<Object>> getHotKeys() {
+    return hotKeys;
+  }
+
+  /**
+   * @return the number of ways to split records with a hot key
+   */
+  public int getSaltFactor() {
+    return saltFactor;
+  }
+
+  /**
+   * @return the stage whose records should be filtered by a bloom filter over the keys of the other stage before
+   *   the join, or null if no filtering should be done
+   */
+  @Nullable
+  public String getPrunedStage() {
+    return prunedStage;
+  }
+
+  /**
+   * @return the expected number of keys to put in the bloom filter
+   */
+  public long getBloomFilterItems() {
+    return bloomFilterItems;
+  }
+}
@@ -21,6 +21,7 @@ import io.cdap.cdap.etl.api.join.JoinDistribution;
 import io.cdap.cdap.etl.api.join.JoinField;
 
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -38,10 +39,12 @@ public class JoinRequest {
   private final List<JoinCollection> toJoin;
   private final Integer numPartitions;
   private final JoinDistribution distribution;
+  private final Map<String, Long> recordCounts;
 
   public JoinRequest(String stageName, String leftStage, List<String> leftKey, Schema leftSchema, boolean leftRequired,
                      boolean nullSafe, List<JoinField> fields, Schema outputSchema, List<JoinCollection> toJoin,
-                     @Nullable Integer numPartitions, @Nullable JoinDistribution distribution) {
+                     @Nullable Integer numPartitions, @Nullable JoinDistribution distribution,
+                     Map<String, Long> recordCounts) {
     this.stageName = stageName;
     this.leftStage = leftStage;
     this.leftKey = leftKey;
@@ -53,6 +56,7 @@ public class JoinRequest {
     this.toJoin = toJoin;
     this.numPartitions = numPartitions;
     this.distribution = distribution;
+    this.recordCounts = recordCounts;
   }
 
   @Nullable
@@ -101,6 +105,14 @@ public class JoinRequest {
     return numPartitions;
   }
 
+  /**
+   * @return the number of records output by the given input stage, or null if it is not known yet
+   */
+  @Nullable
+  public Long getRecordCount(String stage) {
+    return recordCounts.get(stage);
+  }
+
   public boolean isDistributionEnabled() {
     return distribution != null && toJoin.size() == 1;
   }
@@ -42,6 +42,9 @@ import io.cdap.cdap.etl.spark.streaming.function.ComputeTransformFunction;
 import io.cdap.cdap.etl.spark.streaming.function.CountingTransformFunction;
 import io.cdap.cdap.etl.spark.streaming.function.DynamicAggregatorAggregate;
 import io.cdap.cdap.etl.spark.streaming.function.DynamicAggregatorGroupBy;
+import io.cdap.cdap.etl.spark.streaming.function.DynamicAggregatorPartialReduce;
+import io.cdap.cdap.etl.spark.streaming.function.DynamicAggregatorSortedAggregate;
+import io.cdap.cdap.etl.spark.streaming.function.DynamicAggregatorWindowMerge;
 import io.cdap.cdap.etl.spark.streaming.function.DynamicSparkCompute;
 import io.cdap.cdap.etl.spark.streaming.function.DynamicTransform;
 import io.cdap.cdap.etl.spark.streaming.function.StreamingAlertPublishFunction;
@@ -96,6 +99,11 @@ public class DStreamCollection<T> implements SparkCollection<T> {
     }
   }
 
+  @Override
+  public void unpersist() {
+    // RDDs generated for each batch are unpersisted by Spark Streaming once the batch is no longer needed
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public SparkCollection<T> union(SparkCollection<T> other) {
@@ -135,6 +143,14 @@ public class DStreamCollection<T> implements SparkCollection<T> {
     JavaPairDStream<Object, T> keyedCollection =
       stream.transformToPair(new DynamicAggregatorGroupBy<Object, T>(dynamicDriverContext));
 
+    if (stream.context().sparkContext().getConf().getBoolean(Constants.SPARK_PIPELINE_AGGREGATION_SORT_ENABLED,
+                                                             false)) {
+      // same number of partitions groupByKey() would use
+      int numPartitions = partitions == null ? stream.context().sparkContext().defaultParallelism() : partitions;
+      return wrap(keyedCollection.transform(
+        new DynamicAggregatorSortedAggregate<Object, T, Object>(dynamicDriverContext, numPartitions)));
+    }
+
     JavaPairDStream<Object, Iterable<T>> groupedCollection = partitions == null ?
       keyedCollection.groupByKey() : keyedCollection.groupByKey(partitions);
 
@@ -147,6 +163,32 @@ public class DStreamCollection<T> implements SparkCollection<T> {
     return aggregate(stageSpec, partitions, collector);
   }
 
+  @Override
+  public SparkCollection<RecordInfo<Object>> windowReduceAggregate(StageSpec windowStageSpec, Windower windower,
+                                                                   StageSpec stageSpec, @Nullable Integer partitions,
+                                                                   StageStatisticsCollector collector) {
+    String windowStageName = windowStageSpec.getName();
+    SparkConf sparkConf = stream.context().sparkContext().getConf();
+    // windowed records are never materialized, so fallback if they need to be traced for preview
+    if (!sparkConf.getBoolean(Constants.SPARK_PIPELINE_WINDOW_AGGREGATION_INCREMENTAL_ENABLED, false)
+      || sec.getDataTracer(windowStageName).isEnabled()) {
+      return window(windowStageSpec, windower).reduceAggregate(stageSpec, partitions, collector);
+    }
+
+    // Each batch is aggregated once into partial aggregates, hash partitioned the same way. The window over
+    // the partial aggregates is then a union of co-partitioned RDDs, which are merged without another shuffle.
+    // This makes the cost of each slide depend on the number of groups in the window instead of the records.
+    DynamicDriverContext dynamicDriverContext = new DynamicDriverContext(stageSpec, sec, collector);
+    int numPartitions = partitions == null ? stream.context().sparkContext().defaultParallelism() : partitions;
+    JavaPairDStream<Object, Object> partialAggregates =
+      stream.transform(new CountingTransformFunction<T>(windowStageName, sec.getMetrics(), "records.in", null))
+        .transformToPair(new DynamicAggregatorPartialReduce<Object, T, Object>(dynamicDriverContext, numPartitions));
+    return wrap(partialAggregates
+                  .window(Durations.seconds(windower.getWidth()), Durations.seconds(windower.getSlideInterval()))
+                  .transform(new DynamicAggregatorWindowMerge<Object, T, Object, Object>(dynamicDriverContext,
+                                                                                         numPartitions)));
+  }
+
 
   @Override
   public <U> SparkCollection<U> compute(StageSpec stageSpec, SparkCompute<T, U> compute) throws Exception {
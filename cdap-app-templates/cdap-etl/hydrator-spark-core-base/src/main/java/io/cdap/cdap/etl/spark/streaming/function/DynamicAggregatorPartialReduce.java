@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.streaming.function;
+
+import io.cdap.cdap.etl.spark.Compat;
+import io.cdap.cdap.etl.spark.function.AggregatorInitializeFunction;
+import io.cdap.cdap.etl.spark.function.AggregatorMergePartitionFunction;
+import io.cdap.cdap.etl.spark.function.AggregatorMergeValueFunction;
+import io.cdap.cdap.etl.spark.function.AggregatorReduceGroupByFunction;
+import io.cdap.cdap.etl.spark.streaming.DynamicDriverContext;
+import org.apache.spark.HashPartitioner;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.streaming.Time;
+
+/**
+ * Serializable function that can be used to aggregate a batch of records into partial aggregates using
+ * a ReducibleAggregator, without finalizing them. The partial aggregates are hash partitioned by group key into the
+ * given number of partitions, so that the partial aggregates of multiple batches can be merged without a shuffle.
+ * Dynamically instantiates the Aggregator plugin used to ensure that code changes are picked up and to ensure that
+ * macro substitution occurs.
+ *
+ * @param <GROUP_KEY> type of group key
+ * @param <GROUP_VAL> type of group val
+ * @param <AGG_VAL> type of agg value
+ */
+public class DynamicAggregatorPartialReduce<GROUP_KEY, GROUP_VAL, AGG_VAL>
+  implements Function2<JavaRDD<GROUP_VAL>, Time, JavaPairRDD<GROUP_KEY, AGG_VAL>> {
+  private final DynamicDriverContext dynamicDriverContext;
+  private final int numPartitions;
+  private transient PairFlatMapFunction<GROUP_VAL, GROUP_KEY, GROUP_VAL> groupByFunction;
+  private transient Function<GROUP_VAL, AGG_VAL> initializeFunction;
+  private transient Function2<AGG_VAL, GROUP_VAL, AGG_VAL> mergeValueFunction;
+  private transient Function2<AGG_VAL, AGG_VAL, AGG_VAL> mergePartitionFunction;
+
+  public DynamicAggregatorPartialReduce(DynamicDriverContext dynamicDriverContext, int numPartitions) {
+    this.dynamicDriverContext = dynamicDriverContext;
+    this.numPartitions = numPartitions;
+  }
+
+  @Override
+  public JavaPairRDD<GROUP_KEY, AGG_VAL> call(JavaRDD<GROUP_VAL> input, Time batchTime) throws Exception {
+    if (groupByFunction == null) {
+      groupByFunction = Compat.convert(
+        new AggregatorReduceGroupByFunction<GROUP_KEY, GROUP_VAL>(dynamicDriverContext.getPluginFunctionContext()));
+      initializeFunction = new AggregatorInitializeFunction<>(dynamicDriverContext.getPluginFunctionContext());
+      mergeValueFunction = new AggregatorMergeValueFunction<>(dynamicDriverContext.getPluginFunctionContext());
+      mergePartitionFunction = new AggregatorMergePartitionFunction<>(dynamicDriverContext.getPluginFunctionContext());
+    }
+    return input.flatMapToPair(groupByFunction)
+      .combineByKey(initializeFunction, mergeValueFunction, mergePartitionFunction,
+                    new HashPartitioner(numPartitions));
+  }
+}
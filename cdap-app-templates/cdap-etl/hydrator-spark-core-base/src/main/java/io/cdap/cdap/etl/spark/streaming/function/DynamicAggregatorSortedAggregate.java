@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.streaming.function;
+
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.spark.Compat;
+import io.cdap.cdap.etl.spark.function.AggregatorSortedAggregateFunction;
+import io.cdap.cdap.etl.spark.function.HashCodeComparator;
+import io.cdap.cdap.etl.spark.streaming.DynamicDriverContext;
+import org.apache.spark.HashPartitioner;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.streaming.Time;
+import scala.Tuple2;
+
+import java.util.Iterator;
+
+/**
+ * Serializable function that can be used to perform the aggregate part of an Aggregator on keyed records, by sorting
+ * them by group key and streaming each group to the Aggregator. Dynamically instantiates the Aggregator plugin used
+ * to ensure that code changes are picked up and to ensure that macro substitution occurs.
+ *
+ * @param <GROUP_KEY> type of group key
+ * @param <GROUP_VAL> type of group val
+ * @param <OUT> type of output object
+ */
+public class DynamicAggregatorSortedAggregate<GROUP_KEY, GROUP_VAL, OUT>
+  implements Function2<JavaPairRDD<GROUP_KEY, GROUP_VAL>, Time, JavaRDD<RecordInfo<Object>>> {
+  private final DynamicDriverContext dynamicDriverContext;
+  private final int numPartitions;
+  private transient FlatMapFunction<Iterator<Tuple2<GROUP_KEY, GROUP_VAL>>, RecordInfo<Object>> function;
+
+  public DynamicAggregatorSortedAggregate(DynamicDriverContext dynamicDriverContext, int numPartitions) {
+    this.dynamicDriverContext = dynamicDriverContext;
+    this.numPartitions = numPartitions;
+  }
+
+  @Override
+  public JavaRDD<RecordInfo<Object>> call(JavaPairRDD<GROUP_KEY, GROUP_VAL> input, Time batchTime) throws Exception {
+    if (function == null) {
+      function = Compat.convert(new AggregatorSortedAggregateFunction<GROUP_KEY, GROUP_VAL, OUT>(
+        dynamicDriverContext.getPluginFunctionContext()));
+    }
+    return input.repartitionAndSortWithinPartitions(new HashPartitioner(numPartitions), new HashCodeComparator<>())
+      .mapPartitions(function);
+  }
+}
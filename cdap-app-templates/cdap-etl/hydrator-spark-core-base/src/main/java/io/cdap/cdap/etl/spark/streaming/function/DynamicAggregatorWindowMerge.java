@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.streaming.function;
+
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.spark.Compat;
+import io.cdap.cdap.etl.spark.function.AggregatorFinalizeFunction;
+import io.cdap.cdap.etl.spark.function.AggregatorMergePartitionFunction;
+import io.cdap.cdap.etl.spark.streaming.DynamicDriverContext;
+import org.apache.spark.HashPartitioner;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.streaming.Time;
+import scala.Tuple2;
+
+/**
+ * Serializable function that can be used to merge the partial aggregates of a window, as produced by
+ * {@link DynamicAggregatorPartialReduce}, and finalize them using a ReducibleAggregator. Since the partial aggregates
+ * are partitioned the same way, merging them doesn't require a shuffle. Dynamically instantiates the Aggregator
+ * plugin used to ensure that code changes are picked up and to ensure that macro substitution occurs.
+ *
+ * @param <GROUP_KEY> type of group key
+ * @param <GROUP_VAL> type of group val
+ * @param <AGG_VAL> type of agg value
+ * @param <OUT> type of output object
+ */
+public class DynamicAggregatorWindowMerge<GROUP_KEY, GROUP_VAL, AGG_VAL, OUT>
+  implements Function2<JavaPairRDD<GROUP_KEY, AGG_VAL>, Time, JavaRDD<RecordInfo<Object>>> {
+  private final DynamicDriverContext dynamicDriverContext;
+  private final int numPartitions;
+  private transient Function2<AGG_VAL, AGG_VAL, AGG_VAL> mergePartitionFunction;
+  private transient FlatMapFunction<Tuple2<GROUP_KEY, AGG_VAL>, RecordInfo<Object>> finalizeFunction;
+
+  public DynamicAggregatorWindowMerge(DynamicDriverContext dynamicDriverContext, int numPartitions) {
+    this.dynamicDriverContext = dynamicDriverContext;
+    this.numPartitions = numPartitions;
+  }
+
+  @Override
+  public JavaRDD<RecordInfo<Object>> call(JavaPairRDD<GROUP_KEY, AGG_VAL> input, Time batchTime) throws Exception {
+    if (mergePartitionFunction == null) {
+      mergePartitionFunction = new AggregatorMergePartitionFunction<>(dynamicDriverContext.getPluginFunctionContext());
+      finalizeFunction = Compat.convert(new AggregatorFinalizeFunction<GROUP_KEY, GROUP_VAL, AGG_VAL, OUT>(
+        dynamicDriverContext.getPluginFunctionContext()));
+    }
+    // same partitioner as the partial aggregates, so the merge happens within each partition
+    return input.reduceByKey(new HashPartitioner(numPartitions), mergePartitionFunction).flatMap(finalizeFunction);
+  }
+}
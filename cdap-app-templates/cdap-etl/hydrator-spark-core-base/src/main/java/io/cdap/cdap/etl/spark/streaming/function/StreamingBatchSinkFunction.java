@@ -20,10 +20,12 @@ import io.cdap.cdap.api.TxRunnable;
 import io.cdap.cdap.api.data.DatasetContext;
 import io.cdap.cdap.api.macro.MacroEvaluator;
 import io.cdap.cdap.api.plugin.PluginContext;
+import io.cdap.cdap.api.plugin.PluginProperties;
 import io.cdap.cdap.api.spark.JavaSparkExecutionContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.lineage.AccessType;
 import io.cdap.cdap.etl.common.BasicArguments;
+import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.common.DefaultMacroEvaluator;
 import io.cdap.cdap.etl.common.ExternalDatasets;
 import io.cdap.cdap.etl.common.NoopStageStatisticsCollector;
@@ -39,23 +41,32 @@ import io.cdap.cdap.etl.spark.function.PluginFunctionContext;
 import io.cdap.cdap.etl.spark.plugin.SparkPipelinePluginContext;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function2;
-import org.apache.spark.api.java.function.PairFlatMapFunction;
 import org.apache.spark.streaming.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Function used to write a batch of data to a batch sink for use with a JavaDStream.
  * note: not using foreachRDD(VoidFunction2) method, because spark 1.3 doesn't have VoidFunction2.
  *
+ * By default, the sink is instantiated, prepared and finished for every batch. If
+ * {@link Constants#SPARK_PIPELINE_STREAMING_SINK_REUSE_ENABLED} is set, the sink is still finished after every batch,
+ * but a sink whose outputs can be reused (see {@link SparkBatchSinkFactory#canReuseOutputs(String)}) is not prepared
+ * again for the following batches as long as the macro evaluated plugin properties stay the same. Lineage is only
+ * registered for outputs that were not registered before. Sinks with other outputs are prepared for every batch.
+ *
  * @param <T> type of object in the rdd
  */
 public class StreamingBatchSinkFunction<T> implements Function2<JavaRDD<T>, Time, Void> {
   private static final Logger LOG = LoggerFactory.getLogger(StreamingBatchSinkFunction.class);
+
   private final JavaSparkExecutionContext sec;
   private final StageSpec stageSpec;
+  // the sink prepared by a previous batch. It only lives in the driver and is not part of the checkpoint.
+  private transient PreparedSink preparedSink;
 
   public StreamingBatchSinkFunction(JavaSparkExecutionContext sec, StageSpec stageSpec) {
     this.sec = sec;
@@ -64,6 +75,10 @@ public class StreamingBatchSinkFunction<T> implements Function2<JavaRDD<T>, Time
 
   @Override
   public Void call(JavaRDD<T> data, Time batchTime) throws Exception {
+    if (data.context().getConf().getBoolean(Constants.SPARK_PIPELINE_STREAMING_SINK_REUSE_ENABLED, false)) {
+      writeWithPreparedSink(data, batchTime);
+      return null;
+    }
 
     final long logicalStartTime = batchTime.milliseconds();
     MacroEvaluator evaluator = new DefaultMacroEvaluator(new BasicArguments(sec),
@@ -91,23 +106,8 @@ public class StreamingBatchSinkFunction<T> implements Function2<JavaRDD<T>, Time
       });
       isPrepared = true;
 
-      PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec,
-                                                                              pipelineRuntime.getArguments().asMap(),
-                                                                              batchTime.milliseconds(),
-                                                                              new NoopStageStatisticsCollector());
-      PairFlatMapFunc<T, Object, Object> sinkFunction = new BatchSinkFunction<T, Object, Object>(pluginFunctionContext);
-
-      Set<String> outputNames = sinkFactory.writeFromRDD(data.flatMapToPair(Compat.convert(sinkFunction)),
-                                                         sec, stageName);
-      sec.execute(new TxRunnable() {
-        @Override
-        public void run(DatasetContext context) throws Exception {
-          for (String outputName : outputNames) {
-            ExternalDatasets.registerLineage(sec.getAdmin(), outputName, AccessType.WRITE,
-                                             null, () -> context.getDataset(outputName));
-          }
-        }
-      });
+      Set<String> outputNames = write(data, batchTime, pipelineRuntime, sinkFactory);
+      registerLineage(outputNames);
       isDone = true;
       sec.execute(new TxRunnable() {
         @Override
@@ -133,4 +133,111 @@ public class StreamingBatchSinkFunction<T> implements Function2<JavaRDD<T>, Time
     }
     return null;
   }
+
+  /**
+   * Writes the batch using the sink prepared by a previous batch, preparing a new sink if there is none or
+   * if the plugin properties evaluated for this batch are different from the ones the sink was prepared with.
+   * The sink is finished at the end of the batch and kept for the next batch only if the batch succeeded and
+   * its outputs can be reused.
+   */
+  private void writeWithPreparedSink(JavaRDD<T> data, Time batchTime) throws Exception {
+    long logicalStartTime = batchTime.milliseconds();
+    String stageName = stageSpec.getName();
+    PipelineRuntime pipelineRuntime = new SparkPipelineRuntime(sec, logicalStartTime);
+    PreparedSink sink = null;
+    boolean isDone = false;
+
+    try {
+      MacroEvaluator evaluator = new DefaultMacroEvaluator(new BasicArguments(sec), logicalStartTime,
+                                                           sec.getSecureStore(), sec.getNamespace());
+      PluginContext pluginContext = new SparkPipelinePluginContext(sec.getPluginContext(), sec.getMetrics(),
+                                                                   stageSpec.isStageLoggingEnabled(),
+                                                                   stageSpec.isProcessTimingEnabled());
+      PluginProperties properties = pluginContext.getPluginProperties(stageName, evaluator);
+      sink = preparedSink;
+      preparedSink = null;
+      if (sink == null || !sink.properties.equals(properties)) {
+        sink = prepareSink(pluginContext, evaluator, properties, pipelineRuntime);
+      }
+
+      Set<String> outputNames = write(data, batchTime, pipelineRuntime, sink.sinkFactory);
+      Set<String> newOutputNames = new HashSet<>(outputNames);
+      newOutputNames.removeAll(sink.lineageOutputNames);
+      if (!newOutputNames.isEmpty()) {
+        registerLineage(newOutputNames);
+        sink.lineageOutputNames.addAll(newOutputNames);
+      }
+      isDone = true;
+      finishSink(sink, pipelineRuntime, true);
+      if (sink.sinkFactory.canReuseOutputs(stageName)) {
+        preparedSink = sink;
+      }
+    } catch (Exception e) {
+      LOG.error("Error writing to sink {} for the batch for time {}.", stageName, logicalStartTime, e);
+    } finally {
+      if (sink != null && !isDone) {
+        finishSink(sink, pipelineRuntime, false);
+      }
+    }
+  }
+
+  private PreparedSink prepareSink(PluginContext pluginContext, MacroEvaluator evaluator,
+                                   PluginProperties properties, PipelineRuntime pipelineRuntime) throws Exception {
+    SparkBatchSinkFactory sinkFactory = new SparkBatchSinkFactory();
+    BatchSink<Object, Object, Object> batchSink = pluginContext.newPluginInstance(stageSpec.getName(), evaluator);
+    sec.execute(datasetContext -> {
+      SparkBatchSinkContext sinkContext =
+        new SparkBatchSinkContext(sinkFactory, sec, datasetContext, pipelineRuntime, stageSpec);
+      batchSink.prepareRun(sinkContext);
+    });
+    return new PreparedSink(batchSink, sinkFactory, properties);
+  }
+
+  private void finishSink(PreparedSink sink, PipelineRuntime pipelineRuntime, boolean succeeded) throws Exception {
+    sec.execute(datasetContext -> {
+      SparkBatchSinkContext sinkContext =
+        new SparkBatchSinkContext(sink.sinkFactory, sec, datasetContext, pipelineRuntime, stageSpec);
+      sink.batchSink.onRunFinish(succeeded, sinkContext);
+    });
+  }
+
+  private Set<String> write(JavaRDD<T> data, Time batchTime, PipelineRuntime pipelineRuntime,
+                            SparkBatchSinkFactory sinkFactory) {
+    PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec,
+                                                                            pipelineRuntime.getArguments().asMap(),
+                                                                            batchTime.milliseconds(),
+                                                                            new NoopStageStatisticsCollector());
+    PairFlatMapFunc<T, Object, Object> sinkFunction = new BatchSinkFunction<T, Object, Object>(pluginFunctionContext);
+    return sinkFactory.writeFromRDD(data.flatMapToPair(Compat.convert(sinkFunction)), sec, stageSpec.getName());
+  }
+
+  private void registerLineage(Set<String> outputNames) throws Exception {
+    sec.execute(new TxRunnable() {
+      @Override
+      public void run(DatasetContext context) throws Exception {
+        for (String outputName : outputNames) {
+          ExternalDatasets.registerLineage(sec.getAdmin(), outputName, AccessType.WRITE,
+                                           null, () -> context.getDataset(outputName));
+        }
+      }
+    });
+  }
+
+  /**
+   * A sink that was prepared by a batch, together with what it was prepared with.
+   */
+  private static final class PreparedSink {
+    private final BatchSink<Object, Object, Object> batchSink;
+    private final SparkBatchSinkFactory sinkFactory;
+    private final PluginProperties properties;
+    private final Set<String> lineageOutputNames;
+
+    private PreparedSink(BatchSink<Object, Object, Object> batchSink, SparkBatchSinkFactory sinkFactory,
+                         PluginProperties properties) {
+      this.batchSink = batchSink;
+      this.sinkFactory = sinkFactory;
+      this.properties = properties;
+      this.lineageOutputNames = new HashSet<>();
+    }
+  }
 }
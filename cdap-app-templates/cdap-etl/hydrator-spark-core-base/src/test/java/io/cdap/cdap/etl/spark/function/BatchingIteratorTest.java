@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link BatchingIterator}.
+ */
+public class BatchingIteratorTest {
+
+  @Test
+  public void testBatches() {
+    List<List<Integer>> batches = new ArrayList<>();
+    BatchingIterator.BatchFunction<Integer, String> function = batch -> {
+      // The batch function may keep the batch it is given
+      batches.add(batch);
+      return batch.stream().map(String::valueOf).collect(Collectors.toList());
+    };
+    BatchingIterator<Integer, String> iterator =
+      new BatchingIterator<>(ImmutableList.of(1, 2, 3, 4, 5, 6, 7).iterator(), 3, function);
+
+    Assert.assertEquals(ImmutableList.of("1", "2", "3", "4", "5", "6", "7"), ImmutableList.copyOf(iterator));
+    Assert.assertEquals(ImmutableList.of(ImmutableList.of(1, 2, 3), ImmutableList.of(4, 5, 6), ImmutableList.of(7)),
+                        batches);
+  }
+
+  @Test
+  public void testLazyBatches() {
+    List<List<Integer>> batches = new ArrayList<>();
+    BatchingIterator.BatchFunction<Integer, Integer> function = batch -> {
+      batches.add(batch);
+      // A batch without output must not end the iteration
+      return batch.contains(1) ? Collections.emptyList() : batch;
+    };
+    BatchingIterator<Integer, Integer> iterator =
+      new BatchingIterator<>(ImmutableList.of(1, 2, 3, 4).iterator(), 2, function);
+
+    Assert.assertEquals(Integer.valueOf(3), iterator.next());
+    Assert.assertEquals(2, batches.size());
+    Assert.assertEquals(Integer.valueOf(4), iterator.next());
+    Assert.assertFalse(iterator.hasNext());
+    Assert.assertEquals(2, batches.size());
+  }
+
+  @Test
+  public void testEmptyInput() {
+    BatchingIterator.BatchFunction<Integer, Integer> function = batch -> {
+      throw new IllegalStateException("No batch expected");
+    };
+    BatchingIterator<Integer, Integer> iterator =
+      new BatchingIterator<>(Collections.<Integer>emptyIterator(), 2, function);
+    Assert.assertEquals(0, Iterators.size(iterator));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link SortedGroupIterator}.
+ */
+public class SortedGroupIteratorTest {
+
+  @Test
+  public void testGroups() {
+    List<String> output = aggregate(Integer.MAX_VALUE,
+                                    Tuple2.apply("a", 1), Tuple2.apply("a", 2), Tuple2.apply("b", 3),
+                                    Tuple2.apply("c", 4), Tuple2.apply("c", 5), Tuple2.apply("c", 6));
+    Assert.assertEquals(ImmutableList.of("a=[1, 2]", "b=[3]", "c=[4, 5, 6]"), output);
+  }
+
+  @Test
+  public void testCollidingKeys() {
+    Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+    // keys with the same hash code are not sorted any further, so their values can be interleaved
+    List<String> output = aggregate(Integer.MAX_VALUE,
+                                    Tuple2.apply("Aa", 1), Tuple2.apply("BB", 2), Tuple2.apply("Aa", 3),
+                                    Tuple2.apply("BB", 4), Tuple2.apply("c", 5));
+    Assert.assertEquals(new HashSet<>(Arrays.asList("Aa=[1, 3]", "BB=[2, 4]", "c=[5]")), new HashSet<>(output));
+    Assert.assertEquals(3, output.size());
+  }
+
+  @Test
+  public void testPartialRead() {
+    // the aggregator only reads the first value of each group
+    List<String> output = aggregate(1,
+                                    Tuple2.apply("a", 1), Tuple2.apply("a", 2), Tuple2.apply("a", 3),
+                                    Tuple2.apply("b", 4), Tuple2.apply("c", 5), Tuple2.apply("c", 6));
+    Assert.assertEquals(ImmutableList.of("a=[1]", "b=[4]", "c=[5]"), output);
+  }
+
+  @Test
+  public void testPartialReadWithCollidingKeys() {
+    // values of a colliding key that come after the values read by the aggregator must not be lost
+    List<String> output = aggregate(1,
+                                    Tuple2.apply("Aa", 1), Tuple2.apply("Aa", 2), Tuple2.apply("BB", 3),
+                                    Tuple2.apply("Aa", 4), Tuple2.apply("BB", 5), Tuple2.apply("c", 6));
+    Assert.assertEquals(new HashSet<>(Arrays.asList("Aa=[1]", "BB=[3]", "c=[6]")), new HashSet<>(output));
+    Assert.assertEquals(3, output.size());
+
+    output = aggregate(0, Tuple2.apply("Aa", 1), Tuple2.apply("BB", 2), Tuple2.apply("Aa", 3), Tuple2.apply("c", 4));
+    Assert.assertEquals(new HashSet<>(Arrays.asList("Aa=[]", "BB=[]", "c=[]")), new HashSet<>(output));
+    Assert.assertEquals(3, output.size());
+  }
+
+  @Test
+  public void testEmptyOutput() {
+    // groups without output must not end the iteration
+    SortedGroupIterator.GroupFunction<String, Integer, String> function =
+      (key, values) -> key.equals("a") ? Collections.emptyList() : Collections.singletonList(key);
+    SortedGroupIterator<String, Integer, String> iterator = new SortedGroupIterator<>(
+      Iterators.peekingIterator(sort(Tuple2.apply("a", 1), Tuple2.apply("b", 2)).iterator()), function);
+    Assert.assertEquals(ImmutableList.of("b"), ImmutableList.copyOf(iterator));
+  }
+
+  /**
+   * Sorts the given records like the partition is sorted, and groups them with a function that reads at most
+   * the given number of values of each group.
+   */
+  @SafeVarargs
+  private static List<String> aggregate(int maxValues, Tuple2<String, Integer>... records) {
+    SortedGroupIterator.GroupFunction<String, Integer, String> function = (key, values) -> {
+      List<Integer> read = new ArrayList<>();
+      while (read.size() < maxValues && values.hasNext()) {
+        read.add(values.next());
+      }
+      return Collections.singletonList(key + "=" + read);
+    };
+    return ImmutableList.copyOf(new SortedGroupIterator<>(Iterators.peekingIterator(sort(records).iterator()),
+                                                          function));
+  }
+
+  @SafeVarargs
+  private static List<Tuple2<String, Integer>> sort(Tuple2<String, Integer>... records) {
+    List<Tuple2<String, Integer>> sorted = new ArrayList<>(Arrays.asList(records));
+    // a stable sort by the hash code of the key, like the partition sort
+    HashCodeComparator<String> comparator = new HashCodeComparator<>();
+    sorted.sort((r1, r2) -> comparator.compare(r1._1(), r2._1()));
+    return sorted;
+  }
+}
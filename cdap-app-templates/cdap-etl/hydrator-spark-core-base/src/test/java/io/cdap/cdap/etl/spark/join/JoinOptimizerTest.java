@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.join;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link JoinOptimizer}.
+ */
+public class JoinOptimizerTest {
+  private static final JoinOptimizer OPTIMIZER = new JoinOptimizer(0.01d, 0.05d, 20, 64);
+
+  @Test
+  public void testNoOptimization() {
+    JoinKeySample left = new JoinKeySample("A", true, 1000L, keyCounts("a", 20L, "b", 15L), null);
+    JoinKeySample right = new JoinKeySample("B", true, 900L, keyCounts("a", 12L), null);
+    JoinPlan plan = OPTIMIZER.plan(left, right, 10);
+    Assert.assertNull(plan.getSkewedStage());
+    Assert.assertNull(plan.getPrunedStage());
+    Assert.assertEquals(1, plan.getSaltFactor());
+  }
+
+  @Test
+  public void testSkewDetection() {
+    // 'a' has 40% of A's records, which is 8 times more than a partition should get
+    JoinKeySample left = new JoinKeySample("A", true, 1000L, keyCounts("a", 400L, "b", 100L, "c", 20L), null);
+    JoinKeySample right = new JoinKeySample("B", true, 900L, keyCounts("a", 12L), null);
+    JoinPlan plan = OPTIMIZER.plan(left, right, 20);
+    Assert.assertEquals("A", plan.getSkewedStage());
+    Assert.assertEquals(8, plan.getSaltFactor());
+    // 'b' is also more than a partition's share, but 'c' is below the hot key ratio
+    Assert.assertEquals(2, plan.getHotKeys().size());
+    Assert.assertEquals(Collections.singletonList("a"), plan.getHotKeys().get(0));
+    Assert.assertEquals(Collections.singletonList("b"), plan.getHotKeys().get(1));
+
+    // salt factor should be capped
+    plan = OPTIMIZER.plan(left, right, 1000);
+    Assert.assertEquals(64, plan.getSaltFactor());
+
+    // the more skewed side should be salted
+    right = new JoinKeySample("B", true, 900L, keyCounts("x", 800L), null);
+    plan = OPTIMIZER.plan(left, right, 20);
+    Assert.assertEquals("B", plan.getSkewedStage());
+    Assert.assertEquals(Collections.singletonList(Collections.singletonList("x")), plan.getHotKeys());
+  }
+
+  @Test
+  public void testOptionalSideNotSalted() {
+    JoinKeySample left = new JoinKeySample("A", false, 1000L, keyCounts("a", 400L), null);
+    JoinKeySample right = new JoinKeySample("B", true, 900L, keyCounts("a", 12L), null);
+    Assert.assertNull(OPTIMIZER.plan(left, right, 20).getSkewedStage());
+  }
+
+  @Test
+  public void testBloomFilter() {
+    JoinKeySample left = new JoinKeySample("A", true, 1000000L, keyCounts(), null);
+    JoinKeySample right = new JoinKeySample("B", true, 10L, keyCounts(), null);
+    JoinPlan plan = OPTIMIZER.plan(left, right, 20);
+    Assert.assertEquals("A", plan.getPrunedStage());
+    Assert.assertEquals(1000L, plan.getBloomFilterItems());
+
+    // known record counts should be used instead of sampled ones
+    right = new JoinKeySample("B", true, 10L, keyCounts(), 5000000L);
+    plan = OPTIMIZER.plan(left, right, 20);
+    Assert.assertEquals("A", plan.getPrunedStage());
+    Assert.assertEquals(5000000L, plan.getBloomFilterItems());
+    right = new JoinKeySample("B", true, 10L, keyCounts(), 50000000L);
+    Assert.assertNull(OPTIMIZER.plan(left, right, 20).getPrunedStage());
+
+    // if the smaller side is optional, records from the larger side are kept even if they don't match
+    right = new JoinKeySample("B", false, 10L, keyCounts(), null);
+    Assert.assertNull(OPTIMIZER.plan(left, right, 20).getPrunedStage());
+    // but the larger side can be optional
+    left = new JoinKeySample("A", false, 100000L, keyCounts(), null);
+    right = new JoinKeySample("B", true, 10L, keyCounts(), null);
+    Assert.assertEquals("A", OPTIMIZER.plan(left, right, 20).getPrunedStage());
+  }
+
+  private static Map<List<Object>, Long> keyCounts(Object... keysAndCounts) {
+    Map<List<Object>, Long> keyCounts = new LinkedHashMap<>();
+    for (int i = 0; i < keysAndCounts.length; i += 2) {
+      keyCounts.put(Collections.singletonList(keysAndCounts[i]), (Long) keysAndCounts[i + 1]);
+    }
+    return keyCounts;
+  }
+}
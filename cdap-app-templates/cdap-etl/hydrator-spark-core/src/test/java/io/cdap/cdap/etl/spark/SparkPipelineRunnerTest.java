@@ -22,13 +22,18 @@ import io.cdap.cdap.etl.api.join.JoinDefinition;
 import io.cdap.cdap.etl.api.join.JoinField;
 import io.cdap.cdap.etl.api.join.JoinKey;
 import io.cdap.cdap.etl.api.join.JoinStage;
+import io.cdap.cdap.etl.planner.Dag;
+import io.cdap.cdap.etl.proto.Connection;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Tests for SparkPipelineRunner
@@ -114,4 +119,41 @@ public class SparkPipelineRunnerTest {
       Schema.Field.of("z", Schema.of(Schema.Type.LONG)));
     Assert.assertEquals(expected, derived);
   }
+
+  @Test
+  public void testGetCachedInputs() {
+    /*
+                     |--> k1
+             |--> t1 |
+        s1 --|       |--> agg --> k2
+             |
+             |--> k3
+                  ^
+                  |
+        s2 -------|
+                  |
+                  |--> k4
+     */
+    Dag dag = new Dag(Arrays.asList(new Connection("s1", "t1"), new Connection("s1", "k3"),
+                                    new Connection("t1", "k1"), new Connection("t1", "agg"),
+                                    new Connection("agg", "k2"), new Connection("s2", "k3"),
+                                    new Connection("s2", "k4")));
+    Set<String> tasks = new HashSet<>(Arrays.asList("k1", "k2", "k3", "k4"));
+
+    Map<String, Set<String>> expected = new HashMap<>();
+    expected.put("k1", new HashSet<>(Arrays.asList("s1", "t1")));
+    expected.put("k2", new HashSet<>(Arrays.asList("s1", "t1")));
+    expected.put("k3", new HashSet<>(Arrays.asList("s1", "s2")));
+    expected.put("k4", Collections.singleton("s2"));
+    Set<String> cachedStages = new HashSet<>(Arrays.asList("s1", "s2", "t1"));
+    Assert.assertEquals(expected, SparkPipelineRunner.getCachedInputs(dag, cachedStages, tasks));
+
+    // tasks that don't read any cached stage are still included
+    expected = new HashMap<>();
+    expected.put("k1", Collections.singleton("t1"));
+    expected.put("k2", Collections.singleton("t1"));
+    expected.put("k3", Collections.emptySet());
+    expected.put("k4", Collections.emptySet());
+    Assert.assertEquals(expected, SparkPipelineRunner.getCachedInputs(dag, Collections.singleton("t1"), tasks));
+  }
 }
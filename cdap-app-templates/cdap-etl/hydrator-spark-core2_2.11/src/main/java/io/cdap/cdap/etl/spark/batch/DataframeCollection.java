@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.batch;
+
+import io.cdap.cdap.api.data.DatasetContext;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.spark.JavaSparkExecutionContext;
+import io.cdap.cdap.api.spark.sql.DataFrames;
+import io.cdap.cdap.etl.spark.SparkCollection;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.storage.StorageLevel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Spark2 collection of StructuredRecords that is backed by a Dataset of Rows with a known schema.
+ * Operations that can be expressed in Spark SQL, such as joins and unions, are performed on the Dataset so that
+ * they benefit from the Catalyst optimizer and Tungsten's binary row format. All other operations, which
+ * need to call plugins, fall back to the RDD of StructuredRecords, which is derived from the Dataset lazily.
+ * The collection can also hold Datasets that were persisted to compute it, such as the inputs of an optimized join,
+ * which are released together with it.
+ *
+ * @param <T> type of object in the collection
+ */
+public class DataframeCollection<T> extends RDDCollection<T> {
+  private final Dataset<Row> dataframe;
+  private final Schema schema;
+  private final List<Dataset<Row>> persistedInputs;
+
+  public DataframeCollection(JavaSparkExecutionContext sec, JavaSparkContext jsc, SQLContext sqlContext,
+                             DatasetContext datasetContext, SparkBatchSinkFactory sinkFactory,
+                             Dataset<Row> dataframe, Schema schema) {
+    this(sec, jsc, sqlContext, datasetContext, sinkFactory, dataframe, schema, Collections.emptyList());
+  }
+
+  public DataframeCollection(JavaSparkExecutionContext sec, JavaSparkContext jsc, SQLContext sqlContext,
+                             DatasetContext datasetContext, SparkBatchSinkFactory sinkFactory,
+                             Dataset<Row> dataframe, Schema schema, List<Dataset<Row>> persistedInputs) {
+    super(sec, jsc, sqlContext, datasetContext, sinkFactory, toRDD(dataframe, schema));
+    this.dataframe = dataframe;
+    this.schema = schema;
+    this.persistedInputs = persistedInputs;
+  }
+
+  /**
+   * @return the Dataset backing this collection
+   */
+  public Dataset<Row> getDataframe() {
+    return dataframe;
+  }
+
+  /**
+   * @return the schema of the records in this collection
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  @Override
+  public SparkCollection<T> cache() {
+    StorageLevel cacheStorageLevel = getCacheStorageLevel();
+    if (cacheStorageLevel == null) {
+      return this;
+    }
+    return new DataframeCollection<>(sec, jsc, sqlContext, datasetContext, sinkFactory,
+                                     dataframe.persist(cacheStorageLevel), schema, persistedInputs);
+  }
+
+  @Override
+  public void unpersist() {
+    dataframe.unpersist(false);
+    for (Dataset<Row> input : persistedInputs) {
+      input.unpersist(false);
+    }
+  }
+
+  @Override
+  public SparkCollection<T> union(SparkCollection<T> other) {
+    if (other instanceof DataframeCollection && schema.equals(((DataframeCollection<T>) other).schema)) {
+      DataframeCollection<T> otherCollection = (DataframeCollection<T>) other;
+      // the union is computed from the persisted inputs of both collections, so it keeps them until it is released
+      List<Dataset<Row>> unionPersistedInputs = new ArrayList<>(persistedInputs);
+      unionPersistedInputs.addAll(otherCollection.persistedInputs);
+      return new DataframeCollection<>(sec, jsc, sqlContext, datasetContext, sinkFactory,
+                                       dataframe.union(otherCollection.dataframe), schema, unionPersistedInputs);
+    }
+    return super.union(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> JavaRDD<T> toRDD(Dataset<Row> dataframe, Schema schema) {
+    return (JavaRDD<T>) dataframe.javaRDD().map(row -> DataFrames.fromRow(row, schema));
+  }
+}
@@ -16,9 +16,12 @@
 
 package io.cdap.cdap.etl.spark.batch;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.cdap.cdap.api.data.DatasetContext;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.api.spark.JavaSparkExecutionContext;
 import io.cdap.cdap.api.spark.sql.DataFrames;
 import io.cdap.cdap.etl.api.join.JoinField;
@@ -26,19 +29,31 @@ import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.spark.SparkCollection;
 import io.cdap.cdap.etl.spark.function.CountingFunction;
 import io.cdap.cdap.etl.spark.join.JoinCollection;
+import io.cdap.cdap.etl.spark.join.JoinKeySample;
+import io.cdap.cdap.etl.spark.join.JoinOptimizer;
+import io.cdap.cdap.etl.spark.join.JoinPlan;
 import io.cdap.cdap.etl.spark.join.JoinRequest;
 import io.cdap.cdap.etl.spark.plugin.LiteralsBridge;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.FilterFunction;
 import org.apache.spark.api.java.function.Function;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SQLContext;
 import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.ArrayType;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.MapType;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
+import org.apache.spark.util.LongAccumulator;
+import org.apache.spark.util.sketch.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import scala.collection.JavaConversions;
 import scala.collection.Seq;
 
@@ -46,11 +61,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import javax.annotation.Nullable;
 
 import static org.apache.spark.sql.functions.floor;
 
@@ -60,6 +77,8 @@ import static org.apache.spark.sql.functions.floor;
  * @param <T> type of object in the collection
  */
 public class RDDCollection<T> extends BaseRDDCollection<T> {
+  private static final Logger LOG = LoggerFactory.getLogger(RDDCollection.class);
+  private static final double BLOOM_FILTER_FPP = 0.03d;
 
   public RDDCollection(JavaSparkExecutionContext sec, JavaSparkContext jsc, SQLContext sqlContext,
                        DatasetContext datasetContext, SparkBatchSinkFactory sinkFactory, JavaRDD<T> rdd) {
@@ -67,15 +86,22 @@ public class RDDCollection<T> extends BaseRDDCollection<T> {
   }
 
 
-  @SuppressWarnings("unchecked")
   @Override
   public SparkCollection<T> join(JoinRequest joinRequest) {
+    return join(joinRequest, JoinOptimizer.fromConf(jsc.getConf()));
+  }
+
+  /**
+   * Joins the collections of the given request, optimizing the join with the given {@link JoinOptimizer} if there
+   * is one and the join can be optimized.
+   */
+  @SuppressWarnings("unchecked")
+  @VisibleForTesting
+  SparkCollection<T> join(JoinRequest joinRequest, @Nullable JoinOptimizer joinOptimizer) {
     Map<String, Dataset> collections = new HashMap<>();
     String stageName = joinRequest.getStageName();
-    Function<StructuredRecord, StructuredRecord> recordsInCounter =
-      new CountingFunction<>(stageName, sec.getMetrics(), Constants.Metrics.RECORDS_IN, sec.getDataTracer(stageName));
     StructType leftSparkSchema = DataFrames.toDataType(joinRequest.getLeftSchema());
-    Dataset<Row> left = toDataset(stageName, ((JavaRDD<StructuredRecord>) rdd).map(recordsInCounter), leftSparkSchema);
+    Dataset<Row> left = toDataset(stageName, this, joinRequest.getLeftSchema(), leftSparkSchema);
     collections.put(joinRequest.getLeftStage(), left);
 
     List<Column> leftJoinColumns = joinRequest.getLeftKey().stream()
@@ -100,31 +126,69 @@ public class RDDCollection<T> extends BaseRDDCollection<T> {
      */
     Integer joinPartitions = joinRequest.getNumPartitions();
     boolean seenRequired = joinRequest.isLeftRequired();
+    // a manually configured distribution always takes precedence over automatic optimization
+    if (joinOptimizer != null && (joinRequest.getToJoin().size() != 1 || joinRequest.isDistributionEnabled()
+      || joinRequest.getToJoin().get(0).isBroadcast())) {
+      joinOptimizer = null;
+    }
+    // Optimizing the join samples both inputs and may build a bloom filter over one of them before the join reads
+    // them. The inputs are persisted so that these jobs and the join all read the same records, and upstream stages
+    // are computed and counted only once.
+    List<Dataset<Row>> persistedInputs = new ArrayList<>();
+    if (joinOptimizer != null) {
+      persistedInputs.add(persistJoinInput(left));
+    }
     Dataset<Row> joined = left;
     for (JoinCollection toJoin : joinRequest.getToJoin()) {
-      RDDCollection<StructuredRecord> data = (RDDCollection<StructuredRecord>) toJoin.getData();
       StructType sparkSchema = DataFrames.toDataType(toJoin.getSchema());
-      Dataset<Row> right = toDataset(stageName, data.rdd.map(recordsInCounter), sparkSchema);
+      Dataset<Row> right = toDataset(stageName, toJoin.getData(), toJoin.getSchema(), sparkSchema);
       collections.put(toJoin.getStage(), right);
 
+      JoinPlan plan = JoinPlan.NONE;
+      if (joinOptimizer != null) {
+        persistedInputs.add(persistJoinInput(right));
+        int numPartitions = joinPartitions == null ?
+          Integer.parseInt(sqlContext.getConf("spark.sql.shuffle.partitions", "200")) : joinPartitions;
+        plan = planJoin(joinOptimizer, joinRequest, left, leftSparkSchema, toJoin, right, sparkSchema, numPartitions);
+      }
+
+      if (toJoin.getStage().equals(plan.getPrunedStage())) {
+        right = pruneDataset(right, toJoin.getKey(), left, joinRequest.getLeftKey(), plan.getBloomFilterItems());
+      } else if (joinRequest.getLeftStage().equals(plan.getPrunedStage())) {
+        left = pruneDataset(left, joinRequest.getLeftKey(), right, toJoin.getKey(), plan.getBloomFilterItems());
+        joined = left;
+      }
+
       List<Column> rightJoinColumns = toJoin.getKey().stream()
         .map(right::col)
         .collect(Collectors.toList());
 
       // UUID for salt column name to avoid name collisions
       String saltColumn = UUID.randomUUID().toString();
-      if (joinRequest.isDistributionEnabled()) {
-
-        boolean isLeftStageSkewed =
-          joinRequest.getLeftStage().equals(joinRequest.getDistribution().getSkewedStageName());
+      boolean isSalted = joinRequest.isDistributionEnabled() || plan.getSkewedStage() != null;
+      if (isSalted) {
 
         // Apply salt/explode transformations to each Dataset
-        if (isLeftStageSkewed) {
-          left = saltDataset(left, saltColumn, joinRequest.getDistribution().getDistributionFactor());
-          right = explodeDataset(right, saltColumn, joinRequest.getDistribution().getDistributionFactor());
+        if (joinRequest.isDistributionEnabled()) {
+          int distributionFactor = joinRequest.getDistribution().getDistributionFactor();
+          if (joinRequest.getLeftStage().equals(joinRequest.getDistribution().getSkewedStageName())) {
+            left = saltDataset(left, saltColumn, distributionFactor);
+            right = explodeDataset(right, saltColumn, distributionFactor);
+          } else {
+            left = explodeDataset(left, saltColumn, distributionFactor);
+            right = saltDataset(right, saltColumn, distributionFactor);
+          }
         } else {
-          left = explodeDataset(left, saltColumn, joinRequest.getDistribution().getDistributionFactor());
-          right = saltDataset(right, saltColumn, joinRequest.getDistribution().getDistributionFactor());
+          // only salt the hot keys, so that records with other keys are not duplicated
+          Column leftHot = isHotKey(left, joinRequest.getLeftKey(), plan.getHotKeys());
+          Column rightHot = isHotKey(right, toJoin.getKey(), plan.getHotKeys());
+          if (joinRequest.getLeftStage().equals(plan.getSkewedStage())) {
+            left = saltHotKeys(left, leftHot, saltColumn, plan.getSaltFactor());
+            right = explodeHotKeys(right, rightHot, saltColumn, plan.getSaltFactor());
+          } else {
+            left = explodeHotKeys(left, leftHot, saltColumn, plan.getSaltFactor());
+            right = saltHotKeys(right, rightHot, saltColumn, plan.getSaltFactor());
+          }
         }
 
         // Add the salt column to the join key
@@ -169,7 +233,7 @@ public class RDDCollection<T> extends BaseRDDCollection<T> {
 
         // If distribution is enabled we need to add it to the partition keys to ensure we end up with the desired
         // number of partitions
-        if (joinRequest.isDistributionEnabled()) {
+        if (isSalted) {
           rightKeys.add(saltColumn);
           leftKeys.add(saltColumn);
         }
@@ -224,12 +288,13 @@ public class RDDCollection<T> extends BaseRDDCollection<T> {
     Seq<Column> outputColumnSeq = JavaConversions.asScalaBuffer(outputColumns).toSeq();
     joined = joined.select(outputColumnSeq);
 
+    // keep the output as a Dataset, so that downstream joins can use it without converting records back and forth
     Schema outputSchema = joinRequest.getOutputSchema();
-    JavaRDD<StructuredRecord> output = joined.javaRDD()
-      .map(r -> DataFrames.fromRow(r, outputSchema))
-      .map(new CountingFunction<>(stageName, sec.getMetrics(), Constants.Metrics.RECORDS_OUT,
-                                  sec.getDataTracer(stageName)));
-    return (SparkCollection<T>) wrap(output);
+    Dataset<Row> output = joined.filter(new RowCountingFilter(stageName, getMetrics(),
+                                                              Constants.Metrics.RECORDS_OUT,
+                                                              getDataTracer(stageName), outputSchema));
+    return (SparkCollection<T>) new DataframeCollection<>(sec, jsc, sqlContext, datasetContext, sinkFactory,
+                                                         output, outputSchema, persistedInputs);
   }
 
   /**
@@ -269,6 +334,179 @@ public class RDDCollection<T> extends BaseRDDCollection<T> {
     return explodedData;
   }
 
+  /**
+   * Samples the join keys of both sides of a two way join and decides how to optimize it.
+   */
+  private JoinPlan planJoin(JoinOptimizer joinOptimizer, JoinRequest joinRequest,
+                            Dataset<Row> left, StructType leftSparkSchema,
+                            JoinCollection toJoin, Dataset<Row> right, StructType rightSparkSchema,
+                            int numPartitions) {
+    JoinKeySample leftSample = sampleKeys(joinOptimizer, joinRequest.getLeftStage(), joinRequest.isLeftRequired(),
+                                          left, joinRequest.getLeftKey(), leftSparkSchema,
+                                          joinRequest.getRecordCount(joinRequest.getLeftStage()));
+    JoinKeySample rightSample = sampleKeys(joinOptimizer, toJoin.getStage(), toJoin.isRequired(),
+                                           right, toJoin.getKey(), rightSparkSchema,
+                                           joinRequest.getRecordCount(toJoin.getStage()));
+    JoinPlan plan = joinOptimizer.plan(leftSample, rightSample, numPartitions);
+    if (plan.getSkewedStage() != null) {
+      LOG.info("Stage '{}' has {} hot join keys in input '{}'. Splitting each of them {} ways.",
+               joinRequest.getStageName(), plan.getHotKeys().size(), plan.getSkewedStage(), plan.getSaltFactor());
+    }
+    if (plan.getPrunedStage() != null) {
+      LOG.info("Stage '{}' will filter input '{}' with a bloom filter before joining.",
+               joinRequest.getStageName(), plan.getPrunedStage());
+    }
+    return plan;
+  }
+
+  /**
+   * Persists an input of a join that is read more than once. The storage level configured for caching is used even
+   * if auto caching is disabled, as reading the input again would count its records again.
+   */
+  @VisibleForTesting
+  Dataset<Row> persistJoinInput(Dataset<Row> data) {
+    String storageLevel = jsc.getConf().get(Constants.SPARK_PIPELINE_CACHING_STORAGE_LEVEL,
+                                            Constants.DEFAULT_CACHING_STORAGE_LEVEL);
+    return data.persist(StorageLevel.fromString(storageLevel));
+  }
+
+  /**
+   * Finds the most frequent join keys in a sample of the given data.
+   */
+  @VisibleForTesting
+  JoinKeySample sampleKeys(JoinOptimizer joinOptimizer, String stage, boolean required,
+                                   Dataset<Row> data, List<String> key, StructType sparkSchema,
+                                   @Nullable Long recordCount) {
+    // hot keys are turned into literals when salting, which only works for simple types
+    boolean hasComplexKey = key.stream()
+      .map(field -> sparkSchema.fields()[sparkSchema.fieldIndex(field)].dataType())
+      .anyMatch(type -> type instanceof ArrayType || type instanceof MapType || type instanceof StructType);
+    // the sample is counted as part of the same job that finds the most frequent keys
+    LongAccumulator sampledRecords = jsc.sc().longAccumulator();
+    String countColumn = UUID.randomUUID().toString();
+    Map<List<Object>, Long> keyCounts = new LinkedHashMap<>();
+    if (!hasComplexKey) {
+      Column[] keyColumns = key.stream().map(data::col).toArray(Column[]::new);
+      List<Row> topKeys = data.select(keyColumns)
+        .sample(false, joinOptimizer.getSampleFraction())
+        .filter((FilterFunction<Row>) row -> {
+          sampledRecords.add(1L);
+          return true;
+        })
+        .groupBy(keyColumns)
+        .agg(functions.count(functions.lit(1)).as(countColumn))
+        .orderBy(functions.desc(countColumn))
+        .limit(joinOptimizer.getMaxHotKeys())
+        .collectAsList();
+      for (Row row : topKeys) {
+        List<Object> keyValues = new ArrayList<>(key.size());
+        for (int i = 0; i < key.size(); i++) {
+          keyValues.add(row.get(i));
+        }
+        keyCounts.put(keyValues, row.getLong(key.size()));
+      }
+    }
+    // if keys can't be salted, the sample is still used to estimate the size of the data
+    return new JoinKeySample(stage, required && !hasComplexKey, hasComplexKey ?
+      data.sample(false, joinOptimizer.getSampleFraction()).count() : sampledRecords.value(), keyCounts, recordCount);
+  }
+
+  /**
+   * Filters out records whose join key is not in a bloom filter built over the join keys of some other data.
+   */
+  @VisibleForTesting
+  Dataset<Row> pruneDataset(Dataset<Row> data, List<String> key, Dataset<Row> filterData,
+                            List<String> filterKey, long expectedItems) {
+    // the filter is built over hashes of the keys so that keys made up of multiple fields can be handled
+    String hashColumn = UUID.randomUUID().toString();
+    BloomFilter bloomFilter = filterData
+      .select(functions.hash(filterKey.stream().map(filterData::col).toArray(Column[]::new)).as(hashColumn))
+      .stat().bloomFilter(hashColumn, expectedItems, BLOOM_FILTER_FPP);
+    Broadcast<BloomFilter> broadcastFilter = jsc.broadcast(bloomFilter);
+    // the hash is added as a column and checked with a typed filter, which keeps the columns of the data
+    // usable in the join condition without registering a function in the session
+    Dataset<Row> hashed = data.withColumn(hashColumn,
+                                          functions.hash(key.stream().map(data::col).toArray(Column[]::new)));
+    int hashIndex = hashed.schema().fieldIndex(hashColumn);
+    return hashed
+      .filter((FilterFunction<Row>) row -> broadcastFilter.value().mightContainLong(row.getInt(hashIndex)))
+      .drop(hashColumn);
+  }
+
+  /**
+   * Returns a condition that is true if the join key of a record is one of the given keys.
+   */
+  private Column isHotKey(Dataset<Row> data, List<String> key, List<List<Object>> hotKeys) {
+    Column isHot = functions.lit(false);
+    for (List<Object> hotKey : hotKeys) {
+      Column matches = functions.lit(true);
+      for (int i = 0; i < key.size(); i++) {
+        matches = matches.and(data.col(key.get(i)).eqNullSafe(functions.lit(hotKey.get(i))));
+      }
+      isHot = isHot.or(matches);
+    }
+    return isHot;
+  }
+
+  /**
+   * Adds a salt column to a dataframe, with a random salt for records with a hot key and a salt of 0 for others.
+   */
+  private Dataset<Row> saltHotKeys(Dataset<Row> data, Column isHot, String saltColumnName, int saltFactor) {
+    Column salt = floor(functions.rand().multiply(saltFactor)).cast(DataTypes.IntegerType);
+    return data.withColumn(saltColumnName, functions.when(isHot, salt).otherwise(functions.lit(0)));
+  }
+
+  /**
+   * Adds a salt column to a dataframe, duplicating records with a hot key once for each possible salt.
+   * Records with other keys get a salt of 0.
+   */
+  private Dataset<Row> explodeHotKeys(Dataset<Row> data, Column isHot, String saltColumnName, int saltFactor) {
+    Column allSalts = functions.array(IntStream.range(0, saltFactor).mapToObj(functions::lit).toArray(Column[]::new));
+    Column salts = functions.when(isHot, allSalts).otherwise(functions.array(functions.lit(0)));
+    return data.withColumn(saltColumnName, functions.explode(salts));
+  }
+
+  /**
+   * Returns the data in the given collection as a Dataset with the given schema, counting records into the stage.
+   * If the collection is already backed by a Dataset, it is used directly instead of converting each record.
+   */
+  @SuppressWarnings("unchecked")
+  private Dataset<Row> toDataset(String stageName, SparkCollection<?> collection, Schema schema,
+                                 StructType sparkSchema) {
+    if (collection instanceof DataframeCollection) {
+      Dataset<Row> df = ((DataframeCollection<?>) collection).getDataframe();
+      // only select the fields required by the join, in the order of the join schema.
+      // Aliasing gives the columns new identities, so that joining Datasets derived from the same
+      // upstream Dataset doesn't result in ambiguous column references.
+      Column[] columns = Arrays.stream(sparkSchema.fieldNames())
+        .map(name -> df.col(name).as(name))
+        .toArray(Column[]::new);
+      return df.select(columns).filter(new RowCountingFilter(stageName, getMetrics(),
+                                                             Constants.Metrics.RECORDS_IN,
+                                                             getDataTracer(stageName), schema));
+    }
+    Function<StructuredRecord, StructuredRecord> recordsInCounter =
+      new CountingFunction<>(stageName, getMetrics(), Constants.Metrics.RECORDS_IN, getDataTracer(stageName));
+    JavaRDD<StructuredRecord> rdd = ((RDDCollection<StructuredRecord>) collection).rdd;
+    return toDataset(stageName, rdd.map(recordsInCounter), sparkSchema);
+  }
+
+  /**
+   * @return the {@link Metrics} that join inputs and outputs are counted with
+   */
+  @VisibleForTesting
+  Metrics getMetrics() {
+    return sec.getMetrics();
+  }
+
+  /**
+   * @return the {@link DataTracer} of the given stage that join inputs and outputs are traced with
+   */
+  @VisibleForTesting
+  DataTracer getDataTracer(String stageName) {
+    return sec.getDataTracer(stageName);
+  }
+
   protected Dataset<Row> toDataset(String stageName, JavaRDD<StructuredRecord> rdd, StructType sparkSchema) {
     JavaRDD<Row> rowRDD = rdd.map(record -> DataFrames.toRow(record, sparkSchema));
     return sqlContext.createDataFrame(rowRDD.rdd(), sparkSchema);
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.batch;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.api.spark.sql.DataFrames;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.common.DefaultStageMetrics;
+import org.apache.spark.api.java.function.FilterFunction;
+import org.apache.spark.sql.Row;
+
+/**
+ * Filter on a Dataset that doesn't filter anything, but just emits counts for the number of records from that stage.
+ * This is the Dataset counterpart of {@link io.cdap.cdap.etl.spark.function.CountingFunction}.
+ * Rows are only converted into StructuredRecords when data tracing is enabled.
+ */
+public class RowCountingFilter implements FilterFunction<Row> {
+  private final String stageName;
+  private final Metrics metrics;
+  private final String metricName;
+  private final DataTracer dataTracer;
+  private final Schema schema;
+  private transient StageMetrics stageMetrics;
+
+  public RowCountingFilter(String stageName, Metrics metrics, String metricName, DataTracer dataTracer,
+                           Schema schema) {
+    this.stageName = stageName;
+    this.metrics = metrics;
+    this.metricName = metricName;
+    this.dataTracer = dataTracer;
+    this.schema = schema;
+  }
+
+  @Override
+  public boolean call(Row row) throws Exception {
+    if (stageMetrics == null) {
+      stageMetrics = new DefaultStageMetrics(metrics, stageName);
+    }
+    if (dataTracer.isEnabled()) {
+      dataTracer.info(metricName, DataFrames.fromRow(row, schema));
+    }
+    stageMetrics.count(metricName, 1);
+    return true;
+  }
+}
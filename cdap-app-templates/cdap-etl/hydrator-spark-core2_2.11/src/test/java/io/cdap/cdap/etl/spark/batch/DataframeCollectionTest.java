@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.spark.sql.DataFrames;
+import io.cdap.cdap.etl.common.Constants;
+import io.cdap.cdap.etl.spark.SparkCollection;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link DataframeCollection} and {@link RowCountingFilter}.
+ */
+public class DataframeCollectionTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "user",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  private static SparkSession spark;
+  private static JavaSparkContext jsc;
+
+  @BeforeClass
+  public static void init() {
+    spark = SparkSession.builder()
+      .master("local[2]")
+      .appName(DataframeCollectionTest.class.getSimpleName())
+      .config("spark.ui.enabled", false)
+      .getOrCreate();
+    jsc = JavaSparkContext.fromSparkContext(spark.sparkContext());
+  }
+
+  @AfterClass
+  public static void finish() {
+    spark.stop();
+  }
+
+  @Before
+  public void reset() {
+    RecordingMetrics.reset();
+    RecordingTracer.reset();
+  }
+
+  @Test
+  public void testRowCountingFilter() {
+    Dataset<Row> df = createDataframe(record(1, "alice"), record(2, null), record(3, "carol"));
+    long count = df.filter(new RowCountingFilter("stage", new RecordingMetrics(), Constants.Metrics.RECORDS_OUT,
+                                                 new RecordingTracer(false), SCHEMA)).count();
+
+    Assert.assertEquals(3L, count);
+    Assert.assertEquals(3L, RecordingMetrics.getCount("stage." + Constants.Metrics.RECORDS_OUT));
+    Assert.assertTrue(RecordingTracer.getTraced().isEmpty());
+  }
+
+  @Test
+  public void testRowCountingFilterTracing() {
+    List<StructuredRecord> records = Arrays.asList(record(1, "alice"), record(2, null));
+    Dataset<Row> df = createDataframe(records.toArray(new StructuredRecord[0]));
+    df.filter(new RowCountingFilter("stage", new RecordingMetrics(), Constants.Metrics.RECORDS_IN,
+                                    new RecordingTracer(true), SCHEMA)).collectAsList();
+
+    Assert.assertEquals(2L, RecordingMetrics.getCount("stage." + Constants.Metrics.RECORDS_IN));
+    // rows are traced as records
+    Assert.assertEquals(new HashSet<>(records), new HashSet<>(RecordingTracer.getTraced()));
+  }
+
+  @Test
+  public void testRecords() {
+    DataframeCollection<StructuredRecord> collection = createCollection(record(1, "alice"), record(2, null));
+    Assert.assertEquals(Arrays.asList(record(1, "alice"), record(2, null)), collection.getUnderlying().collect());
+  }
+
+  @Test
+  public void testUnion() {
+    DataframeCollection<StructuredRecord> first = createCollection(record(1, "alice"));
+    DataframeCollection<StructuredRecord> second = createCollection(record(2, "bob"));
+
+    // a union of Datasets with the same schema stays a Dataset
+    SparkCollection<StructuredRecord> union = first.union(second);
+    Assert.assertTrue(union instanceof DataframeCollection);
+    Assert.assertEquals(SCHEMA, ((DataframeCollection<StructuredRecord>) union).getSchema());
+    Assert.assertEquals(toSet(record(1, "alice"), record(2, "bob")), collect(union));
+  }
+
+  @Test
+  public void testUnionReleasesPersistedInputs() {
+    Dataset<Row> firstInput = createDataframe(record(1, "alice")).persist(StorageLevel.MEMORY_ONLY());
+    Dataset<Row> secondInput = createDataframe(record(2, "bob")).persist(StorageLevel.MEMORY_ONLY());
+    DataframeCollection<StructuredRecord> first = new DataframeCollection<>(
+      null, jsc, spark.sqlContext(), null, null, firstInput, SCHEMA, Collections.singletonList(firstInput));
+    DataframeCollection<StructuredRecord> second = new DataframeCollection<>(
+      null, jsc, spark.sqlContext(), null, null, secondInput, SCHEMA, Collections.singletonList(secondInput));
+
+    SparkCollection<StructuredRecord> union = first.union(second);
+    Assert.assertEquals(toSet(record(1, "alice"), record(2, "bob")), collect(union));
+
+    // releasing the union releases the persisted inputs of both collections
+    union.unpersist();
+    Assert.assertEquals(StorageLevel.NONE(), firstInput.storageLevel());
+    Assert.assertEquals(StorageLevel.NONE(), secondInput.storageLevel());
+  }
+
+  @Test
+  public void testUnionWithDifferentSchema() {
+    Schema otherSchema = Schema.recordOf("id", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    StructuredRecord other = StructuredRecord.builder(otherSchema).set("id", 2).build();
+    Dataset<Row> otherDf = spark.createDataFrame(
+      Collections.singletonList(DataFrames.toRow(other, DataFrames.toDataType(otherSchema))),
+      DataFrames.<StructType>toDataType(otherSchema));
+    DataframeCollection<StructuredRecord> first = createCollection(record(1, "alice"));
+    DataframeCollection<StructuredRecord> second = new DataframeCollection<>(null, jsc, spark.sqlContext(), null,
+                                                                             null, otherDf, otherSchema);
+
+    // Datasets can't be unioned by position if their schemas differ, so the records are unioned instead
+    SparkCollection<StructuredRecord> union = first.union(second);
+    Assert.assertFalse(union instanceof DataframeCollection);
+    Assert.assertEquals(toSet(record(1, "alice"), other), collect(union));
+  }
+
+  @Test
+  public void testCache() {
+    DataframeCollection<StructuredRecord> collection = createCollection(record(1, "alice"));
+    Assert.assertEquals(StorageLevel.NONE(), collection.getDataframe().storageLevel());
+
+    SparkCollection<StructuredRecord> cached = collection.cache();
+    Assert.assertTrue(cached instanceof DataframeCollection);
+    Dataset<Row> cachedDf = ((DataframeCollection<StructuredRecord>) cached).getDataframe();
+    Assert.assertEquals(StorageLevel.fromString(Constants.DEFAULT_CACHING_STORAGE_LEVEL), cachedDf.storageLevel());
+    Assert.assertEquals(toSet(record(1, "alice")), collect(cached));
+
+    cached.unpersist();
+    Assert.assertEquals(StorageLevel.NONE(), cachedDf.storageLevel());
+  }
+
+  private static StructuredRecord record(int id, String name) {
+    return StructuredRecord.builder(SCHEMA).set("id", id).set("name", name).build();
+  }
+
+  private static Set<StructuredRecord> toSet(StructuredRecord... records) {
+    return new HashSet<>(Arrays.asList(records));
+  }
+
+  private static Set<StructuredRecord> collect(SparkCollection<StructuredRecord> collection) {
+    JavaRDD<StructuredRecord> rdd = collection.getUnderlying();
+    return new HashSet<>(rdd.collect());
+  }
+
+  private static Dataset<Row> createDataframe(StructuredRecord... records) {
+    StructType sparkSchema = DataFrames.toDataType(SCHEMA);
+    List<Row> rows = Arrays.stream(records)
+      .map(record -> DataFrames.toRow(record, sparkSchema))
+      .collect(Collectors.toList());
+    return spark.createDataFrame(rows, sparkSchema);
+  }
+
+  private static DataframeCollection<StructuredRecord> createCollection(StructuredRecord... records) {
+    return new DataframeCollection<>(null, jsc, spark.sqlContext(), null, null, createDataframe(records), SCHEMA);
+  }
+}
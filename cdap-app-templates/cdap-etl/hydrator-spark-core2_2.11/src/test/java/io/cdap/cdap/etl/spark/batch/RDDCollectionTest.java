@@ -0,0 +1,318 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.api.spark.JavaSparkExecutionContext;
+import io.cdap.cdap.api.spark.sql.DataFrames;
+import io.cdap.cdap.etl.api.join.JoinField;
+import io.cdap.cdap.etl.common.Constants;
+import io.cdap.cdap.etl.spark.SparkCollection;
+import io.cdap.cdap.etl.spark.join.JoinCollection;
+import io.cdap.cdap.etl.spark.join.JoinKeySample;
+import io.cdap.cdap.etl.spark.join.JoinOptimizer;
+import io.cdap.cdap.etl.spark.join.JoinPlan;
+import io.cdap.cdap.etl.spark.join.JoinRequest;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+
+/**
+ * Unit tests for the join optimization in {@link RDDCollection}.
+ */
+public class RDDCollectionTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("item", Schema.of(Schema.Type.STRING)));
+  private static final StructType SPARK_SCHEMA = DataFrames.toDataType(SCHEMA);
+  private static final List<String> KEY = Collections.singletonList("id");
+  private static final Schema JOIN_SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("item", Schema.of(Schema.Type.STRING)));
+  private static final Schema JOIN_OUTPUT_SCHEMA = Schema.recordOf(
+    "joined",
+    Schema.Field.of("left_id", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("left_item", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("right_id", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("right_item", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final int JOIN_PARTITIONS = 8;
+
+  private static SparkSession spark;
+  private static JavaSparkContext jsc;
+
+  @BeforeClass
+  public static void init() {
+    spark = SparkSession.builder()
+      .master("local[2]")
+      .appName(RDDCollectionTest.class.getSimpleName())
+      .config("spark.ui.enabled", false)
+      .getOrCreate();
+    jsc = JavaSparkContext.fromSparkContext(spark.sparkContext());
+  }
+
+  @AfterClass
+  public static void finish() {
+    spark.stop();
+  }
+
+  @Before
+  public void reset() {
+    RecordingMetrics.reset();
+  }
+
+  @Test
+  public void testOptimizedInputsAreReadOnce() {
+    RDDCollection<StructuredRecord> collection = createCollection();
+    // ids 0 to 100, where id 0 is a hot key
+    List<StructuredRecord> leftRecords = IntStream.range(0, 200)
+      .mapToObj(i -> record(i < 100 ? 0 : i - 99, "left" + i))
+      .collect(Collectors.toList());
+    List<StructuredRecord> rightRecords = IntStream.range(0, 10)
+      .mapToObj(i -> record(i * 10, "right" + i))
+      .collect(Collectors.toList());
+    Dataset<Row> left = collection.persistJoinInput(createCountedDataframe("left", leftRecords));
+    Dataset<Row> right = collection.persistJoinInput(createCountedDataframe("right", rightRecords));
+    Assert.assertEquals(StorageLevel.fromString(Constants.DEFAULT_CACHING_STORAGE_LEVEL), left.storageLevel());
+
+    JoinOptimizer optimizer = new JoinOptimizer(1.0d, 0.05d, 20, 8);
+    JoinKeySample leftSample = collection.sampleKeys(optimizer, "left", true, left, KEY, SPARK_SCHEMA, null);
+    JoinKeySample rightSample = collection.sampleKeys(optimizer, "right", true, right, KEY, SPARK_SCHEMA, null);
+    Assert.assertEquals(200L, leftSample.getSampledRecords());
+    Assert.assertEquals(Long.valueOf(100L), leftSample.getKeyCounts().get(Collections.singletonList(0)));
+    Assert.assertEquals(10L, rightSample.getSampledRecords());
+
+    Dataset<Row> pruned = collection.pruneDataset(left, KEY, right, KEY, rightRecords.size());
+    // every record with a key on the other side must be kept. The bloom filter may keep a few others.
+    Set<Integer> prunedIds = pruned.collectAsList().stream().map(row -> row.getInt(0)).collect(Collectors.toSet());
+    Assert.assertTrue(prunedIds.containsAll(Arrays.asList(0, 10, 20, 30, 40, 50, 60, 70, 80, 90)));
+    Assert.assertTrue(prunedIds.size() < 100);
+    // the columns of the data must still resolve on the pruned data, since the join condition refers to them
+    Assert.assertEquals(pruned.count(), pruned.select(left.col("id")).count());
+
+    // sampling and pruning must not compute the inputs or count their records more than once
+    Assert.assertEquals(200L, RecordingMetrics.getCount("left." + Constants.Metrics.RECORDS_IN));
+    Assert.assertEquals(10L, RecordingMetrics.getCount("right." + Constants.Metrics.RECORDS_IN));
+
+    left.unpersist(true);
+    right.unpersist(true);
+  }
+
+  @Test
+  public void testPruneDoesNotRegisterFunctions() {
+    RDDCollection<StructuredRecord> collection = createCollection();
+    Dataset<Row> data = createCountedDataframe("data", Arrays.asList(record(1, "a"), record(2, "b")));
+    Dataset<Row> filterData = createCountedDataframe("filter", Collections.singletonList(record(1, "c")));
+    long functionCount = spark.catalog().listFunctions().count();
+
+    Dataset<Row> pruned = collection.pruneDataset(data, KEY, filterData, KEY, 1L);
+    Assert.assertEquals(new HashSet<>(Collections.singletonList(1)),
+                        pruned.collectAsList().stream().map(row -> row.getInt(0)).collect(Collectors.toSet()));
+    Assert.assertEquals(Arrays.asList(SPARK_SCHEMA.fieldNames()), Arrays.asList(pruned.schema().fieldNames()));
+    Assert.assertEquals(functionCount, spark.catalog().listFunctions().count());
+  }
+
+  @Test
+  public void testOptimizedJoinWithHotKeyOnLeft() {
+    assertOptimizedJoin("big", createBigSide(0), true, "small", createSmallSide(0), true, false, "big", "big");
+  }
+
+  @Test
+  public void testOptimizedJoinWithHotKeyOnRight() {
+    assertOptimizedJoin("small", createSmallSide(0), true, "big", createBigSide(0), true, false, "big", "big");
+  }
+
+  @Test
+  public void testOptimizedLeftOuterJoin() {
+    // the required side can be salted, but the optional side can't be used to prune the other side
+    assertOptimizedJoin("big", createBigSide(0), true, "small", createSmallSide(0), false, false, "big", null);
+    // the optional side can't be salted, but it can be pruned by the required side
+    assertOptimizedJoin("small", createSmallSide(0), true, "big", createBigSide(0), false, false, null, "big");
+  }
+
+  @Test
+  public void testOptimizedJoinWithOptionalLeft() {
+    assertOptimizedJoin("small", createSmallSide(0), false, "big", createBigSide(0), true, false, "big", null);
+    assertOptimizedJoin("big", createBigSide(0), false, "small", createSmallSide(0), true, false, null, "big");
+  }
+
+  @Test
+  public void testOptimizedNullSafeJoinWithNullHotKey() {
+    assertOptimizedJoin("big", createBigSide(null), true, "small", createSmallSide(null), true, true, "big", "big");
+    assertOptimizedJoin("big", createBigSide(null), true, "small", createSmallSide(null), false, true, "big", null);
+  }
+
+  /**
+   * Joins the given records with join optimization enabled and disabled, and checks that both joins return the same
+   * records. The join is expected to be salted on the given skewed stage and pruned on the given pruned stage, so that
+   * the outputs are compared for the expected optimizations.
+   */
+  private void assertOptimizedJoin(String leftStage, List<StructuredRecord> leftRecords, boolean leftRequired,
+                                   String rightStage, List<StructuredRecord> rightRecords, boolean rightRequired,
+                                   boolean nullSafe, @Nullable String expectedSkewedStage,
+                                   @Nullable String expectedPrunedStage) {
+    SparkConf conf = new SparkConf()
+      .set(Constants.SPARK_PIPELINE_JOIN_SAMPLE_FRACTION, "1.0")
+      .set(Constants.SPARK_PIPELINE_JOIN_OPTIMIZATION_ENABLED, "false");
+    Assert.assertNull(JoinOptimizer.fromConf(conf));
+    JoinOptimizer optimizer = JoinOptimizer.fromConf(conf.set(Constants.SPARK_PIPELINE_JOIN_OPTIMIZATION_ENABLED,
+                                                               "true"));
+    Assert.assertNotNull(optimizer);
+
+    RecordingRDDCollection left = new RecordingRDDCollection(jsc.parallelize(leftRecords));
+    RecordingRDDCollection right = new RecordingRDDCollection(jsc.parallelize(rightRecords));
+    StructType sparkSchema = DataFrames.toDataType(JOIN_SCHEMA);
+
+    // make sure the join is optimized as expected, so that the optimizations are what is being compared
+    JoinKeySample leftSample = left.sampleKeys(optimizer, leftStage, leftRequired,
+                                               createDataframe(leftRecords), KEY, sparkSchema, null);
+    JoinKeySample rightSample = right.sampleKeys(optimizer, rightStage, rightRequired,
+                                                 createDataframe(rightRecords), KEY, sparkSchema, null);
+    JoinPlan plan = optimizer.plan(leftSample, rightSample, JOIN_PARTITIONS);
+    Assert.assertEquals(expectedSkewedStage, plan.getSkewedStage());
+    Assert.assertEquals(expectedPrunedStage, plan.getPrunedStage());
+
+    JoinRequest joinRequest = new JoinRequest(
+      "join", leftStage, KEY, JOIN_SCHEMA, leftRequired, nullSafe,
+      Arrays.asList(new JoinField(leftStage, "id", "left_id"), new JoinField(leftStage, "item", "left_item"),
+                    new JoinField(rightStage, "id", "right_id"), new JoinField(rightStage, "item", "right_item")),
+      JOIN_OUTPUT_SCHEMA,
+      Collections.singletonList(new JoinCollection(rightStage, right, JOIN_SCHEMA, KEY, rightRequired, false)),
+      JOIN_PARTITIONS, null, Collections.emptyMap());
+
+    SparkCollection<StructuredRecord> plainJoin = left.join(joinRequest, null);
+    SparkCollection<StructuredRecord> optimizedJoin = left.join(joinRequest, optimizer);
+    List<String> expected = collectJoined(plainJoin);
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, collectJoined(optimizedJoin));
+    plainJoin.unpersist();
+    optimizedJoin.unpersist();
+  }
+
+  /**
+   * Creates the bigger side of a join, where half of the records have the given hot key, and the others have the
+   * unique keys 1 to 150.
+   */
+  private static List<StructuredRecord> createBigSide(@Nullable Integer hotKey) {
+    return IntStream.range(0, 300)
+      .mapToObj(i -> joinRecord(i < 150 ? hotKey : Integer.valueOf(i - 149), "big" + i))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates the smaller side of a join, which has the given hot key twice, some keys of the bigger side, and some
+   * keys that are not on the bigger side.
+   */
+  private static List<StructuredRecord> createSmallSide(@Nullable Integer hotKey) {
+    List<StructuredRecord> records = new ArrayList<>();
+    records.add(joinRecord(hotKey, "small-hot0"));
+    records.add(joinRecord(hotKey, "small-hot1"));
+    for (int i = 1; i <= 10; i++) {
+      records.add(joinRecord(i * 10, "small" + i));
+    }
+    records.add(joinRecord(1000, "small-unmatched0"));
+    records.add(joinRecord(1001, "small-unmatched1"));
+    return records;
+  }
+
+  private static StructuredRecord joinRecord(@Nullable Integer id, String item) {
+    return StructuredRecord.builder(JOIN_SCHEMA).set("id", id).set("item", item).build();
+  }
+
+  private static Dataset<Row> createDataframe(List<StructuredRecord> records) {
+    StructType sparkSchema = DataFrames.toDataType(JOIN_SCHEMA);
+    List<Row> rows = records.stream()
+      .map(record -> DataFrames.toRow(record, sparkSchema))
+      .collect(Collectors.toList());
+    return spark.createDataFrame(rows, sparkSchema);
+  }
+
+  /**
+   * Returns the joined records in a canonical order, so that joins can be compared regardless of partitioning.
+   */
+  private static List<String> collectJoined(SparkCollection<StructuredRecord> joined) {
+    return ((DataframeCollection<StructuredRecord>) joined).getDataframe().collectAsList().stream()
+      .map(Row::toString)
+      .sorted()
+      .collect(Collectors.toList());
+  }
+
+  private static StructuredRecord record(int id, String item) {
+    return StructuredRecord.builder(SCHEMA).set("id", id).set("item", item).build();
+  }
+
+  private static RDDCollection<StructuredRecord> createCollection() {
+    return new RDDCollection<>(null, jsc, spark.sqlContext(), null, null, jsc.emptyRDD());
+  }
+
+  /**
+   * An {@link RDDCollection} that counts and traces records without a {@link JavaSparkExecutionContext}.
+   */
+  private static final class RecordingRDDCollection extends RDDCollection<StructuredRecord> {
+
+    RecordingRDDCollection(JavaRDD<StructuredRecord> rdd) {
+      super(null, RDDCollectionTest.jsc, spark.sqlContext(), null, null, rdd);
+    }
+
+    @Override
+    Metrics getMetrics() {
+      return new RecordingMetrics();
+    }
+
+    @Override
+    DataTracer getDataTracer(String stageName) {
+      return new RecordingTracer(false);
+    }
+  }
+
+  /**
+   * Creates a Dataset of the given records that counts them into the given stage, like the input of a join.
+   */
+  private static Dataset<Row> createCountedDataframe(String stageName, List<StructuredRecord> records) {
+    List<Row> rows = records.stream()
+      .map(record -> DataFrames.toRow(record, SPARK_SCHEMA))
+      .collect(Collectors.toList());
+    return spark.createDataFrame(rows, SPARK_SCHEMA)
+      .filter(new RowCountingFilter(stageName, new RecordingMetrics(), Constants.Metrics.RECORDS_IN,
+                                    new RecordingTracer(false), SCHEMA));
+  }
+}
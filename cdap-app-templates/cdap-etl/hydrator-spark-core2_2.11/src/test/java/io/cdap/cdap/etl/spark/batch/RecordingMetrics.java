@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.batch;
+
+import io.cdap.cdap.api.metrics.Metrics;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Metrics} that keeps counts in a static map, so that counts made in Spark tasks can be checked.
+ */
+final class RecordingMetrics implements Metrics, Serializable {
+  private static final Map<String, AtomicLong> COUNTS = new ConcurrentHashMap<>();
+
+  static long getCount(String metricName) {
+    AtomicLong count = COUNTS.get(metricName);
+    return count == null ? 0L : count.get();
+  }
+
+  static void reset() {
+    COUNTS.clear();
+  }
+
+  @Override
+  public void count(String metricName, int delta) {
+    COUNTS.computeIfAbsent(metricName, k -> new AtomicLong()).addAndGet(delta);
+  }
+
+  @Override
+  public void gauge(String metricName, long value) {
+    // no-op
+  }
+
+  @Override
+  public Metrics child(Map<String, String> tags) {
+    return this;
+  }
+
+  @Override
+  public Map<String, String> getTags() {
+    return Collections.emptyMap();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.batch;
+
+import io.cdap.cdap.api.preview.DataTracer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link DataTracer} that keeps traced values in a static queue, so that values traced in Spark tasks can be checked.
+ */
+final class RecordingTracer implements DataTracer, Serializable {
+  private static final Queue<Object> TRACED = new ConcurrentLinkedQueue<>();
+  private final boolean enabled;
+
+  RecordingTracer(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  static List<Object> getTraced() {
+    return new ArrayList<>(TRACED);
+  }
+
+  static void reset() {
+    TRACED.clear();
+  }
+
+  @Override
+  public void info(String propertyName, Object propertyValue) {
+    TRACED.add(propertyValue);
+  }
+
+  @Override
+  public String getName() {
+    return "stage";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.mock.batch;
+
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.batch.Output;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.api.dataset.table.Put;
+import io.cdap.cdap.api.dataset.table.Table;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchSink;
+import io.cdap.cdap.etl.api.batch.BatchSinkContext;
+import io.cdap.cdap.etl.proto.v2.ETLPlugin;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.cdap.test.DataSetManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Mock sink that writes records to a Table in the same format as {@link MockSink}, and counts how many times it was
+ * prepared, finished successfully and finished with a failure in a separate tracking Table.
+ */
+@Plugin(type = BatchSink.PLUGIN_TYPE)
+@Name(RunTrackingSink.NAME)
+public class RunTrackingSink extends BatchSink<StructuredRecord, byte[], Put> {
+  public static final String NAME = "RunTracking";
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
+  public static final String PREPARED = "prepared";
+  public static final String SUCCEEDED = "succeeded";
+  public static final String FAILED = "failed";
+  private static final byte[] SCHEMA_COL = Bytes.toBytes("s");
+  private static final byte[] RECORD_COL = Bytes.toBytes("r");
+  private static final byte[] COUNTS_ROW = Bytes.toBytes("counts");
+  private final Config config;
+
+  public RunTrackingSink(Config config) {
+    this.config = config;
+  }
+
+  /**
+   * Config for the sink.
+   */
+  public static class Config extends PluginConfig {
+    private String tableName;
+
+    private String trackingTableName;
+
+    @Nullable
+    private String failOnValue;
+
+    @Nullable
+    private Boolean useOutputArguments;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    super.configurePipeline(pipelineConfigurer);
+    pipelineConfigurer.createDataset(config.tableName, Table.class);
+    pipelineConfigurer.createDataset(config.trackingTableName, Table.class);
+  }
+
+  @Override
+  public void prepareRun(BatchSinkContext context) throws Exception {
+    Map<String, String> arguments = Boolean.TRUE.equals(config.useOutputArguments) ?
+      Collections.singletonMap("logical.start.time", String.valueOf(context.getLogicalStartTime())) :
+      Collections.emptyMap();
+    context.addOutput(Output.ofDataset(config.tableName, arguments));
+    increment(context, PREPARED);
+  }
+
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSinkContext context) {
+    increment(context, succeeded ? SUCCEEDED : FAILED);
+  }
+
+  @Override
+  public void transform(StructuredRecord input, Emitter<KeyValue<byte[], Put>> emitter) throws Exception {
+    if (config.failOnValue != null) {
+      for (Schema.Field field : input.getSchema().getFields()) {
+        if (config.failOnValue.equals(String.valueOf((Object) input.get(field.getName())))) {
+          throw new IllegalArgumentException("Failing on value " + config.failOnValue);
+        }
+      }
+    }
+    byte[] rowkey = Bytes.toBytes(UUID.randomUUID());
+    Put put = new Put(rowkey);
+    put.add(SCHEMA_COL, input.getSchema().toString());
+    put.add(RECORD_COL, StructuredRecordStringConverter.toJsonString(input));
+    emitter.emit(new KeyValue<>(rowkey, put));
+  }
+
+  private void increment(BatchSinkContext context, String counter) {
+    Table table = context.getDataset(config.trackingTableName);
+    table.increment(COUNTS_ROW, Bytes.toBytes(counter), 1L);
+  }
+
+  public static ETLPlugin getPlugin(String tableName, String trackingTableName) {
+    return getPlugin(tableName, trackingTableName, null, false);
+  }
+
+  public static ETLPlugin getPlugin(String tableName, String trackingTableName, @Nullable String failOnValue,
+                                    boolean useOutputArguments) {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("tableName", tableName);
+    properties.put("trackingTableName", trackingTableName);
+    if (failOnValue != null) {
+      properties.put("failOnValue", failOnValue);
+    }
+    properties.put("useOutputArguments", Boolean.toString(useOutputArguments));
+    return new ETLPlugin(NAME, BatchSink.PLUGIN_TYPE, properties, null);
+  }
+
+  /**
+   * Returns how many times the sink was prepared or finished.
+   *
+   * @param trackingTableManager dataset manager used to get the tracking dataset
+   * @param counter one of {@link #PREPARED}, {@link #SUCCEEDED} or {@link #FAILED}
+   */
+  public static long getCount(DataSetManager<Table> trackingTableManager, String counter) {
+    trackingTableManager.flush();
+    Long count = trackingTableManager.get().get(COUNTS_ROW).getLong(Bytes.toBytes(counter));
+    return count == null ? 0L : count;
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>();
+    properties.put("tableName", new PluginPropertyField("tableName", "", "string", true, false));
+    properties.put("trackingTableName", new PluginPropertyField("trackingTableName", "", "string", true, false));
+    properties.put("failOnValue", new PluginPropertyField("failOnValue", "", "string", false, false));
+    properties.put("useOutputArguments", new PluginPropertyField("useOutputArguments", "", "boolean", false, false));
+    return new PluginClass(BatchSink.PLUGIN_TYPE, NAME, "", RunTrackingSink.class.getName(), "config", properties);
+  }
+}
@@ -46,6 +46,7 @@ import io.cdap.cdap.etl.mock.batch.MockRuntimeDatasetSource;
 import io.cdap.cdap.etl.mock.batch.MockSink;
 import io.cdap.cdap.etl.mock.batch.MockSource;
 import io.cdap.cdap.etl.mock.batch.NodeStatesAction;
+import io.cdap.cdap.etl.mock.batch.RunTrackingSink;
 import io.cdap.cdap.etl.mock.batch.aggregator.DistinctReducibleAggregator;
 import io.cdap.cdap.etl.mock.batch.aggregator.FieldCountAggregator;
 import io.cdap.cdap.etl.mock.batch.aggregator.FieldCountReducibleAggregator;
@@ -99,7 +100,7 @@ public class HydratorTestBase extends TestBase {
   private static final Set<PluginClass> STREAMING_MOCK_PLUGINS = ImmutableSet.of(
     io.cdap.cdap.etl.mock.spark.streaming.MockSource.PLUGIN_CLASS,
     io.cdap.cdap.etl.mock.batch.MockSink.PLUGIN_CLASS,
-    io.cdap.cdap.etl.mock.spark.streaming.MockSink.PLUGIN_CLASS,
+    io.cdap.cdap.etl.mock.spark.streaming.MockSink.PLUGIN_CLASS, RunTrackingSink.PLUGIN_CLASS,
     DoubleTransform.PLUGIN_CLASS, AllErrorTransform.PLUGIN_CLASS, IdentityTransform.PLUGIN_CLASS,
     IntValueFilterTransform.PLUGIN_CLASS, StringValueFilterTransform.PLUGIN_CLASS, DropNullTransform.PLUGIN_CLASS,
     FilterTransform.PLUGIN_CLASS,
@@ -165,7 +166,7 @@ public class HydratorTestBase extends TestBase {
                       STREAMING_MOCK_PLUGINS,
                       io.cdap.cdap.etl.mock.spark.streaming.MockSource.class,
                       io.cdap.cdap.etl.mock.batch.MockSink.class,
-                      io.cdap.cdap.etl.mock.spark.streaming.MockSink.class,
+                      io.cdap.cdap.etl.mock.spark.streaming.MockSink.class, RunTrackingSink.class,
                       DoubleTransform.class, AllErrorTransform.class, IdentityTransform.class,
                       IntValueFilterTransform.class, StringValueFilterTransform.class,
                       StringValueFilterCompute.class, Window.class,
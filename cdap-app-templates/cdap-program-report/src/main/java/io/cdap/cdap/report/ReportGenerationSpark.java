@@ -81,11 +81,15 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
@@ -209,10 +213,13 @@ public class ReportGenerationSpark extends AbstractExtendedSpark {
     private static final String START_FILE = "_START";
     private static final String FAILURE_FILE = "_FAILURE";
     private static final String SAVED_FILE = "_SAVED";
+    private static final Lock ROLLUP_LOCK = new ReentrantLock();
 
     private int readLimit;
     private SQLContext sqlContext;
     private long reportsExpiryTimeMillis;
+    private ScheduledExecutorService rollupExecutor;
+    private ScheduledFuture<?> rollupFuture;
 
     @Override
     public void initialize(SparkHttpServiceContext context) throws Exception {
@@ -224,6 +231,52 @@ public class ReportGenerationSpark extends AbstractExtendedSpark {
         runtimeArguments.getOrDefault(Constants.Report.REPORT_EXPIRY_TIME_SECONDS,
                                       Constants.Report.DEFAULT_REPORT_EXPIRY_TIME_SECONDS);
       reportsExpiryTimeMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(expiryTimeInSecondsString));
+      long rollupIntervalSeconds =
+        Long.parseLong(runtimeArguments.getOrDefault(Constants.Report.ROLLUP_INTERVAL_SECONDS,
+                                                     Constants.Report.DEFAULT_ROLLUP_INTERVAL_SECONDS));
+      if (rollupIntervalSeconds > 0) {
+        rollupExecutor =
+          Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("run-meta-rollup"));
+        rollupFuture = rollupExecutor.scheduleWithFixedDelay(this::rollupRunMetaFiles, rollupIntervalSeconds,
+                                                             rollupIntervalSeconds, TimeUnit.SECONDS);
+      }
+    }
+
+    @Override
+    public void destroy() {
+      if (rollupFuture != null) {
+        rollupFuture.cancel(false);
+      }
+      if (rollupExecutor != null) {
+        rollupExecutor.shutdown();
+      }
+      super.destroy();
+    }
+
+    /**
+     * Rolls up the program run meta files of all namespaces, so that report generation only needs to read
+     * the rollups that overlap with the report time range, plus the program run meta files written since
+     * the last rollup. See {@link RunMetaRollups} for details.
+     */
+    private void rollupRunMetaFiles() {
+      // There can be multiple handler instances, each with its own schedule. Only one rollup runs at a time,
+      // and rollups started right after another one find nothing new to roll up.
+      if (!ROLLUP_LOCK.tryLock()) {
+        return;
+      }
+      try {
+        for (Location nsLocation : getDatasetBaseLocation(ReportGenerationApp.RUN_META_FILESET).list()) {
+          try {
+            RunMetaRollups.rollup(sqlContext, nsLocation);
+          } catch (Exception e) {
+            LOG.warn("Failed to roll up program run meta files in {}", nsLocation, e);
+          }
+        }
+      } catch (Exception e) {
+        LOG.warn("Failed to roll up program run meta files", e);
+      } finally {
+        ROLLUP_LOCK.unlock();
+      }
     }
 
     /**
@@ -919,34 +972,44 @@ public class ReportGenerationSpark extends AbstractExtendedSpark {
       nsLocations = baseLocation.list();
       // Get the namespace filter from the request if it exists
       final ValueFilter<String> nsFilter = getNamespaceFilterIfExists(reportRequest);
-      Stream<Location> filteredNsLocations = nsLocations.stream();
+      List<Location> filteredNsLocations = nsLocations;
       // If the namespace filter exists, apply the filter to get filtered namespace directories
       if (nsFilter != null) {
-        filteredNsLocations = nsLocations.stream().filter(nsLocation -> nsFilter.apply(nsLocation.getName()));
+        filteredNsLocations = nsLocations.stream().filter(nsLocation -> nsFilter.apply(nsLocation.getName()))
+          .collect(Collectors.toList());
       }
-      // Iterate through all qualified namespaces directories to get program run meta files
-      Stream<Location> metaFiles = filteredNsLocations.flatMap(nsLocation -> {
-        try {
-          List<Location> metaFileLocations = nsLocation.list();
-          LOG.debug("Files under namespace {}: {}", nsLocation.getName(), metaFileLocations);
-          return metaFileLocations.stream();
-        } catch (IOException e) {
-          throw new RuntimeException(e);
+      // Iterate through all qualified namespaces directories to get the rollups and the program run meta files
+      // that are not rolled up yet
+      List<String> metaFilePaths = new ArrayList<>();
+      List<String> openRunsPaths = new ArrayList<>();
+      List<String> finishedRunsPaths = new ArrayList<>();
+      for (Location nsLocation : filteredNsLocations) {
+        Long generation = RunMetaRollups.getGeneration(nsLocation);
+        if (generation != null) {
+          openRunsPaths.add(RunMetaRollups.getOpenRunsLocation(nsLocation, generation).toURI().toString());
+          Location finishedRuns = RunMetaRollups.getFinishedRunsLocation(nsLocation);
+          if (finishedRuns.exists()) {
+            finishedRunsPaths.add(finishedRuns.toURI().toString());
+          }
         }
-      });
-      // Program run meta files are in avro format. Each file is named by the earliest program run meta record
-      // in the file, so exclude the files with no record earlier than the end of query time range.
-      List<String> metaFilePaths = metaFiles.filter(metaFile -> {
-        String fileName = metaFile.getName();
-        return fileName.endsWith(".avro")
-          //file name is of the format <event-time-millis>-<creation-time-millis>.avro
-          && TimeUnit.MILLISECONDS.toSeconds(Long.parseLong(fileName.substring(0, fileName.indexOf("-")))) <
-          reportRequest.getEnd();
-      }).map(location -> location.toURI().toString()).collect(Collectors.toList());
-      LOG.debug("Filtered meta files {}", metaFilePaths);
-      // Generate the report with the request and program run meta files
-      ReportGenerationHelper.generateReport(sqlContext, reportRequest,
-                                            metaFilePaths, reportIdDir, reportsExpiryTimeMillis);
+        List<Location> metaFileLocations = RunMetaRollups.listMetaFiles(nsLocation);
+        LOG.debug("Files under namespace {} with rollup generation {}: {}",
+                  nsLocation.getName(), generation, metaFileLocations);
+        for (Location metaFile : metaFileLocations) {
+          // Program run meta files are in avro format. Each file is named by the earliest program run meta record
+          // in the file, so exclude the files with no record earlier than the end of query time range.
+          // Also exclude the files that are already rolled up.
+          if ((generation == null || RunMetaRollups.getCreationTime(metaFile) > generation)
+            && TimeUnit.MILLISECONDS.toSeconds(RunMetaRollups.getEventTime(metaFile)) < reportRequest.getEnd()) {
+            metaFilePaths.add(metaFile.toURI().toString());
+          }
+        }
+      }
+      LOG.debug("Filtered meta files {}, open runs {}, finished runs {}",
+                metaFilePaths, openRunsPaths, finishedRunsPaths);
+      // Generate the report with the request, program run meta files and rollups
+      ReportGenerationHelper.generateReport(sqlContext, reportRequest, metaFilePaths, openRunsPaths,
+                                            finishedRunsPaths, reportIdDir, reportsExpiryTimeMillis);
     }
 
     /**
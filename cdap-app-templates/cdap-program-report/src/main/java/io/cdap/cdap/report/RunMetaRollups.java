@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.report;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SQLContext;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Manages the rollups of the program run meta files in a namespace directory of the run meta fileset.
+ * The actual rollup is done by {@link RunMetaRollup}. The layout of the namespace directory is:
+ *
+ * <pre>
+ *   &lt;namespace&gt;/&lt;event-time&gt;-&lt;creation-time&gt;.avro  program run meta files
+ *   &lt;namespace&gt;/_rollup/finished/endDay=&lt;day&gt;/   finished runs, partitioned by end day
+ *   &lt;namespace&gt;/_rollup/open/&lt;generation&gt;/        open runs as of each rollup
+ * </pre>
+ *
+ * The generation of a rollup is the latest creation time of the program run meta files rolled up into it,
+ * and it is completed once the open runs of it are written. Program run meta files created after the latest
+ * completed generation are not rolled up yet and have to be read directly.
+ */
+final class RunMetaRollups {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RunMetaRollups.class);
+  private static final String META_FILE_EXTENSION = ".avro";
+  private static final String ROLLUP_DIR = "_rollup";
+  private static final String FINISHED_DIR = "finished";
+  private static final String OPEN_DIR = "open";
+  private static final String SUCCESS_FILE = "_SUCCESS";
+
+  private RunMetaRollups() {
+    // no-op
+  }
+
+  /**
+   * Rolls up the program run meta files in the given namespace directory that have not been rolled up.
+   * The latest program run meta file is never rolled up, since it might still be written to.
+   * After that, files that are superseded by the previous rollup are deleted, see {@link #deleteSuperseded}.
+   *
+   * @param sql the SQL context to run the rollup with
+   * @param nsLocation the namespace directory
+   * @throws IOException if failed to list or delete files
+   */
+  static void rollup(SQLContext sql, Location nsLocation) throws IOException {
+    rollup(sql, nsLocation, uris -> RunMetaRollup.readMetaFiles(sql, uris));
+  }
+
+  /**
+   * Same as {@link #rollup(SQLContext, Location)}, but reads the program run meta files with the given reader.
+   */
+  @VisibleForTesting
+  static void rollup(SQLContext sql, Location nsLocation,
+                     Function<List<String>, Dataset<Row>> metaFileReader) throws IOException {
+    NavigableSet<Long> generations = listGenerations(nsLocation);
+    Long generation = generations.isEmpty() ? null : generations.last();
+    List<Location> metaFiles = listMetaFiles(nsLocation);
+    long latestCreationTime = metaFiles.stream().mapToLong(RunMetaRollups::getCreationTime).max().orElse(0L);
+    List<Location> sealedFiles = metaFiles.stream()
+      .filter(file -> getCreationTime(file) < latestCreationTime)
+      .filter(file -> generation == null || getCreationTime(file) > generation)
+      .collect(Collectors.toList());
+
+    if (sealedFiles.isEmpty()) {
+      LOG.trace("No program run meta file to roll up in {}", nsLocation);
+    } else {
+      long newGeneration = sealedFiles.stream().mapToLong(RunMetaRollups::getCreationTime).max().getAsLong();
+      LOG.debug("Rolling up {} program run meta files in {} to generation {}",
+                sealedFiles.size(), nsLocation, newGeneration);
+      RunMetaRollup.rollup(sql, metaFileReader.apply(toURIs(sealedFiles)),
+                           generation == null ? null : getOpenRunsLocation(nsLocation, generation).toURI().toString(),
+                           getFinishedRunsLocation(nsLocation).toURI().toString(),
+                           getOpenRunsLocation(nsLocation, newGeneration).toURI().toString());
+      LOG.debug("Rolled up program run meta files in {} to generation {}", nsLocation, newGeneration);
+      generations.add(newGeneration);
+    }
+    deleteSuperseded(nsLocation, generations, metaFiles);
+  }
+
+  /**
+   * Returns the latest completed rollup generation in the given namespace directory,
+   * or {@code null} if there is no rollup.
+   */
+  @Nullable
+  static Long getGeneration(Location nsLocation) throws IOException {
+    NavigableSet<Long> generations = listGenerations(nsLocation);
+    return generations.isEmpty() ? null : generations.last();
+  }
+
+  /**
+   * Returns the completed rollup generations in the given namespace directory. A generation is completed
+   * once the {@code _SUCCESS} file is written with its open runs.
+   */
+  private static NavigableSet<Long> listGenerations(Location nsLocation) throws IOException {
+    NavigableSet<Long> generations = new TreeSet<>();
+    Location openDir = nsLocation.append(ROLLUP_DIR).append(OPEN_DIR);
+    if (!openDir.exists()) {
+      return generations;
+    }
+    for (Location openRuns : openDir.list()) {
+      Long openRunsGeneration = parseGeneration(openRuns);
+      if (openRunsGeneration != null && openRuns.append(SUCCESS_FILE).exists()) {
+        generations.add(openRunsGeneration);
+      }
+    }
+    return generations;
+  }
+
+  /**
+   * Deletes the program run meta files and the open runs that are superseded by the second latest completed
+   * generation, together with the open runs left incomplete by failed rollups. Files of the second latest
+   * generation are kept, since report generation that started before the latest generation was completed
+   * might still read them. This is done on every rollup rather than right after completing a generation,
+   * so that the files are still deleted if the rollup failed in between.
+   */
+  private static void deleteSuperseded(Location nsLocation, NavigableSet<Long> generations,
+                                       List<Location> metaFiles) throws IOException {
+    if (generations.isEmpty()) {
+      return;
+    }
+    long latest = generations.last();
+    Long superseding = generations.lower(latest);
+    for (Location openRuns : nsLocation.append(ROLLUP_DIR).append(OPEN_DIR).list()) {
+      Long openRunsGeneration = parseGeneration(openRuns);
+      if (openRunsGeneration == null || openRunsGeneration >= latest) {
+        continue;
+      }
+      if (!generations.contains(openRunsGeneration) || (superseding != null && openRunsGeneration < superseding)) {
+        deleteQuietly(openRuns);
+      }
+    }
+    if (superseding == null) {
+      return;
+    }
+    for (Location metaFile : metaFiles) {
+      if (getCreationTime(metaFile) <= superseding) {
+        deleteQuietly(metaFile);
+      }
+    }
+  }
+
+  /**
+   * Returns the program run meta files in the given namespace directory.
+   */
+  static List<Location> listMetaFiles(Location nsLocation) throws IOException {
+    return nsLocation.list().stream()
+      .filter(location -> location.getName().endsWith(META_FILE_EXTENSION))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the event time of the earliest program run meta record in the given program run meta file.
+   */
+  static long getEventTime(Location metaFile) {
+    // file name is of the format <event-time-millis>-<creation-time-millis>.avro
+    String fileName = metaFile.getName();
+    return Long.parseLong(fileName.substring(0, fileName.indexOf('-')));
+  }
+
+  /**
+   * Returns the time when the given program run meta file was created.
+   */
+  static long getCreationTime(Location metaFile) {
+    String fileName = metaFile.getName();
+    return Long.parseLong(fileName.substring(fileName.indexOf('-') + 1,
+                                             fileName.length() - META_FILE_EXTENSION.length()));
+  }
+
+  static Location getFinishedRunsLocation(Location nsLocation) throws IOException {
+    return nsLocation.append(ROLLUP_DIR).append(FINISHED_DIR);
+  }
+
+  static Location getOpenRunsLocation(Location nsLocation, long generation) throws IOException {
+    return nsLocation.append(ROLLUP_DIR).append(OPEN_DIR).append(Long.toString(generation));
+  }
+
+  private static List<String> toURIs(List<Location> locations) {
+    return locations.stream().map(location -> location.toURI().toString()).collect(Collectors.toList());
+  }
+
+  @Nullable
+  private static Long parseGeneration(Location openRuns) {
+    try {
+      return Long.parseLong(openRuns.getName());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static void deleteQuietly(Location location) {
+    try {
+      if (!location.delete(true)) {
+        LOG.warn("Failed to delete {}", location);
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to delete {}", location, e);
+    }
+  }
+}
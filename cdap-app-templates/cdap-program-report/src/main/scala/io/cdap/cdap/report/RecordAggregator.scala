@@ -27,7 +27,42 @@ import org.apache.spark.sql.expressions.Aggregator
   */
 class RecordAggregator extends Aggregator[Row, RecordBuilder, Record] {
 
+  def zero: RecordBuilder = RecordAggregator.zero
+  def reduce(builder: RecordBuilder, row: Row): RecordBuilder = {
+    RecordAggregator.reduce(builder, row)
+  }
+  def merge(b1: RecordBuilder, b2: RecordBuilder): RecordBuilder = {
+    b1.merge(b2)
+  }
+  def finish(b: RecordBuilder): Record = {
+    b.build()
+  }
+  def bufferEncoder(): Encoder[RecordBuilder] = Encoders.product[RecordBuilder]
+  def outputEncoder(): Encoder[Record] = Encoders.product[Record]
+}
+
+/**
+  * An aggregator that aggregates [[Row]]'s with the same program run ID into a single [[RecordBuilder]],
+  * which can be merged with [[RecordBuilder]]'s of the same program run from other sources later.
+  */
+class RecordBuilderAggregator extends Aggregator[Row, RecordBuilder, RecordBuilder] {
+
+  def zero: RecordBuilder = RecordAggregator.zero
+  def reduce(builder: RecordBuilder, row: Row): RecordBuilder = {
+    RecordAggregator.reduce(builder, row)
+  }
+  def merge(b1: RecordBuilder, b2: RecordBuilder): RecordBuilder = {
+    b1.merge(b2)
+  }
+  def finish(b: RecordBuilder): RecordBuilder = b
+  def bufferEncoder(): Encoder[RecordBuilder] = Encoders.product[RecordBuilder]
+  def outputEncoder(): Encoder[RecordBuilder] = Encoders.product[RecordBuilder]
+}
+
+object RecordAggregator {
+
   def zero: RecordBuilder = RecordBuilder("", "", "", "", "", "", Vector.empty, None, 0, 0, 0)
+
   def reduce(builder: RecordBuilder, row: Row): RecordBuilder = {
     // Get the StartInfo from the builder if it exists or construct a new StartInfo from the row
     val startInfo = builder.startInfo.orElse(Option(row.getAs[Row](Constants.START_INFO)).map(rowToStartInfo))
@@ -42,14 +77,6 @@ class RecordAggregator extends Aggregator[Row, RecordBuilder, Record] {
       // TODO: [CDAP-13397] Use real data for number of records out, number of errors, number of warnings metrics
       0, 0, 0)
   }
-  def merge(b1: RecordBuilder, b2: RecordBuilder): RecordBuilder = {
-    b1.merge(b2)
-  }
-  def finish(b: RecordBuilder): Record = {
-    b.build()
-  }
-  def bufferEncoder(): Encoder[RecordBuilder] = Encoders.product[RecordBuilder]
-  def outputEncoder(): Encoder[Record] = Encoders.product[Record]
 
   private def rowToStartInfo(startInfoRow: Row): StartInfo = {
     val artifact: Row = startInfoRow.getAs[Row](Constants.ARTIFACT_ID)
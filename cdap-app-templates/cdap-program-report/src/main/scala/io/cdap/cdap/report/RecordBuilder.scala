@@ -59,6 +59,15 @@ case class RecordBuilder(namespace: String, applicationName: String, application
     r
   }
 
+  /**
+    * @return the earliest time in seconds when the program run reached one of the ending statuses,
+    *         or [[None]] if the program run has not finished
+    */
+  def endTime: Option[Long] = {
+    statusTimes.filter(st => END_STATUSES.contains(st._1)).map(_._2)
+      .reduceOption(Math.min(_, _)) // avoid compilation error with Math.min(_, _) instead of Math.min
+  }
+
   /**
     * @return a [[Record]] built from the information in this [[RecordBuilder]]
     */
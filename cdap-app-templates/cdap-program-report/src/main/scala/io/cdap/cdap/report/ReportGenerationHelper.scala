@@ -17,6 +17,7 @@ package io.cdap.cdap.report
 
 import java.io.{IOException, OutputStreamWriter, PrintWriter}
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
 import java.util.stream.Collectors
 
 import io.cdap.cdap.report.proto.Sort.Order
@@ -52,11 +53,10 @@ object ReportGenerationHelper {
   val COUNT_COL = "count"
 
   /**
-    * Generates a report file according to the given request from the given program run meta files.
-    * The given program run meta files are first read into a single [[org.apache.spark.sql.DataFrame]].
-    * The [[org.apache.spark.sql.DataFrame]] is then grouped by program run ID and aggregated to form
-    * a new aggregated [[org.apache.spark.sql.DataFrame]] with a column "run" containing program run ID and a column
-    * "record" containing fields as shown below:
+    * Generates a report file according to the given request from the given program run meta files and rollups.
+    * The given program run meta files and rollups are first read and aggregated by [[RunMetaRollup.readRecords]]
+    * to form an aggregated [[org.apache.spark.sql.DataFrame]] with a column "run" containing program run ID
+    * and a column "record" containing fields as shown below:
     * +---------+----------+
     * |   run   |  record  |
     * +---------+----------+
@@ -87,26 +87,31 @@ object ReportGenerationHelper {
     *
     * @param sql the SQL context to run report generation with
     * @param request the report generation request
-    * @param inputURIs URIs of the avro files containing program run meta records
+    * @param inputURIs URIs of the avro files containing program run meta records that are not rolled up
+    * @param openRunsURIs URIs of the open runs of the rollups, as written by [[RunMetaRollup.rollup]]
+    * @param finishedRunsURIs URIs of the finished runs of the rollups, as written by [[RunMetaRollup.rollup]]
     * @param reportIdDir location of the directory where the report files directory, COUNT file,
     *                    and _SUCCESS file will be created.
     * @throws java.io.IOException when fails to write to the COUNT or _SUCCESS file
     */
   @throws(classOf[IOException])
   def generateReport(sql: SQLContext, request: ReportGenerationRequest, inputURIs: java.util.List[String],
+                     openRunsURIs: java.util.List[String], finishedRunsURIs: java.util.List[String],
                      reportIdDir: Location, reportExpiryDurationMillis : Long): Unit = {
-    if (inputURIs.isEmpty) {
+    if (inputURIs.isEmpty && openRunsURIs.isEmpty && finishedRunsURIs.isEmpty) {
       writeEmptySummaryFile(request, reportIdDir, reportExpiryDurationMillis);
       return
     }
-    val df = SparkCompat.readAvroFiles(sql, inputURIs)
     // Get the fields to be included in the final report and additional fields required for filtering and sorting
     val (reportFields: Set[String], additionalFields: Set[String]) = getReportAndAdditionalFields(request)
 
     // TODO: configure partitions. The default number of partitions is 200
     // Group the program run meta records by program runId's and aggregate the grouped data to get an
-    // aggregated DataFrame with two columns: column "run" with runId's and column "record" with aggregation results
-    val initAggDf = SparkCompat.aggregate(sql, df)
+    // aggregated DataFrame with two columns: column "run" with runId's and column "record" with aggregation results.
+    // Program runs that ended before the query time range are excluded by the filter below, so rolled up
+    // program runs that ended before the day of the query start time are not read at all.
+    val initAggDf = RunMetaRollup.readRecords(sql, inputURIs, openRunsURIs, finishedRunsURIs,
+      TimeUnit.SECONDS.toDays(request.getStart))
     // With every unique field in reportFields and additionalFields, construct and add new columns from record column
     // in aggregated DataFrame, in addition to the two initial columns "run" and "record"
     val aggDf = (reportFields ++ additionalFields).foldLeft(initAggDf)((df, fieldName) =>
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.cdap.report
+
+import java.util.concurrent.TimeUnit
+
+import io.cdap.cdap.report.util.Constants
+import org.apache.spark.sql._
+import org.apache.spark.sql.functions.col
+
+import scala.collection.JavaConversions._
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * A [[RecordBuilder]] of a finished program run, with the day of its end time to partition by.
+  *
+  * @param endDay the day of the end time of the program run, in days since epoch
+  * @param builder the [[RecordBuilder]] of the program run
+  */
+case class FinishedRun(endDay: Long, builder: RecordBuilder)
+
+/**
+  * Rolls up program run meta files into snapshots of [[RecordBuilder]]'s, and reads the [[RecordBuilder]]'s
+  * from the snapshots together with the program run meta files that are not rolled up yet.
+  *
+  * The rollup of a namespace consists of:
+  *  - Finished runs, stored as [[FinishedRun]] in parquet format and partitioned by [[FinishedRun.endDay]].
+  *    Program runs that finished since the last rollup are appended on every rollup.
+  *  - Open runs, which are the [[RecordBuilder]]'s of the program runs that have not finished yet. They are
+  *    merged with the new program run meta records and rewritten to a new location on every rollup.
+  *
+  * Program runs are always merged by run ID when read, hence a program run that appears in more than one place,
+  * for example because a rollup failed after appending finished runs, is still reported once.
+  */
+object RunMetaRollup {
+
+  val BUILDER_COL = "builder"
+  val END_DAY_COL = "endDay"
+
+  /**
+    * Reads the program run meta records from the given program run meta files.
+    */
+  def readMetaFiles(sql: SQLContext, metaFileURIs: java.util.List[String]): DataFrame = {
+    SparkCompat.readAvroFiles(sql, metaFileURIs)
+  }
+
+  /**
+    * Folds the given program run meta records and the open runs of the last rollup into a new rollup.
+    * The open runs of the new rollup are overwritten if they exist, since they can only be left by a rollup
+    * that failed before completing.
+    *
+    * @param sql the SQL context to run the rollup with
+    * @param metaRecords the program run meta records to roll up, as read by [[readMetaFiles]]
+    * @param openRunsURI URI of the open runs of the last rollup, or null if there was no rollup
+    * @param finishedRunsURI URI of the finished runs to append to
+    * @param newOpenRunsURI URI to write the open runs of the new rollup to
+    */
+  def rollup(sql: SQLContext, metaRecords: DataFrame, openRunsURI: String,
+             finishedRunsURI: String, newOpenRunsURI: String): Unit = {
+    import sql.sparkSession.implicits._
+
+    val metaBuilders = toRecordBuilders(sql, metaRecords)
+    val builders = mergeByRun(sql,
+      Option(openRunsURI).map(uri => metaBuilders.union(readOpenRuns(sql, uri))).getOrElse(metaBuilders)).persist()
+    try {
+      builders.flatMap(b => b.endTime.map(end => FinishedRun(TimeUnit.SECONDS.toDays(end), b)).toList)
+        .write.mode(SaveMode.Append).partitionBy(END_DAY_COL).parquet(finishedRunsURI)
+      // Open runs are written last, since the _SUCCESS file written with them marks the rollup as completed
+      builders.filter(b => b.endTime.isEmpty).write.mode(SaveMode.Overwrite).parquet(newOpenRunsURI)
+    } finally {
+      builders.unpersist()
+    }
+  }
+
+  /**
+    * Reads the program runs from the program run meta files and the rollups, and aggregates them into a
+    * [[DataFrame]] with a column [[Constants.RUN]] containing program run ID, and a column
+    * [[ReportGenerationHelper.RECORD_COL]] containing the [[Record]] of the program run.
+    *
+    * @param sql the SQL context to read with
+    * @param metaFileURIs URIs of the program run meta files that are not rolled up
+    * @param openRunsURIs URIs of the open runs of the rollups
+    * @param finishedRunsURIs URIs of the finished runs of the rollups
+    * @param minEndDay finished runs that ended before this day, in days since epoch, are not read
+    * @return the aggregated [[DataFrame]]
+    */
+  def readRecords(sql: SQLContext, metaFileURIs: java.util.List[String], openRunsURIs: java.util.List[String],
+                  finishedRunsURIs: java.util.List[String], minEndDay: Long): DataFrame = {
+    import sql.sparkSession.implicits._
+
+    val sources = ArrayBuffer[Dataset[RecordBuilder]]()
+    if (!metaFileURIs.isEmpty) {
+      sources += toRecordBuilders(sql, readMetaFiles(sql, metaFileURIs))
+    }
+    openRunsURIs.foreach(uri => sources += readOpenRuns(sql, uri))
+    // Only partitions with end day not earlier than the minEndDay are read
+    finishedRunsURIs.foreach(uri => sources += sql.read.schema(Encoders.product[FinishedRun].schema).parquet(uri)
+      .filter(col(END_DAY_COL) >= minEndDay).select(BUILDER_COL + ".*").as[RecordBuilder])
+
+    mergeByRun(sql, sources.reduce(_ union _))
+      .map(b => (b.run, b.build()))
+      .toDF(Constants.RUN, ReportGenerationHelper.RECORD_COL)
+  }
+
+  /**
+    * Groups the program run meta records by program run ID and aggregates each group into a [[RecordBuilder]].
+    */
+  private def toRecordBuilders(sql: SQLContext, df: DataFrame): Dataset[RecordBuilder] = {
+    import sql.sparkSession.implicits._
+    val aggCol = new RecordBuilderAggregator().toColumn.alias(BUILDER_COL).as[RecordBuilder]
+    df.groupBy(Constants.RUN).agg(aggCol).select(BUILDER_COL + ".*").as[RecordBuilder]
+  }
+
+  private def readOpenRuns(sql: SQLContext, uri: String): Dataset[RecordBuilder] = {
+    import sql.sparkSession.implicits._
+    // Specify the schema explicitly since there is no file to infer the schema from if there was no open run
+    sql.read.schema(Encoders.product[RecordBuilder].schema).parquet(uri).as[RecordBuilder]
+  }
+
+  private def mergeByRun(sql: SQLContext, builders: Dataset[RecordBuilder]): Dataset[RecordBuilder] = {
+    import sql.sparkSession.implicits._
+    builders.groupByKey(_.run).reduceGroups((b1: RecordBuilder, b2: RecordBuilder) => b1.merge(b2)).map(_._2)
+  }
+}
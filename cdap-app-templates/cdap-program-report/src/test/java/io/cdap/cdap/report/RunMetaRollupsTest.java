@@ -0,0 +1,288 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.report;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import io.cdap.cdap.report.util.Constants;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link RunMetaRollups}.
+ */
+public class RunMetaRollupsTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Gson GSON = new Gson();
+  private static final StructType ARTIFACT_SCHEMA = new StructType()
+    .add(Constants.ARTIFACT_NAME, DataTypes.StringType)
+    .add(Constants.ARTIFACT_SCOPE, DataTypes.StringType)
+    .add(Constants.ARTIFACT_VERSION, DataTypes.StringType);
+  private static final StructType START_INFO_SCHEMA = new StructType()
+    .add(Constants.USER, DataTypes.StringType)
+    .add(Constants.RUNTIME_ARGUMENTS, DataTypes.createMapType(DataTypes.StringType, DataTypes.StringType))
+    .add(Constants.ARTIFACT_ID, ARTIFACT_SCHEMA)
+    .add(Constants.SYSTEM_ARGUMENTS, DataTypes.createMapType(DataTypes.StringType, DataTypes.StringType));
+  private static final StructType META_SCHEMA = new StructType()
+    .add(Constants.NAMESPACE, DataTypes.StringType)
+    .add(Constants.APPLICATION_NAME, DataTypes.StringType)
+    .add(Constants.APPLICATION_VERSION, DataTypes.StringType)
+    .add(Constants.PROGRAM_TYPE, DataTypes.StringType)
+    .add(Constants.PROGRAM, DataTypes.StringType)
+    .add(Constants.RUN, DataTypes.StringType)
+    .add(Constants.STATUS, DataTypes.StringType)
+    .add(Constants.TIME, DataTypes.LongType)
+    .add(Constants.START_INFO, START_INFO_SCHEMA);
+
+  private static SparkSession spark;
+  private static SQLContext sql;
+  private static Function<List<String>, Dataset<Row>> metaFileReader;
+
+  private Location nsLocation;
+
+  @BeforeClass
+  public static void init() {
+    spark = SparkSession.builder()
+      .master("local[2]")
+      .appName(RunMetaRollupsTest.class.getSimpleName())
+      .config("spark.ui.enabled", "false")
+      .config("spark.sql.shuffle.partitions", "2")
+      .getOrCreate();
+    sql = spark.sqlContext();
+    // The program run meta files are written as JSON in tests, since they have the same columns as the avro files
+    metaFileReader = uris -> sql.read().schema(META_SCHEMA).json(uris.toArray(new String[0]));
+  }
+
+  @AfterClass
+  public static void finish() {
+    spark.stop();
+  }
+
+  @Before
+  public void setup() throws IOException {
+    nsLocation = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("default");
+    Assert.assertTrue(nsLocation.mkdirs());
+  }
+
+  @Test
+  public void testRollup() throws Exception {
+    Location file1 = writeMetaFile(1000L, "run1:STARTING", "run2:STARTING");
+    Location file2 = writeMetaFile(2000L, "run1:COMPLETED");
+    Location file3 = writeMetaFile(3000L, "run3:STARTING");
+
+    // The latest file is not rolled up since it might still be written to
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(2000L), RunMetaRollups.getGeneration(nsLocation));
+    Assert.assertEquals(ImmutableSet.of("run2"), readOpenRuns(2000L));
+    Assert.assertEquals(ImmutableSet.of("run1"), readFinishedRuns());
+    Assert.assertEquals(ImmutableMap.of("run1", "COMPLETED", "run2", "STARTING"), readStatuses(2000L));
+    assertExist(file1, file2, file3);
+
+    // Nothing is superseded until the second rollup is completed
+    Location file4 = writeMetaFile(4000L, "run2:FAILED");
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(3000L), RunMetaRollups.getGeneration(nsLocation));
+    Assert.assertEquals(ImmutableSet.of("run2", "run3"), readOpenRuns(3000L));
+    Assert.assertEquals(ImmutableSet.of("run1"), readFinishedRuns());
+    assertNotExist(file1, file2);
+    assertExist(file3, file4, getOpenRuns(2000L));
+
+    Location file5 = writeMetaFile(5000L, "run3:RUNNING");
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(4000L), RunMetaRollups.getGeneration(nsLocation));
+    Assert.assertEquals(ImmutableSet.of("run3"), readOpenRuns(4000L));
+    Assert.assertEquals(ImmutableSet.of("run1", "run2"), readFinishedRuns());
+    Assert.assertEquals(ImmutableMap.of("run1", "COMPLETED", "run2", "FAILED", "run3", "STARTING"),
+                        readStatuses(4000L));
+    assertNotExist(file3, getOpenRuns(2000L));
+    assertExist(file4, file5, getOpenRuns(3000L));
+
+    // Rolling up without new files changes nothing
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(4000L), RunMetaRollups.getGeneration(nsLocation));
+    assertExist(file4, file5, getOpenRuns(3000L), getOpenRuns(4000L));
+  }
+
+  @Test
+  public void testIncompleteGeneration() throws Exception {
+    writeMetaFile(1000L, "run1:STARTING");
+    writeMetaFile(2000L, "run2:STARTING");
+
+    // Open runs without the _SUCCESS file are left by a failed rollup, and do not complete a generation
+    Location staleOpenRuns = getOpenRuns(500L);
+    Assert.assertTrue(staleOpenRuns.mkdirs());
+    Location partialOpenRuns = getOpenRuns(1000L);
+    Assert.assertTrue(partialOpenRuns.mkdirs());
+    partialOpenRuns.append("part-00000.parquet").getOutputStream().close();
+    Assert.assertNull(RunMetaRollups.getGeneration(nsLocation));
+
+    // The rollup overwrites the partially written open runs, and deletes the ones of older generations
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(1000L), RunMetaRollups.getGeneration(nsLocation));
+    Assert.assertEquals(ImmutableSet.of("run1"), readOpenRuns(1000L));
+    Assert.assertFalse(partialOpenRuns.append("part-00000.parquet").exists());
+    assertNotExist(staleOpenRuns);
+  }
+
+  @Test
+  public void testFailureBeforeComplete() throws Exception {
+    writeMetaFile(1000L, "run1:STARTING", "run2:STARTING");
+    writeMetaFile(2000L, "run1:COMPLETED");
+    writeMetaFile(3000L, "run2:KILLED");
+
+    // Simulate a rollup that failed after appending the finished runs, but before completing the generation
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertTrue(getOpenRuns(2000L).append("_SUCCESS").delete());
+    Assert.assertNull(RunMetaRollups.getGeneration(nsLocation));
+
+    // The retried rollup appends the same finished runs again, which are still read once
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(2000L), RunMetaRollups.getGeneration(nsLocation));
+    Assert.assertEquals(2, sql.read().parquet(getFinishedRuns().toURI().toString()).count());
+    Assert.assertEquals(ImmutableMap.of("run1", "COMPLETED", "run2", "STARTING"), readStatuses(2000L));
+  }
+
+  @Test
+  public void testFailureBeforeDelete() throws Exception {
+    Location file1 = writeMetaFile(1000L, "run1:STARTING");
+    Location file2 = writeMetaFile(2000L, "run2:STARTING");
+    Location file3 = writeMetaFile(3000L, "run1:COMPLETED");
+    Location file4 = writeMetaFile(4000L, "run3:STARTING");
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(3000L), RunMetaRollups.getGeneration(nsLocation));
+
+    // Simulate a rollup that failed after completing a new generation, but before deleting superseded files
+    Location file5 = writeMetaFile(5000L, "run2:COMPLETED");
+    RunMetaRollup.rollup(sql, metaFileReader.apply(Collections.singletonList(file4.toURI().toString())),
+                         getOpenRuns(3000L).toURI().toString(), getFinishedRuns().toURI().toString(),
+                         getOpenRuns(4000L).toURI().toString());
+    Assert.assertEquals(Long.valueOf(4000L), RunMetaRollups.getGeneration(nsLocation));
+    assertExist(file1, file2, file3);
+
+    // The superseded files are deleted by the next rollup, even if there is nothing new to roll up
+    RunMetaRollups.rollup(sql, nsLocation, metaFileReader);
+    Assert.assertEquals(Long.valueOf(4000L), RunMetaRollups.getGeneration(nsLocation));
+    assertNotExist(file1, file2, file3);
+    assertExist(file4, file5, getOpenRuns(3000L), getOpenRuns(4000L));
+    Assert.assertEquals(ImmutableMap.of("run1", "COMPLETED", "run2", "STARTING", "run3", "STARTING"),
+                        readStatuses(4000L));
+  }
+
+  /**
+   * Writes a program run meta file with the given creation time, with one record for each of the given
+   * {@code <run>:<status>} pairs. The creation time is also used as the time of the records.
+   */
+  private Location writeMetaFile(long creationTime, String... runStatuses) throws IOException {
+    Location metaFile = nsLocation.append(creationTime + "-" + creationTime + ".avro");
+    try (Writer writer = new OutputStreamWriter(metaFile.getOutputStream(), StandardCharsets.UTF_8)) {
+      for (String runStatus : runStatuses) {
+        String[] parts = runStatus.split(":");
+        Map<String, Object> record = new HashMap<>();
+        record.put(Constants.NAMESPACE, "default");
+        record.put(Constants.APPLICATION_NAME, "app");
+        record.put(Constants.APPLICATION_VERSION, "-SNAPSHOT");
+        record.put(Constants.PROGRAM_TYPE, "WORKFLOW");
+        record.put(Constants.PROGRAM, "workflow");
+        record.put(Constants.RUN, parts[0]);
+        record.put(Constants.STATUS, parts[1]);
+        record.put(Constants.TIME, creationTime);
+        writer.write(GSON.toJson(record));
+        writer.write("\n");
+      }
+    }
+    return metaFile;
+  }
+
+  private Location getOpenRuns(long generation) throws IOException {
+    return RunMetaRollups.getOpenRunsLocation(nsLocation, generation);
+  }
+
+  private Location getFinishedRuns() throws IOException {
+    return RunMetaRollups.getFinishedRunsLocation(nsLocation);
+  }
+
+  private Set<String> readOpenRuns(long generation) throws IOException {
+    return collectRuns(sql.read().parquet(getOpenRuns(generation).toURI().toString()).select(Constants.RUN));
+  }
+
+  private Set<String> readFinishedRuns() throws IOException {
+    return collectRuns(sql.read().parquet(getFinishedRuns().toURI().toString())
+                         .select(RunMetaRollup.BUILDER_COL() + "." + Constants.RUN));
+  }
+
+  /**
+   * Reads the status of each program run from the rollups of the given generation.
+   */
+  private Map<String, String> readStatuses(long generation) throws IOException {
+    List<Row> rows = RunMetaRollup.readRecords(sql, Collections.emptyList(),
+                                               Collections.singletonList(getOpenRuns(generation).toURI().toString()),
+                                               Collections.singletonList(getFinishedRuns().toURI().toString()), 0L)
+      .select(Constants.RUN, ReportGenerationHelper.RECORD_COL() + "." + Constants.STATUS)
+      .collectAsList();
+    Map<String, String> statuses = new HashMap<>();
+    for (Row row : rows) {
+      Assert.assertNull("Program run is read more than once", statuses.put(row.getString(0), row.getString(1)));
+    }
+    return statuses;
+  }
+
+  private static Set<String> collectRuns(Dataset<Row> runs) {
+    return runs.collectAsList().stream().map(row -> row.getString(0)).collect(Collectors.toCollection(HashSet::new));
+  }
+
+  private static void assertExist(Location... locations) throws IOException {
+    for (Location location : locations) {
+      Assert.assertTrue(location + " should exist", location.exists());
+    }
+  }
+
+  private static void assertNotExist(Location... locations) throws IOException {
+    for (Location location : locations) {
+      Assert.assertFalse(location + " should not exist", location.exists());
+    }
+  }
+}
@@ -204,6 +204,7 @@ public final class Constants {
     public static final String LOCAL_DATASET_DELETER_INITIAL_DELAY_SECONDS
       = "app.program.local.dataset.deleter.initial.delay";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
+    public static final String ARTIFACT_CATALOG_MAX_AGE = "app.artifact.catalog.max.age.seconds";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
     public static final String SPARK_YARN_CLIENT_REWRITE = "app.program.spark.yarn.client.rewrite.enabled";
     public static final String SPARK_EVENT_LOGS_ENABLED = "app.program.spark.event.logs.enabled";
@@ -372,6 +373,7 @@ public final class Constants {
     public static final String PROGRAM_STATUS_EVENT_FETCH_SIZE = "scheduler.program.status.event.fetch.size";
 
     public static final String JOB_QUEUE_NUM_PARTITIONS = "scheduler.job.queue.num.partitions";
+    public static final String JOB_QUEUE_MAX_CHECK_INTERVAL_MILLIS = "scheduler.job.queue.max.check.interval.millis";
   }
 
   /**
@@ -636,6 +638,7 @@ public final class Constants {
     public static final int DEFAULT_TIME_SERIES_TABLE_ROLL_TIME = 3600;
 
     public static final String MESSAGING_TOPIC_NUM = "metrics.messaging.topic.num";
+    public static final String MESSAGING_PACKED_PAYLOAD_ENABLED = "metrics.messaging.packed.payload.enabled";
 
     public static final String TWILL_INSTANCE_ID = "metrics.twill.instance.id";
 
@@ -932,6 +935,8 @@ public final class Constants {
     public static final String APPENDER_QUEUE_SIZE = "log.queue.size";
     public static final String NUM_PARTITIONS = "log.publish.num.partitions";
     public static final String LOG_PUBLISH_PARTITION_KEY = "log.publish.partition.key";
+    public static final String TMS_PUBLISH_BLOCK_ENABLED = "log.tms.publish.block.enabled";
+    public static final String TMS_PUBLISH_BLOCK_COMPRESSION_ENABLED = "log.tms.publish.block.compression.enabled";
 
     public static final String PIPELINE_CONFIG_DIR = "log.process.pipeline.config.dir";
     public static final String PIPELINE_LIBRARY_DIR = "log.process.pipeline.lib.dir";
@@ -995,6 +1000,8 @@ public final class Constants {
     public static final String TOKEN_DIGEST_KEY_LENGTH = "security.token.digest.keylength";
     /** Time duration in milliseconds after which an active secret key should be retired. */
     public static final String TOKEN_DIGEST_KEY_EXPIRATION = "security.token.digest.key.expiration.ms";
+    /** Maximum number of validated access tokens to cache. A value of zero or less disables the cache. */
+    public static final String TOKEN_VALIDATION_CACHE_SIZE = "security.token.validation.cache.size";
     /** Parent znode used for secret key distribution in ZooKeeper. */
     public static final String DIST_KEY_PARENT_ZNODE = "security.token.distributed.parent.znode";
     /**
@@ -1081,6 +1088,10 @@ public final class Constants {
       public static final String FILE_NAME = "security.store.file.name";
       /** Password to access the secure store. */
       public static final String FILE_PASSWORD = "security.store.file.password";
+      /** Whether changes to the file secure store are appended to a journal instead of rewriting the keystore. */
+      public static final String FILE_JOURNAL_ENABLED = "security.store.file.journal.enabled";
+      /** Number of journal records after which the file secure store is compacted into the keystore. */
+      public static final String FILE_JOURNAL_COMPACTION_RECORDS = "security.store.file.journal.compaction.records";
       /** Backend provider for the secure store. e.g. file */
       public static final String PROVIDER = "security.store.provider";
       /** Secure store extension dir*/
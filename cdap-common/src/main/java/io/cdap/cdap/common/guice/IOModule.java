@@ -20,10 +20,10 @@ import com.google.inject.PrivateModule;
 import com.google.inject.Scopes;
 import io.cdap.cdap.internal.io.ASMDatumWriterFactory;
 import io.cdap.cdap.internal.io.ASMFieldAccessorFactory;
+import io.cdap.cdap.internal.io.CompiledDatumReaderFactory;
 import io.cdap.cdap.internal.io.DatumReaderFactory;
 import io.cdap.cdap.internal.io.DatumWriterFactory;
 import io.cdap.cdap.internal.io.FieldAccessorFactory;
-import io.cdap.cdap.internal.io.ReflectionDatumReaderFactory;
 import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
 import io.cdap.cdap.internal.io.SchemaGenerator;
 
@@ -42,8 +42,7 @@ public class IOModule extends PrivateModule {
 
     expose(DatumWriterFactory.class);
 
-    // Note: Need to add the DatumReader counter parts when those are refactored to use ASM as well.
-    bind(DatumReaderFactory.class).to(ReflectionDatumReaderFactory.class).in(Scopes.SINGLETON);
+    bind(DatumReaderFactory.class).to(CompiledDatumReaderFactory.class).in(Scopes.SINGLETON);
     expose(DatumReaderFactory.class);
   }
 }
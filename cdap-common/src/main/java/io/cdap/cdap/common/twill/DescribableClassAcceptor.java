@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.twill;
+
+import org.apache.twill.api.ClassAcceptor;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ClassAcceptor} that can describe the classes it excludes, so that the bundles created with it can be
+ * identified by the description instead of the content.
+ */
+public interface DescribableClassAcceptor {
+
+  /**
+   * Returns a description of the classes excluded by this acceptor. Acceptors that exclude different classes must
+   * return different descriptions. Returns {@code null} if the exclusions cannot be described.
+   */
+  @Nullable
+  String getExclusions();
+
+  /**
+   * Returns the exclusions of the given {@link ClassAcceptor}, or {@code null} if they cannot be described. A
+   * {@link DescribableClassAcceptor} only describes its exclusions if its own class declares
+   * {@link #getExclusions()}, since a subclass that doesn't override it might exclude more classes.
+   */
+  @Nullable
+  static String getExclusions(ClassAcceptor acceptor) {
+    if (acceptor.getClass() == ClassAcceptor.class) {
+      return "";
+    }
+    if (!(acceptor instanceof DescribableClassAcceptor)) {
+      return null;
+    }
+    try {
+      if (acceptor.getClass().getMethod("getExclusions").getDeclaringClass() != acceptor.getClass()) {
+        return null;
+      }
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+    return ((DescribableClassAcceptor) acceptor).getExclusions();
+  }
+}
@@ -23,7 +23,7 @@ import java.net.URL;
 /**
  * Exclude hadoop classes
  */
-public class HadoopClassExcluder extends ClassAcceptor {
+public class HadoopClassExcluder extends ClassAcceptor implements DescribableClassAcceptor {
 
   @Override
   public boolean accept(String className, URL classUrl, URL classPathUrl) {
@@ -45,4 +45,11 @@ public class HadoopClassExcluder extends ClassAcceptor {
     // However, the hive-exec contains it, which can mess up other dependency if we include it.
     return !className.startsWith("org.iq80.snappy.");
   }
+
+  @Override
+  public String getExclusions() {
+    // must be changed together with the accept method
+    return "org.apache.hadoop. except org.apache.hadoop.hive. and org.apache.hadoop.hbase., "
+      + "org.apache.hadoop.hbase.http.log.LogLevel, org.apache.hadoop.hbase.http.HttpRequestLog, org.iq80.snappy.";
+  }
 }
@@ -33,4 +33,9 @@ public class ProgramRuntimeClassAcceptor extends HadoopClassExcluder {
     // Exclude metadata search, in which brings in elastic search and lucene. They are not used by program runtime.
     return !className.startsWith("io.cdap.cdap.metadata.elastic.");
   }
+
+  @Override
+  public String getExclusions() {
+    return super.getExclusions() + ", io.cdap.cdap.metadata.elastic.";
+  }
 }
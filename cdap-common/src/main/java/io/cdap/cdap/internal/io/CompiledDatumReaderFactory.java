@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.common.io.Decoder;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import javax.inject.Inject;
+
+/**
+ * A {@link DatumReaderFactory} that creates {@link DatumReader} which resolves the schema that the data was
+ * written with to the target schema only once, instead of on every read like {@link ReflectionDatumReader} does.
+ * The resolved readers are cached by the (source schema, target schema, type) triple and shared by all
+ * {@link DatumReader} created by this factory. Fields are set through the {@link FieldAccessor} provided by the
+ * {@link FieldAccessorFactory}, which are generated with ASM when using the {@link ASMFieldAccessorFactory}.
+ */
+public final class CompiledDatumReaderFactory implements DatumReaderFactory {
+
+  private final LoadingCache<CacheKey, DatumReaderCompiler.ValueReader> valueReaders;
+
+  @Inject
+  public CompiledDatumReaderFactory(FieldAccessorFactory fieldAccessorFactory) {
+    DatumReaderCompiler compiler = new DatumReaderCompiler(fieldAccessorFactory);
+    this.valueReaders = CacheBuilder.newBuilder().build(new CacheLoader<CacheKey, DatumReaderCompiler.ValueReader>() {
+      @Override
+      public DatumReaderCompiler.ValueReader load(CacheKey key) throws Exception {
+        return compiler.compile(key.sourceSchema, key.targetSchema, key.type);
+      }
+    });
+  }
+
+  /**
+   * Creates a {@link DatumReader} that decodes data into the given type with the given {@link Schema}.
+   * The instance created is thread safe and reusable.
+   *
+   * @param type Type information of the data type to be decoded.
+   * @param schema Schema of the data type.
+   * @param <T> Type of the data type.
+   * @return A {@link DatumReader} instance.
+   */
+  @Override
+  public <T> DatumReader<T> create(TypeToken<T> type, Schema schema) {
+    return new CompiledDatumReader<>(type, schema);
+  }
+
+  /**
+   * A {@link DatumReader} that reads with the compiled reader of the source schema. The reader of the last
+   * source schema is kept, since the same source schema is almost always used for all reads.
+   *
+   * @param <T> type of object to read
+   */
+  private final class CompiledDatumReader<T> implements DatumReader<T> {
+
+    private final TypeToken<T> type;
+    private final Schema schema;
+    private volatile ResolvedReader lastReader;
+
+    private CompiledDatumReader(TypeToken<T> type, Schema schema) {
+      this.type = type;
+      this.schema = schema;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T read(Decoder decoder, Schema sourceSchema) throws IOException {
+      ResolvedReader reader = lastReader;
+      if (reader == null || reader.sourceSchema != sourceSchema) {
+        try {
+          reader = new ResolvedReader(sourceSchema, valueReaders.get(new CacheKey(sourceSchema, schema, type)));
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause());
+        }
+        lastReader = reader;
+      }
+      return (T) reader.valueReader.read(decoder);
+    }
+  }
+
+  /**
+   * The compiled reader of a given source schema.
+   */
+  private static final class ResolvedReader {
+    private final Schema sourceSchema;
+    private final DatumReaderCompiler.ValueReader valueReader;
+
+    private ResolvedReader(Schema sourceSchema, DatumReaderCompiler.ValueReader valueReader) {
+      this.sourceSchema = sourceSchema;
+      this.valueReader = valueReader;
+    }
+  }
+
+  private static final class CacheKey {
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+    private final TypeToken<?> type;
+
+    private CacheKey(Schema sourceSchema, Schema targetSchema, TypeToken<?> type) {
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      CacheKey cacheKey = (CacheKey) o;
+      return sourceSchema.equals(cacheKey.sourceSchema) && targetSchema.equals(cacheKey.targetSchema)
+        && type.equals(cacheKey.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(sourceSchema, targetSchema, type);
+    }
+  }
+}
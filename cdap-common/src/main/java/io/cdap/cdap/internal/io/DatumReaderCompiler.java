@@ -0,0 +1,628 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.base.Objects;
+import com.google.common.primitives.Longs;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.lang.Instantiator;
+import io.cdap.cdap.common.lang.InstantiatorFactory;
+import io.cdap.cdap.internal.lang.Fields;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compiles a (source schema, target schema, target type) triple into a tree of {@link ValueReader}.
+ * All the schema resolution done by {@link ReflectionDatumReader} on every read, such as matching fields by name,
+ * picking union branches, type promotion and looking up field accessors and instantiators, is done once at
+ * compile time, so that reading only has to decode values and assign them.
+ */
+final class DatumReaderCompiler {
+
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final InstantiatorFactory instantiatorFactory;
+
+  DatumReaderCompiler(FieldAccessorFactory fieldAccessorFactory) {
+    this.fieldAccessorFactory = fieldAccessorFactory;
+    this.instantiatorFactory = new InstantiatorFactory(true);
+  }
+
+  /**
+   * Compiles a {@link ValueReader} for reading data written with the source schema into the target type.
+   *
+   * @param sourceSchema the schema that the data was written with
+   * @param targetSchema the schema of the target type
+   * @param targetType the type to read into
+   * @return a {@link ValueReader}, which is thread safe
+   * @throws IOException if the source schema cannot be resolved to the target schema
+   */
+  ValueReader compile(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) throws IOException {
+    return new Compilation().compile(sourceSchema, targetSchema, targetType);
+  }
+
+  /**
+   * Reads a value from a {@link Decoder}.
+   */
+  interface ValueReader {
+    Object read(Decoder decoder) throws IOException;
+  }
+
+  /**
+   * State of a single compilation. Record readers are memorized so that recursive schemas compile into
+   * cyclic reader trees.
+   */
+  private final class Compilation {
+
+    private final Map<Key, RecordReader> records = new HashMap<>();
+    private final Map<Schema, RecordSkipper> skippers = new HashMap<>();
+
+    ValueReader compile(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) throws IOException {
+      if (sourceSchema.getType() != Schema.Type.UNION && targetSchema.getType() == Schema.Type.UNION) {
+        // Pick the first target schema that the source schema resolves to
+        for (Schema schema : targetSchema.getUnionSchemas()) {
+          ValueReader reader = tryCompile(sourceSchema, schema, targetType);
+          if (reader != null) {
+            return reader;
+          }
+        }
+        throw new IOException(String.format("No matching schema to resolve %s to %s", sourceSchema, targetSchema));
+      }
+      return doCompile(sourceSchema, targetSchema, targetType);
+    }
+
+    /**
+     * Compiles with the given schemas, or returns {@code null} if they cannot be resolved. Record readers memorized
+     * during a failed attempt are discarded, as they can refer to readers that were not completed.
+     */
+    private ValueReader tryCompile(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) {
+      Set<Key> recordKeys = new HashSet<>(records.keySet());
+      try {
+        return doCompile(sourceSchema, targetSchema, targetType);
+      } catch (IOException e) {
+        records.keySet().retainAll(recordKeys);
+        return null;
+      }
+    }
+
+    private ValueReader doCompile(Schema sourceSchema, Schema targetSchema,
+                                  TypeToken<?> targetTypeToken) throws IOException {
+      Schema.Type sourceType = sourceSchema.getType();
+      Schema.Type targetType = targetSchema.getType();
+
+      switch (sourceType) {
+        case NULL:
+          check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+          return Decoder::readNull;
+        case BYTES:
+          check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+          return compileBytes(targetTypeToken);
+        case ENUM:
+          check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+          return compileEnum(sourceSchema, targetSchema, targetTypeToken);
+        case ARRAY:
+          check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+          return compileArray(sourceSchema, targetSchema, targetTypeToken);
+        case MAP:
+          check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+          return compileMap(sourceSchema, targetSchema, targetTypeToken);
+        case RECORD:
+          check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+          return compileRecord(sourceSchema, targetSchema, targetTypeToken);
+        case UNION:
+          return compileUnion(sourceSchema, targetSchema, targetTypeToken);
+      }
+      return compileSimple(sourceType, targetType, targetTypeToken);
+    }
+
+    private ValueReader compileBytes(TypeToken<?> targetType) {
+      Class<?> rawType = targetType.getRawType();
+      if (rawType.equals(byte[].class)) {
+        return decoder -> {
+          ByteBuffer buffer = decoder.readBytes();
+          if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            if (buffer.remaining() == array.length) {
+              return array;
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            System.arraycopy(array, buffer.arrayOffset() + buffer.position(), bytes, 0, buffer.remaining());
+            return bytes;
+          }
+          byte[] bytes = new byte[buffer.remaining()];
+          buffer.get(bytes);
+          return bytes;
+        };
+      }
+      if (rawType.equals(UUID.class)) {
+        return decoder -> {
+          ByteBuffer buffer = decoder.readBytes();
+          if (buffer.remaining() == Longs.BYTES * 2) {
+            return new UUID(buffer.getLong(), buffer.getLong());
+          }
+          return buffer;
+        };
+      }
+      return Decoder::readBytes;
+    }
+
+    private ValueReader compileEnum(Schema sourceSchema, Schema targetSchema,
+                                    TypeToken<?> targetType) throws IOException {
+      // Maps from the source enum index to the target enum constant
+      Object[] constants = new Object[sourceSchema.getEnumValues().size()];
+      for (int i = 0; i < constants.length; i++) {
+        String value = sourceSchema.getEnumValue(i);
+        if (!targetSchema.getEnumValues().contains(value)) {
+          continue;
+        }
+        try {
+          constants[i] = targetType.getRawType().getMethod("valueOf", String.class).invoke(null, value);
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      }
+      return decoder -> {
+        int idx = decoder.readInt();
+        Object constant = idx >= 0 && idx < constants.length ? constants[idx] : null;
+        if (constant == null) {
+          throw new IOException(String.format("Enum value '%s' missing in target.",
+                                              sourceSchema.getEnumValue(idx)));
+        }
+        return constant;
+      };
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueReader compileArray(Schema sourceSchema, Schema targetSchema,
+                                     TypeToken<?> targetType) throws IOException {
+      TypeToken<?> componentType = null;
+      if (targetType.isArray()) {
+        componentType = targetType.getComponentType();
+      } else if (Collection.class.isAssignableFrom(targetType.getRawType())) {
+        Type type = targetType.getType();
+        check(type instanceof ParameterizedType, "Only parameterized type is supported for collection.");
+        componentType = TypeToken.of(((ParameterizedType) type).getActualTypeArguments()[0]);
+      }
+      check(componentType != null, "Only array or collection type is support for array value.");
+
+      ValueReader componentReader = compile(sourceSchema.getComponentSchema(),
+                                            targetSchema.getComponentSchema(), componentType);
+
+      if (targetType.isArray()) {
+        Class<?> componentClass = componentType.getRawType();
+        return decoder -> {
+          List<Object> list = new ArrayList<>();
+          for (int len = decoder.readInt(); len != 0; len = decoder.readInt()) {
+            for (int i = 0; i < len; i++) {
+              list.add(componentReader.read(decoder));
+            }
+          }
+          Object array = Array.newInstance(componentClass, list.size());
+          for (int i = 0; i < list.size(); i++) {
+            Array.set(array, i, list.get(i));
+          }
+          return array;
+        };
+      }
+
+      Instantiator<?> instantiator = instantiatorFactory.get(targetType);
+      return decoder -> {
+        Collection<Object> collection = (Collection<Object>) instantiator.create();
+        for (int len = decoder.readInt(); len != 0; len = decoder.readInt()) {
+          for (int i = 0; i < len; i++) {
+            collection.add(componentReader.read(decoder));
+          }
+        }
+        return collection;
+      };
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueReader compileMap(Schema sourceSchema, Schema targetSchema,
+                                   TypeToken<?> targetType) throws IOException {
+      check(Map.class.isAssignableFrom(targetType.getRawType()), "Only map type is supported for map data.");
+      Type type = targetType.getType();
+      check(type instanceof ParameterizedType, "Only parameterized map is supported.");
+      Type[] typeArgs = ((ParameterizedType) type).getActualTypeArguments();
+
+      Map.Entry<Schema, Schema> sourceEntry = sourceSchema.getMapSchema();
+      Map.Entry<Schema, Schema> targetEntry = targetSchema.getMapSchema();
+      ValueReader keyReader = compile(sourceEntry.getKey(), targetEntry.getKey(), TypeToken.of(typeArgs[0]));
+      ValueReader valueReader = compile(sourceEntry.getValue(), targetEntry.getValue(), TypeToken.of(typeArgs[1]));
+      Instantiator<?> instantiator = instantiatorFactory.get(targetType);
+
+      return decoder -> {
+        Map<Object, Object> map = (Map<Object, Object>) instantiator.create();
+        for (int len = decoder.readInt(); len != 0; len = decoder.readInt()) {
+          for (int i = 0; i < len; i++) {
+            Object key = keyReader.read(decoder);
+            map.put(key, valueReader.read(decoder));
+          }
+        }
+        return map;
+      };
+    }
+
+    private ValueReader compileUnion(Schema sourceSchema, Schema targetSchema,
+                                     TypeToken<?> targetType) throws IOException {
+      List<Schema> sourceSchemas = sourceSchema.getUnionSchemas();
+      ValueReader[] readers = new ValueReader[sourceSchemas.size()];
+      boolean resolved = false;
+
+      for (int idx = 0; idx < readers.length; idx++) {
+        Schema sourceValueSchema = sourceSchemas.get(idx);
+        ValueReader reader = null;
+
+        if (targetSchema.getType() == Schema.Type.UNION) {
+          // Try the target schema at the same index first before trying all of them
+          Schema targetValueSchema = targetSchema.getUnionSchema(idx);
+          if (targetValueSchema != null && targetValueSchema.getType() == sourceValueSchema.getType()) {
+            reader = tryCompile(sourceValueSchema, targetValueSchema, targetType);
+          }
+          for (Schema schema : targetSchema.getUnionSchemas()) {
+            if (reader != null) {
+              break;
+            }
+            reader = tryCompile(sourceValueSchema, schema, targetType);
+          }
+        } else {
+          reader = tryCompile(sourceValueSchema, targetSchema, targetType);
+        }
+
+        if (reader == null) {
+          // A source branch that cannot be resolved only fails if there is actually data written with it
+          String message = String.format("Fail to resolve %s to %s", sourceSchema, targetSchema);
+          reader = decoder -> {
+            throw new IOException(message);
+          };
+        } else {
+          resolved = true;
+        }
+        readers[idx] = reader;
+      }
+
+      check(resolved, "Fail to resolve %s to %s", sourceSchema, targetSchema);
+      return decoder -> {
+        int idx = decoder.readInt();
+        if (idx < 0 || idx >= readers.length) {
+          throw new IOException("Invalid union index " + idx + " for schema " + sourceSchema);
+        }
+        return readers[idx].read(decoder);
+      };
+    }
+
+    private ValueReader compileRecord(Schema sourceSchema, Schema targetSchema,
+                                      TypeToken<?> targetType) throws IOException {
+      Key key = new Key(sourceSchema, targetSchema, targetType);
+      RecordReader reader = records.get(key);
+      if (reader != null) {
+        return reader;
+      }
+
+      // Memorize before compiling the fields so that recursive references resolve to this reader
+      reader = new RecordReader(instantiatorFactory.get(targetType));
+      records.put(key, reader);
+
+      List<Schema.Field> sourceFields = sourceSchema.getFields();
+      FieldAccessor[] accessors = new FieldAccessor[sourceFields.size()];
+      ValueReader[] fieldReaders = new ValueReader[sourceFields.size()];
+
+      for (int i = 0; i < accessors.length; i++) {
+        Schema.Field sourceField = sourceFields.get(i);
+        Schema.Field targetField = targetSchema.getField(sourceField.getName());
+        if (targetField == null) {
+          fieldReaders[i] = compileSkip(sourceField.getSchema());
+          continue;
+        }
+        TypeToken<?> fieldType;
+        try {
+          accessors[i] = fieldAccessorFactory.getFieldAccessor(targetType, sourceField.getName());
+          // Not using FieldAccessor.getType() since not all implementations return the field type
+          fieldType = targetType.resolveType(Fields.findField(targetType.getType(),
+                                                              sourceField.getName()).getGenericType());
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+        fieldReaders[i] = compile(sourceField.getSchema(), targetField.getSchema(), fieldType);
+      }
+
+      reader.setFields(accessors, fieldReaders);
+      return reader;
+    }
+
+    private ValueReader compileSimple(Schema.Type sourceType, Schema.Type targetType,
+                                      TypeToken<?> targetTypeToken) throws IOException {
+      Class<?> targetClass = targetTypeToken.getRawType();
+
+      switch (sourceType) {
+        case BOOLEAN:
+          switch (targetType) {
+            case BOOLEAN:
+              return Decoder::readBool;
+            case STRING:
+              return decoder -> String.valueOf(decoder.readBool());
+          }
+          break;
+        case INT:
+          switch (targetType) {
+            case INT:
+              if (targetClass.equals(byte.class) || targetClass.equals(Byte.class)) {
+                return decoder -> (byte) decoder.readInt();
+              }
+              if (targetClass.equals(char.class) || targetClass.equals(Character.class)) {
+                return decoder -> (char) decoder.readInt();
+              }
+              if (targetClass.equals(short.class) || targetClass.equals(Short.class)) {
+                return decoder -> (short) decoder.readInt();
+              }
+              return Decoder::readInt;
+            case LONG:
+              return decoder -> (long) decoder.readInt();
+            case FLOAT:
+              return decoder -> (float) decoder.readInt();
+            case DOUBLE:
+              return decoder -> (double) decoder.readInt();
+            case STRING:
+              return decoder -> String.valueOf(decoder.readInt());
+          }
+          break;
+        case LONG:
+          switch (targetType) {
+            case LONG:
+              return Decoder::readLong;
+            case FLOAT:
+              return decoder -> (float) decoder.readLong();
+            case DOUBLE:
+              return decoder -> (double) decoder.readLong();
+            case STRING:
+              return decoder -> String.valueOf(decoder.readLong());
+          }
+          break;
+        case FLOAT:
+          switch (targetType) {
+            case FLOAT:
+              return Decoder::readFloat;
+            case DOUBLE:
+              return decoder -> (double) decoder.readFloat();
+            case STRING:
+              return decoder -> String.valueOf(decoder.readFloat());
+          }
+          break;
+        case DOUBLE:
+          switch (targetType) {
+            case DOUBLE:
+              return Decoder::readDouble;
+            case STRING:
+              return decoder -> String.valueOf(decoder.readDouble());
+          }
+          break;
+        case STRING:
+          if (targetType == Schema.Type.STRING) {
+            if (targetClass.equals(URI.class)) {
+              return decoder -> URI.create(decoder.readString());
+            }
+            if (targetClass.equals(URL.class)) {
+              return decoder -> new URL(decoder.readString());
+            }
+            return Decoder::readString;
+          }
+          break;
+      }
+      throw new IOException("Fail to resolve type " + sourceType + " to type " + targetType);
+    }
+
+    /**
+     * Compiles a {@link ValueReader} that skips over a value of the given schema and always returns {@code null}.
+     */
+    private ValueReader compileSkip(Schema schema) {
+      switch (schema.getType()) {
+        case NULL:
+          return Decoder::readNull;
+        case BOOLEAN:
+          return decoder -> {
+            decoder.readBool();
+            return null;
+          };
+        case INT:
+        case ENUM:
+          return decoder -> {
+            decoder.readInt();
+            return null;
+          };
+        case LONG:
+          return decoder -> {
+            decoder.readLong();
+            return null;
+          };
+        case FLOAT:
+          return decoder -> {
+            decoder.skipFloat();
+            return null;
+          };
+        case DOUBLE:
+          return decoder -> {
+            decoder.skipDouble();
+            return null;
+          };
+        case BYTES:
+          return decoder -> {
+            decoder.skipBytes();
+            return null;
+          };
+        case STRING:
+          return decoder -> {
+            decoder.skipString();
+            return null;
+          };
+        case ARRAY: {
+          ValueReader componentSkipper = compileSkip(schema.getComponentSchema());
+          return decoder -> {
+            for (int len = decoder.readInt(); len != 0; len = decoder.readInt()) {
+              for (int i = 0; i < len; i++) {
+                componentSkipper.read(decoder);
+              }
+            }
+            return null;
+          };
+        }
+        case MAP: {
+          ValueReader keySkipper = compileSkip(schema.getMapSchema().getKey());
+          ValueReader valueSkipper = compileSkip(schema.getMapSchema().getValue());
+          return decoder -> {
+            for (int len = decoder.readInt(); len != 0; len = decoder.readInt()) {
+              for (int i = 0; i < len; i++) {
+                keySkipper.read(decoder);
+                valueSkipper.read(decoder);
+              }
+            }
+            return null;
+          };
+        }
+        case RECORD: {
+          RecordSkipper skipper = skippers.get(schema);
+          if (skipper == null) {
+            skipper = new RecordSkipper();
+            skippers.put(schema, skipper);
+            List<Schema.Field> fields = schema.getFields();
+            ValueReader[] fieldSkippers = new ValueReader[fields.size()];
+            for (int i = 0; i < fieldSkippers.length; i++) {
+              fieldSkippers[i] = compileSkip(fields.get(i).getSchema());
+            }
+            skipper.fieldSkippers = fieldSkippers;
+          }
+          return skipper;
+        }
+        case UNION: {
+          List<Schema> unionSchemas = schema.getUnionSchemas();
+          ValueReader[] branchSkippers = new ValueReader[unionSchemas.size()];
+          for (int i = 0; i < branchSkippers.length; i++) {
+            branchSkippers[i] = compileSkip(unionSchemas.get(i));
+          }
+          return decoder -> branchSkippers[decoder.readInt()].read(decoder);
+        }
+      }
+      throw new IllegalArgumentException("Unsupported schema type " + schema.getType());
+    }
+  }
+
+  private static void check(boolean condition, String message, Object... objs) throws IOException {
+    if (!condition) {
+      throw new IOException(String.format(message, objs));
+    }
+  }
+
+  /**
+   * {@link ValueReader} for a record. The field readers are set after construction to support recursive schemas.
+   * A field without {@link FieldAccessor} is not present in the target and is skipped.
+   */
+  private static final class RecordReader implements ValueReader {
+
+    private final Instantiator<?> instantiator;
+    private FieldAccessor[] accessors;
+    private ValueReader[] fieldReaders;
+
+    RecordReader(Instantiator<?> instantiator) {
+      this.instantiator = instantiator;
+    }
+
+    void setFields(FieldAccessor[] accessors, ValueReader[] fieldReaders) {
+      this.accessors = accessors;
+      this.fieldReaders = fieldReaders;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      Object record = instantiator.create();
+      for (int i = 0; i < fieldReaders.length; i++) {
+        Object value = fieldReaders[i].read(decoder);
+        if (accessors[i] != null) {
+          try {
+            accessors[i].set(record, value);
+          } catch (Exception e) {
+            throw new IOException(e);
+          }
+        }
+      }
+      return record;
+    }
+  }
+
+  /**
+   * {@link ValueReader} for skipping a record. The field skippers are set after construction
+   * to support recursive schemas.
+   */
+  private static final class RecordSkipper implements ValueReader {
+
+    private ValueReader[] fieldSkippers;
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      for (ValueReader skipper : fieldSkippers) {
+        skipper.read(decoder);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Key for identifying a compiled record reader.
+   */
+  private static final class Key {
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+    private final TypeToken<?> targetType;
+
+    Key(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) {
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+      this.targetType = targetType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return sourceSchema.equals(other.sourceSchema) && targetSchema.equals(other.targetSchema)
+        && targetType.equals(other.targetType);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(sourceSchema, targetSchema, targetType);
+    }
+  }
+}
@@ -255,7 +255,9 @@ public final class ReflectionDatumReader<T> extends ReflectionReader<Decoder, T>
   private void skipArray(Decoder decoder, Schema componentSchema) throws IOException {
     int len = decoder.readInt();
     while (len != 0) {
-      skip(decoder, componentSchema);
+      for (int i = 0; i < len; i++) {
+        skip(decoder, componentSchema);
+      }
       len = decoder.readInt();
     }
   }
@@ -263,8 +265,10 @@ public final class ReflectionDatumReader<T> extends ReflectionReader<Decoder, T>
   private void skipMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
     int len = decoder.readInt();
     while (len != 0) {
-      skip(decoder, mapSchema.getKey());
-      skip(decoder, mapSchema.getValue());
+      for (int i = 0; i < len; i++) {
+        skip(decoder, mapSchema.getKey());
+        skip(decoder, mapSchema.getValue());
+      }
       len = decoder.readInt();
     }
   }
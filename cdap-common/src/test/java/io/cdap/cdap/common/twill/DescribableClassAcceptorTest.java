@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.twill;
+
+import org.apache.twill.api.ClassAcceptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+
+/**
+ * Test cases for {@link DescribableClassAcceptor}.
+ */
+public class DescribableClassAcceptorTest {
+
+  @Test
+  public void testGetExclusions() {
+    Assert.assertEquals("", DescribableClassAcceptor.getExclusions(new ClassAcceptor()));
+
+    String hadoopExclusions = DescribableClassAcceptor.getExclusions(new HadoopClassExcluder());
+    String programExclusions = DescribableClassAcceptor.getExclusions(new ProgramRuntimeClassAcceptor());
+    Assert.assertNotNull(hadoopExclusions);
+    Assert.assertNotNull(programExclusions);
+    Assert.assertNotEquals(hadoopExclusions, programExclusions);
+
+    // A subclass that excludes more classes without describing them must not be described by its parent
+    Assert.assertNull(DescribableClassAcceptor.getExclusions(new ProgramRuntimeClassAcceptor() {
+      @Override
+      public boolean accept(String className, URL classUrl, URL classPathUrl) {
+        return super.accept(className, classUrl, classPathUrl) && !className.startsWith("org.apache.spark.");
+      }
+    }));
+    Assert.assertNull(DescribableClassAcceptor.getExclusions(new ClassAcceptor() {
+      @Override
+      public boolean accept(String className, URL classUrl, URL classPathUrl) {
+        return false;
+      }
+    }));
+
+    Assert.assertEquals(programExclusions + ", org.apache.spark.",
+                        DescribableClassAcceptor.getExclusions(new ProgramRuntimeClassAcceptor() {
+      @Override
+      public String getExclusions() {
+        return super.getExclusions() + ", org.apache.spark.";
+      }
+    }));
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.internal.io.ASMFieldAccessorFactory;
+import io.cdap.cdap.internal.io.CompiledDatumReaderFactory;
+import io.cdap.cdap.internal.io.ReflectionDatumReader;
+import io.cdap.cdap.internal.io.ReflectionDatumWriter;
+import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link CompiledDatumReaderFactory}. Results are compared with the {@link ReflectionDatumReader}.
+ */
+public class CompiledDatumReaderFactoryTest {
+
+  private static final CompiledDatumReaderFactory READER_FACTORY =
+    new CompiledDatumReaderFactory(new ASMFieldAccessorFactory());
+
+  @Test
+  public void testTypeProject() throws Exception {
+    DatumCodecTest.Record1 r1 = new DatumCodecTest.Record1(10, new HashMap<>(), new URL("http://www.yahoo.com"));
+    Map<Integer, DatumCodecTest.Value> properties = getField(r1, "properties");
+    properties.put(1, new DatumCodecTest.Value(1, "Name1"));
+    properties.put(2, new DatumCodecTest.Value(2, "Name2"));
+    properties.put(3, null);
+
+    Schema sourceSchema = getSchema(TypeToken.of(DatumCodecTest.Record1.class));
+    DatumCodecTest.Record2 r2 = read(r1, sourceSchema, TypeToken.of(DatumCodecTest.Record2.class));
+
+    Assert.assertEquals(Long.valueOf(10L), getField(r2, "i"));
+    Map<String, DatumCodecTest.Value> expected = new HashMap<>();
+    expected.put("1", new DatumCodecTest.Value(1, "Name1"));
+    expected.put("2", new DatumCodecTest.Value(2, "Name2"));
+    expected.put("3", null);
+    Assert.assertEquals(expected, getField(r2, "properties"));
+    Assert.assertNull(getField(r2, "name"));
+    Assert.assertArrayEquals(new long[] {1L, 2L}, getField(r2, "numbers"));
+    Assert.assertEquals(URI.create("http://www.yahoo.com"), getField(r2, "url"));
+    Assert.assertEquals((Object) getField(r1, "uuid"), getField(r2, "uuid"));
+  }
+
+  @Test
+  public void testCollection() throws Exception {
+    List<String> list = ImmutableList.of("1", "2", "3");
+    Schema sourceSchema = getSchema(new TypeToken<List<String>>() { });
+
+    Assert.assertEquals(ImmutableSet.of("1", "2", "3"), read(list, sourceSchema, new TypeToken<Set<String>>() { }));
+    Assert.assertArrayEquals(new String[] {"1", "2", "3"}, read(list, sourceSchema, new TypeToken<String[]>() { }));
+
+    Map<String, List<Integer>> map = ImmutableMap.of("a", ImmutableList.of(1, 2), "b", ImmutableList.of());
+    Schema mapSchema = getSchema(new TypeToken<Map<String, List<Integer>>>() { });
+    Assert.assertEquals(map, read(map, mapSchema, new TypeToken<Map<String, List<Integer>>>() { }));
+    // Promote the values from int to long
+    Assert.assertEquals(ImmutableMap.of("a", ImmutableList.of(1L, 2L), "b", ImmutableList.of()),
+                        read(map, mapSchema, new TypeToken<Map<String, List<Long>>>() { }));
+  }
+
+  @Test
+  public void testReduceProjection() throws Exception {
+    DatumCodecTest.MoreFields moreFields = new DatumCodecTest.MoreFields(10, 20.2, "30", ImmutableList.of("1", "2"));
+    Schema sourceSchema = getSchema(TypeToken.of(DatumCodecTest.MoreFields.class));
+    DatumCodecTest.LessFields lessFields = read(moreFields, sourceSchema,
+                                                TypeToken.of(DatumCodecTest.LessFields.class));
+
+    Assert.assertEquals("30", lessFields.k);
+    Assert.assertEquals(moreFields.inner.b, lessFields.inner.b);
+  }
+
+  @Test
+  public void testRecursive() throws Exception {
+    ASMDatumCodecTest.Node root = new ASMDatumCodecTest.Node(
+      (short) 1, new ASMDatumCodecTest.Node((short) 2, null, new ASMDatumCodecTest.Node((short) 3, null, null)),
+      new ASMDatumCodecTest.Node((short) 4, new ASMDatumCodecTest.Node((short) 5, null, null), null));
+
+    TypeToken<ASMDatumCodecTest.Node> type = TypeToken.of(ASMDatumCodecTest.Node.class);
+    Assert.assertEquals(root, read(root, getSchema(type), type));
+  }
+
+  @Test
+  public void testEnum() throws Exception {
+    Schema sourceSchema = Schema.enumWith("VALUE1", "VALUE3", "VALUE2", "UNKNOWN");
+    TypeToken<DatumCodecTest.TestEnum> type = TypeToken.of(DatumCodecTest.TestEnum.class);
+    DatumReader<DatumCodecTest.TestEnum> reader = READER_FACTORY.create(type, getSchema(type));
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(os);
+    encoder.writeInt(1).writeInt(2).writeInt(0).writeInt(3);
+
+    BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(os.toByteArray()));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE3, reader.read(decoder, sourceSchema));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE2, reader.read(decoder, sourceSchema));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE1, reader.read(decoder, sourceSchema));
+    try {
+      reader.read(decoder, sourceSchema);
+      Assert.fail("Expected IOException for enum value missing in target");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUnion() throws Exception {
+    Schema sourceSchema = Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING),
+                                         Schema.of(Schema.Type.NULL));
+    TypeToken<String> type = TypeToken.of(String.class);
+    DatumReader<String> reader = READER_FACTORY.create(type, Schema.nullableOf(Schema.of(Schema.Type.STRING)));
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(os);
+    encoder.writeInt(0).writeInt(5);
+    encoder.writeInt(1).writeString("five");
+    encoder.writeInt(2).writeNull();
+
+    BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(os.toByteArray()));
+    Assert.assertEquals("5", reader.read(decoder, sourceSchema));
+    Assert.assertEquals("five", reader.read(decoder, sourceSchema));
+    Assert.assertNull(reader.read(decoder, sourceSchema));
+
+    // Non-union source schema to union target schema
+    os.reset();
+    encoder.writeLong(10L);
+    decoder = new BinaryDecoder(new ByteArrayInputStream(os.toByteArray()));
+    Assert.assertEquals("10", reader.read(decoder, Schema.of(Schema.Type.LONG)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnresolvable() throws Exception {
+    read("test", getSchema(TypeToken.of(String.class)), TypeToken.of(Integer.class));
+  }
+
+  private <T> Schema getSchema(TypeToken<T> type) throws UnsupportedTypeException {
+    return new ReflectionSchemaGenerator().generate(type.getType());
+  }
+
+  /**
+   * Encodes the given value with the source schema and decode it as the given type with both
+   * the compiled reader and the {@link ReflectionDatumReader}.
+   */
+  private <T> T read(Object value, Schema sourceSchema, TypeToken<T> type) throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(os);
+    new ReflectionDatumWriter<>(sourceSchema).encode(value, encoder);
+    new ReflectionDatumWriter<>(sourceSchema).encode(value, encoder);
+
+    Schema targetSchema = getSchema(type);
+    ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+    BinaryDecoder decoder = new BinaryDecoder(is);
+    T result = READER_FACTORY.create(type, targetSchema).read(decoder, sourceSchema);
+    T expected = new ReflectionDatumReader<>(targetSchema, type).read(decoder, sourceSchema);
+
+    // Both readers should consume exactly the bytes of one value
+    Assert.assertEquals(0, is.available());
+    if (type.getRawType().isArray() || type.getRawType().getMethod("equals", Object.class).getDeclaringClass()
+      != Object.class) {
+      Assert.assertTrue(Objects.deepEquals(expected, result));
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T getField(Object obj, String name) throws Exception {
+    java.lang.reflect.Field field = obj.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    return (T) field.get(obj);
+  }
+}
@@ -36,8 +36,10 @@ import io.cdap.cdap.api.dataset.lib.KeyValueTable;
 import io.cdap.cdap.api.dataset.lib.ObjectStore;
 import io.cdap.cdap.common.io.BinaryDecoder;
 import io.cdap.cdap.common.io.BinaryEncoder;
-import io.cdap.cdap.internal.io.ReflectionDatumReader;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.internal.io.CompiledDatumReaderFactory;
 import io.cdap.cdap.internal.io.ReflectionDatumWriter;
+import io.cdap.cdap.internal.io.ReflectionFieldAccessorFactory;
 import io.cdap.cdap.internal.io.TypeRepresentation;
 
 import java.io.ByteArrayInputStream;
@@ -61,8 +63,10 @@ public class ObjectStoreDataset<T> extends AbstractDataset implements ObjectStor
   private final ReflectionDatumWriter<T> datumWriter;
   // we get this lazily, since we may not have the actual Type when simply instantiating this class (for instance, when
   // datasets are instantiated in DatasetSystemMetadataWriter for checking RecordScannable/BatchWritable/etc.),
-  // but we do expect to have it when using it in a program context
-  private ReflectionDatumReader<T> datumReader;
+  // but we do expect to have it when using it in a program context.
+  // The reader resolves the schema once and is created per instance, so that no type from the program
+  // class loader is cached beyond the lifetime of the dataset instance.
+  private DatumReader<T> datumReader;
 
   public ObjectStoreDataset(String name, KeyValueTable kvTable, TypeRepresentation typeRep,
                             Schema schema, @Nullable ClassLoader classLoader) {
@@ -150,9 +154,10 @@ public class ObjectStoreDataset<T> extends AbstractDataset implements ObjectStor
   }
 
   @SuppressWarnings("unchecked")
-  private ReflectionDatumReader<T> getReflectionDatumReader() {
+  private DatumReader<T> getDatumReader() {
     if (datumReader == null) {
-      datumReader = new ReflectionDatumReader<>(schema, (TypeToken<T>) TypeToken.of(this.typeRep.toType()));
+      datumReader = new CompiledDatumReaderFactory(new ReflectionFieldAccessorFactory())
+        .create((TypeToken<T>) TypeToken.of(this.typeRep.toType()), schema);
     }
     return datumReader;
   }
@@ -165,7 +170,7 @@ public class ObjectStoreDataset<T> extends AbstractDataset implements ObjectStor
     ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
     BinaryDecoder decoder = new BinaryDecoder(bis);
     try {
-      return getReflectionDatumReader().read(decoder, this.schema);
+      return getDatumReader().read(decoder, this.schema);
     } catch (IOException e) {
       // SHOULD NEVER happen
       throw new DataSetException("Failed to decode read object: " + e.getMessage(), e);
@@ -81,7 +81,7 @@ public class DefaultLineageStoreReader implements LineageStoreReader {
   }
 
   private <T> T execute(TransactionExecutor.Function<LineageTable, T> func) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       LineageTable lineageTable = LineageTable.create(context);
       return func.apply(lineageTable);
     });
@@ -44,7 +44,7 @@ public class DefaultFieldLineageReader implements FieldLineageReader {
 
   @Override
   public Set<String> getFields(EndPoint endPoint, long start, long end) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
       return fieldLineageTable.getFields(endPoint, start, end);
     });
@@ -52,7 +52,7 @@ public class DefaultFieldLineageReader implements FieldLineageReader {
 
   @Override
   public Set<EndPointField> getIncomingSummary(EndPointField endPointField, long start, long end) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
       return fieldLineageTable.getIncomingSummary(endPointField, start, end);
     });
@@ -60,7 +60,7 @@ public class DefaultFieldLineageReader implements FieldLineageReader {
 
   @Override
   public Set<EndPointField> getOutgoingSummary(EndPointField endPointField, long start, long end) {
-    return TransactionRunners.run(transactionRunner, context -> {
+    return TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
       FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
       return fieldLineageTable.getOutgoingSummary(endPointField, start, end);
     });
@@ -78,12 +78,13 @@ public class DefaultFieldLineageReader implements FieldLineageReader {
 
   private List<ProgramRunOperations> computeFieldOperations(boolean incoming, EndPointField endPointField,
                                                             long start, long end) {
-    Set<ProgramRunOperations> endPointOperations = TransactionRunners.run(transactionRunner, context -> {
-      FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
+    Set<ProgramRunOperations> endPointOperations =
+      TransactionRunners.runReadOnlySnapshot(transactionRunner, context -> {
+        FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
 
-      return incoming ? fieldLineageTable.getIncomingOperations(endPointField.getEndPoint(), start, end)
-        : fieldLineageTable.getOutgoingOperations(endPointField.getEndPoint(), start, end);
-    });
+        return incoming ? fieldLineageTable.getIncomingOperations(endPointField.getEndPoint(), start, end)
+          : fieldLineageTable.getOutgoingOperations(endPointField.getEndPoint(), start, end);
+      });
 
     List<ProgramRunOperations> endPointFieldOperations = new ArrayList<>();
     for (ProgramRunOperations programRunOperation : endPointOperations) {
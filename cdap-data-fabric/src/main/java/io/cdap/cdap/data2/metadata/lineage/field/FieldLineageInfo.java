@@ -32,10 +32,13 @@ import io.cdap.cdap.proto.codec.OperationTypeAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -329,104 +332,123 @@ public class FieldLineageInfo {
       computeAndValidateFieldLineageInfo(this.operations);
     }
 
-    Map<String, Set<EndPointField>> operationEndPointMap = new HashMap<>();
-    Map<EndPointField, Set<EndPointField>> summary = new HashMap<>();
+    // Source fields are interned to indices, so that the sources of each operation can be kept in a BitSet
+    Map<EndPointField, Integer> sourceFieldIndices = new HashMap<>();
+    List<EndPointField> sourceFields = new ArrayList<>();
+    Map<String, BitSet> transformSources = computeTransformSources(sourceFieldIndices, sourceFields);
+
+    Map<EndPointField, BitSet> summarySources = new HashMap<>();
     for (WriteOperation write : writeOperations) {
-      List<InputField> inputs = write.getInputs();
-      for (InputField input : inputs) {
+      for (InputField input : write.getInputs()) {
         EndPointField dest = new EndPointField(write.getDestination(), input.getName());
-        Set<EndPointField> fields = summary.computeIfAbsent(dest, k -> new HashSet<>());
-        if (operationEndPointMap.containsKey(input.getOrigin())) {
-          fields.addAll(operationEndPointMap.get(input.getOrigin()));
-        } else {
-          // handle a special case for read -> write
-          // in this case, the write operation has to be one to one relation with the fields in the read operation,
-          // since a write operation can only take a list of input fields that come from the previous stage
-          Operation origin = operationsMap.get(input.getOrigin());
-          if (origin.getType() == OperationType.READ) {
-            fields.add(new EndPointField(((ReadOperation) origin).getSource(), input.getName()));
-            continue;
-          }
-          fields.addAll(computeIncomingSummaryHelper(origin, write, operationEndPointMap));
-        }
+        addSources(summarySources.computeIfAbsent(dest, k -> new BitSet()), input, transformSources,
+                   sourceFieldIndices, sourceFields);
       }
     }
 
     for (TransformOperation transform : dropTransforms) {
       for (InputField input : transform.getInputs()) {
-        Operation previous = operationsMap.get(input.getOrigin());
         // drop transforms uses a common NULL endpoint as key
-        Set<EndPointField> endPointFields = summary.computeIfAbsent(NULL_EPF, k -> new HashSet<>());
-        if (operationEndPointMap.containsKey(input.getOrigin())) {
-          endPointFields.addAll(new HashSet<>(operationEndPointMap.get(input.getOrigin())));
-          continue;
-        }
-        endPointFields.addAll(computeIncomingSummaryHelper(previous, transform, operationEndPointMap));
+        addSources(summarySources.computeIfAbsent(NULL_EPF, k -> new BitSet()), input, transformSources,
+                   sourceFieldIndices, sourceFields);
+      }
+    }
+
+    Map<EndPointField, Set<EndPointField>> summary = new HashMap<>();
+    for (Map.Entry<EndPointField, BitSet> entry : summarySources.entrySet()) {
+      BitSet sources = entry.getValue();
+      Set<EndPointField> fields = new HashSet<>(Math.max(16, (int) (sources.cardinality() / .75f) + 1));
+      for (int i = sources.nextSetBit(0); i >= 0; i = sources.nextSetBit(i + 1)) {
+        fields.add(sourceFields.get(i));
       }
+      summary.put(entry.getKey(), fields);
     }
     return summary;
   }
 
   /**
-   * Helper method to compute the incoming summary
+   * Computes the source fields of each transform operation that the write operations and the drop transforms
+   * depend on. Transforms are computed in topological order, so that the sources of a transform are simply the union
+   * of the sources of its inputs. The traversal is iterative to support lineage of any depth.
    *
-   * @param currentOperation the operation being processed. Since we are processing incoming this operation is on the
-   * left side if graph is imagined in horizontal orientation or this operation is the input to the to
-   * previousOperation
-   * @param previousOperation the previous operation which is processed and reside on right to the current operation if
-   * the graph is imagined to be in horizontal orientation.
-   * @param operationEndPointMap a map that contains the operation name to the final endpoint field it will generate,
-   * this is used to track the path we already computed to ensure we do not do the same computation again
+   * @param sourceFieldIndices the map from source field to its index in the returned BitSets
+   * @param sourceFields the list of source fields, indexed by the index in the returned BitSets
+   * @return a map from transform name to the BitSet of source fields of the transform
+   * @throws IllegalArgumentException if there is a cycle in the operations
    */
-  private Set<EndPointField> computeIncomingSummaryHelper(Operation currentOperation,
-                                                          Operation previousOperation,
-                                                          Map<String, Set<EndPointField>> operationEndPointMap) {
-    if (currentOperation.getType() == OperationType.READ) {
-      // if current operation is of type READ, previous operation must be of type TRANSFORM or WRITE
-      // get only the input fields from the previous operations for which the origin is current READ operation
-      Set<InputField> inputFields = new HashSet<>();
-      if (OperationType.WRITE == previousOperation.getType()) {
-        WriteOperation previousWrite = (WriteOperation) previousOperation;
-        inputFields = new HashSet<>(previousWrite.getInputs());
-      } else if (OperationType.TRANSFORM == previousOperation.getType()) {
-        TransformOperation previousTransform = (TransformOperation) previousOperation;
-        inputFields = new HashSet<>(previousTransform.getInputs());
+  private Map<String, BitSet> computeTransformSources(Map<EndPointField, Integer> sourceFieldIndices,
+                                                      List<EndPointField> sourceFields) {
+    Map<String, BitSet> transformSources = new HashMap<>();
+    Set<String> visited = new HashSet<>();
+    Deque<String> stack = new ArrayDeque<>();
+
+    List<InputField> inputs = new ArrayList<>();
+    for (WriteOperation write : writeOperations) {
+      inputs.addAll(write.getInputs());
+    }
+    for (TransformOperation transform : dropTransforms) {
+      inputs.addAll(transform.getInputs());
+    }
+    for (InputField input : inputs) {
+      Operation origin = operationsMap.get(input.getOrigin());
+      if (origin.getType() != OperationType.TRANSFORM || transformSources.containsKey(origin.getName())) {
+        continue;
       }
 
-      Set<EndPointField> sourceEndPointFields = new HashSet<>();
+      // Post order traversal. A transform is computed once all the transforms it reads from are computed.
+      stack.push(origin.getName());
+      while (!stack.isEmpty()) {
+        String name = stack.peek();
+        if (transformSources.containsKey(name)) {
+          stack.pop();
+          continue;
+        }
+        TransformOperation transform = (TransformOperation) operationsMap.get(name);
+        if (visited.add(name)) {
+          for (InputField transformInput : transform.getInputs()) {
+            Operation transformOrigin = operationsMap.get(transformInput.getOrigin());
+            if (transformOrigin.getType() != OperationType.TRANSFORM
+              || transformSources.containsKey(transformOrigin.getName())) {
+              continue;
+            }
+            // all visited transforms that are not computed yet are on the current path
+            if (visited.contains(transformOrigin.getName())) {
+              throw new IllegalArgumentException(String.format("Cycle detected in graph for operations at '%s'.",
+                                                               transformOrigin.getName()));
+            }
+            stack.push(transformOrigin.getName());
+          }
+          continue;
+        }
 
-      // for all the input fields of the previous operation if the origin was current operation (remember we are
-      // traversing backward)
-      ReadOperation read = (ReadOperation) currentOperation;
-      EndPoint source = read.getSource();
-      for (InputField inputField : inputFields) {
-        if (inputField.getOrigin().equals(currentOperation.getName())) {
-          sourceEndPointFields.add(new EndPointField(source, inputField.getName()));
+        BitSet sources = new BitSet();
+        for (InputField transformInput : transform.getInputs()) {
+          addSources(sources, transformInput, transformSources, sourceFieldIndices, sourceFields);
         }
+        transformSources.put(name, sources);
+        stack.pop();
       }
-      // reached the end of graph unwind the recursive calls
-      return sourceEndPointFields;
     }
+    return transformSources;
+  }
 
-    Set<EndPointField> relatedSources = new HashSet<>();
-    // for transform we traverse backward in graph further through the inputs of the transform
-    if (currentOperation.getType() == OperationType.TRANSFORM) {
-      TransformOperation transform = (TransformOperation) currentOperation;
-      // optimization to avoid repeating work if there are input fields with the same origin
-      Set<String> transformOrigins = transform.getInputs().stream()
-        .map(InputField::getOrigin)
-        .collect(Collectors.toSet());
-      for (String transformOrigin : transformOrigins) {
-        if (operationEndPointMap.containsKey(transformOrigin)) {
-          relatedSources.addAll(operationEndPointMap.get(transformOrigin));
-        } else {
-          relatedSources.addAll(
-            computeIncomingSummaryHelper(operationsMap.get(transformOrigin), currentOperation, operationEndPointMap));
-        }
-      }
-      operationEndPointMap.put(currentOperation.getName(), relatedSources);
+  /**
+   * Adds the source fields of the given input field to the given BitSet. If the input field is from a read
+   * operation, the input field itself is the source. If it is from a transform operation, the source fields
+   * of the transform are the sources.
+   */
+  private void addSources(BitSet sources, InputField input, Map<String, BitSet> transformSources,
+                          Map<EndPointField, Integer> sourceFieldIndices, List<EndPointField> sourceFields) {
+    Operation origin = operationsMap.get(input.getOrigin());
+    if (origin.getType() == OperationType.READ) {
+      EndPointField field = new EndPointField(((ReadOperation) origin).getSource(), input.getName());
+      sources.set(sourceFieldIndices.computeIfAbsent(field, k -> {
+        sourceFields.add(k);
+        return sourceFields.size() - 1;
+      }));
+    } else if (origin.getType() == OperationType.TRANSFORM) {
+      sources.or(transformSources.get(origin.getName()));
     }
-    return relatedSources;
   }
 
   private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary() {
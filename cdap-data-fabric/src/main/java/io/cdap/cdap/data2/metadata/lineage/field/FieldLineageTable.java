@@ -134,12 +134,16 @@ public class FieldLineageTable {
       writeOperation(checksum, info.getOperations());
 
       Map<EndPoint, Set<String>> destinationFields = info.getDestinationFields();
+      List<List<Field<?>>> destinationRows = new ArrayList<>();
       for (Map.Entry<EndPoint, Set<String>> entry : destinationFields.entrySet()) {
-        addDestinationEntry(checksum, entry.getKey(), GSON.toJson(entry.getValue()));
+        destinationRows.add(createDestinationEntry(checksum, entry.getKey(), GSON.toJson(entry.getValue())));
       }
+      getDestinationFieldsTable().multiUpsert(destinationRows);
 
-      addSummary(checksum, INCOMING_DIRECTION_MARKER, info.getIncomingSummary());
-      addSummary(checksum, OUTGOING_DIRECTION_MARKER, info.getOutgoingSummary());
+      List<List<Field<?>>> summaryRows = new ArrayList<>();
+      addSummary(summaryRows, checksum, INCOMING_DIRECTION_MARKER, info.getIncomingSummary());
+      addSummary(summaryRows, checksum, OUTGOING_DIRECTION_MARKER, info.getOutgoingSummary());
+      getSummaryFieldsTable().multiUpsert(summaryRows);
     }
 
     addFieldLineageInfoReferenceRecords(programRunId, info);
@@ -170,10 +174,10 @@ public class FieldLineageTable {
     getOperationsTable().upsert(fields);
   }
 
-  private void addSummary(long checksum, String direction, Map<EndPointField, Set<EndPointField>> summary)
-    throws IOException {
+  private void addSummary(List<List<Field<?>>> rows, long checksum, String direction,
+                          Map<EndPointField, Set<EndPointField>> summary) {
     for (Map.Entry<EndPointField, Set<EndPointField>> entry : summary.entrySet()) {
-      addSummaryEntry(checksum, direction, entry.getKey(), GSON.toJson(entry.getValue()));
+      rows.add(createSummaryEntry(checksum, direction, entry.getKey(), GSON.toJson(entry.getValue())));
     }
   }
 
@@ -188,36 +192,39 @@ public class FieldLineageTable {
    */
   private void addFieldLineageInfoReferenceRecords(ProgramRunId programRunId, FieldLineageInfo info)
     throws IOException {
+    List<List<Field<?>>> rows = new ArrayList<>();
     // For all the destinations, operations represents incoming lineage
     for (EndPoint destination : info.getDestinations()) {
-      addOperationReferenceRecord(INCOMING_DIRECTION_MARKER, destination, programRunId, info.getChecksum());
+      rows.add(createOperationReferenceRecord(INCOMING_DIRECTION_MARKER, destination, programRunId,
+                                              info.getChecksum()));
     }
 
     // For all the sources, operations represents the outgoing lineage
     for (EndPoint source : info.getSources()) {
-      addOperationReferenceRecord(OUTGOING_DIRECTION_MARKER, source, programRunId, info.getChecksum());
+      rows.add(createOperationReferenceRecord(OUTGOING_DIRECTION_MARKER, source, programRunId, info.getChecksum()));
     }
+    getEndpointChecksumTable().multiUpsert(rows);
   }
 
-  private void addOperationReferenceRecord(String direction, EndPoint endPoint, ProgramRunId programRunId,
-                                           long checksum) throws IOException {
+  private List<Field<?>> createOperationReferenceRecord(String direction, EndPoint endPoint,
+                                                        ProgramRunId programRunId, long checksum) {
     List<Field<?>> fields = getOperationReferenceRowKey(direction, endPoint, programRunId);
     fields.add(Fields.longField(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD, checksum));
     fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.PROGRAM_RUN_FIELD, GSON.toJson(programRunId)));
-    getEndpointChecksumTable().upsert(fields);
+    return fields;
   }
 
-  private void addSummaryEntry(long checksum, String direction, EndPointField endPointField, String data)
-    throws IOException {
+  private List<Field<?>> createSummaryEntry(long checksum, String direction, EndPointField endPointField,
+                                            String data) {
     List<Field<?>> fields = getSummaryKey(checksum, direction, endPointField);
     fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DESTINATION_DATA_FIELD, data));
-    getSummaryFieldsTable().upsert(fields);
+    return fields;
   }
 
-  private void addDestinationEntry(long checksum, EndPoint endPoint, String data) throws IOException {
+  private List<Field<?>> createDestinationEntry(long checksum, EndPoint endPoint, String data) {
     List<Field<?>> fields = getDestinationKeys(checksum, endPoint);
     fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DESTINATION_DATA_FIELD, data));
-    getDestinationFieldsTable().upsert(fields);
+    return fields;
   }
 
   /**
@@ -60,16 +60,30 @@ public final class NoSqlStructuredTable implements StructuredTable {
   private final FieldValidator fieldValidator;
   // this key prefix will be used for any row in this table
   private final MDSKey keyPrefix;
+  private final boolean readOnly;
 
   public NoSqlStructuredTable(IndexedTable table, StructuredTableSchema schema) {
+    this(table, schema, false);
+  }
+
+  /**
+   * Creates a table.
+   *
+   * @param table the underlying table
+   * @param schema the schema of the table
+   * @param readOnly if {@code true}, all writes to the table will fail
+   */
+  public NoSqlStructuredTable(IndexedTable table, StructuredTableSchema schema, boolean readOnly) {
     this.table = table;
     this.schema = schema;
     this.keyPrefix = new MDSKey.Builder().add(schema.getTableId().getName()).build();
     this.fieldValidator = new FieldValidator(schema);
+    this.readOnly = readOnly;
   }
 
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException {
+    checkWritable();
     LOG.trace("Table {}: Write fields {}", schema.getTableId(), fields);
     table.put(convertFieldsToBytes(fields));
   }
@@ -166,6 +180,7 @@ public final class NoSqlStructuredTable implements StructuredTable {
 
   @Override
   public boolean compareAndSwap(Collection<Field<?>> keys, Field<?> oldValue, Field<?> newValue) {
+    checkWritable();
     LOG.trace("Table {}: CompareAndSwap with keys {}, oldValue {}, newValue {}", schema.getTableId(), keys,
               oldValue, newValue);
     fieldValidator.validateField(oldValue);
@@ -190,6 +205,7 @@ public final class NoSqlStructuredTable implements StructuredTable {
 
   @Override
   public void increment(Collection<Field<?>> keys, String column, long amount) {
+    checkWritable();
     LOG.trace("Table {}: Increment with keys {}, column {}, amount {}", schema.getTableId(), keys, column, amount);
     FieldType.Type colType = schema.getType(column);
     if (colType == null) {
@@ -208,12 +224,14 @@ public final class NoSqlStructuredTable implements StructuredTable {
 
   @Override
   public void delete(Collection<Field<?>> keys) throws InvalidFieldException {
+    checkWritable();
     LOG.trace("Table {}: Delete with keys {}", schema.getTableId(), keys);
     table.delete(convertKeyToBytes(keys, false));
   }
 
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
+    checkWritable();
     LOG.trace("Table {}: DeleteAll with range {}", schema.getTableId(), keyRange);
     try (Scanner scanner = getScanner(keyRange)) {
       Row row;
@@ -235,6 +253,13 @@ public final class NoSqlStructuredTable implements StructuredTable {
     }
   }
 
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException(
+        String.format("Table %s cannot be written in a read only transaction", schema.getTableId()));
+    }
+  }
+
   @Override
   public void close() throws IOException {
     table.close();
@@ -41,13 +41,15 @@ public class NoSqlStructuredTableContext implements StructuredTableContext {
   private final DatasetContext datasetContext;
   private final MetricsCollector metricsCollector;
   private final boolean emitTimeMetrics;
+  private final boolean readOnly;
 
   NoSqlStructuredTableContext(NoSqlStructuredTableAdmin tableAdmin, DatasetContext datasetContext,
-                              MetricsCollector metricsCollector, boolean emitTimeMetrics) {
+                              MetricsCollector metricsCollector, boolean emitTimeMetrics, boolean readOnly) {
     this.tableAdmin = tableAdmin;
     this.datasetContext = datasetContext;
     this.metricsCollector = metricsCollector;
     this.emitTimeMetrics = emitTimeMetrics;
+    this.readOnly = readOnly;
   }
 
   @Override
@@ -70,7 +72,7 @@ public class NoSqlStructuredTableContext implements StructuredTableContext {
       }
       StructuredTable table =
         new NoSqlStructuredTable(datasetContext.getDataset(NoSqlStructuredTableAdmin.ENTITY_TABLE_NAME, arguments),
-                                 new StructuredTableSchema(specification));
+                                 new StructuredTableSchema(specification), readOnly);
       return new MetricStructuredTable(tableId, table, metricsCollector, emitTimeMetrics);
     } catch (DatasetInstantiationException e) {
       throw new StructuredTableInstantiationException(
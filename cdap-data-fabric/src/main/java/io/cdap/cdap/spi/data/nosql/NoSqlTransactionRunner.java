@@ -42,6 +42,7 @@ import java.util.Map;
 public class NoSqlTransactionRunner implements TransactionRunner {
   private final NoSqlStructuredTableAdmin tableAdmin;
   private final Transactional transactional;
+  private final Transactional readOnlyTransactional;
   private final MetricsCollectionService metricsCollectionService;
   private final boolean emitTimeMetrics;
 
@@ -49,25 +50,44 @@ public class NoSqlTransactionRunner implements TransactionRunner {
   public NoSqlTransactionRunner(NoSqlStructuredTableAdmin tableAdmin, TransactionSystemClient txClient,
                                 MetricsCollectionService metricsCollectionService, CConfiguration cConf) {
     this.tableAdmin = tableAdmin;
-    this.transactional = Transactions.createTransactionalWithRetry(
-      NoSQLTransactionals.createTransactional(txClient, new TableDatasetSupplier() {
-        @Override
-        public <T extends Dataset> T getTableDataset(String name, Map<String, String> arguments) throws IOException {
-          return tableAdmin.getEntityTable(arguments);
-        }
-      }),
-      RetryStrategies.retryOnConflict(20, 100));
+    // Read only transactions don't need retry on conflict, as there is nothing to conflict with
+    this.readOnlyTransactional = NoSQLTransactionals.createTransactional(txClient, new TableDatasetSupplier() {
+      @Override
+      public <T extends Dataset> T getTableDataset(String name, Map<String, String> arguments) throws IOException {
+        return tableAdmin.getEntityTable(arguments);
+      }
+    });
+    this.transactional = Transactions.createTransactionalWithRetry(readOnlyTransactional,
+                                                                   RetryStrategies.retryOnConflict(20, 100));
     this.metricsCollectionService = metricsCollectionService;
     this.emitTimeMetrics = cConf.getBoolean(Constants.Metrics.STRUCTURED_TABLE_TIME_METRICS_ENABLED);
   }
 
   @Override
   public void run(TxRunnable runnable) throws TransactionException {
+    run(transactional, runnable, false);
+  }
+
+  /**
+   * Executes the read only {@link TxRunnable}. Transactions always read from a consistent snapshot,
+   * hence this is the same as {@link #runReadOnlySnapshot(TxRunnable)}.
+   */
+  @Override
+  public void runReadOnly(TxRunnable runnable) throws TransactionException {
+    run(readOnlyTransactional, runnable, true);
+  }
+
+  @Override
+  public void runReadOnlySnapshot(TxRunnable runnable) throws TransactionException {
+    run(readOnlyTransactional, runnable, true);
+  }
+
+  private void run(Transactional transactional, TxRunnable runnable, boolean readOnly) throws TransactionException {
     try {
       MetricsContext metricsCollector = metricsCollectionService.getContext(Constants.Metrics.STORAGE_METRICS_TAGS);
       transactional.execute(
-        datasetContext -> runnable.run(new NoSqlStructuredTableContext(tableAdmin, datasetContext,
-                                                                       metricsCollector, emitTimeMetrics))
+        datasetContext -> runnable.run(new NoSqlStructuredTableContext(tableAdmin, datasetContext, metricsCollector,
+                                                                       emitTimeMetrics, readOnly))
       );
     } catch (TransactionFailureException e) {
       throw new TransactionException("Failure executing NoSql transaction:", e.getCause() == null ? e : e.getCause());
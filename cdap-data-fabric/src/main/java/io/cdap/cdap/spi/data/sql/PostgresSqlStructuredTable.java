@@ -51,6 +51,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.annotation.Nullable;
@@ -75,15 +76,25 @@ public class PostgresSqlStructuredTable implements StructuredTable {
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Write fields {}", tableSchema.getTableId(), fields);
-    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
-    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
-      throw new InvalidFieldException(tableSchema.getTableId(), fields,
-                                      String.format("Given fields %s do not contain all the " +
-                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
-    }
+    validateHasPrimaryKeys(fields);
     upsertInternal(fields);
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple rows {}", tableSchema.getTableId(), multiFields);
+    for (Collection<Field<?>> fields : multiFields) {
+      validateHasPrimaryKeys(fields);
+    }
+    try {
+      executeBatch(multiFields, fields -> getWriteSqlQuery(fields, null));
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to write to table %s with multiple rows %s",
+                                          tableSchema.getTableId().getName(), multiFields), e);
+    }
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     return readRow(keys, null);
@@ -441,6 +452,21 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+    try {
+      executeBatch(multiKeys, this::getDeleteQuery);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to delete the rows from table %s with multiple keys %s",
+                                          tableSchema.getTableId().getName(), multiKeys), e);
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
@@ -489,6 +515,52 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  private void validateHasPrimaryKeys(Collection<Field<?>> fields) throws InvalidFieldException {
+    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+      throw new InvalidFieldException(tableSchema.getTableId(), fields,
+                                      String.format("Given fields %s do not contain all the " +
+                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+    }
+  }
+
+  /**
+   * Executes a statement for each of the given rows using JDBC batching, so that rows are sent to the database
+   * in one round trip instead of one per row. Consecutive rows that map to the same SQL are put in the same batch,
+   * which preserves the order the rows are applied in.
+   *
+   * @param rows the fields of each row, which are set as the statement parameters in iteration order
+   * @param queryFunc a function to generate the SQL for a row
+   */
+  private void executeBatch(Collection<? extends Collection<Field<?>>> rows,
+                            Function<Collection<Field<?>>, String> queryFunc) throws SQLException {
+    PreparedStatement statement = null;
+    String statementQuery = null;
+    try {
+      for (Collection<Field<?>> fields : rows) {
+        String query = queryFunc.apply(fields);
+        if (!query.equals(statementQuery)) {
+          if (statement != null) {
+            statement.executeBatch();
+            statement.close();
+          }
+          statement = connection.prepareStatement(query);
+          statementQuery = query;
+        }
+        setFields(statement, fields, 1);
+        statement.addBatch();
+      }
+      if (statement != null) {
+        LOG.trace("SQL statement: {}", statement);
+        statement.executeBatch();
+      }
+    } finally {
+      if (statement != null) {
+        statement.close();
+      }
+    }
+  }
+
   private void upsertInternal(Collection<Field<?>> fields) throws IOException {
     String sqlQuery = getWriteSqlQuery(fields, null);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
@@ -57,11 +57,25 @@ public class RetryingSqlTransactionRunner implements TransactionRunner {
 
   @Override
   public void run(TxRunnable runnable) throws TransactionException {
+    runWithRetries(transactionRunner::run, runnable);
+  }
+
+  @Override
+  public void runReadOnly(TxRunnable runnable) throws TransactionException {
+    runWithRetries(transactionRunner::runReadOnly, runnable);
+  }
+
+  @Override
+  public void runReadOnlySnapshot(TxRunnable runnable) throws TransactionException {
+    runWithRetries(transactionRunner::runReadOnlySnapshot, runnable);
+  }
+
+  private void runWithRetries(TransactionRunner runner, TxRunnable runnable) throws TransactionException {
     int retries = 0;
     MetricsContext metricsCollector = metricsCollectionService.getContext(Constants.Metrics.STORAGE_METRICS_TAGS);
     while (true) {
       try {
-        transactionRunner.run(runnable);
+        runner.run(runnable);
         break;
       } catch (SqlTransactionException e) {
         String sqlState = e.getSqlException().getSQLState();
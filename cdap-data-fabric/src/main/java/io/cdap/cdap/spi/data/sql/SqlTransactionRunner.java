@@ -34,6 +34,8 @@ import javax.sql.DataSource;
 
 /**
  * Sql transaction runner will set the transaction isolation level and start a transaction.
+ * Read write transactions are executed with repeatable read isolation. Read only transactions are executed
+ * with read committed isolation, unless a consistent snapshot is requested.
  */
 public class SqlTransactionRunner implements TransactionRunner {
   private static final Logger LOG = LoggerFactory.getLogger(SqlTransactionRunner.class);
@@ -58,7 +60,21 @@ public class SqlTransactionRunner implements TransactionRunner {
 
   @Override
   public void run(TxRunnable runnable) throws TransactionException {
+    run(runnable, Connection.TRANSACTION_REPEATABLE_READ, false);
+  }
+
+  @Override
+  public void runReadOnly(TxRunnable runnable) throws TransactionException {
+    run(runnable, Connection.TRANSACTION_READ_COMMITTED, true);
+  }
 
+  @Override
+  public void runReadOnlySnapshot(TxRunnable runnable) throws TransactionException {
+    // A read only transaction with repeatable read reads from one snapshot, and never has serialization failure
+    run(runnable, Connection.TRANSACTION_REPEATABLE_READ, true);
+  }
+
+  private void run(TxRunnable runnable, int isolationLevel, boolean readOnly) throws TransactionException {
     Connection connection;
     try {
       connection = dataSource.getConnection();
@@ -69,7 +85,8 @@ public class SqlTransactionRunner implements TransactionRunner {
     try {
       MetricsContext metricsCollector = metricsCollectionService.getContext(Constants.Metrics.STORAGE_METRICS_TAGS);
       metricsCollector.increment(Constants.Metrics.StructuredTable.TRANSACTION_COUNT, 1L);
-      connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      connection.setTransactionIsolation(isolationLevel);
+      connection.setReadOnly(readOnly);
       connection.setAutoCommit(false);
       runnable.run(new SqlStructuredTableContext(admin, connection, metricsCollector, emitTimeMetrics));
       connection.commit();
@@ -80,6 +97,14 @@ public class SqlTransactionRunner implements TransactionRunner {
       }
       rollback(connection, new TransactionException("Failed to execute the sql queries.", e));
     } finally {
+      if (readOnly) {
+        // Reset it before the connection is returned to the pool, as the pool doesn't reset it
+        try {
+          connection.setReadOnly(false);
+        } catch (SQLException e) {
+          LOG.warn("Failed to reset the sql connection to read write after a read only transaction", e);
+        }
+      }
       try {
         connection.close();
       } catch (SQLException e) {
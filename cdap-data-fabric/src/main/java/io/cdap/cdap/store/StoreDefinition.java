@@ -855,6 +855,7 @@ public final class StoreDefinition {
    */
   public static final class ProgramHeartbeatStore {
     public static final StructuredTableId PROGRAM_HEARTBEATS = new StructuredTableId("program_heartbeats");
+    public static final StructuredTableId PROGRAM_RUN_INDEX = new StructuredTableId("program_run_index");
 
     public static final String NAMESPACE_FIELD = "namespace";
     public static final String TIMESTAMP_SECONDS_FIELD = "timestamp";
@@ -863,6 +864,11 @@ public final class StoreDefinition {
     public static final String PROGRAM_FIELD = "program";
     public static final String RUN_FIELD = "run";
     public static final String RUN_RECORD = "run_record";
+    public static final String DURATION_CLASS_FIELD = "duration_class";
+    public static final String LAST_BUCKET_FIELD = "last_bucket";
+    public static final String START_BUCKET_FIELD = "start_bucket";
+    public static final String RUN_STATES_FIELD = "run_states";
+    public static final String INDEX_START_TIME_FIELD = "index_start_time";
 
     public static final StructuredTableSpecification PROGRAM_HEARTBEATS_SPEC =
       new StructuredTableSpecification.Builder()
@@ -878,11 +884,32 @@ public final class StoreDefinition {
           NAMESPACE_FIELD, TIMESTAMP_SECONDS_FIELD, APPLICATION_FIELD, PROGRAM_TYPE_FIELD, PROGRAM_FIELD, RUN_FIELD)
         .build();
 
+    // one row per program run with the states of the run, keyed by how long the run lasted and when it ended
+    public static final StructuredTableSpecification PROGRAM_RUN_INDEX_SPEC =
+      new StructuredTableSpecification.Builder()
+        .withId(PROGRAM_RUN_INDEX)
+        .withFields(Fields.stringType(NAMESPACE_FIELD),
+                    Fields.intType(DURATION_CLASS_FIELD),
+                    Fields.longType(LAST_BUCKET_FIELD),
+                    Fields.longType(START_BUCKET_FIELD),
+                    Fields.stringType(APPLICATION_FIELD),
+                    Fields.stringType(PROGRAM_TYPE_FIELD),
+                    Fields.stringType(PROGRAM_FIELD),
+                    Fields.stringType(RUN_FIELD),
+                    Fields.stringType(RUN_STATES_FIELD),
+                    Fields.longType(INDEX_START_TIME_FIELD))
+        .withPrimaryKeys(NAMESPACE_FIELD, DURATION_CLASS_FIELD, LAST_BUCKET_FIELD, START_BUCKET_FIELD,
+                         APPLICATION_FIELD, PROGRAM_TYPE_FIELD, PROGRAM_FIELD, RUN_FIELD)
+        .build();
+
     public static void createTables(StructuredTableAdmin tableAdmin
       , boolean overWrite) throws IOException, TableAlreadyExistsException {
       if (overWrite || tableAdmin.getSpecification(ProgramHeartbeatStore.PROGRAM_HEARTBEATS) == null) {
         tableAdmin.create(PROGRAM_HEARTBEATS_SPEC);
       }
+      if (overWrite || tableAdmin.getSpecification(ProgramHeartbeatStore.PROGRAM_RUN_INDEX) == null) {
+        tableAdmin.create(PROGRAM_RUN_INDEX_SPEC);
+      }
     }
   }
 
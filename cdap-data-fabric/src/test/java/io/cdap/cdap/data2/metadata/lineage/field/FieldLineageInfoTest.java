@@ -706,6 +706,58 @@ public class FieldLineageInfoTest {
     Assert.assertEquals(expectedOperations, outgoingOperations);
   }
 
+  @Test(timeout = 10000)
+  public void testDeepLineageSummary() {
+    // read -> t0 -> t1 -> ... -> t9999 -> write, with each transform also reading the 'b' field
+    EndPoint source = EndPoint.of("ns", "src");
+    EndPoint destination = EndPoint.of("ns", "dest");
+    List<Operation> operations = new ArrayList<>();
+    operations.add(new ReadOperation("read", "read", source, "a", "b", "c"));
+    String previous = "read";
+    for (int i = 0; i < 10000; i++) {
+      String name = "t" + i;
+      operations.add(new TransformOperation(name, "transform",
+                                            Arrays.asList(InputField.of(previous, "a"), InputField.of("read", "b")),
+                                            "a"));
+      previous = name;
+    }
+    operations.add(new WriteOperation("write", "write", destination,
+                                      Arrays.asList(InputField.of(previous, "a"), InputField.of("read", "c"))));
+
+    FieldLineageInfo info = new FieldLineageInfo(operations);
+
+    Map<EndPointField, Set<EndPointField>> expectedIncoming = new HashMap<>();
+    expectedIncoming.put(new EndPointField(destination, "a"),
+                         ImmutableSet.of(new EndPointField(source, "a"), new EndPointField(source, "b")));
+    expectedIncoming.put(new EndPointField(destination, "c"), ImmutableSet.of(new EndPointField(source, "c")));
+    Assert.assertEquals(expectedIncoming, info.getIncomingSummary());
+
+    Map<EndPointField, Set<EndPointField>> expectedOutgoing = new HashMap<>();
+    expectedOutgoing.put(new EndPointField(source, "a"), ImmutableSet.of(new EndPointField(destination, "a")));
+    expectedOutgoing.put(new EndPointField(source, "b"), ImmutableSet.of(new EndPointField(destination, "a")));
+    expectedOutgoing.put(new EndPointField(source, "c"), ImmutableSet.of(new EndPointField(destination, "c")));
+    Assert.assertEquals(expectedOutgoing, info.getOutgoingSummary());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCycleInSummary() {
+    EndPoint readEndPoint = EndPoint.of("ns", "file1");
+    EndPoint writeEndPoint = EndPoint.of("ns", "file2");
+
+    ReadOperation read = new ReadOperation("read", "read", readEndPoint, "offset", "body");
+    TransformOperation parse = new TransformOperation("parse", "parse",
+                                                      Arrays.asList(InputField.of("read", "body"),
+                                                                    InputField.of("normalize", "name")),
+                                                      "name", "address");
+    TransformOperation normalize = new TransformOperation("normalize", "normalize",
+                                                          Collections.singletonList(InputField.of("parse", "name")),
+                                                          "name");
+    WriteOperation write = new WriteOperation("write", "writing to another file", writeEndPoint,
+                                              Arrays.asList(InputField.of("normalize", "name"),
+                                                            InputField.of("parse", "address")));
+    new FieldLineageInfo(Arrays.asList(read, parse, normalize, write));
+  }
+
   @Test
   public void testNonCycle() {
     EndPoint readEndPoint = EndPoint.of("ns", "src");
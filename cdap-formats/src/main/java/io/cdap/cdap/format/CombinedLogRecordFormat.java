@@ -16,7 +16,6 @@
 
 package io.cdap.cdap.format;
 
-import com.google.common.collect.Lists;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.RecordFormat;
 import io.cdap.cdap.api.data.format.StructuredRecord;
@@ -41,17 +40,20 @@ public class CombinedLogRecordFormat extends RecordFormat<ByteBuffer, Structured
 
   @Override
   public StructuredRecord read(ByteBuffer input) throws UnexpectedFormatException {
-    String bodyAsStr = Bytes.toString(input, StandardCharsets.UTF_8);
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    List<String> parts = getLogEntries(bodyAsStr);
     List<Schema.Field> fields = schema.getFields();
+    // Start and end positions of each log entry in the input, only for the entries that have a schema field
+    int[] bounds = getLogEntries(input, fields.size());
     int index = 0;
     while (index < fields.size()) {
       Schema.Field field = fields.get(index);
-      String val = (parts.size() < index || (parts.get(index).equals("-") &&
-                                             field.getSchema().getType() != Schema.Type.STRING))
-                    ? null : parts.get(index);
-      builder.convertAndSet(field.getName(), val);
+      int start = bounds[2 * index];
+      int end = bounds[2 * index + 1];
+      if (Utf8Fields.isChar(input, start, end, '-') && field.getSchema().getType() != Schema.Type.STRING) {
+        builder.convertAndSet(field.getName(), (String) null);
+      } else {
+        Utf8Fields.convertAndSet(builder, field, input, start, end);
+      }
       index++;
     }
 
@@ -88,29 +90,36 @@ public class CombinedLogRecordFormat extends RecordFormat<ByteBuffer, Structured
     }
   }
 
-  // parse CLF logEvent and get the record values.
-  private List<String> getLogEntries(String logEvent) {
-    List<String> parts = Lists.newArrayList();
-    int start = 0;
-    while (start < logEvent.length()) {
-      if (logEvent.charAt(start) == ' ') {
+  // parse CLF logEvent and get the start and end positions of the first given number of record values.
+  private int[] getLogEntries(ByteBuffer logEvent, int count) {
+    int[] bounds = new int[2 * count];
+    int parts = 0;
+    int start = logEvent.position();
+    int limit = logEvent.limit();
+    while (start < limit && parts < count) {
+      if (logEvent.get(start) == ' ') {
         // Skip empty spaces
         start++;
       } else {
-        start = addNextLogEntry(logEvent, start, parts);
+        start = addNextLogEntry(logEvent, start, bounds, parts++);
       }
     }
-    return parts;
+    if (parts < count) {
+      throw new UnexpectedFormatException(
+        String.format("Could not parse data in CLF format. Expected %d entries but only found %d. Entry %s",
+                      count, parts, Bytes.toString(logEvent, StandardCharsets.UTF_8)));
+    }
+    return bounds;
   }
 
   // addNextLogEntry and return the start position of next entry.
-  private int addNextLogEntry(String data, int start, List<String> parts) {
+  private int addNextLogEntry(ByteBuffer data, int start, int[] bounds, int part) {
     int end = -1;
-    if (data.charAt(start) == '"') {
+    if (data.get(start) == '"') {
       // Find the closing '"' and extract values within
       start = start + 1;
       end = findNext(data, start, '"');
-    } else if (data.charAt(start) == '[') {
+    } else if (data.get(start) == '[') {
       // find the closing ']' and extract values
       start = start + 1;
       end = findNext(data, start, ']');
@@ -120,19 +129,22 @@ public class CombinedLogRecordFormat extends RecordFormat<ByteBuffer, Structured
     }
 
     if (end == -1) {
-      throw new UnexpectedFormatException(String.format("Could not parse data in CLF format. Entry %s", data));
+      throw new UnexpectedFormatException(String.format("Could not parse data in CLF format. Entry %s",
+                                                        Bytes.toString(data, StandardCharsets.UTF_8)));
     }
 
-    parts.add(data.substring(start, end));
+    bounds[2 * part] = start;
+    bounds[2 * part + 1] = end;
     return end + 1;
   }
 
   // Find the next character matching the "entry". Skip the entry that is escaped.
-  private int findNext(String data, int startPosition, char entry) {
+  private int findNext(ByteBuffer data, int startPosition, char entry) {
     int position = startPosition;
-    int length = data.length();
-    while (position < length) {
-      if (data.charAt(position) == entry && (position == 0 || data.charAt(position - 1) != '\\')) {
+    int begin = data.position();
+    int limit = data.limit();
+    while (position < limit) {
+      if (data.get(position) == entry && (position == begin || data.get(position - 1) != '\\')) {
         return position;
       }
       position++;
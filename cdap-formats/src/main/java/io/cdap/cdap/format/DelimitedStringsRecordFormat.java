@@ -31,6 +31,8 @@ import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -60,10 +62,15 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
   public static final String MAPPING = "mapping";
   private Charset charset = Charsets.UTF_8;
   private String delimiter = ",";
+  private byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
   private RecordMaker recordMaker = new DefaultRecordMaker();
 
   @Override
   public StructuredRecord read(ByteBuffer input) throws UnexpectedFormatException {
+    if (delimiterBytes != null) {
+      // Locate the fields on the UTF-8 bytes and only decode the fields that are used
+      return recordMaker.make(schema, new DelimitedFields(input, delimiterBytes));
+    }
     String bodyAsStr = Bytes.toString(input, charset);
     Iterator<String> bodyFields = Splitter.on(delimiter).split(bodyAsStr).iterator();
     return recordMaker.make(schema, bodyFields);
@@ -107,6 +114,10 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
     if (delimiter != null) {
       this.delimiter = delimiter;
     }
+    // The bytes are only scanned directly for UTF-8 encoded input.
+    // Empty delimiter is left to the Splitter, which rejects it.
+    this.delimiterBytes = Charsets.UTF_8.equals(charset) && !this.delimiter.isEmpty()
+      ? this.delimiter.getBytes(StandardCharsets.UTF_8) : null;
 
     if (!getDefaultSchema().equals(schema)) {
       String mapping = settings.get(MAPPING);
@@ -141,6 +152,19 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
     return false;
   }
 
+  private static boolean isNullBodyValue(DelimitedFields fields, Schema fieldSchema) {
+    // same as parseBodyValue, an empty body field for a column that is not a string type is interpreted as a null.
+    return fields.isEmpty() && fieldSchema.getType() != Schema.Type.STRING;
+  }
+
+  private static void convertAndSet(StructuredRecord.Builder builder, Schema.Field field, DelimitedFields fields) {
+    if (isNullBodyValue(fields, field.getSchema())) {
+      builder.convertAndSet(field.getName(), (String) null);
+    } else {
+      fields.convertAndSet(builder, field);
+    }
+  }
+
   private static String parseBodyValue(String val, Schema fieldSchema) {
     // if the body field is an empty string and the column is not a string type, interpret it as a null.
     if (val != null && val.isEmpty() && (fieldSchema.getType() != Schema.Type.STRING)) {
@@ -180,6 +204,8 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
    */
   private interface RecordMaker {
     StructuredRecord make(Schema schema, Iterator<String> bodyFields);
+
+    StructuredRecord make(Schema schema, DelimitedFields bodyFields);
   }
 
   /**
@@ -196,6 +222,13 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
 
       return builder.build();
     }
+
+    @Override
+    public StructuredRecord make(Schema schema, DelimitedFields bodyFields) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      builder.set("body", bodyFields.remainingStrings());
+      return builder.build();
+    }
   }
 
   /**
@@ -229,6 +262,30 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
       }
       return builder.build();
     }
+
+    @Override
+    public StructuredRecord make(Schema schema, DelimitedFields bodyFields) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      Iterator<Schema.Field> fieldsIterator = schema.getFields().iterator();
+      while (fieldsIterator.hasNext()) {
+        Schema.Field field = fieldsIterator.next();
+        String fieldName = field.getName();
+        if (isStringArray(field.getSchema())) {
+          if (!fieldsIterator.hasNext()) {
+            // only do varargs-style string array parsing on bodyField if it's the last field
+            builder.set(fieldName, bodyFields.remainingStrings());
+          } else {
+            throw new UnexpectedFormatException(
+              String.format("string array type field '%s' must be the last schema field", fieldName));
+          }
+        } else if (bodyFields.next()) {
+          convertAndSet(builder, field, bodyFields);
+        } else {
+          builder.convertAndSet(fieldName, (String) null);
+        }
+      }
+      return builder.build();
+    }
   }
 
   /**
@@ -237,10 +294,22 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
   private static class MappedSchemaRecordMaker implements RecordMaker {
     private final Map<String, Integer> mapping;
     private final int lastMappingIndex;
+    // The schema fields to set for each body field index, up to the last mapped index
+    private final List<List<String>> indexFields;
 
     private MappedSchemaRecordMaker(Map<String, Integer> mapping) {
       this.mapping = mapping;
       this.lastMappingIndex = Collections.max(mapping.values());
+      this.indexFields = new ArrayList<>(Collections.nCopies(Math.max(lastMappingIndex + 1, 0),
+                                                         Collections.<String>emptyList()));
+      for (Map.Entry<String, Integer> entry : mapping.entrySet()) {
+        int index = entry.getValue();
+        if (index >= 0) {
+          List<String> fieldNames = new ArrayList<>(indexFields.get(index));
+          fieldNames.add(entry.getKey());
+          indexFields.set(index, fieldNames);
+        }
+      }
     }
 
     @Override
@@ -259,5 +328,83 @@ public class DelimitedStringsRecordFormat extends RecordFormat<ByteBuffer, Struc
       }
       return builder.build();
     }
+
+    @Override
+    public StructuredRecord make(Schema schema, DelimitedFields bodyFields) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      // Only scan up to the last mapped index, and only decode the body fields that are mapped
+      for (int index = 0; index <= lastMappingIndex && bodyFields.next(); index++) {
+        for (String fieldName : indexFields.get(index)) {
+          convertAndSet(builder, schema.getField(fieldName), bodyFields);
+        }
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Iterates over the delimited fields of the UTF-8 encoded input by locating the delimiters on the bytes.
+   * It has the same splitting semantics as {@link Splitter#on(String)}, without decoding the input to a string.
+   */
+  private static final class DelimitedFields {
+    private final ByteBuffer input;
+    private final byte[] delimiter;
+    private final int limit;
+    private int nextStart;
+    private boolean hasNext = true;
+    private int start;
+    private int end;
+
+    DelimitedFields(ByteBuffer input, byte[] delimiter) {
+      this.input = input;
+      this.delimiter = delimiter;
+      this.limit = input.limit();
+      this.nextStart = input.position();
+    }
+
+    /**
+     * Moves to the next field.
+     *
+     * @return {@code true} if there is a next field, {@code false} otherwise
+     */
+    boolean next() {
+      if (!hasNext) {
+        return false;
+      }
+      start = nextStart;
+      end = Utf8Fields.indexOf(input, start, limit, delimiter);
+      if (end < 0) {
+        end = limit;
+        hasNext = false;
+      } else {
+        nextStart = end + delimiter.length;
+      }
+      return true;
+    }
+
+    /**
+     * Returns {@code true} if the current field is empty.
+     */
+    boolean isEmpty() {
+      return start == end;
+    }
+
+    /**
+     * Sets the given field of the record builder to the value of the current field.
+     */
+    void convertAndSet(StructuredRecord.Builder builder, Schema.Field field) {
+      Utf8Fields.convertAndSet(builder, field, input, start, end);
+    }
+
+    /**
+     * Returns all the remaining fields as strings.
+     */
+    String[] remainingStrings() {
+      List<String> fields = new ArrayList<>();
+      while (next()) {
+        fields.add(Utf8Fields.toString(input, start, end));
+      }
+      return fields.toArray(new String[fields.size()]);
+    }
   }
 }
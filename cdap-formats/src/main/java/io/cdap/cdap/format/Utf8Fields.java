@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.format;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for parsing fields directly from the UTF-8 encoded bytes of a record, without decoding the whole record
+ * into a {@link String} first. All positions are absolute positions in the {@link ByteBuffer}, and the position
+ * of the buffer is never modified.
+ *
+ * Since all ASCII characters are encoded as single bytes in UTF-8 and none of the bytes of a multi-byte character
+ * is in the ASCII range, scanning the bytes for ASCII separators gives the same boundaries as scanning the
+ * decoded characters.
+ */
+final class Utf8Fields {
+
+  private Utf8Fields() {
+    // no-op
+  }
+
+  /**
+   * Returns the position of the first occurrence of the given bytes in the buffer between {@code from} (inclusive)
+   * and {@code limit} (exclusive), or {@code -1} if there is no such occurrence.
+   */
+  static int indexOf(ByteBuffer buffer, int from, int limit, byte[] bytes) {
+    int last = limit - bytes.length;
+    byte first = bytes[0];
+    for (int i = from; i <= last; i++) {
+      if (buffer.get(i) != first) {
+        continue;
+      }
+      int j = 1;
+      while (j < bytes.length && buffer.get(i + j) == bytes[j]) {
+        j++;
+      }
+      if (j == bytes.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns {@code true} if the bytes between {@code start} (inclusive) and {@code end} (exclusive) is
+   * exactly the given ASCII character.
+   */
+  static boolean isChar(ByteBuffer buffer, int start, int end, char c) {
+    return end - start == 1 && buffer.get(start) == c;
+  }
+
+  /**
+   * Decodes the bytes between {@code start} (inclusive) and {@code end} (exclusive) as a UTF-8 {@link String}.
+   */
+  static String toString(ByteBuffer buffer, int start, int end) {
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+    }
+    ByteBuffer slice = buffer.duplicate();
+    slice.limit(end);
+    slice.position(start);
+    return StandardCharsets.UTF_8.decode(slice).toString();
+  }
+
+  /**
+   * Sets the given field of the record builder to the value parsed from the bytes between {@code start} (inclusive)
+   * and {@code end} (exclusive). This is the same as calling
+   * {@link StructuredRecord.Builder#convertAndSet(String, String)} with the decoded string, except that
+   * strings, booleans, and integral numbers are parsed without the intermediate string.
+   */
+  static void convertAndSet(StructuredRecord.Builder builder, Schema.Field field,
+                            ByteBuffer buffer, int start, int end) {
+    Schema schema = field.getSchema();
+    Schema.Type type = schema.isNullable() ? schema.getNonNullable().getType() : schema.getType();
+    switch (type) {
+      case STRING:
+        builder.set(field.getName(), toString(buffer, start, end));
+        return;
+      case BOOLEAN:
+        builder.set(field.getName(), isTrue(buffer, start, end));
+        return;
+      case INT:
+        // Up to 9 digits always fit in an int
+        if (isDigits(buffer, start, end, 9)) {
+          builder.set(field.getName(), (int) parseDigits(buffer, start, end));
+          return;
+        }
+        break;
+      case LONG:
+        // Up to 18 digits always fit in a long
+        if (isDigits(buffer, start, end, 18)) {
+          builder.set(field.getName(), parseDigits(buffer, start, end));
+          return;
+        }
+        break;
+    }
+    // Everything else, including numbers that need range checking, goes through the string conversion
+    builder.convertAndSet(field.getName(), toString(buffer, start, end));
+  }
+
+  /**
+   * Same as {@link Boolean#parseBoolean(String)}, which is case insensitive comparison with "true".
+   */
+  private static boolean isTrue(ByteBuffer buffer, int start, int end) {
+    return end - start == 4
+      && (buffer.get(start) | 0x20) == 't'
+      && (buffer.get(start + 1) | 0x20) == 'r'
+      && (buffer.get(start + 2) | 0x20) == 'u'
+      && (buffer.get(start + 3) | 0x20) == 'e';
+  }
+
+  /**
+   * Returns {@code true} if the given bytes are an optional minus sign followed by
+   * at least one and at most {@code maxDigits} ASCII digits.
+   */
+  private static boolean isDigits(ByteBuffer buffer, int start, int end, int maxDigits) {
+    int i = start < end && buffer.get(start) == '-' ? start + 1 : start;
+    if (i == end || end - i > maxDigits) {
+      return false;
+    }
+    for (; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b < '0' || b > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses bytes that were verified by {@link #isDigits(ByteBuffer, int, int, int)}.
+   */
+  private static long parseDigits(ByteBuffer buffer, int start, int end) {
+    boolean negative = buffer.get(start) == '-';
+    long value = 0;
+    for (int i = negative ? start + 1 : start; i < end; i++) {
+      value = value * 10 + (buffer.get(i) - '0');
+    }
+    return negative ? -value : value;
+  }
+}
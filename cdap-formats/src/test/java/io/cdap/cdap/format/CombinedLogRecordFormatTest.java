@@ -105,4 +105,37 @@ public class CombinedLogRecordFormatTest {
     String data = "10.10.10.10[01/Feb/2015:06:47:10 +0000";
     StructuredRecord output = format.read(ByteBuffer.wrap(Bytes.toBytes(data)));
   }
+
+  @Test
+  public void testCLFLogFromDirectBuffer() throws UnsupportedTypeException, UnexpectedFormatException {
+    CombinedLogRecordFormat format = new CombinedLogRecordFormat();
+    FormatSpecification spec = new FormatSpecification(CombinedLogRecordFormat.class.getCanonicalName(),
+                                                       null, ImmutableMap.of());
+    format.initialize(spec);
+    byte[] data = Bytes.toBytes("10.10.10.10 - bj\u00f6rn [01/Feb/2015:06:47:10 +0000] \"GET /caf\u00e9 HTTP/1.1\"" +
+                                  " 200 -1 \"-\" \"agent \\\"\u4e16\u754c\\\"\" extra \"unterminated");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data).flip();
+    StructuredRecord output = format.read(buffer);
+
+    Assert.assertEquals(0, buffer.position());
+    Assert.assertEquals("10.10.10.10", output.get("remote_host"));
+    Assert.assertNull(output.get("remote_login"));
+    Assert.assertEquals("bj\u00f6rn", output.get("auth_user"));
+    Assert.assertEquals("01/Feb/2015:06:47:10 +0000", output.get("request_time"));
+    Assert.assertEquals("GET /caf\u00e9 HTTP/1.1", output.get("request"));
+    Assert.assertEquals(200, (int) output.get("status"));
+    Assert.assertEquals(-1, (int) output.get("content_length"));
+    Assert.assertNull(output.get("referrer"));
+    Assert.assertEquals("agent \\\"\u4e16\u754c\\\"", output.get("user_agent"));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testTooFewEntries() throws UnsupportedTypeException, UnexpectedFormatException {
+    CombinedLogRecordFormat format = new CombinedLogRecordFormat();
+    FormatSpecification spec = new FormatSpecification(CombinedLogRecordFormat.class.getCanonicalName(),
+                                                       null, ImmutableMap.of());
+    format.initialize(spec);
+    format.read(ByteBuffer.wrap(Bytes.toBytes("10.10.10.10 - - [01/Feb/2015:09:58:24 +0000] \"-\" ")));
+  }
 }
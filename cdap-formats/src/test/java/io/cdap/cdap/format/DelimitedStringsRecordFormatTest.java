@@ -29,6 +29,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -346,4 +347,88 @@ public class DelimitedStringsRecordFormatTest {
     Assert.assertEquals("hello world", output.get("f6"));
     Assert.assertArrayEquals(new String[] {"extra1"}, (String[]) output.get("f7"));
   }
+
+  @Test
+  public void testTypedFieldsFromBuffer() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("rest", Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(), schema,
+                                              ImmutableMap.of(DelimitedStringsRecordFormat.DELIMITER, "::")));
+
+    String body = "TrUe::-2147483648::+9223372036854775807::h\u00e9llo \u4e16\u754c::::x::\u00e9";
+    byte[] bytes = Bytes.toBytes("prefix" + body + "suffix");
+    // Fields are parsed from the remaining bytes of both heap and direct buffers, without changing their positions
+    ByteBuffer heapBuffer = ByteBuffer.wrap(bytes, 6, bytes.length - 12).slice();
+    ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+    directBuffer.put(bytes).position(6).limit(bytes.length - 6);
+
+    for (ByteBuffer buffer : Arrays.asList(heapBuffer, directBuffer)) {
+      int position = buffer.position();
+      StructuredRecord output = format.read(buffer);
+      Assert.assertEquals(position, buffer.position());
+      Assert.assertTrue((Boolean) output.get("b"));
+      Assert.assertEquals(Integer.MIN_VALUE, (int) output.get("i"));
+      Assert.assertEquals(Long.MAX_VALUE, (long) output.get("l"));
+      Assert.assertEquals("h\u00e9llo \u4e16\u754c", output.get("s"));
+      Assert.assertArrayEquals(new String[] { "", "x", "\u00e9" }, (String[]) output.get("rest"));
+    }
+
+    // Values that don't fit are rejected the same way as parsing the string
+    try {
+      format.read(ByteBuffer.wrap(Bytes.toBytes("false::2147483648::1::s")));
+      Assert.fail("Expected failure for int overflow");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+
+    // Missing and empty non-string fields are null
+    StructuredRecord output = format.read(ByteBuffer.wrap(Bytes.toBytes("::0::::")));
+    Assert.assertNull(output.get("b"));
+    Assert.assertEquals(0, (int) output.get("i"));
+    Assert.assertNull(output.get("l"));
+    Assert.assertEquals("", output.get("s"));
+    Assert.assertArrayEquals(new String[0], (String[]) output.get("rest"));
+  }
+
+  @Test
+  public void testMappingOnlyParsesMappedFields() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(), schema,
+                                              ImmutableMap.of(DelimitedStringsRecordFormat.MAPPING, "1:name,2:age")));
+
+    // Only the mapped fields are parsed
+    StructuredRecord output = format.read(ByteBuffer.wrap(Bytes.toBytes("sdf,bob,32,sdf,lkj")));
+    Assert.assertEquals("bob", output.get("name"));
+    Assert.assertEquals(32, (int) output.get("age"));
+
+    // Fields beyond the input are not set
+    output = format.read(ByteBuffer.wrap(Bytes.toBytes("sdf,bob")));
+    Assert.assertEquals("bob", output.get("name"));
+    Assert.assertNull(output.get("age"));
+  }
+
+  @Test
+  public void testNonUTF8Charset() throws UnsupportedTypeException, UnexpectedFormatException {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("i", Schema.of(Schema.Type.INT)));
+    DelimitedStringsRecordFormat format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(), schema,
+                                              ImmutableMap.of(DelimitedStringsRecordFormat.CHARSET, "UTF-16")));
+
+    StructuredRecord output = format.read(ByteBuffer.wrap("h\u00e9llo,42".getBytes(StandardCharsets.UTF_16)));
+    Assert.assertEquals("h\u00e9llo", output.get("s"));
+    Assert.assertEquals(42, (int) output.get("i"));
+  }
 }
@@ -23,6 +23,7 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Codec;
+import org.apache.twill.common.Cancellable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +31,8 @@ import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
@@ -53,6 +56,8 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
    */
   protected long keyExpirationPeriod = 0;
 
+  private final Set<Runnable> keyChangeListeners = new CopyOnWriteArraySet<>();
+
 
   /**
    * An AbstractKeyManager that has common functionality of all keymanagers.
@@ -125,9 +130,30 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
     addKey(keyIdentifier);
     this.currentKey = keyIdentifier;
     LOG.info("Changed current key to {}", currentKey);
+    notifyKeyChange();
     return keyIdentifier;
   }
 
+  @Override
+  public final Cancellable addKeyChangeListener(Runnable listener) {
+    keyChangeListeners.add(listener);
+    return () -> keyChangeListeners.remove(listener);
+  }
+
+  /**
+   * Notifies the key change listeners that a key was added or removed. Subclasses must call this method whenever
+   * keys are changed other than through {@link #generateKey()}.
+   */
+  protected final void notifyKeyChange() {
+    for (Runnable listener : keyChangeListeners) {
+      try {
+        listener.run();
+      } catch (Throwable t) {
+        LOG.warn("Exception raised when notifying key change listener {}", listener, t);
+      }
+    }
+  }
+
   @Override
   public final <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException {
@@ -16,48 +16,97 @@
 
 package io.cdap.cdap.security.auth;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Codec;
+import org.apache.twill.common.Cancellable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
 /**
  * This class validates the accessToken and returns the different states
  * of accessToken validation.
+ *
+ * Tokens that are validated successfully are cached by the digest of the raw token, so that repeated requests
+ * with the same token don't need to decode the token and recompute the token digest again. Cached tokens are
+ * validated again once the token expires or when the secret keys are changed.
  */
 public class AccessTokenValidator extends AbstractIdleService implements TokenValidator {
   private static final Logger LOG = LoggerFactory.getLogger(AccessTokenValidator.class);
+  private static final HashFunction TOKEN_HASH = Hashing.sha256();
+
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  @Nullable
+  private final Cache<HashCode, ValidatedToken> validatedTokens;
+  private final AtomicLong keyGeneration;
+  private Cancellable cancelKeyChangeListener;
 
   @Inject
-  public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+  public AccessTokenValidator(CConfiguration cConf, TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+    this(tokenManager, accessTokenCodec, cConf.getInt(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE));
+  }
+
+  @VisibleForTesting
+  AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec, int cacheSize) {
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.validatedTokens = cacheSize <= 0 ? null : CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    this.keyGeneration = new AtomicLong();
   }
 
   @Override
   protected void startUp() throws Exception {
     tokenManager.startAndWait();
+    cancelKeyChangeListener = tokenManager.addKeyChangeListener(this::invalidateCache);
   }
 
   @Override
   protected void shutDown() throws Exception {
+    if (cancelKeyChangeListener != null) {
+      cancelKeyChangeListener.cancel();
+    }
     tokenManager.stopAndWait();
   }
 
   @Override
   public TokenState validate(String token) {
-    AccessToken accessToken;
+    AccessToken accessToken = null;
     TokenState state = TokenState.VALID;
     if (token == null) {
       LOG.debug("Token is missing");
       return TokenState.MISSING;
     }
+
+    // Read the key generation before validating, so that a validation that raced with a key change
+    // is cached with the old generation and is never served.
+    long generation = keyGeneration.get();
+    HashCode tokenDigest = null;
+    if (validatedTokens != null) {
+      tokenDigest = TOKEN_HASH.hashString(token, StandardCharsets.UTF_8);
+      ValidatedToken validatedToken = validatedTokens.getIfPresent(tokenDigest);
+      if (validatedToken != null) {
+        if (validatedToken.isValid(generation, System.currentTimeMillis())) {
+          return TokenState.VALID;
+        }
+        validatedTokens.invalidate(tokenDigest);
+      }
+    }
+
     byte[] decodedToken = Base64.getDecoder().decode(token);
 
     try {
@@ -70,6 +119,43 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
       state = ite.getReason();
       LOG.debug("{} {}", state, ite);
     }
+
+    // Only cache valid tokens, so that clients sending bad tokens cannot evict the valid ones
+    if (state == TokenState.VALID && tokenDigest != null) {
+      validatedTokens.put(tokenDigest,
+                          new ValidatedToken(accessToken.getIdentifier().getExpireTimestamp(), generation));
+    }
     return state;
   }
+
+  /**
+   * Invalidates all cached tokens. This is called when secret keys are changed.
+   */
+  private void invalidateCache() {
+    keyGeneration.incrementAndGet();
+    if (validatedTokens != null) {
+      validatedTokens.invalidateAll();
+    }
+  }
+
+  /**
+   * The validation result of an access token that was validated successfully.
+   */
+  private static final class ValidatedToken {
+    private final long expireTimestamp;
+    private final long keyGeneration;
+
+    ValidatedToken(long expireTimestamp, long keyGeneration) {
+      this.expireTimestamp = expireTimestamp;
+      this.keyGeneration = keyGeneration;
+    }
+
+    /**
+     * Returns {@code true} if the token is still valid at the given time and with the given key generation.
+     */
+    boolean isValid(long currentKeyGeneration, long now) {
+      // Same as the expiration check in TokenManager.validateSecret
+      return keyGeneration == currentKeyGeneration && expireTimestamp >= now;
+    }
+  }
 }
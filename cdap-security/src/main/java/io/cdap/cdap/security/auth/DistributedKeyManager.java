@@ -176,6 +176,7 @@ public class DistributedKeyManager extends AbstractKeyManager implements Resourc
         LOG.debug("Set current key: leader={}, key={}", leader, currentKey.getKeyId());
       }
     }
+    notifyKeyChange();
   }
 
   @Override
@@ -185,11 +186,13 @@ public class DistributedKeyManager extends AbstractKeyManager implements Resourc
       currentKey = instance;
       LOG.debug("Set current key: leader={}, key={}", leader, currentKey.getKeyId());
     }
+    notifyKeyChange();
   }
 
   @Override
   public void onResourceDelete(String name) {
     LOG.debug("Removed key: leader={}, key={}", leader, name);
+    notifyKeyChange();
   }
 
   @Override
@@ -18,6 +18,7 @@ package io.cdap.cdap.security.auth;
 
 import com.google.common.util.concurrent.Service;
 import io.cdap.cdap.common.io.Codec;
+import org.apache.twill.common.Cancellable;
 
 import java.security.InvalidKeyException;
 
@@ -64,4 +65,11 @@ public interface KeyManager extends Service {
   <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException;
 
+  /**
+   * Adds a listener to be called whenever a secret key is added or removed.
+   * @param listener The listener to call.
+   * @return A {@link Cancellable} to remove the listener.
+   */
+  Cancellable addKeyChangeListener(Runnable listener);
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2016-2019 Cask Data, Inc.
+ * Copyright © 2016-2020 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -17,7 +17,6 @@
 package io.cdap.cdap.security.store;
 
 import com.google.common.base.Charsets;
-import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -36,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -51,13 +51,15 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nullable;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -74,6 +76,15 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
  * If anything fails during this process then the keystore reverts to the last successfully written file.
  * The keystore is flushed to the filesystem after every put and delete.
  *
+ * If {@link Constants.Security.Store#FILE_JOURNAL_ENABLED} is set, puts and deletes are appended to an encrypted
+ * journal next to the keystore file instead, which only costs a write of the changed entry. Once the journal
+ * reaches {@link Constants.Security.Store#FILE_JOURNAL_COMPACTION_RECORDS} records, the changed entries are written
+ * to the keystore file with a flush, and the journal is cleared. On startup, the journal is replayed on top of the
+ * keystore file.
+ *
+ * All entries are also kept in memory, in an immutable map that is replaced on every change. Gets and lists read
+ * from the map without locking, hence they are never blocked by a flush.
+ *
  * This class is marked as Singleton because it won't work if this class is not a Singleton.
  * Setting in(Scopes.Singleton) in the bindings doesn't work because we are binding this
  * class to two interfaces and we need the instance to be shared between them.
@@ -88,9 +99,15 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final char[] password;
   private final Path path;
-  private final Lock readLock;
   private final Lock writeLock;
   private final KeyStore keyStore;
+  @Nullable
+  private final SecureStoreJournal journal;
+  private final int compactionRecords;
+  // names of the keys changed by the records in the journal, guarded by the write lock
+  private final Set<String> journaledKeys;
+  // all entries keyed by key name, replaced by a new immutable map on every change
+  private volatile Map<String, SecureStoreData> entries;
 
   @Inject
   public FileSecureStoreService(CConfiguration cConf, SConfiguration sConf, NamespaceQueryAdmin namespaceQueryAdmin)
@@ -104,9 +121,42 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
     this.namespaceQueryAdmin = namespaceQueryAdmin;
 
     keyStore = locateKeystore(path, password);
-    ReadWriteLock lock = new ReentrantReadWriteLock(true);
-    readLock = lock.readLock();
-    writeLock = lock.writeLock();
+    writeLock = new ReentrantLock();
+    compactionRecords = cConf.getInt(Constants.Security.Store.FILE_JOURNAL_COMPACTION_RECORDS);
+    journaledKeys = new HashSet<>();
+    Map<String, SecureStoreData> entries = readEntries(keyStore, password);
+
+    boolean journalEnabled = cConf.getBoolean(Constants.Security.Store.FILE_JOURNAL_ENABLED);
+    Path journalPath = constructJournalPath(path);
+    SecureStoreJournal journal = null;
+    if (journalEnabled || Files.exists(journalPath)) {
+      journal = new SecureStoreJournal(journalPath, password);
+      try {
+        for (byte[] record : journal.getRecoveredRecords()) {
+          applyRecord(entries, record);
+        }
+      } catch (IOException e) {
+        closeQuietly(journal, e);
+        throw e;
+      }
+    }
+    this.entries = Collections.unmodifiableMap(entries);
+
+    if (journal != null && !journalEnabled) {
+      // The journal was left behind while it was enabled. Compact it into the keystore and remove it,
+      // so that the keystore file has all the entries.
+      LOG.info("Compacting the secure store journal {} into the keystore.", journalPath);
+      try {
+        compact(journal);
+      } catch (IOException e) {
+        closeQuietly(journal, e);
+        throw e;
+      }
+      journal.close();
+      Files.delete(journalPath);
+      journal = null;
+    }
+    this.journal = journal;
   }
 
   /**
@@ -129,10 +179,19 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
     SecureStoreData secureStoreData = new SecureStoreData(meta, data.getBytes(Charsets.UTF_8));
     writeLock.lock();
     try {
-      keyStore.setKeyEntry(keyName, new SecretKeySpec(serialize(secureStoreData), "none"), password, null);
-      // Attempt to persist the store.
-      flush();
+      if (journal == null) {
+        keyStore.setKeyEntry(keyName, new SecretKeySpec(serialize(secureStoreData), "none"), password, null);
+        // Attempt to persist the store.
+        flush();
+      } else {
+        journal.append(encodeRecord(keyName, secureStoreData));
+        journaledKeys.add(keyName);
+      }
+      Map<String, SecureStoreData> newEntries = new HashMap<>(entries);
+      newEntries.put(keyName, secureStoreData);
+      entries = Collections.unmodifiableMap(newEntries);
       LOG.debug(String.format("Successfully stored %s in namespace %s", name, namespace));
+      compactIfNeeded();
     } catch (KeyStoreException e) {
       // We failed to store the key in the key store. Throw an IOException.
       throw new IOException("Failed to store the key. ", e);
@@ -159,24 +218,22 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
   public void delete(String namespace, String name) throws Exception {
     checkNamespaceExists(namespace);
     String keyName = getKeyName(namespace, name);
-    Key key = null;
     writeLock.lock();
     try {
-      if (!keyStore.containsAlias(keyName)) {
+      if (!entries.containsKey(keyName)) {
         throw new NotFoundException(new SecureKeyId(namespace, name));
       }
-      key = deleteFromStore(keyName, password);
-      flush();
-      LOG.debug(String.format("Successfully deleted key %s from namespace %s", name, namespace));
-    } catch (UnrecoverableKeyException | NoSuchAlgorithmException | KeyStoreException e) {
-      throw new IOException("Failed to delete the key. ", e);
-    } catch (IOException ioe) {
-      try {
-        keyStore.setKeyEntry(keyName, key, password, null);
-      } catch (KeyStoreException e) {
-        ioe.addSuppressed(e);
+      if (journal == null) {
+        deleteAndFlush(keyName);
+      } else {
+        journal.append(encodeRecord(keyName, null));
+        journaledKeys.add(keyName);
       }
-      throw ioe;
+      Map<String, SecureStoreData> newEntries = new HashMap<>(entries);
+      newEntries.remove(keyName);
+      entries = Collections.unmodifiableMap(newEntries);
+      LOG.debug(String.format("Successfully deleted key %s from namespace %s", name, namespace));
+      compactIfNeeded();
     } finally {
       writeLock.unlock();
     }
@@ -193,24 +250,15 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
   @Override
   public List<SecureStoreMetadata> list(String namespace) throws Exception {
     checkNamespaceExists(namespace);
-    readLock.lock();
-    try {
-      Enumeration<String> aliases = keyStore.aliases();
-      List<SecureStoreMetadata> metadataList = new ArrayList<>();
-      String prefix = namespace + NAME_SEPARATOR;
-      while (aliases.hasMoreElements()) {
-        String alias = aliases.nextElement();
-        // Filter out elements not in this namespace.
-        if (alias.startsWith(prefix)) {
-          metadataList.add(getSecureStoreMetadata(alias));
-        }
+    List<SecureStoreMetadata> metadataList = new ArrayList<>();
+    String prefix = namespace + NAME_SEPARATOR;
+    for (Map.Entry<String, SecureStoreData> entry : entries.entrySet()) {
+      // Filter out elements not in this namespace.
+      if (entry.getKey().startsWith(prefix)) {
+        metadataList.add(entry.getValue().getMetadata());
       }
-      return metadataList;
-    } catch (KeyStoreException e) {
-      throw new IOException("Failed to get the list of elements from the secure store.", e);
-    } finally {
-      readLock.unlock();
     }
+    return metadataList;
   }
 
   /**
@@ -225,19 +273,12 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
   @Override
   public SecureStoreData get(String namespace, String name) throws Exception {
     checkNamespaceExists(namespace);
-    String keyName = getKeyName(namespace, name);
-    readLock.lock();
-    try {
-      if (!keyStore.containsAlias(keyName)) {
-        throw new NotFoundException(name + " not found in the secure store.");
-      }
-      Key key = keyStore.getKey(keyName, password);
-      return deserialize(key.getEncoded());
-    } catch (NoSuchAlgorithmException | UnrecoverableKeyException | KeyStoreException e) {
-      throw new IOException("Unable to retrieve the key " + name, e);
-    } finally {
-      readLock.unlock();
+    SecureStoreData data = entries.get(getKeyName(namespace, name));
+    if (data == null) {
+      throw new NotFoundException(name + " not found in the secure store.");
     }
+    // copy the secret, since the returned byte array is mutable
+    return new SecureStoreData(data.getMetadata(), data.get().clone());
   }
 
   private void checkNamespaceExists(String namespace) throws Exception {
@@ -247,6 +288,27 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
     }
   }
 
+  /**
+   * Deletes the key from the keystore and flushes the keystore. If the flush fails, we attempt to insert the key
+   * back to the in memory keystore.
+   */
+  private void deleteAndFlush(String keyName) throws IOException {
+    Key key = null;
+    try {
+      key = deleteFromStore(keyName, password);
+      flush();
+    } catch (UnrecoverableKeyException | NoSuchAlgorithmException | KeyStoreException e) {
+      throw new IOException("Failed to delete the key. ", e);
+    } catch (IOException ioe) {
+      try {
+        keyStore.setKeyEntry(keyName, key, password, null);
+      } catch (KeyStoreException e) {
+        ioe.addSuppressed(e);
+      }
+      throw ioe;
+    }
+  }
+
   private Key deleteFromStore(String name, char[] password) throws KeyStoreException,
     UnrecoverableKeyException, NoSuchAlgorithmException {
     writeLock.lock();
@@ -260,30 +322,100 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
   }
 
   /**
-   * Returns the metadata for the element identified by the given name.
-   * The name must be of the format namespace + NAME_SEPARATOR + key name.
-   * @param keyName Name of the element
-   * @return An object representing the metadata associated with the element
-   * @throws NotFoundException If the key was not found in the store.
-   * @throws IOException If there was a problem in getting the key from the store
+   * Compacts the journal if it has reached the configured number of records. A failure is only logged, since the
+   * change has already been persisted in the journal. The compaction will be retried on the next change.
    */
-  private SecureStoreMetadata getSecureStoreMetadata(String keyName) throws Exception {
-    String[] namespaceAndName = keyName.split(NAME_SEPARATOR);
-    Preconditions.checkArgument(namespaceAndName.length == 2);
-    String namespace = namespaceAndName[0];
-    String name = namespaceAndName[1];
-    readLock.lock();
+  private void compactIfNeeded() {
+    if (journal == null || journal.getRecordCount() < compactionRecords) {
+      return;
+    }
     try {
-      if (!keyStore.containsAlias(keyName)) {
-        throw new NotFoundException(new SecureKeyId(namespace, name));
+      compact(journal);
+    } catch (IOException e) {
+      LOG.warn("Failed to compact the secure store journal into the keystore {}. " +
+                 "It will be retried on the next change.", path, e);
+    }
+  }
+
+  /**
+   * Writes the keys changed by the journal records to the keystore, flushes the keystore, and then clears the
+   * journal. If the process dies after the flush but before the journal is cleared, the journal is replayed on
+   * the new keystore on startup, which results in the same entries.
+   */
+  private void compact(SecureStoreJournal journal) throws IOException {
+    writeLock.lock();
+    try {
+      Map<String, SecureStoreData> entries = this.entries;
+      for (String keyName : journaledKeys) {
+        SecureStoreData data = entries.get(keyName);
+        if (data != null) {
+          keyStore.setKeyEntry(keyName, new SecretKeySpec(serialize(data), "none"), password, null);
+        } else if (keyStore.containsAlias(keyName)) {
+          keyStore.deleteEntry(keyName);
+        }
       }
-      Key key = keyStore.getKey(keyName, password);
-      return deserialize(key.getEncoded()).getMetadata();
-    } catch (NoSuchAlgorithmException | UnrecoverableKeyException | KeyStoreException e) {
-      throw new IOException("Unable to retrieve the metadata for " + name + " in namespace " + namespace, e);
+      flush();
+      journal.clear();
+      journaledKeys.clear();
+    } catch (KeyStoreException e) {
+      throw new IOException("Failed to update the keystore with the journaled keys.", e);
     } finally {
-      readLock.unlock();
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Encodes a journal record for a put of the given data, or for a delete if the data is {@code null}.
+   */
+  private byte[] encodeRecord(String keyName, @Nullable SecureStoreData data) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream dos = new DataOutputStream(bos)) {
+      dos.writeUTF(keyName);
+      dos.writeBoolean(data != null);
+      if (data != null) {
+        byte[] serialized = serialize(data);
+        dos.writeInt(serialized.length);
+        dos.write(serialized);
+      }
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Applies a journal record encoded by {@link #encodeRecord(String, SecureStoreData)} to the given entries.
+   */
+  private void applyRecord(Map<String, SecureStoreData> entries, byte[] record) throws IOException {
+    DataInputStream dis = new DataInputStream(new ByteArrayInputStream(record));
+    String keyName = dis.readUTF();
+    if (dis.readBoolean()) {
+      byte[] serialized = new byte[dis.readInt()];
+      dis.readFully(serialized);
+      entries.put(keyName, deserialize(serialized));
+    } else {
+      entries.remove(keyName);
+    }
+    journaledKeys.add(keyName);
+  }
+
+  /**
+   * Reads all entries from the keystore.
+   */
+  private Map<String, SecureStoreData> readEntries(KeyStore keyStore, char[] password) throws IOException {
+    Map<String, SecureStoreData> entries = new HashMap<>();
+    try {
+      Enumeration<String> aliases = keyStore.aliases();
+      while (aliases.hasMoreElements()) {
+        String alias = aliases.nextElement();
+        entries.put(alias, deserialize(keyStore.getKey(alias, password).getEncoded()));
+      }
+    } catch (NoSuchAlgorithmException | UnrecoverableKeyException | KeyStoreException e) {
+      throw new IOException("Unable to read the entries of the Secure Store. ", e);
     }
+    return entries;
+  }
+
+  private static Path constructJournalPath(Path path) {
+    return path.resolveSibling(path.getFileName() + "_JOURNAL");
   }
 
   private static Path constructNewPath(Path path) {
@@ -427,6 +559,21 @@ public class FileSecureStoreService extends AbstractIdleService implements Secur
 
   @Override
   protected void shutDown() throws Exception {
-    // no-op
+    writeLock.lock();
+    try {
+      if (journal != null) {
+        journal.close();
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable, Exception e) {
+    try {
+      closeable.close();
+    } catch (IOException ce) {
+      e.addSuppressed(ce);
+    }
   }
 }
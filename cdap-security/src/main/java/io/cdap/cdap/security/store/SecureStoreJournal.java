@@ -0,0 +1,390 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * An encrypted, append-only journal of records. The journal file is of the format:
+ *
+ * <pre>
+ *   [magic][version][salt][key derivation iterations][verifier length][verifier]
+ *   [record length][iv][encrypted record]...
+ * </pre>
+ *
+ * Records are encrypted with AES-GCM, using a key derived from the password and the salt. The position of a record
+ * in the file is authenticated together with the record, so that records can't be reordered. The verifier is a known
+ * value encrypted the same way, which tells a wrong password apart from a corrupted record.
+ *
+ * A crash in the middle of an append can leave an incomplete record at the end of the file. Since every record is
+ * authenticated, such a record is detected when the journal is opened, and the journal is truncated to the last
+ * complete record. The append that was interrupted never returned successfully, hence nothing that was acknowledged
+ * is lost. A corrupted record that is followed by other records can't be caused by a crash, hence it fails the
+ * opening of the journal instead of discarding the records after it.
+ */
+@NotThreadSafe
+final class SecureStoreJournal implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SecureStoreJournal.class);
+
+  private static final int MAGIC = 0x43534a4c;
+  private static final int VERSION = 1;
+  private static final int SALT_LENGTH = 16;
+  private static final int KEY_ITERATIONS = 65536;
+  private static final int KEY_LENGTH_BITS = 128;
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH_BITS = 128;
+  private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+  private static final byte[] VERIFIER = "CDAP secure store journal".getBytes(StandardCharsets.UTF_8);
+
+  private final Path path;
+  private final FileChannel channel;
+  private final SecureRandom random;
+  private final SecretKey key;
+  private final Cipher cipher;
+  private final long headerLength;
+  private final List<byte[]> recoveredRecords;
+  private long size;
+  private int recordCount;
+
+  /**
+   * Opens the journal at the given path, creating it if it doesn't exist. Records that are already in the journal
+   * are read and can be retrieved with {@link #getRecoveredRecords()}.
+   *
+   * @param path the path of the journal file
+   * @param password the password to derive the encryption key from
+   * @throws IOException if failed to open the journal, or if the password doesn't match the journal
+   */
+  SecureStoreJournal(Path path, char[] password) throws IOException {
+    this.path = path;
+    this.random = new SecureRandom();
+    try {
+      this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Failed to create the cipher for the secure store journal", e);
+    }
+
+    ByteBuffer header = readHeader(path);
+    if (header == null) {
+      byte[] salt = new byte[SALT_LENGTH];
+      random.nextBytes(salt);
+      this.key = deriveKey(password, salt, KEY_ITERATIONS);
+      header = createHeader(salt);
+      writeHeader(path, header);
+    } else {
+      byte[] salt = new byte[SALT_LENGTH];
+      header.get(salt);
+      int iterations = header.getInt();
+      this.key = deriveKey(password, salt, iterations);
+      byte[] verifier = new byte[header.getInt()];
+      header.get(verifier);
+      try {
+        if (!Arrays.equals(VERIFIER, decrypt(verifier, 0L))) {
+          throw new IOException("Invalid verifier in secure store journal " + path);
+        }
+      } catch (AEADBadTagException e) {
+        throw new IOException("Failed to open secure store journal " + path + ". The password may be incorrect.", e);
+      }
+    }
+    this.headerLength = header.limit();
+
+    this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      this.recoveredRecords = recover();
+    } catch (IOException e) {
+      closeQuietly(channel, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the records that were in the journal when it was opened, in the order they were appended.
+   */
+  List<byte[]> getRecoveredRecords() {
+    return recoveredRecords;
+  }
+
+  /**
+   * Returns the number of records in the journal.
+   */
+  int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Appends a record to the journal. The record is durable when this method returns. If the append fails,
+   * the journal is truncated back to the previous record.
+   */
+  void append(byte[] record) throws IOException {
+    byte[] encrypted = encrypt(record, size);
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + encrypted.length);
+    buffer.putInt(encrypted.length).put(encrypted).flip();
+    try {
+      long position = size;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      // drop the partial record, so that it won't hide the records appended after it
+      try {
+        channel.truncate(size);
+      } catch (IOException te) {
+        e.addSuppressed(te);
+      }
+      throw e;
+    }
+    size += buffer.limit();
+    recordCount++;
+  }
+
+  /**
+   * Removes all records from the journal.
+   */
+  void clear() throws IOException {
+    channel.truncate(headerLength);
+    channel.force(false);
+    size = headerLength;
+    recordCount = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Reads all complete records, and truncates the incomplete record at the end of the journal if there is one.
+   *
+   * @throws IOException if a record that is followed by other records is corrupted
+   */
+  private List<byte[]> recover() throws IOException {
+    long fileSize = channel.size();
+    long position = headerLength;
+    List<byte[]> records = new ArrayList<>();
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    while (fileSize - position >= Integer.BYTES) {
+      lengthBuffer.clear();
+      readFully(channel, lengthBuffer, position);
+      int length = lengthBuffer.getInt(0);
+      long end = position + Integer.BYTES + length;
+      if (length < IV_LENGTH || length > MAX_RECORD_LENGTH || end > fileSize) {
+        break;
+      }
+      ByteBuffer encrypted = ByteBuffer.allocate(length);
+      readFully(channel, encrypted, position + Integer.BYTES);
+      try {
+        records.add(decrypt(encrypted.array(), position));
+      } catch (AEADBadTagException e) {
+        break;
+      }
+      position = end;
+    }
+
+    // Only the last record can be torn by a crash. If there is a valid record after the bad one, the journal is
+    // corrupted, and truncating it would silently drop all the acknowledged records after the bad one.
+    if (position < fileSize && hasRecordAfter(position, fileSize)) {
+      throw new IOException("Secure store journal " + path + " has a corrupted record at position " + position +
+                              ", which is followed by more records. The journal needs to be repaired or restored " +
+                              "from a backup before the secure store can be started.");
+    }
+    if (position < fileSize) {
+      LOG.warn("Discarding {} bytes of an incomplete record at the end of the secure store journal {}",
+               fileSize - position, path);
+      channel.truncate(position);
+      channel.force(false);
+    }
+    size = position;
+    recordCount = records.size();
+    return records;
+  }
+
+  /**
+   * Returns {@code true} if a valid record starts anywhere after the given position. Since the position of a record
+   * is authenticated with it, a valid record can only be found at the position it was appended at.
+   */
+  private boolean hasRecordAfter(long position, long fileSize) throws IOException {
+    ByteBuffer tail = ByteBuffer.allocate((int) Math.min(fileSize - position, Integer.MAX_VALUE));
+    readFully(channel, tail, position);
+    for (int offset = 1; offset + Integer.BYTES + IV_LENGTH <= tail.limit(); offset++) {
+      int length = tail.getInt(offset);
+      if (length < IV_LENGTH || length > tail.limit() - offset - Integer.BYTES) {
+        continue;
+      }
+      byte[] encrypted = Arrays.copyOfRange(tail.array(), offset + Integer.BYTES, offset + Integer.BYTES + length);
+      try {
+        decrypt(encrypted, position + offset);
+        return true;
+      } catch (AEADBadTagException e) {
+        // not a record
+      }
+    }
+    return false;
+  }
+
+  private byte[] encrypt(byte[] data, long position) throws IOException {
+    byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+    try {
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+      cipher.updateAAD(ByteBuffer.allocate(Long.BYTES).putLong(position).array());
+      byte[] encrypted = new byte[IV_LENGTH + cipher.getOutputSize(data.length)];
+      System.arraycopy(iv, 0, encrypted, 0, IV_LENGTH);
+      cipher.doFinal(data, 0, data.length, encrypted, IV_LENGTH);
+      return encrypted;
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Failed to encrypt secure store journal record", e);
+    }
+  }
+
+  /**
+   * Decrypts a record that was encrypted by {@link #encrypt(byte[], long)}.
+   *
+   * @throws AEADBadTagException if the record is corrupted, or if it was not written at the given position
+   */
+  private byte[] decrypt(byte[] encrypted, long position) throws IOException, AEADBadTagException {
+    try {
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, encrypted, 0, IV_LENGTH));
+      cipher.updateAAD(ByteBuffer.allocate(Long.BYTES).putLong(position).array());
+      return cipher.doFinal(encrypted, IV_LENGTH, encrypted.length - IV_LENGTH);
+    } catch (AEADBadTagException e) {
+      throw e;
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Failed to decrypt secure store journal record", e);
+    }
+  }
+
+  private ByteBuffer createHeader(byte[] salt) throws IOException {
+    byte[] verifier = encrypt(VERIFIER, 0L);
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 4 + SALT_LENGTH + verifier.length);
+    header.putInt(MAGIC).putInt(VERSION).put(salt).putInt(KEY_ITERATIONS).putInt(verifier.length).put(verifier);
+    header.flip();
+    return header;
+  }
+
+  /**
+   * Reads the header of the journal. The returned buffer is positioned after the version, with its limit set to
+   * the header length.
+   *
+   * @return the header, or {@code null} if the journal doesn't exist or if its header is incomplete
+   */
+  private static ByteBuffer readHeader(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer fixed = ByteBuffer.allocate(Integer.BYTES * 4 + SALT_LENGTH);
+      try {
+        readFully(channel, fixed, 0L);
+      } catch (EOFException e) {
+        // the header is written to a temporary file and moved into place, so it is never partially written
+        throw new IOException("Secure store journal " + path + " has an incomplete header", e);
+      }
+      if (fixed.getInt(0) != MAGIC) {
+        throw new IOException("File " + path + " is not a secure store journal");
+      }
+      int version = fixed.getInt(Integer.BYTES);
+      if (version != VERSION) {
+        throw new IOException("Unsupported secure store journal version " + version + " in " + path);
+      }
+      int verifierLength = fixed.getInt(fixed.limit() - Integer.BYTES);
+      if (verifierLength < IV_LENGTH || verifierLength > MAX_RECORD_LENGTH) {
+        throw new IOException("Invalid verifier length " + verifierLength + " in secure store journal " + path);
+      }
+      ByteBuffer header = ByteBuffer.allocate(fixed.limit() + verifierLength);
+      fixed.flip();
+      header.put(fixed);
+      readFully(channel, header, fixed.limit());
+      header.position(Integer.BYTES * 2);
+      return header;
+    }
+  }
+
+  /**
+   * Writes the header of a new journal. The header is written to a temporary file first, which is then moved
+   * atomically, so that a crash can't leave a journal with an incomplete header behind.
+   */
+  private static void writeHeader(Path path, ByteBuffer header) throws IOException {
+    Path newPath = path.resolveSibling(path.getFileName() + "_NEW");
+    Files.deleteIfExists(newPath);
+    try (FileChannel channel = FileChannel.open(newPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = header.duplicate();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(newPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    header.position(Integer.BYTES * 2);
+  }
+
+  private static SecretKey deriveKey(char[] password, byte[] salt, int iterations) throws IOException {
+    try {
+      SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+      byte[] encoded = factory.generateSecret(new PBEKeySpec(password, salt, iterations, KEY_LENGTH_BITS))
+        .getEncoded();
+      return new SecretKeySpec(encoded, "AES");
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Failed to derive the secure store journal key", e);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      position += read;
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable, Exception e) {
+    try {
+      closeable.close();
+    } catch (IOException ce) {
+      e.addSuppressed(ce);
+    }
+  }
+}
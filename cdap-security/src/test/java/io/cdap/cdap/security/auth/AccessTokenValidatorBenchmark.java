@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.auth;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.guice.IOModule;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link AccessTokenValidator} with many clients, each repeatedly sending its own token,
+ * with and without the validated token cache.
+ *
+ * Usage: AccessTokenValidatorBenchmark [clients] [threads] [duration-seconds]
+ */
+public class AccessTokenValidatorBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+    Injector injector = Guice.createInjector(new IOModule());
+    AccessTokenCodec tokenCodec = injector.getInstance(AccessTokenCodec.class);
+    TokenManager tokenManager = new TokenManager(new InMemoryKeyManager(CConfiguration.create()),
+                                                 injector.getInstance(AccessTokenIdentifierCodec.class));
+    tokenManager.startAndWait();
+
+    long now = System.currentTimeMillis();
+    List<String> tokens = new ArrayList<>(clients);
+    for (int i = 0; i < clients; i++) {
+      AccessTokenIdentifier identifier = new AccessTokenIdentifier("user" + i, ImmutableList.of("users"),
+                                                                   now, now + TimeUnit.HOURS.toMillis(1));
+      tokens.add(Base64.getEncoder().encodeToString(tokenCodec.encode(tokenManager.signIdentifier(identifier))));
+    }
+
+    System.out.printf("Validating tokens of %d clients with %d threads for %d seconds%n",
+                      clients, threads, durationSeconds);
+    for (int cacheSize : new int[] { 0, clients }) {
+      AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, cacheSize);
+      validator.startAndWait();
+      // Warm up
+      run(validator, tokens, threads, 1);
+      long count = run(validator, tokens, threads, durationSeconds);
+      System.out.printf("Cache size %d: %d validations, %.0f validations/second%n",
+                        cacheSize, count, (double) count / durationSeconds);
+    }
+    tokenManager.stopAndWait();
+  }
+
+  /**
+   * Validates tokens from the given number of threads for the given duration.
+   *
+   * @return the total number of validations
+   */
+  private static long run(AccessTokenValidator validator, List<String> tokens,
+                          int threads, int durationSeconds) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch startLatch = new CountDownLatch(1);
+      long endTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        int offset = i;
+        futures.add(executor.submit(() -> {
+          startLatch.await();
+          long count = 0;
+          int idx = offset;
+          while (System.nanoTime() < endTime) {
+            TokenState state = validator.validate(tokens.get(idx));
+            if (state != TokenState.VALID) {
+              throw new IllegalStateException("Unexpected token state " + state);
+            }
+            idx = (idx + threads) % tokens.size();
+            count++;
+          }
+          return count;
+        }));
+      }
+      startLatch.countDown();
+
+      long total = 0;
+      for (Future<Long> future : futures) {
+        total += future.get();
+      }
+      return total;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
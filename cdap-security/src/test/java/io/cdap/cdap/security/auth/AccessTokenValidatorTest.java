@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.auth;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.guice.IOModule;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link AccessTokenValidator}.
+ */
+public class AccessTokenValidatorTest {
+
+  private static AccessTokenCodec tokenCodec;
+  private static AccessTokenIdentifierCodec identifierCodec;
+
+  @BeforeClass
+  public static void init() {
+    Injector injector = Guice.createInjector(new IOModule());
+    tokenCodec = injector.getInstance(AccessTokenCodec.class);
+    identifierCodec = injector.getInstance(AccessTokenIdentifierCodec.class);
+  }
+
+  @Test
+  public void testCachedValidation() throws Exception {
+    TestKeyManager keyManager = new TestKeyManager();
+    CountingTokenManager tokenManager = new CountingTokenManager(keyManager);
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100);
+    validator.startAndWait();
+    try {
+      long now = System.currentTimeMillis();
+      String token = encode(tokenManager.signIdentifier(createIdentifier(now + TimeUnit.HOURS.toMillis(1))));
+
+      // Only the first validation should recompute the digest
+      for (int i = 0; i < 10; i++) {
+        Assert.assertEquals(TokenState.VALID, validator.validate(token));
+      }
+      Assert.assertEquals(1, tokenManager.getValidationCount());
+
+      // Invalid tokens are not cached
+      AccessToken accessToken = tokenCodec.decode(Base64.getDecoder().decode(token));
+      byte[] digest = accessToken.getDigestBytes().clone();
+      digest[0] ^= 0xff;
+      String invalidToken = encode(new AccessToken(accessToken.getIdentifier(), accessToken.getKeyId(), digest));
+      Assert.assertEquals(TokenState.INVALID, validator.validate(invalidToken));
+      Assert.assertEquals(TokenState.INVALID, validator.validate(invalidToken));
+      Assert.assertEquals(3, tokenManager.getValidationCount());
+
+      Assert.assertEquals(TokenState.MISSING, validator.validate(null));
+    } finally {
+      validator.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testCachedTokenExpiration() throws Exception {
+    TestKeyManager keyManager = new TestKeyManager();
+    CountingTokenManager tokenManager = new CountingTokenManager(keyManager);
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100);
+    validator.startAndWait();
+    try {
+      long expiration = System.currentTimeMillis() + 500;
+      String token = encode(tokenManager.signIdentifier(createIdentifier(expiration)));
+      Assert.assertEquals(TokenState.VALID, validator.validate(token));
+
+      // The cached token should never be served after the token expired
+      while (System.currentTimeMillis() <= expiration) {
+        TimeUnit.MILLISECONDS.sleep(expiration - System.currentTimeMillis() + 1);
+      }
+      Assert.assertEquals(TokenState.EXPIRED, validator.validate(token));
+    } finally {
+      validator.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testKeyChange() throws Exception {
+    TestKeyManager keyManager = new TestKeyManager();
+    CountingTokenManager tokenManager = new CountingTokenManager(keyManager);
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100);
+    validator.startAndWait();
+    try {
+      long now = System.currentTimeMillis();
+      AccessToken accessToken = tokenManager.signIdentifier(createIdentifier(now + TimeUnit.HOURS.toMillis(1)));
+      String token = encode(accessToken);
+      Assert.assertEquals(TokenState.VALID, validator.validate(token));
+      Assert.assertEquals(TokenState.VALID, validator.validate(token));
+      Assert.assertEquals(1, tokenManager.getValidationCount());
+
+      // Rotating the key invalidates the cache, but tokens signed with the old key are still valid
+      keyManager.rotateKey();
+      Assert.assertEquals(TokenState.VALID, validator.validate(token));
+      Assert.assertEquals(2, tokenManager.getValidationCount());
+
+      // Removing the key that signed the token should invalidate the token
+      keyManager.removeKey(accessToken.getKeyId());
+      Assert.assertEquals(TokenState.INTERNAL, validator.validate(token));
+    } finally {
+      validator.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testCacheDisabled() throws Exception {
+    TestKeyManager keyManager = new TestKeyManager();
+    CountingTokenManager tokenManager = new CountingTokenManager(keyManager);
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 0);
+    validator.startAndWait();
+    try {
+      long now = System.currentTimeMillis();
+      String token = encode(tokenManager.signIdentifier(createIdentifier(now + TimeUnit.HOURS.toMillis(1))));
+      for (int i = 0; i < 10; i++) {
+        Assert.assertEquals(TokenState.VALID, validator.validate(token));
+      }
+      Assert.assertEquals(10, tokenManager.getValidationCount());
+    } finally {
+      validator.stopAndWait();
+    }
+  }
+
+  private static AccessTokenIdentifier createIdentifier(long expiration) {
+    return new AccessTokenIdentifier("user", ImmutableList.of("users"), System.currentTimeMillis(), expiration);
+  }
+
+  private static String encode(AccessToken accessToken) throws Exception {
+    return Base64.getEncoder().encodeToString(tokenCodec.encode(accessToken));
+  }
+
+  /**
+   * A {@link InMemoryKeyManager} that allows keys to be rotated and removed.
+   */
+  private static final class TestKeyManager extends InMemoryKeyManager {
+
+    TestKeyManager() {
+      super(CConfiguration.create());
+    }
+
+    void rotateKey() {
+      generateKey();
+    }
+
+    void removeKey(int keyId) {
+      allKeys.remove(keyId);
+      notifyKeyChange();
+    }
+  }
+
+  /**
+   * A {@link TokenManager} that counts the number of token digest validations.
+   */
+  private static final class CountingTokenManager extends TokenManager {
+
+    private final AtomicInteger validationCount = new AtomicInteger();
+
+    CountingTokenManager(KeyManager keyManager) {
+      super(keyManager, identifierCodec);
+    }
+
+    @Override
+    public void validateSecret(AccessToken token) throws InvalidTokenException {
+      validationCount.incrementAndGet();
+      super.validateSecret(token);
+    }
+
+    int getValidationCount() {
+      return validationCount.get();
+    }
+  }
+}
@@ -69,16 +69,18 @@ public class FileSecureStoreServiceTest {
     PROPERTIES_2.put("Prop2", "Val2");
   }
 
+  protected CConfiguration cConf;
+  protected SConfiguration sConf;
+  protected InMemoryNamespaceAdmin namespaceClient;
   private SecureStoreManager secureStoreManager;
   private SecureStore secureStore;
 
   @Before
   public void setUp() throws Exception {
-    CConfiguration conf = CConfiguration.create();
-    conf.set(Constants.Security.Store.FILE_PATH, TEMP_FOLDER.newFolder().getAbsolutePath());
-    SConfiguration sConf = SConfiguration.create();
+    cConf = createCConf();
+    sConf = SConfiguration.create();
     sConf.set(Constants.Security.Store.FILE_PASSWORD, "secret");
-    InMemoryNamespaceAdmin namespaceClient = new InMemoryNamespaceAdmin();
+    namespaceClient = new InMemoryNamespaceAdmin();
     NamespaceMeta namespaceMeta = new NamespaceMeta.Builder()
       .setName(NAMESPACE1)
       .build();
@@ -87,11 +89,20 @@ public class FileSecureStoreServiceTest {
       .setName(NAMESPACE2)
       .build();
     namespaceClient.create(namespaceMeta);
-    FileSecureStoreService fileSecureStoreService = new FileSecureStoreService(conf, sConf, namespaceClient);
+    FileSecureStoreService fileSecureStoreService = new FileSecureStoreService(cConf, sConf, namespaceClient);
     secureStoreManager = fileSecureStoreService;
     secureStore = fileSecureStoreService;
   }
 
+  /**
+   * Creates the configuration for the secure store, with a new directory for the store file.
+   */
+  protected CConfiguration createCConf() throws IOException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.Security.Store.FILE_PATH, TEMP_FOLDER.newFolder().getAbsolutePath());
+    return cConf;
+  }
+
   private void populateStore() throws Exception {
     secureStoreManager.put(NAMESPACE1, KEY1, VALUE1, DESCRIPTION1, PROPERTIES_1);
     secureStoreManager.put(NAMESPACE1, KEY2, VALUE2, DESCRIPTION2, PROPERTIES_2);
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.store;
+
+import io.cdap.cdap.api.security.store.SecureStoreData;
+import io.cdap.cdap.common.NotFoundException;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ * Runs the {@link FileSecureStoreServiceTest} with the journal enabled, and tests recovery from the journal.
+ */
+public class JournaledFileSecureStoreServiceTest extends FileSecureStoreServiceTest {
+
+  private static final String NAMESPACE = "default";
+
+  @Override
+  protected CConfiguration createCConf() throws IOException {
+    CConfiguration cConf = super.createCConf();
+    cConf.setBoolean(Constants.Security.Store.FILE_JOURNAL_ENABLED, true);
+    // compact often, so that the tests cover the compaction
+    cConf.setInt(Constants.Security.Store.FILE_JOURNAL_COMPACTION_RECORDS, 3);
+    return cConf;
+  }
+
+  @Test
+  public void testRecovery() throws Exception {
+    FileSecureStoreService store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    for (int i = 0; i < 5; i++) {
+      store.put(NAMESPACE, "key" + i, "value" + i, null, Collections.emptyMap());
+    }
+    store.delete(NAMESPACE, "key1");
+    store.put(NAMESPACE, "key2", "new value", "updated", Collections.emptyMap());
+
+    // the keystore has the entries up to the last compaction, and the journal has the rest
+    store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    assertValue(store, "key0", "value0");
+    assertNotFound(store, "key1");
+    assertValue(store, "key2", "new value");
+    Assert.assertEquals("updated", store.get(NAMESPACE, "key2").getMetadata().getDescription());
+    assertValue(store, "key3", "value3");
+    assertValue(store, "key4", "value4");
+    Assert.assertEquals(4, store.list(NAMESPACE).size());
+  }
+
+  @Test
+  public void testTornJournalTail() throws Exception {
+    cConf.setInt(Constants.Security.Store.FILE_JOURNAL_COMPACTION_RECORDS, 100);
+    FileSecureStoreService store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    store.put(NAMESPACE, "key1", "value1", null, Collections.emptyMap());
+    Path journalPath = getJournalPath();
+    long size = Files.size(journalPath);
+    store.put(NAMESPACE, "key2", "value2", null, Collections.emptyMap());
+    long newSize = Files.size(journalPath);
+
+    // simulate a crash in the middle of writing the second record
+    truncate(journalPath, size + (newSize - size) / 2);
+    store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    assertValue(store, "key1", "value1");
+    assertNotFound(store, "key2");
+    Assert.assertEquals(size, Files.size(journalPath));
+
+    // records appended after the recovery are not hidden by the torn record
+    store.put(NAMESPACE, "key3", "value3", null, Collections.emptyMap());
+    store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    assertValue(store, "key1", "value1");
+    assertNotFound(store, "key2");
+    assertValue(store, "key3", "value3");
+  }
+
+  @Test
+  public void testDisableJournal() throws Exception {
+    cConf.setInt(Constants.Security.Store.FILE_JOURNAL_COMPACTION_RECORDS, 100);
+    FileSecureStoreService store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    store.put(NAMESPACE, "key1", "value1", null, Collections.emptyMap());
+    store.put(NAMESPACE, "key2", "value2", null, Collections.emptyMap());
+    store.delete(NAMESPACE, "key2");
+    Assert.assertTrue(Files.exists(getJournalPath()));
+
+    // the journal is compacted into the keystore and removed when the journal is disabled
+    cConf.setBoolean(Constants.Security.Store.FILE_JOURNAL_ENABLED, false);
+    store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    Assert.assertFalse(Files.exists(getJournalPath()));
+    assertValue(store, "key1", "value1");
+    assertNotFound(store, "key2");
+
+    store = new FileSecureStoreService(cConf, sConf, namespaceClient);
+    assertValue(store, "key1", "value1");
+    assertNotFound(store, "key2");
+  }
+
+  private Path getJournalPath() {
+    Path path = Paths.get(cConf.get(Constants.Security.Store.FILE_PATH), cConf.get(Constants.Security.Store.FILE_NAME));
+    return path.resolveSibling(path.getFileName() + "_JOURNAL");
+  }
+
+  private static void truncate(Path path, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+    }
+  }
+
+  private static void assertValue(FileSecureStoreService store, String name, String value) throws Exception {
+    SecureStoreData data = store.get(NAMESPACE, name);
+    Assert.assertEquals(name, data.getMetadata().getName());
+    Assert.assertEquals(value, new String(data.get(), StandardCharsets.UTF_8));
+  }
+
+  private static void assertNotFound(FileSecureStoreService store, String name) throws Exception {
+    try {
+      store.get(NAMESPACE, name);
+      Assert.fail("Expected " + name + " to be not found");
+    } catch (NotFoundException e) {
+      // expected
+    }
+  }
+}
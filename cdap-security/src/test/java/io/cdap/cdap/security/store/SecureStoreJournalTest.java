@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.store;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link SecureStoreJournal}.
+ */
+public class SecureStoreJournalTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final char[] PASSWORD = "secret".toCharArray();
+
+  @Test
+  public void testAppendAndRecover() throws IOException {
+    Path path = TEMP_FOLDER.newFolder().toPath().resolve("journal");
+    List<String> expected = new ArrayList<>();
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertTrue(journal.getRecoveredRecords().isEmpty());
+      for (int i = 0; i < 10; i++) {
+        journal.append(toBytes("record" + i));
+        expected.add("record" + i);
+      }
+      Assert.assertEquals(10, journal.getRecordCount());
+    }
+
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertEquals(expected, toStrings(journal.getRecoveredRecords()));
+      Assert.assertEquals(10, journal.getRecordCount());
+      journal.append(toBytes("more"));
+      expected.add("more");
+    }
+
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertEquals(expected, toStrings(journal.getRecoveredRecords()));
+      journal.clear();
+      Assert.assertEquals(0, journal.getRecordCount());
+      journal.append(toBytes("after clear"));
+    }
+
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertEquals(Arrays.asList("after clear"), toStrings(journal.getRecoveredRecords()));
+    }
+  }
+
+  @Test
+  public void testTornTail() throws IOException {
+    Path path = TEMP_FOLDER.newFolder().toPath().resolve("journal");
+    long size;
+    long fullSize;
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      journal.append(toBytes("first"));
+      journal.append(toBytes("second"));
+      size = Files.size(path);
+      journal.append(toBytes("third"));
+      fullSize = Files.size(path);
+    }
+    byte[] content = Files.readAllBytes(path);
+
+    // a crash can stop the last append within the record length, the iv, or the encrypted record
+    for (long tornSize : new long[] { size, size + 2, size + 4, size + 10, size + 20, fullSize - 1 }) {
+      Files.write(path, Arrays.copyOf(content, (int) tornSize));
+      try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+        Assert.assertEquals(Arrays.asList("first", "second"), toStrings(journal.getRecoveredRecords()));
+        Assert.assertEquals(size, Files.size(path));
+        journal.append(toBytes("fourth"));
+      }
+      try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+        Assert.assertEquals(Arrays.asList("first", "second", "fourth"), toStrings(journal.getRecoveredRecords()));
+      }
+    }
+  }
+
+  @Test
+  public void testCorruptedTail() throws IOException {
+    Path path = TEMP_FOLDER.newFolder().toPath().resolve("journal");
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      journal.append(toBytes("first"));
+      journal.append(toBytes("second"));
+    }
+
+    // flip a bit in the last record, which must fail the authentication of the record
+    byte[] content = Files.readAllBytes(path);
+    content[content.length - 3] ^= 1;
+    Files.write(path, content);
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertEquals(Arrays.asList("first"), toStrings(journal.getRecoveredRecords()));
+    }
+
+    // garbage after the last record is discarded as well
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 20, 1, 2, 3 }));
+    }
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertEquals(Arrays.asList("first"), toStrings(journal.getRecoveredRecords()));
+    }
+  }
+
+  @Test
+  public void testZeroFilledTail() throws IOException {
+    Path path = TEMP_FOLDER.newFolder().toPath().resolve("journal");
+    long size;
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      journal.append(toBytes("first"));
+      size = Files.size(path);
+    }
+
+    // a crash can leave blocks that were allocated but never written at the end of the file
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.allocate(100));
+    }
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      Assert.assertEquals(Arrays.asList("first"), toStrings(journal.getRecoveredRecords()));
+      Assert.assertEquals(size, Files.size(path));
+    }
+  }
+
+  @Test
+  public void testCorruptedMiddleRecord() throws IOException {
+    Path path = TEMP_FOLDER.newFolder().toPath().resolve("journal");
+    long headerSize;
+    long firstSize;
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      headerSize = Files.size(path);
+      journal.append(toBytes("first"));
+      firstSize = Files.size(path);
+      journal.append(toBytes("second"));
+      journal.append(toBytes("third"));
+    }
+    byte[] content = Files.readAllBytes(path);
+
+    // flip a bit in the encrypted content of the first record, and then in its length
+    for (long offset : new long[] { firstSize - 3, headerSize + 1 }) {
+      byte[] corrupted = content.clone();
+      corrupted[(int) offset] ^= 1;
+      Files.write(path, corrupted);
+      try {
+        new SecureStoreJournal(path, PASSWORD).close();
+        Assert.fail("Expected the journal to fail opening with a corrupted record at offset " + offset);
+      } catch (IOException e) {
+        // expected
+      }
+      // the records after the corrupted one must not be discarded
+      Assert.assertArrayEquals(corrupted, Files.readAllBytes(path));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testWrongPassword() throws IOException {
+    Path path = TEMP_FOLDER.newFolder().toPath().resolve("journal");
+    try (SecureStoreJournal journal = new SecureStoreJournal(path, PASSWORD)) {
+      journal.append(toBytes("first"));
+    }
+    // a wrong password must fail instead of discarding the records as corrupted
+    new SecureStoreJournal(path, "wrong".toCharArray()).close();
+  }
+
+  private static byte[] toBytes(String str) {
+    return str.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> toStrings(List<byte[]> records) {
+    List<String> result = new ArrayList<>();
+    for (byte[] record : records) {
+      result.add(new String(record, StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+}
@@ -67,6 +67,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * A {@link ProgramRunner} for launching {@link Spark} program in distributed mode. It starts
@@ -191,6 +192,12 @@ public final class DistributedSparkProgramRunner extends DistributedProgramRunne
         return super.accept(className, classUrl, classPathUrl)
           && !className.startsWith("org.apache.spark.");
       }
+
+      @Override
+      public String getExclusions() {
+        return super.getExclusions() + ", org.apache.spark., "
+          + urls.stream().map(URL::toString).sorted().collect(Collectors.joining(", "));
+      }
     };
   }
 
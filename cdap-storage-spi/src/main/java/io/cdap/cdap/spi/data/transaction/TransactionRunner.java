@@ -36,4 +36,33 @@ public interface TransactionRunner {
    * @throws TransactionException if failed to execute the given {@link TxRunnable} in a transaction
    */
   void run(TxRunnable runnable) throws TransactionException;
+
+  /**
+   * Executes a set of read only operations via a {@link TxRunnable}. Each read sees data committed before
+   * the read started, but different reads in the same {@link TxRunnable} may see different committed states.
+   * It is cheaper than {@link #run(TxRunnable)} and never fails due to conflict with concurrent writers.
+   * It should only be used for reading a single row. Use {@link #runReadOnlySnapshot(TxRunnable)} for scans and
+   * for reads of multiple rows or tables that need to be consistent with each other.
+   * Writes through the provided {@link StructuredTableContext} will fail.
+   * The default implementation is to call {@link #run(TxRunnable)}.
+   *
+   * @param runnable the runnable to be executed in the transaction
+   * @throws TransactionException if failed to execute the given {@link TxRunnable} in a transaction
+   */
+  default void runReadOnly(TxRunnable runnable) throws TransactionException {
+    run(runnable);
+  }
+
+  /**
+   * Executes a set of read only operations via a {@link TxRunnable}, with all the reads seeing the same
+   * consistent snapshot of the data taken when the transaction starts. Writes through the provided
+   * {@link StructuredTableContext} will fail.
+   * The default implementation is to call {@link #run(TxRunnable)}.
+   *
+   * @param runnable the runnable to be executed in the transaction
+   * @throws TransactionException if failed to execute the given {@link TxRunnable} in a transaction
+   */
+  default void runReadOnlySnapshot(TxRunnable runnable) throws TransactionException {
+    run(runnable);
+  }
 }
@@ -198,6 +198,112 @@ public class TransactionRunners {
     }
   }
 
+  /**
+   * Executes the given read only {@link TxRunnable} using {@link TransactionRunner#runReadOnly(TxRunnable)}.
+   *
+   * @param txRunner the {@link TransactionRunner} to use for txRunner execution
+   * @param runnable the {@link TxRunnable} to be executed inside a read only transaction
+   * @throws RuntimeException where the cause is wrapped with {@link RuntimeException} if it is not already a
+   * {@link RuntimeException}
+   */
+  public static void runReadOnly(TransactionRunner txRunner, TxRunnable runnable) {
+    try {
+      txRunner.runReadOnly(runnable);
+    } catch (TransactionException e) {
+      throw propagate(e);
+    }
+  }
+
+  /**
+   * Executes the given read only {@link TxCallable} using {@link TransactionRunner#runReadOnly(TxRunnable)}.
+   *
+   * @param txRunner the {@link TransactionRunner} to use for txRunner execution
+   * @param callable the {@link TxCallable} to be executed inside a read only transaction
+   * @param <V> type of the result
+   * @return value returned by the given {@link TxCallable}
+   * @throws  RuntimeException if failed to execute the given {@link TxRunnable} in a transaction.
+   * If the TransactionException has a cause in it, the cause is propagated.
+   */
+  public static <V> V runReadOnly(TransactionRunner txRunner, TxCallable<V> callable) {
+    try {
+      AtomicReference<V> result = new AtomicReference<>();
+      txRunner.runReadOnly(context -> result.set(callable.call(context)));
+      return result.get();
+    } catch (TransactionException e) {
+      throw propagate(e);
+    }
+  }
+
+  /**
+   * Executes the given read only {@link TxCallable} using {@link TransactionRunner#runReadOnly(TxRunnable)}.
+   *
+   * @param txRunner the {@link TransactionRunner} to use for the transaction execution
+   * @param callable the {@link TxCallable} to be executed inside a read only transaction
+   * @param <V> type of the result
+   * @param <X> exception type of propagate type
+   * @return value returned by the given {@link TxCallable}
+   * @throws X if failed to execute the given {@link TxRunnable} in a transaction. If the TransactionException
+   * has a cause in it, the cause is thrown as-is if it is an instance of X.
+   * @throws RuntimeException if cause is not an instance of X. The cause is wrapped with {@link RuntimeException}
+   * if it is not already a {@link RuntimeException}.
+   */
+  public static <V, X extends Throwable> V runReadOnly(TransactionRunner txRunner,
+                                                       TxCallable<V> callable, Class<X> exception) throws X {
+    try {
+      AtomicReference<V> result = new AtomicReference<>();
+      txRunner.runReadOnly(context -> result.set(callable.call(context)));
+      return result.get();
+    } catch (TransactionException e) {
+      throw propagate(e, exception);
+    }
+  }
+
+  /**
+   * Executes the given read only {@link TxCallable} using {@link TransactionRunner#runReadOnlySnapshot(TxRunnable)},
+   * such that all the reads see the same consistent snapshot.
+   *
+   * @param txRunner the {@link TransactionRunner} to use for txRunner execution
+   * @param callable the {@link TxCallable} to be executed inside a read only transaction
+   * @param <V> type of the result
+   * @return value returned by the given {@link TxCallable}
+   * @throws  RuntimeException if failed to execute the given {@link TxRunnable} in a transaction.
+   * If the TransactionException has a cause in it, the cause is propagated.
+   */
+  public static <V> V runReadOnlySnapshot(TransactionRunner txRunner, TxCallable<V> callable) {
+    try {
+      AtomicReference<V> result = new AtomicReference<>();
+      txRunner.runReadOnlySnapshot(context -> result.set(callable.call(context)));
+      return result.get();
+    } catch (TransactionException e) {
+      throw propagate(e);
+    }
+  }
+
+  /**
+   * Executes the given read only {@link TxCallable} using {@link TransactionRunner#runReadOnlySnapshot(TxRunnable)},
+   * such that all the reads see the same consistent snapshot.
+   *
+   * @param txRunner the {@link TransactionRunner} to use for the transaction execution
+   * @param callable the {@link TxCallable} to be executed inside a read only transaction
+   * @param <V> type of the result
+   * @param <X> exception type of propagate type
+   * @return value returned by the given {@link TxCallable}
+   * @throws X if failed to execute the given {@link TxRunnable} in a transaction. If the TransactionException
+   * has a cause in it, the cause is thrown as-is if it is an instance of X.
+   * @throws RuntimeException if cause is not an instance of X. The cause is wrapped with {@link RuntimeException}
+   * if it is not already a {@link RuntimeException}.
+   */
+  public static <V, X extends Throwable> V runReadOnlySnapshot(TransactionRunner txRunner,
+                                                               TxCallable<V> callable, Class<X> exception) throws X {
+    try {
+      AtomicReference<V> result = new AtomicReference<>();
+      txRunner.runReadOnlySnapshot(context -> result.set(callable.call(context)));
+      return result.get();
+    } catch (TransactionException e) {
+      throw propagate(e, exception);
+    }
+  }
+
   /**
    * Propagates the given {@link TransactionException}. If the {@link TransactionException#getCause()}
    * doesn't return {@code null}, the cause will be used instead for the propagation. This method will
@@ -25,6 +25,7 @@ import io.cdap.cdap.spi.data.table.field.Field;
 import io.cdap.cdap.spi.data.table.field.FieldType;
 import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
+import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import org.junit.After;
@@ -45,6 +46,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -173,6 +176,101 @@ public abstract class StructuredTableTest {
     Assert.assertEquals(new HashSet<>(keys), result);
   }
 
+  @Test
+  public void testMultiUpsertDelete() throws Exception {
+    int max = 10;
+
+    List<Collection<Field<?>>> expected = new ArrayList<>();
+    for (int i = 0; i < max; i++) {
+      expected.add(Arrays.asList(Fields.intField(KEY, i),
+                                 Fields.longField(KEY2, (long) i),
+                                 Fields.stringField(STRING_COL, VAL + i),
+                                 Fields.doubleField(DOUBLE_COL, (double) i),
+                                 Fields.floatField(FLOAT_COL, (float) i),
+                                 Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i))));
+    }
+    // Include a row with columns in a different order, and a later update of an earlier row
+    List<Collection<Field<?>>> rows = new ArrayList<>(expected);
+    List<Field<?>> reordered = new ArrayList<>(expected.get(3));
+    Collections.reverse(reordered.subList(2, reordered.size()));
+    rows.set(3, reordered);
+    rows.add(Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 0L),
+                           Fields.stringField(STRING_COL, VAL + "updated")));
+    expected.set(0, Arrays.asList(Fields.intField(KEY, 0),
+                                  Fields.longField(KEY2, 0L),
+                                  Fields.stringField(STRING_COL, VAL + "updated"),
+                                  Fields.doubleField(DOUBLE_COL, 0d),
+                                  Fields.floatField(FLOAT_COL, 0f),
+                                  Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-0"))));
+
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).multiUpsert(rows));
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Delete the even rows
+    List<Collection<Field<?>>> keys = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      keys.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i)));
+    }
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).multiDelete(keys));
+    List<Collection<Field<?>>> remaining = new ArrayList<>();
+    for (int i = 1; i < max; i += 2) {
+      remaining.add(expected.get(i));
+    }
+    Assert.assertEquals(remaining, readSimpleStructuredRows(max));
+
+    // Empty collections are no-op
+    getTransactionRunner().run(context -> {
+      context.getTable(SIMPLE_TABLE).multiUpsert(Collections.emptyList());
+      context.getTable(SIMPLE_TABLE).multiDelete(Collections.emptyList());
+    });
+    Assert.assertEquals(remaining, readSimpleStructuredRows(max));
+  }
+
+  @Test
+  public void testReadOnly() throws Exception {
+    int max = 10;
+    List<Collection<Field<?>>> expected = writeSimpleStructuredRows(max, "");
+    Range range = Range.all();
+
+    // Read only transactions should see the committed writes
+    Assert.assertEquals(expected, TransactionRunners.runReadOnly(getTransactionRunner(), context -> {
+      return scanSimpleStructuredRows(context.getTable(SIMPLE_TABLE), range, max);
+    }));
+    Assert.assertEquals(expected, TransactionRunners.runReadOnlySnapshot(getTransactionRunner(), context -> {
+      return scanSimpleStructuredRows(context.getTable(SIMPLE_TABLE), range, max);
+    }));
+
+    // Writes in read only transactions should fail
+    try {
+      getTransactionRunner().runReadOnly(context -> context.getTable(SIMPLE_TABLE).delete(
+        Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 0L))));
+      Assert.fail("Expected failure when writing in a read only transaction");
+    } catch (TransactionException e) {
+      // expected
+    }
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Snapshot read should not see writes committed after it started
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      List<Collection<Field<?>>> snapshot = TransactionRunners.runReadOnlySnapshot(getTransactionRunner(), context -> {
+        StructuredTable table = context.getTable(SIMPLE_TABLE);
+        List<Collection<Field<?>>> before = scanSimpleStructuredRows(table, range, max + 1);
+        executor.submit(() -> {
+          getTransactionRunner().run(ctx -> ctx.getTable(SIMPLE_TABLE).delete(
+            Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 0L))));
+          return null;
+        }).get();
+        Assert.assertEquals(before, scanSimpleStructuredRows(table, range, max + 1));
+        return before;
+      });
+      Assert.assertEquals(expected, snapshot);
+      Assert.assertEquals(expected.subList(1, max), readSimpleStructuredRows(max));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void testSimpleScan() throws Exception {
     int max = 100;
@@ -696,21 +794,25 @@ public abstract class StructuredTableTest {
   }
 
   private List<Collection<Field<?>>> scanSimpleStructuredRows(Range range, int max) throws Exception {
+    return TransactionRunners.run(getTransactionRunner(), context -> {
+      return scanSimpleStructuredRows(context.getTable(SIMPLE_TABLE), range, max);
+    });
+  }
+
+  private List<Collection<Field<?>>> scanSimpleStructuredRows(StructuredTable table,
+                                                              Range range, int max) throws Exception {
     List<Collection<Field<?>>> actual = new ArrayList<>(max);
-    getTransactionRunner().run(context -> {
-      StructuredTable table = context.getTable(SIMPLE_TABLE);
-      try (CloseableIterator<StructuredRow> iterator = table.scan(range, max)) {
-        while (iterator.hasNext()) {
-          StructuredRow row = iterator.next();
-          actual.add(Arrays.asList(Fields.intField(KEY, row.getInteger(KEY)),
-                                   Fields.longField(KEY2, row.getLong(KEY2)),
-                                   Fields.stringField(STRING_COL, row.getString(STRING_COL)),
-                                   Fields.doubleField(DOUBLE_COL, row.getDouble(DOUBLE_COL)),
-                                   Fields.floatField(FLOAT_COL, row.getFloat(FLOAT_COL)),
-                                   Fields.bytesField(BYTES_COL, row.getBytes(BYTES_COL))));
-        }
+    try (CloseableIterator<StructuredRow> iterator = table.scan(range, max)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        actual.add(Arrays.asList(Fields.intField(KEY, row.getInteger(KEY)),
+                                 Fields.longField(KEY2, row.getLong(KEY2)),
+                                 Fields.stringField(STRING_COL, row.getString(STRING_COL)),
+                                 Fields.doubleField(DOUBLE_COL, row.getDouble(DOUBLE_COL)),
+                                 Fields.floatField(FLOAT_COL, row.getFloat(FLOAT_COL)),
+                                 Fields.bytesField(BYTES_COL, row.getBytes(BYTES_COL))));
       }
-    });
+    }
     return actual;
   }
 }
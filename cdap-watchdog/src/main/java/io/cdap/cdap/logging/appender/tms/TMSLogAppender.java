@@ -29,6 +29,7 @@ import io.cdap.cdap.logging.appender.AbstractLogPublisher;
 import io.cdap.cdap.logging.appender.LogAppender;
 import io.cdap.cdap.logging.appender.LogMessage;
 import io.cdap.cdap.logging.appender.kafka.LogPartitionType;
+import io.cdap.cdap.logging.serialize.LoggingEventBlockSerializer;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.context.MultiThreadMessagingContext;
@@ -49,6 +50,8 @@ import java.util.concurrent.atomic.AtomicReference;
 public class TMSLogAppender extends LogAppender {
 
   private static final String APPENDER_NAME = "TMSLogAppender";
+  // Maximum number of log messages in one TMS message when publishing in blocks
+  private static final int MAX_BLOCK_EVENTS = 512;
 
   private final CConfiguration cConf;
   private final MessagingService messagingService;
@@ -100,11 +103,14 @@ public class TMSLogAppender extends LogAppender {
   /**
    * Publisher service to publish logs to TMS asynchronously.
    */
-  private final class TMSLogPublisher extends AbstractLogPublisher<Map.Entry<Integer, byte[]>> {
+  private final class TMSLogPublisher extends AbstractLogPublisher<Map.Entry<Integer, LogMessage>> {
 
     private final String topicPrefix;
     private final int numPartitions;
+    private final boolean publishBlock;
+    private final boolean compressBlock;
     private final LoggingEventSerializer loggingEventSerializer;
+    private final LoggingEventBlockSerializer loggingEventBlockSerializer;
     private final MessagingContext messagingContext;
     private final LogPartitionType logPartitionType;
 
@@ -113,36 +119,59 @@ public class TMSLogAppender extends LogAppender {
             RetryStrategies.fromConfiguration(cConf, "system.log.process."));
       this.topicPrefix = cConf.get(Constants.Logging.TMS_TOPIC_PREFIX);
       this.numPartitions = cConf.getInt(Constants.Logging.NUM_PARTITIONS);
+      this.publishBlock = cConf.getBoolean(Constants.Logging.TMS_PUBLISH_BLOCK_ENABLED);
+      this.compressBlock = cConf.getBoolean(Constants.Logging.TMS_PUBLISH_BLOCK_COMPRESSION_ENABLED);
       this.loggingEventSerializer = new LoggingEventSerializer();
+      this.loggingEventBlockSerializer = new LoggingEventBlockSerializer();
       this.logPartitionType =
               LogPartitionType.valueOf(cConf.get(Constants.Logging.LOG_PUBLISH_PARTITION_KEY).toUpperCase());
       this.messagingContext = new MultiThreadMessagingContext(messagingService);
     }
 
     @Override
-    protected Map.Entry<Integer, byte[]> createMessage(LogMessage logMessage) {
+    protected Map.Entry<Integer, LogMessage> createMessage(LogMessage logMessage) {
       String partitionKey = logPartitionType.getPartitionKey(logMessage.getLoggingContext());
       int partition = partition(partitionKey, numPartitions);
-      return new AbstractMap.SimpleEntry<>(partition, loggingEventSerializer.toBytes(logMessage));
+      return new AbstractMap.SimpleEntry<>(partition, logMessage);
     }
 
     @Override
-    protected void publish(List<Map.Entry<Integer, byte[]>> logMessages) throws TopicNotFoundException, IOException {
+    protected void publish(List<Map.Entry<Integer, LogMessage>> logMessages)
+      throws TopicNotFoundException, IOException {
       MessagePublisher directMessagePublisher = messagingContext.getDirectMessagePublisher();
 
       // Group the log messages by partition and then publish all messages to their respective partitions
-      Map<Integer, List<byte[]>> partitionedMessages = new HashMap<>();
-      for (Map.Entry<Integer, byte[]> logMessage : logMessages) {
-        List<byte[]> messages = partitionedMessages.computeIfAbsent(logMessage.getKey(), k -> new ArrayList<>());
+      Map<Integer, List<LogMessage>> partitionedMessages = new HashMap<>();
+      for (Map.Entry<Integer, LogMessage> logMessage : logMessages) {
+        List<LogMessage> messages = partitionedMessages.computeIfAbsent(logMessage.getKey(), k -> new ArrayList<>());
         messages.add(logMessage.getValue());
       }
 
-      for (Map.Entry<Integer, List<byte[]>> partition : partitionedMessages.entrySet()) {
+      for (Map.Entry<Integer, List<LogMessage>> partition : partitionedMessages.entrySet()) {
         directMessagePublisher.publish(NamespaceId.SYSTEM.getNamespace(),
-                                       topicPrefix + partition.getKey(), partition.getValue().iterator());
+                                       topicPrefix + partition.getKey(), toPayloads(partition.getValue()).iterator());
       }
     }
 
+    /**
+     * Serializes the given log messages to TMS message payloads. If block publishing is enabled, each payload
+     * contains a block of up to {@link #MAX_BLOCK_EVENTS} log messages, otherwise each payload is a log message.
+     */
+    private List<byte[]> toPayloads(List<LogMessage> logMessages) {
+      List<byte[]> payloads = new ArrayList<>();
+      if (!publishBlock) {
+        for (LogMessage logMessage : logMessages) {
+          payloads.add(loggingEventSerializer.toBytes(logMessage));
+        }
+        return payloads;
+      }
+      for (int i = 0; i < logMessages.size(); i += MAX_BLOCK_EVENTS) {
+        List<LogMessage> block = logMessages.subList(i, Math.min(i + MAX_BLOCK_EVENTS, logMessages.size()));
+        payloads.add(loggingEventBlockSerializer.toBytes(block, compressBlock));
+      }
+      return payloads;
+    }
+
     @Override
     protected void logError(String errorMessage, Exception exception) {
       // Log using the status manager
@@ -19,44 +19,46 @@ package io.cdap.cdap.logging.pipeline.queue;
 import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
  * A queue for storing time based events with offsets association.
  *
+ * Events of each partition are kept in an array based ring buffer ordered by event time, and the queue is
+ * iterated by merging the partition buffers with a heap. Since events are mostly added in time order and removed
+ * from the head, adding and removing an event are usually constant time operations.
+ *
  * @param <EVENT> Type of event stored in the queue.
  * @param <OFFSET> Type of event offset associated with the event.
  */
 @NotThreadSafe
 public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> implements Iterable<EVENT> {
 
-  private final SortedSet<TimeEvent<EVENT, OFFSET>> events;
-  private final Int2ObjectMap<SortedSet<OFFSET>> partitionOffsets;
+  private final Int2ObjectMap<PartitionEvents<EVENT, OFFSET>> partitionEvents;
+  private int size;
   private long totalSize;
+  private int modCount;
 
   public TimeEventQueue(Iterable<Integer> partitions) {
-    this.events = new TreeSet<>();
-    this.partitionOffsets = new Int2ObjectArrayMap<>();
+    this.partitionEvents = new Int2ObjectArrayMap<>();
 
     for (int partition : partitions) {
-      partitionOffsets.put(partition, new TreeSet<>());
+      partitionEvents.put(partition, new PartitionEvents<>());
     }
   }
 
   public void add(EVENT event, long eventTimestamp, int eventSize, int partition, OFFSET offset) {
-    SortedSet<OFFSET> offsets = getOffsets(partition);
-    TimeEvent<EVENT, OFFSET> timeEvent = new TimeEvent<>(eventTimestamp, partition, offset, event, eventSize);
-    if (events.add(timeEvent)) {
-      if (!offsets.add(offset)) {
-        events.remove(timeEvent);
-        throw new IllegalArgumentException("Adding different event with the same offset "
-                                             + offset + ", " + event);
-      }
-
+    PartitionEvents<EVENT, OFFSET> events = getPartitionEvents(partition);
+    if (events.add(new TimeEvent<>(eventTimestamp, partition, offset, event, eventSize))) {
+      size++;
       totalSize += eventSize;
+      modCount++;
     }
   }
 
@@ -64,28 +66,37 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
    * Returns the event in the queue with the smallest timestamp.
    */
   public EVENT first() {
-    return events.first().getEvent();
+    TimeEvent<EVENT, OFFSET> first = null;
+    for (PartitionEvents<EVENT, OFFSET> events : partitionEvents.values()) {
+      if (!events.isEmpty() && (first == null || events.get(0).compareTo(first) < 0)) {
+        first = events.get(0);
+      }
+    }
+    if (first == null) {
+      throw new NoSuchElementException("Queue is empty");
+    }
+    return first.getEvent();
   }
 
   /**
    * Returns {@code true} if there is no event in the queue.
    */
   public boolean isEmpty() {
-    return events.isEmpty();
+    return size == 0;
   }
 
   /**
    * Returns {@code true} if there is no event for the given partition in the queue.
    */
   public boolean isEmpty(int partition) {
-    return getOffsets(partition).isEmpty();
+    return getPartitionEvents(partition).isEmpty();
   }
 
   /**
    * Returns the number of events in the queue.
    */
   public int size() {
-    return events.size();
+    return size;
   }
 
   /**
@@ -99,28 +110,48 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
    * Returns the smallest offset stored for the given partition.
    */
   public OFFSET getSmallestOffset(int partition) {
-    SortedSet<OFFSET> offsets = getOffsets(partition);
-    if (offsets.isEmpty()) {
+    PartitionEvents<EVENT, OFFSET> events = getPartitionEvents(partition);
+    if (events.isEmpty()) {
       throw new IllegalStateException("Queue is empty");
     }
-    return offsets.first();
+    return events.getSmallestOffset();
   }
 
   @Override
   public EventIterator<EVENT, OFFSET> iterator() {
-    final Iterator<TimeEvent<EVENT, OFFSET>> iterator = events.iterator();
+    // Merges the events of all partitions by keeping a cursor to the next event of each partition in a heap
+    PriorityQueue<PartitionCursor<EVENT, OFFSET>> cursors =
+      new PriorityQueue<>(Math.max(1, partitionEvents.size()), Comparator.comparing(PartitionCursor::getEvent));
+    for (PartitionEvents<EVENT, OFFSET> events : partitionEvents.values()) {
+      if (!events.isEmpty()) {
+        cursors.add(new PartitionCursor<>(events));
+      }
+    }
+
     return new EventIterator<EVENT, OFFSET>() {
 
+      private int expectedModCount = modCount;
+      private PartitionCursor<EVENT, OFFSET> currentCursor;
       private TimeEvent<EVENT, OFFSET> currentEvent;
 
       @Override
       public boolean hasNext() {
-        return iterator.hasNext();
+        return !cursors.isEmpty();
       }
 
       @Override
       public EVENT next() {
-        currentEvent = iterator.next();
+        checkModCount();
+        PartitionCursor<EVENT, OFFSET> cursor = cursors.poll();
+        if (cursor == null) {
+          throw new NoSuchElementException();
+        }
+        currentCursor = cursor;
+        currentEvent = cursor.getEvent();
+        cursor.index++;
+        if (cursor.index < cursor.events.size()) {
+          cursors.add(cursor);
+        }
         return currentEvent.getEvent();
       }
 
@@ -129,9 +160,14 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
         if (currentEvent == null) {
           throw new IllegalStateException("The next() method must be called first.");
         }
-        iterator.remove();
-        partitionOffsets.get(currentEvent.getPartition()).remove(currentEvent.getOffset());
+        checkModCount();
+        // The cursor is pointing to the event after the current event. Removing the current event
+        // keeps the cursor pointing to the same event, hence the heap order is not affected.
+        currentCursor.index--;
+        currentCursor.events.remove(currentCursor.index);
+        size--;
         totalSize -= currentEvent.getEventSize();
+        expectedModCount = ++modCount;
         currentEvent = null;
       }
 
@@ -150,16 +186,22 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
         }
         return currentEvent.getPartition();
       }
+
+      private void checkModCount() {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+      }
     };
   }
 
-  private SortedSet<OFFSET> getOffsets(int partition) {
-    SortedSet<OFFSET> offsets = partitionOffsets.get(partition);
-    if (offsets == null) {
+  private PartitionEvents<EVENT, OFFSET> getPartitionEvents(int partition) {
+    PartitionEvents<EVENT, OFFSET> events = partitionEvents.get(partition);
+    if (events == null) {
       throw new IllegalArgumentException("Partition " + partition +
-                                           " is not in allowed partitions " + partitionOffsets.keySet());
+                                           " is not in allowed partitions " + partitionEvents.keySet());
     }
-    return offsets;
+    return events;
   }
 
   /**
@@ -181,6 +223,199 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
     int getPartition();
   }
 
+  /**
+   * Events of a partition. Events are kept in two {@link RingBuffer}s, one ordered by event time for iteration and
+   * one ordered by offset for finding the smallest offset. Since the events are removed in time order,
+   * removed events are only dropped from the offset buffer once they reach the head of it, or when there
+   * are too many of them.
+   */
+  private static final class PartitionEvents<EVENT, OFFSET extends Comparable<OFFSET>> {
+
+    private static final int MIN_COMPACT_SIZE = 16;
+
+    private final RingBuffer<TimeEvent<EVENT, OFFSET>> timeOrdered = new RingBuffer<>();
+    private final RingBuffer<TimeEvent<EVENT, OFFSET>> offsetOrdered = new RingBuffer<>();
+    private int removedCount;
+
+    /**
+     * Adds the given event.
+     *
+     * @return {@code true} if the event is added, or {@code false} if the same event is already in the queue
+     * @throws IllegalArgumentException if a different event with the same offset is already in the queue
+     */
+    boolean add(TimeEvent<EVENT, OFFSET> event) {
+      // Offsets are mostly added in increasing order, hence search for the insertion point from the tail
+      int offsetIdx = offsetOrdered.size();
+      while (offsetIdx > 0) {
+        TimeEvent<EVENT, OFFSET> other = offsetOrdered.get(offsetIdx - 1);
+        int cmp = other.getOffset().compareTo(event.getOffset());
+        if (cmp < 0) {
+          break;
+        }
+        if (cmp == 0 && !other.removed) {
+          if (other.compareTo(event) == 0) {
+            return false;
+          }
+          throw new IllegalArgumentException("Adding different event with the same offset "
+                                               + event.getOffset() + ", " + event.getEvent());
+        }
+        offsetIdx--;
+      }
+
+      int timeIdx = timeOrdered.size();
+      while (timeIdx > 0 && timeOrdered.get(timeIdx - 1).compareTo(event) > 0) {
+        timeIdx--;
+      }
+
+      timeOrdered.add(timeIdx, event);
+      offsetOrdered.add(offsetIdx, event);
+      return true;
+    }
+
+    /**
+     * Returns the event at the given index in time order.
+     */
+    TimeEvent<EVENT, OFFSET> get(int index) {
+      return timeOrdered.get(index);
+    }
+
+    /**
+     * Removes the event at the given index in time order.
+     */
+    void remove(int index) {
+      timeOrdered.remove(index).removed = true;
+      removedCount++;
+
+      while (!offsetOrdered.isEmpty() && offsetOrdered.get(0).removed) {
+        offsetOrdered.remove(0);
+        removedCount--;
+      }
+      // Compact if most of the offset buffer are removed events, which can happen if there is
+      // an event with small offset that stays in the queue for long time
+      if (removedCount >= MIN_COMPACT_SIZE && removedCount > offsetOrdered.size() / 2) {
+        offsetOrdered.removeIf(e -> e.removed);
+        removedCount = 0;
+      }
+    }
+
+    OFFSET getSmallestOffset() {
+      // The head of the offset buffer is never a removed event
+      return offsetOrdered.get(0).getOffset();
+    }
+
+    int size() {
+      return timeOrdered.size();
+    }
+
+    boolean isEmpty() {
+      return timeOrdered.isEmpty();
+    }
+  }
+
+  /**
+   * Cursor to the next event of a partition for iterating over the queue.
+   */
+  private static final class PartitionCursor<EVENT, OFFSET extends Comparable<OFFSET>> {
+    private final PartitionEvents<EVENT, OFFSET> events;
+    private int index;
+
+    PartitionCursor(PartitionEvents<EVENT, OFFSET> events) {
+      this.events = events;
+    }
+
+    TimeEvent<EVENT, OFFSET> getEvent() {
+      return events.get(index);
+    }
+  }
+
+  /**
+   * An array based ring buffer that supports constant time insertion and removal at both ends.
+   */
+  private static final class RingBuffer<T> {
+    private Object[] elements = new Object[16];
+    private int head;
+    private int size;
+
+    int size() {
+      return size;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+      return (T) elements[physicalIndex(index)];
+    }
+
+    void add(int index, T element) {
+      if (size == elements.length) {
+        grow();
+      }
+      if (index == 0) {
+        head = (head - 1) & (elements.length - 1);
+      } else {
+        for (int i = size; i > index; i--) {
+          set(i, get(i - 1));
+        }
+      }
+      set(index, element);
+      size++;
+    }
+
+    T remove(int index) {
+      T element = get(index);
+      // Shift the shorter side
+      if (index < size / 2) {
+        for (int i = index; i > 0; i--) {
+          set(i, get(i - 1));
+        }
+        set(0, null);
+        head = (head + 1) & (elements.length - 1);
+      } else {
+        for (int i = index; i < size - 1; i++) {
+          set(i, get(i + 1));
+        }
+        set(size - 1, null);
+      }
+      size--;
+      return element;
+    }
+
+    void removeIf(Predicate<T> predicate) {
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        T element = get(i);
+        if (!predicate.test(element)) {
+          set(newSize++, element);
+        }
+      }
+      for (int i = newSize; i < size; i++) {
+        set(i, null);
+      }
+      size = newSize;
+    }
+
+    private void set(int index, T element) {
+      elements[physicalIndex(index)] = element;
+    }
+
+    private int physicalIndex(int index) {
+      // The capacity is always a power of two
+      return (head + index) & (elements.length - 1);
+    }
+
+    private void grow() {
+      Object[] newElements = new Object[elements.length << 1];
+      for (int i = 0; i < size; i++) {
+        newElements[i] = get(i);
+      }
+      elements = newElements;
+      head = 0;
+    }
+  }
+
   /**
    * This class represent an event stored in the event set.
    */
@@ -191,6 +426,7 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
     private final OFFSET offset;
     private final EVENT event;
     private final int eventSize;
+    private boolean removed;
 
     TimeEvent(long eventTime, int partition, OFFSET offset, EVENT event, int eventSize) {
       this.eventTime = eventTime;
@@ -0,0 +1,357 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.serialize;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.base.Throwables;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericArray;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Serializer for a block of {@link ILoggingEvent}s, which encodes many events in one payload. The block is of
+ * the format:
+ *
+ * <pre>
+ *   [magic][version][compression][body]
+ *   body = [number of strings][string]...[number of events][event]...
+ * </pre>
+ *
+ * Each event is encoded with the {@link LogSchema.LoggingEvent#SCHEMA}, except that strings are written as
+ * indices into the string dictionary at the beginning of the body, so that repeated strings such as thread name,
+ * logger name, MDC and stack traces are only stored once per block. The formatted message and the arguments are
+ * written inline since they are mostly unique. The body is optionally compressed with deflate.
+ *
+ * The magic is an invalid Avro long encoding, hence a block never decodes as a single event encoded by
+ * {@link LoggingEventSerializer} and vice versa, which allows {@link #fromBytes(ByteBuffer)} to decode both.
+ * Method of this class is not thread safe, hence cannot be called from multiple threads concurrently.
+ */
+@NotThreadSafe
+public final class LoggingEventBlockSerializer {
+
+  private static final byte[] MAGIC = {
+    (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+    (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff
+  };
+  private static final byte VERSION = 1;
+  private static final byte COMPRESSION_NONE = 0;
+  private static final byte COMPRESSION_DEFLATE = 1;
+  private static final int HEADER_SIZE = MAGIC.length + 2;
+
+  // Top level fields that are written inline instead of going through the string dictionary
+  private static final Collection<String> INLINE_FIELDS = Arrays.asList("formattedMessage", "argumentArray");
+
+  private final LoggingEventSerializer eventSerializer = new LoggingEventSerializer();
+  private final Map<String, Integer> dictionaryIndices = new HashMap<>();
+  private final List<String> dictionary = new ArrayList<>();
+  private final ByteArrayOutputStream eventsOut = new ByteArrayOutputStream();
+  private BinaryEncoder encoder;
+  private BinaryDecoder decoder;
+
+  /**
+   * Returns {@code true} if the given buffer contains a block encoded by {@link #toBytes(Collection, boolean)}.
+   */
+  public static boolean isBlock(ByteBuffer buffer) {
+    if (buffer.remaining() < HEADER_SIZE) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encodes a block of {@link ILoggingEvent}s to byte array.
+   *
+   * @param events the events to encode
+   * @param compress {@code true} to compress the block body
+   * @return the encoded block
+   */
+  public byte[] toBytes(Collection<? extends ILoggingEvent> events, boolean compress) {
+    Schema schema = eventSerializer.getAvroSchema();
+    dictionaryIndices.clear();
+    dictionary.clear();
+    eventsOut.reset();
+
+    try {
+      // Events are encoded first to collect the dictionary
+      Encoder eventsEncoder = getEncoder(eventsOut);
+      for (ILoggingEvent event : events) {
+        GenericRecord record = event instanceof LoggingEvent
+          ? ((LoggingEvent) event).getRecord() : eventSerializer.toGenericRecord(event);
+        for (Schema.Field field : schema.getFields()) {
+          write(field.schema(), record.get(field.pos()), !INLINE_FIELDS.contains(field.name()), eventsEncoder);
+        }
+      }
+
+      ByteArrayOutputStream os = new ByteArrayOutputStream(HEADER_SIZE + eventsOut.size());
+      os.write(MAGIC);
+      os.write(VERSION);
+      os.write(compress ? COMPRESSION_DEFLATE : COMPRESSION_NONE);
+
+      Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+      try {
+        OutputStream bodyOut = compress ? new DeflaterOutputStream(os, deflater) : os;
+        Encoder bodyEncoder = getEncoder(bodyOut);
+        bodyEncoder.writeInt(dictionary.size());
+        for (String str : dictionary) {
+          bodyEncoder.writeString(str);
+        }
+        bodyEncoder.writeInt(events.size());
+        eventsOut.writeTo(bodyOut);
+        bodyOut.close();
+      } finally {
+        if (deflater != null) {
+          deflater.end();
+        }
+      }
+      return os.toByteArray();
+    } catch (IOException e) {
+      // This shouldn't happen since we are writing to byte array output stream.
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Decodes the content of the given {@link ByteBuffer}, which is either a block encoded by
+   * {@link #toBytes(Collection, boolean)} or a single event encoded by {@link LoggingEventSerializer}.
+   *
+   * @param buffer the buffer to decode
+   * @return the list of decoded {@link ILoggingEvent}s
+   * @throws IOException if fail to decode
+   */
+  public List<ILoggingEvent> fromBytes(ByteBuffer buffer) throws IOException {
+    if (!isBlock(buffer)) {
+      return Collections.singletonList(eventSerializer.fromBytes(buffer));
+    }
+
+    int pos = buffer.position() + MAGIC.length;
+    byte version = buffer.get(pos++);
+    if (version != VERSION) {
+      throw new IOException("Unsupported logging event block version " + version);
+    }
+    byte compression = buffer.get(pos++);
+
+    byte[] bytes;
+    int offset;
+    if (buffer.hasArray()) {
+      bytes = buffer.array();
+      offset = buffer.arrayOffset() + pos;
+    } else {
+      ByteBuffer body = buffer.duplicate();
+      body.position(pos);
+      bytes = new byte[body.remaining()];
+      body.get(bytes);
+      offset = 0;
+    }
+    int length = buffer.limit() - pos;
+
+    Decoder decoder;
+    switch (compression) {
+      case COMPRESSION_NONE:
+        decoder = this.decoder = DecoderFactory.get().binaryDecoder(bytes, offset, length, this.decoder);
+        break;
+      case COMPRESSION_DEFLATE:
+        InputStream is = new InflaterInputStream(new ByteArrayInputStream(bytes, offset, length));
+        decoder = this.decoder = DecoderFactory.get().binaryDecoder(is, this.decoder);
+        break;
+      default:
+        throw new IOException("Unsupported logging event block compression " + compression);
+    }
+
+    String[] strings = new String[decoder.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = decoder.readString(null).toString();
+    }
+
+    Schema schema = eventSerializer.getAvroSchema();
+    int count = decoder.readInt();
+    List<ILoggingEvent> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      GenericRecord record = new GenericData.Record(schema);
+      for (Schema.Field field : schema.getFields()) {
+        record.put(field.pos(), read(field.schema(), strings, !INLINE_FIELDS.contains(field.name()), decoder));
+      }
+      events.add(new LoggingEvent(record));
+    }
+    return events;
+  }
+
+  private BinaryEncoder getEncoder(OutputStream os) {
+    encoder = EncoderFactory.get().directBinaryEncoder(os, encoder);
+    return encoder;
+  }
+
+  /**
+   * Writes the given datum of the given schema, with strings written as dictionary indices if requested.
+   */
+  private void write(Schema schema, Object datum, boolean useDictionary, Encoder encoder) throws IOException {
+    switch (schema.getType()) {
+      case RECORD:
+        GenericRecord record = (GenericRecord) datum;
+        for (Schema.Field field : schema.getFields()) {
+          write(field.schema(), record.get(field.pos()), useDictionary, encoder);
+        }
+        break;
+      case UNION:
+        int index = GenericData.get().resolveUnion(schema, datum);
+        encoder.writeIndex(index);
+        write(schema.getTypes().get(index), datum, useDictionary, encoder);
+        break;
+      case ARRAY:
+        Collection<?> array = (Collection<?>) datum;
+        encoder.writeArrayStart();
+        encoder.setItemCount(array.size());
+        for (Object item : array) {
+          encoder.startItem();
+          write(schema.getElementType(), item, useDictionary, encoder);
+        }
+        encoder.writeArrayEnd();
+        break;
+      case MAP:
+        Map<?, ?> map = (Map<?, ?>) datum;
+        encoder.writeMapStart();
+        encoder.setItemCount(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          encoder.startItem();
+          writeString(entry.getKey().toString(), useDictionary, encoder);
+          write(schema.getValueType(), entry.getValue(), useDictionary, encoder);
+        }
+        encoder.writeMapEnd();
+        break;
+      case STRING:
+        writeString(datum.toString(), useDictionary, encoder);
+        break;
+      case INT:
+        encoder.writeInt((Integer) datum);
+        break;
+      case LONG:
+        encoder.writeLong((Long) datum);
+        break;
+      case BOOLEAN:
+        encoder.writeBoolean((Boolean) datum);
+        break;
+      case NULL:
+        encoder.writeNull();
+        break;
+      default:
+        // This shouldn't happen since the logging event schema doesn't have other types
+        throw new IOException("Unsupported schema type " + schema.getType() + " in logging event");
+    }
+  }
+
+  private void writeString(String str, boolean useDictionary, Encoder encoder) throws IOException {
+    if (!useDictionary) {
+      encoder.writeString(str);
+      return;
+    }
+    Integer index = dictionaryIndices.get(str);
+    if (index == null) {
+      index = dictionary.size();
+      dictionary.add(str);
+      dictionaryIndices.put(str, index);
+    }
+    encoder.writeInt(index);
+  }
+
+  /**
+   * Reads a datum of the given schema written by {@link #write(Schema, Object, boolean, Encoder)}.
+   */
+  private Object read(Schema schema, String[] strings, boolean useDictionary, Decoder decoder) throws IOException {
+    switch (schema.getType()) {
+      case RECORD:
+        GenericRecord record = new GenericData.Record(schema);
+        for (Schema.Field field : schema.getFields()) {
+          record.put(field.pos(), read(field.schema(), strings, useDictionary, decoder));
+        }
+        return record;
+      case UNION:
+        return read(schema.getTypes().get(decoder.readIndex()), strings, useDictionary, decoder);
+      case ARRAY: {
+        GenericArray<Object> array = new GenericData.Array<>(0, schema);
+        for (long i = decoder.readArrayStart(); i != 0; i = decoder.arrayNext()) {
+          for (long j = 0; j < i; j++) {
+            array.add(read(schema.getElementType(), strings, useDictionary, decoder));
+          }
+        }
+        return array;
+      }
+      case MAP: {
+        Map<String, Object> map = new HashMap<>();
+        for (long i = decoder.readMapStart(); i != 0; i = decoder.mapNext()) {
+          for (long j = 0; j < i; j++) {
+            String key = readString(strings, useDictionary, decoder);
+            map.put(key, read(schema.getValueType(), strings, useDictionary, decoder));
+          }
+        }
+        return map;
+      }
+      case STRING:
+        return readString(strings, useDictionary, decoder);
+      case INT:
+        return decoder.readInt();
+      case LONG:
+        return decoder.readLong();
+      case BOOLEAN:
+        return decoder.readBoolean();
+      case NULL:
+        decoder.readNull();
+        return null;
+      default:
+        throw new IOException("Unsupported schema type " + schema.getType() + " in logging event");
+    }
+  }
+
+  private String readString(String[] strings, boolean useDictionary, Decoder decoder) throws IOException {
+    if (!useDictionary) {
+      return decoder.readString(null).toString();
+    }
+    int index = decoder.readInt();
+    if (index < 0 || index >= strings.length) {
+      throw new IOException("Invalid string index " + index + " in logging event block");
+    }
+    return strings[index];
+  }
+}
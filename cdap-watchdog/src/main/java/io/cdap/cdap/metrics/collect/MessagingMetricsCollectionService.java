@@ -54,11 +54,15 @@ import java.util.concurrent.TimeUnit;
 public class MessagingMetricsCollectionService extends AggregatedMetricsCollectionService {
   private static final Logger LOG = LoggerFactory.getLogger(MessagingMetricsCollectionService.class);
   private static final Joiner.MapJoiner MAP_JOINER = Joiner.on(',').withKeyValueSeparator("=");
+  // Maximum number of MetricValues in one packed payload
+  private static final int MAX_PACKED_METRIC_VALUES = 1000;
 
   private final MessagingService messagingService;
   private final DatumWriter<MetricValues> recordWriter;
   private final ByteArrayOutputStream encoderOutputStream;
   private final Encoder encoder;
+  private final boolean packedPayloadEnabled;
+  private final PackedMetricValuesCodec packedCodec;
   private final Map<Integer, TopicPayload> topicPayloads;
 
   @Inject
@@ -77,6 +81,8 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
     // Parent guarantees the publish method would not get called concurrently, hence safe to reuse the same instances.
     this.encoderOutputStream = new ByteArrayOutputStream(1024);
     this.encoder = new BinaryEncoder(encoderOutputStream);
+    this.packedPayloadEnabled = cConf.getBoolean(Constants.Metrics.MESSAGING_PACKED_PAYLOAD_ENABLED);
+    this.packedCodec = new PackedMetricValuesCodec();
 
     RetryStrategy retryStrategy = RetryStrategies.fromConfiguration(cConf, "system.metrics.");
     this.topicPayloads = new LinkedHashMap<>(totalTopicNum);
@@ -89,13 +95,17 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
   protected void publish(Iterator<MetricValues> metrics) throws Exception {
     int size = topicPayloads.size();
     while (metrics.hasNext()) {
-      encoderOutputStream.reset();
       MetricValues metricValues = metrics.next();
-      // Encode MetricValues into bytes
-      recordWriter.encode(metricValues, encoder);
-      TopicPayload topicPayload = topicPayloads.get(Math.abs(metricValues.getTags().hashCode() % size));
       // Calculate the topic number with the hashcode of MetricValues' tags and store the encoded payload in the
       // corresponding list of the topic number
+      TopicPayload topicPayload = topicPayloads.get(Math.abs(metricValues.getTags().hashCode() % size));
+      if (packedPayloadEnabled) {
+        topicPayload.addMetricValues(metricValues);
+        continue;
+      }
+      encoderOutputStream.reset();
+      // Encode MetricValues into bytes
+      recordWriter.encode(metricValues, encoder);
       topicPayload.addPayload(encoderOutputStream.toByteArray(), metricValues.getTags(),
                               metricValues.getMetrics().size());
     }
@@ -114,6 +124,7 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
   private final class TopicPayload {
     private final TopicId topicId;
     private final List<byte[]> payloads;
+    private final List<MetricValues> pendingMetricValues;
     private final RetryStrategy retryStrategy;
     private int payloadSize;
     private int metricsCount;
@@ -124,6 +135,7 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
       this.topicId = topicId;
       this.retryStrategy = retryStrategy;
       this.payloads = new ArrayList<>();
+      this.pendingMetricValues = new ArrayList<>();
       this.payloadSize = 0;
       this.metricsCount = 0;
     }
@@ -137,7 +149,33 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
       payloads.add(payload);
     }
 
+    /**
+     * Adds a {@link MetricValues} to be published as part of a packed payload.
+     */
+    void addMetricValues(MetricValues metricValues) throws IOException {
+      pendingMetricValues.add(metricValues);
+      if (pendingMetricValues.size() >= MAX_PACKED_METRIC_VALUES) {
+        packPendingMetricValues();
+      }
+    }
+
+    /**
+     * Encodes all the pending {@link MetricValues} into a packed payload.
+     */
+    private void packPendingMetricValues() throws IOException {
+      if (pendingMetricValues.isEmpty()) {
+        return;
+      }
+      int metricsCount = 0;
+      for (MetricValues metricValues : pendingMetricValues) {
+        metricsCount += metricValues.getMetrics().size();
+      }
+      addPayload(packedCodec.encode(pendingMetricValues), pendingMetricValues.get(0).getTags(), metricsCount);
+      pendingMetricValues.clear();
+    }
+
     void publish(MessagingService messagingService) throws IOException {
+      packPendingMetricValues();
       if (payloads.isEmpty()) {
         return;
       }
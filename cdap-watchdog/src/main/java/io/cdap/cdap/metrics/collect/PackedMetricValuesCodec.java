@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+import io.cdap.cdap.api.metrics.MetricValues;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.io.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes a batch of {@link MetricValues} into a single packed payload, and decodes it back. The packed payload
+ * is of the format:
+ *
+ * <pre>
+ *   [marker][version][number of strings][string]...[number of tag sets][tag set]...
+ *   [number of metric values][tag set index]...[timestamp delta]...[number of metrics]...
+ *   [metric name index]...[metric type]...[metric value]...
+ * </pre>
+ *
+ * Strings and tag sets are stored once per payload and referenced by index, and the columns are written one after
+ * the other, so that the many metric values that share the same context only pay for the indices.
+ *
+ * A payload encoded from a single {@link MetricValues} starts with the size of the tag map, which is a non-negative
+ * zig-zag encoded int, hence the lowest bit of its first byte is always zero. The marker of the packed payload is a
+ * negative int, which has the lowest bit set, so that the two formats can be told apart with
+ * {@link #isPacked(byte[])}.
+ */
+@NotThreadSafe
+public final class PackedMetricValuesCodec {
+
+  private static final int MARKER = -1;
+  private static final int VERSION = 1;
+  private static final MetricType[] METRIC_TYPES = MetricType.values();
+
+  private final Map<String, Integer> stringIndices = new HashMap<>();
+  private final List<String> strings = new ArrayList<>();
+  private final Map<Map<String, String>, Integer> tagSetIndices = new HashMap<>();
+  private final List<Map<String, String>> tagSets = new ArrayList<>();
+  private final ByteArrayOutputStream columnsOut = new ByteArrayOutputStream(1024);
+  private final Encoder columnsEncoder = new BinaryEncoder(columnsOut);
+
+  /**
+   * Returns {@code true} if the given payload is encoded by {@link #encode(Collection)}.
+   */
+  public static boolean isPacked(byte[] payload) {
+    return payload.length > 0 && (payload[0] & 1) == 1;
+  }
+
+  /**
+   * Encodes the given {@link MetricValues} into a packed payload.
+   */
+  public byte[] encode(Collection<MetricValues> metricValues) throws IOException {
+    stringIndices.clear();
+    strings.clear();
+    tagSetIndices.clear();
+    tagSets.clear();
+    columnsOut.reset();
+
+    // The columns are encoded first to collect the dictionaries
+    columnsEncoder.writeInt(metricValues.size());
+    for (MetricValues values : metricValues) {
+      columnsEncoder.writeInt(getTagSetIndex(values.getTags()));
+    }
+    long lastTimestamp = 0L;
+    for (MetricValues values : metricValues) {
+      columnsEncoder.writeLong(values.getTimestamp() - lastTimestamp);
+      lastTimestamp = values.getTimestamp();
+    }
+    for (MetricValues values : metricValues) {
+      columnsEncoder.writeInt(values.getMetrics().size());
+    }
+    for (MetricValues values : metricValues) {
+      for (MetricValue metric : values.getMetrics()) {
+        columnsEncoder.writeInt(getStringIndex(metric.getName()));
+      }
+    }
+    for (MetricValues values : metricValues) {
+      for (MetricValue metric : values.getMetrics()) {
+        columnsEncoder.writeInt(metric.getType().ordinal());
+      }
+    }
+    for (MetricValues values : metricValues) {
+      for (MetricValue metric : values.getMetrics()) {
+        columnsEncoder.writeLong(metric.getValue());
+      }
+    }
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream(columnsOut.size() + 32 * strings.size() + 16);
+    Encoder encoder = new BinaryEncoder(os);
+    encoder.writeInt(MARKER).writeInt(VERSION);
+    encoder.writeInt(strings.size());
+    for (String str : strings) {
+      encoder.writeString(str);
+    }
+    encoder.writeInt(tagSets.size());
+    for (Map<String, String> tags : tagSets) {
+      encoder.writeInt(tags.size());
+      for (Map.Entry<String, String> tag : tags.entrySet()) {
+        encoder.writeInt(stringIndices.get(tag.getKey())).writeInt(stringIndices.get(tag.getValue()));
+      }
+    }
+    columnsOut.writeTo(os);
+    return os.toByteArray();
+  }
+
+  /**
+   * Decodes a packed payload encoded by {@link #encode(Collection)}.
+   *
+   * @param decoder the {@link Decoder} for reading the payload
+   * @return the list of {@link MetricValues} in the same order as they were encoded
+   * @throws IOException if failed to decode
+   */
+  public static List<MetricValues> decode(Decoder decoder) throws IOException {
+    if (decoder.readInt() != MARKER) {
+      throw new IOException("Payload is not a packed metric values payload");
+    }
+    int version = decoder.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported packed metric values version " + version);
+    }
+
+    String[] strings = new String[checkSize(decoder.readInt())];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = decoder.readString();
+    }
+    List<Map<String, String>> tagSets = new ArrayList<>();
+    for (int i = checkSize(decoder.readInt()); i > 0; i--) {
+      int size = checkSize(decoder.readInt());
+      Map<String, String> tags = new HashMap<>();
+      for (int j = 0; j < size; j++) {
+        tags.put(get(strings, decoder.readInt()), get(strings, decoder.readInt()));
+      }
+      tagSets.add(tags);
+    }
+
+    int count = checkSize(decoder.readInt());
+    int[] tagSetIndices = new int[count];
+    for (int i = 0; i < count; i++) {
+      tagSetIndices[i] = decoder.readInt();
+    }
+    long[] timestamps = new long[count];
+    long lastTimestamp = 0L;
+    for (int i = 0; i < count; i++) {
+      lastTimestamp += decoder.readLong();
+      timestamps[i] = lastTimestamp;
+    }
+    int[] metricCounts = new int[count];
+    int totalMetrics = 0;
+    for (int i = 0; i < count; i++) {
+      metricCounts[i] = checkSize(decoder.readInt());
+      totalMetrics += metricCounts[i];
+    }
+    String[] names = new String[checkSize(totalMetrics)];
+    for (int i = 0; i < totalMetrics; i++) {
+      names[i] = get(strings, decoder.readInt());
+    }
+    MetricType[] types = new MetricType[totalMetrics];
+    for (int i = 0; i < totalMetrics; i++) {
+      types[i] = get(METRIC_TYPES, decoder.readInt());
+    }
+
+    List<MetricValues> result = new ArrayList<>(count);
+    int metricIdx = 0;
+    for (int i = 0; i < count; i++) {
+      if (tagSetIndices[i] < 0 || tagSetIndices[i] >= tagSets.size()) {
+        throw new IOException("Invalid tag set index " + tagSetIndices[i]);
+      }
+      List<MetricValue> metrics = new ArrayList<>(metricCounts[i]);
+      for (int j = 0; j < metricCounts[i]; j++, metricIdx++) {
+        metrics.add(new MetricValue(names[metricIdx], types[metricIdx], decoder.readLong()));
+      }
+      result.add(new MetricValues(tagSets.get(tagSetIndices[i]), timestamps[i], metrics));
+    }
+    return result;
+  }
+
+  private int getStringIndex(String str) {
+    Integer index = stringIndices.get(str);
+    if (index == null) {
+      index = strings.size();
+      strings.add(str);
+      stringIndices.put(str, index);
+    }
+    return index;
+  }
+
+  private int getTagSetIndex(Map<String, String> tags) {
+    Integer index = tagSetIndices.get(tags);
+    if (index == null) {
+      for (Map.Entry<String, String> tag : tags.entrySet()) {
+        getStringIndex(tag.getKey());
+        getStringIndex(tag.getValue());
+      }
+      index = tagSets.size();
+      tagSets.add(tags);
+      tagSetIndices.put(tags, index);
+    }
+    return index;
+  }
+
+  private static int checkSize(int size) throws IOException {
+    if (size < 0) {
+      throw new IOException("Invalid size " + size + " in packed metric values");
+    }
+    return size;
+  }
+
+  private static <T> T get(T[] array, int index) throws IOException {
+    if (index < 0 || index >= array.length) {
+      throw new IOException("Invalid index " + index + " in packed metric values");
+    }
+    return array[index];
+  }
+}
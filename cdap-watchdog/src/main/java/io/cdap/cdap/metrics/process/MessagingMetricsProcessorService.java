@@ -43,6 +43,7 @@ import io.cdap.cdap.internal.io.SchemaGenerator;
 import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.metrics.collect.PackedMetricValuesCodec;
 import io.cdap.cdap.metrics.store.MetricDatasetFactory;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
@@ -52,6 +53,7 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -149,7 +151,9 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     this.fetcherLimit = Math.max(1, queueSize / topicNumbers.size()); // fetcherLimit is at least one
     this.metricsContextMap = metricsContext.getTags();
     this.processMetricsThreads = new ArrayList<>();
-    this.metricsFromAllTopics = new LinkedBlockingDeque<>(queueSize);
+    // The queue is not bounded by itself, since all MetricValues of a message have to be added to it together.
+    // Fetching stops when the queue has reached the queue size.
+    this.metricsFromAllTopics = new LinkedBlockingDeque<>();
     this.topicProcessMetaMap = new ConcurrentHashMap<>();
     this.persistingFlag = new AtomicBoolean();
     // the max sleep time will be 1 min
@@ -376,17 +380,25 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
           while (iterator.hasNext() && isRunning()) {
             RawMessage input = iterator.next();
             try {
-              payloadInput.reset(input.getPayload());
-              MetricValues metricValues = metricReader.read(decoder, metricSchema);
-              if (!metricsFromAllTopics.offer(metricValues)) {
+              // Stop fetching if the queue is full. The message will be fetched again in the next run.
+              if (metricsFromAllTopics.size() >= queueSize) {
                 break;
               }
-              lastMetricTimeSecs = metricValues.getTimestamp();
+              payloadInput.reset(input.getPayload());
+              // A message is either a packed payload of many MetricValues or a single MetricValues
+              List<MetricValues> metricValuesList = PackedMetricValuesCodec.isPacked(input.getPayload())
+                ? PackedMetricValuesCodec.decode(decoder)
+                : Collections.singletonList(metricReader.read(decoder, metricSchema));
               currentMessageId = input.getId();
-              if (LOG.isTraceEnabled()) {
-                LOG.trace("Received message {} with metrics: {}", Bytes.toStringBinary(currentMessageId), metricValues);
+              for (MetricValues metricValues : metricValuesList) {
+                metricsFromAllTopics.add(metricValues);
+                lastMetricTimeSecs = metricValues.getTimestamp();
+                if (LOG.isTraceEnabled()) {
+                  LOG.trace("Received message {} with metrics: {}",
+                            Bytes.toStringBinary(currentMessageId), metricValues);
+                }
+                localTopicProcessMeta.updateTopicProcessingStats(currentMessageId, lastMetricTimeSecs);
               }
-              localTopicProcessMeta.updateTopicProcessingStats(currentMessageId, lastMetricTimeSecs);
             } catch (IOException e) {
               LOG.warn("Failed to decode message to MetricValue. Skipped. {}", e.getMessage());
             }
@@ -440,7 +452,7 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
         // the number of metrics being persisted each time
         Deque<MetricValues> metricsCopy = new LinkedList<>();
         Iterator<MetricValues> iterator = metricsFromAllTopics.iterator();
-        // Though the blocking queue(metricsFromAllTopics) has upper bound on its size (which is the "queueSize")
+        // Though fetching stops when the blocking queue(metricsFromAllTopics) reaches the "queueSize"
         // there can be a scenario, as the current thread is removing entries from blocking queue
         // and adding it to a copy list, other threads are simultaneously adding entries to the queue and
         // the current list might become very big causing out of memory issues, we avoid this
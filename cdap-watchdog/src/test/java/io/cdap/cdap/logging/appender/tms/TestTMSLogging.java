@@ -36,7 +36,7 @@ import io.cdap.cdap.logging.appender.kafka.LogPartitionType;
 import io.cdap.cdap.logging.context.LoggingContextHelper;
 import io.cdap.cdap.logging.context.MapReduceLoggingContext;
 import io.cdap.cdap.logging.filter.Filter;
-import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.logging.serialize.LoggingEventBlockSerializer;
 import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -136,7 +136,7 @@ public class TestTMSLogging {
     logAppenderInitializer.close();
 
     // fetch and deserialize all the logs from TMS
-    LoggingEventSerializer loggingEventSerializer = new LoggingEventSerializer();
+    LoggingEventBlockSerializer loggingEventSerializer = new LoggingEventBlockSerializer();
 
     Map<Integer, List<ILoggingEvent>> partitionedFetchedLogs = new HashMap<>();
     int totalFetchedLogs = 0;
@@ -147,8 +147,7 @@ public class TestTMSLogging {
       try (CloseableIterator<RawMessage> messages = messageFetcher.fetch()) {
         while (messages.hasNext()) {
           RawMessage message = messages.next();
-          ILoggingEvent iLoggingEvent = loggingEventSerializer.fromBytes(ByteBuffer.wrap(message.getPayload()));
-          fetchedLogs.add(iLoggingEvent);
+          fetchedLogs.addAll(loggingEventSerializer.fromBytes(ByteBuffer.wrap(message.getPayload())));
         }
       }
 
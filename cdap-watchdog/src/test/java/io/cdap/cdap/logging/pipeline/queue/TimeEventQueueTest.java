@@ -20,12 +20,19 @@ import com.google.common.collect.ImmutableSet;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 /**
  * Unit-test for {@link TimeEventQueue}.
@@ -143,6 +150,107 @@ public class TimeEventQueueTest {
     Assert.assertTrue(eventQueue.isEmpty());
   }
 
+  @Test
+  public void testRandomOrder() {
+    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(ImmutableSet.of(0, 1, 2));
+    // Reference ordering of (timestamp, partition, offset)
+    TreeSet<long[]> expected = new TreeSet<>(Comparator.<long[]>comparingLong(e -> e[0])
+                                               .thenComparingLong(e -> e[1]).thenComparingLong(e -> e[2]));
+    Random random = new Random();
+    int[] nextOffsets = new int[3];
+    List<Deque<Integer>> skippedOffsets = Arrays.asList(new ArrayDeque<>(), new ArrayDeque<>(), new ArrayDeque<>());
+
+    for (int round = 0; round < 100; round++) {
+      // Add events with mostly increasing timestamps and offsets, with occasional out of order ones
+      for (int i = 0; i < 50; i++) {
+        int partition = random.nextInt(3);
+        Deque<Integer> skipped = skippedOffsets.get(partition);
+        int offset;
+        if (!skipped.isEmpty() && random.nextInt(4) == 0) {
+          offset = skipped.poll();
+        } else {
+          offset = nextOffsets[partition]++;
+          if (random.nextInt(10) == 0) {
+            // Skip the offset for now and add it later
+            skipped.add(offset);
+            continue;
+          }
+        }
+        long timestamp = round * 100 + i + (random.nextInt(5) == 0 ? -random.nextInt(200) : 0);
+        long[] event = new long[] { timestamp, partition, offset };
+        if (expected.add(event)) {
+          eventQueue.add(partition + ":" + offset, timestamp, 1, partition, offset);
+        }
+      }
+      Assert.assertEquals(expected.size(), eventQueue.size());
+
+      // Remove some events from the head and verify the order and the smallest offsets
+      TimeEventQueue.EventIterator<String, Integer> iterator = eventQueue.iterator();
+      Iterator<long[]> expectedIterator = expected.iterator();
+      int toRemove = random.nextInt(60);
+      for (int i = 0; i < toRemove && iterator.hasNext(); i++) {
+        long[] expectedEvent = expectedIterator.next();
+        Assert.assertEquals(expectedEvent[1] + ":" + expectedEvent[2], iterator.next());
+        Assert.assertEquals(expectedEvent[1], iterator.getPartition());
+        Assert.assertEquals(expectedEvent[2], iterator.getOffset().longValue());
+        iterator.remove();
+        expectedIterator.remove();
+      }
+      Assert.assertEquals(expected.size(), eventQueue.size());
+      Assert.assertEquals(expected.size(), eventQueue.getEventSize());
+
+      for (int partition = 0; partition < 3; partition++) {
+        int p = partition;
+        OptionalLong smallest = expected.stream().filter(e -> e[1] == p).mapToLong(e -> e[2]).min();
+        Assert.assertEquals(!smallest.isPresent(), eventQueue.isEmpty(partition));
+        if (smallest.isPresent()) {
+          Assert.assertEquals(smallest.getAsLong(), eventQueue.getSmallestOffset(partition).longValue());
+        }
+      }
+    }
+
+    // Drain the queue
+    List<String> actual = new ArrayList<>();
+    Iterator<String> iterator = eventQueue.iterator();
+    while (iterator.hasNext()) {
+      actual.add(iterator.next());
+      iterator.remove();
+    }
+    Assert.assertEquals(expected.stream().map(e -> e[1] + ":" + e[2]).collect(Collectors.toList()), actual);
+    Assert.assertTrue(eventQueue.isEmpty());
+  }
+
+  @Test
+  public void testDuplicateOffset() {
+    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
+    eventQueue.add("m1", 1L, 10, 1, 0);
+    eventQueue.add("m2", 2L, 10, 1, 1);
+
+    // Adding the same event again is ignored
+    eventQueue.add("m1", 1L, 10, 1, 0);
+    Assert.assertEquals(2, eventQueue.size());
+    Assert.assertEquals(20, eventQueue.getEventSize());
+
+    // Adding a different event with the same offset fails
+    try {
+      eventQueue.add("m3", 3L, 10, 1, 0);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    Assert.assertEquals(2, eventQueue.size());
+    Assert.assertEquals("m1", eventQueue.first());
+
+    // The offset can be added again once the event is removed
+    Iterator<String> iterator = eventQueue.iterator();
+    Assert.assertEquals("m1", iterator.next());
+    iterator.remove();
+    Assert.assertEquals(1, eventQueue.getSmallestOffset(1).intValue());
+    eventQueue.add("m3", 3L, 10, 1, 0);
+    Assert.assertEquals(0, eventQueue.getSmallestOffset(1).intValue());
+    Assert.assertEquals("m2", eventQueue.first());
+  }
+
   @Test (expected = IllegalArgumentException.class)
   public void testInvalidPartition() {
     TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.serialize;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import io.cdap.cdap.common.logging.LoggingContextAccessor;
+import io.cdap.cdap.common.logging.logback.TestLoggingContext;
+import io.cdap.cdap.logging.appender.LogMessage;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test cases for {@link LoggingEventBlockSerializer}.
+ */
+public class LoggingEventBlockSerializerTest {
+
+  @BeforeClass
+  public static void setUpContext() {
+    LoggingContextAccessor.setLoggingContext(new TestLoggingContext("TEST_ACCT_ID1", "TEST_APP_ID1", "RUN1",
+                                                                    "INSTANCE1"));
+  }
+
+  @Test
+  public void testBlockSerialization() throws Exception {
+    List<ch.qos.logback.classic.spi.LoggingEvent> expected = new ArrayList<>();
+    List<ILoggingEvent> events = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ch.qos.logback.classic.spi.LoggingEvent event = createEvent(i);
+      expected.add(event);
+      events.add(new LogMessage(event, LoggingContextAccessor.getLoggingContext()));
+    }
+    // Also include an event with everything null
+    ch.qos.logback.classic.spi.LoggingEvent nullEvent = new ch.qos.logback.classic.spi.LoggingEvent();
+    nullEvent.setLevel(Level.ERROR);
+    nullEvent.setTimeStamp(10000000L);
+    expected.add(nullEvent);
+    events.add(new LogMessage(nullEvent, LoggingContextAccessor.getLoggingContext()));
+
+    LoggingEventBlockSerializer serializer = new LoggingEventBlockSerializer();
+    for (boolean compress : new boolean[] { false, true }) {
+      byte[] bytes = serializer.toBytes(events, compress);
+      Assert.assertTrue(LoggingEventBlockSerializer.isBlock(ByteBuffer.wrap(bytes)));
+
+      List<ILoggingEvent> actual = serializer.fromBytes(ByteBuffer.wrap(bytes));
+      Assert.assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        LoggingEventSerializerTest.assertLoggingEventEquals(expected.get(i), actual.get(i));
+      }
+
+      // Decoded events can be encoded again
+      List<ILoggingEvent> reencoded = serializer.fromBytes(ByteBuffer.wrap(serializer.toBytes(actual, compress)));
+      for (int i = 0; i < expected.size(); i++) {
+        LoggingEventSerializerTest.assertLoggingEventEquals(expected.get(i), reencoded.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testSingleEvent() throws Exception {
+    ch.qos.logback.classic.spi.LoggingEvent event = createEvent(0);
+    byte[] bytes = new LoggingEventSerializer().toBytes(new LogMessage(event,
+                                                                       LoggingContextAccessor.getLoggingContext()));
+    Assert.assertFalse(LoggingEventBlockSerializer.isBlock(ByteBuffer.wrap(bytes)));
+
+    // Single event payload is still accepted
+    List<ILoggingEvent> actual = new LoggingEventBlockSerializer().fromBytes(ByteBuffer.wrap(bytes));
+    Assert.assertEquals(1, actual.size());
+    LoggingEventSerializerTest.assertLoggingEventEquals(event, actual.get(0));
+  }
+
+  @Test(expected = IOException.class)
+  public void testBlockIsNotSingleEvent() throws Exception {
+    LogMessage event = new LogMessage(createEvent(0), LoggingContextAccessor.getLoggingContext());
+    byte[] bytes = new LoggingEventBlockSerializer().toBytes(Collections.singletonList(event), false);
+    // A block should never be mistaken as a single event
+    new LoggingEventSerializer().fromBytes(ByteBuffer.wrap(bytes));
+  }
+
+  @Test
+  public void testBlockSize() {
+    List<ILoggingEvent> events = new ArrayList<>();
+    LoggingEventSerializer eventSerializer = new LoggingEventSerializer();
+    int eventsSize = 0;
+    for (int i = 0; i < 100; i++) {
+      LogMessage event = new LogMessage(createEvent(i), LoggingContextAccessor.getLoggingContext());
+      events.add(event);
+      eventsSize += eventSerializer.toBytes(event).length;
+    }
+
+    // Repeated strings are only stored once per block, hence the block should be much smaller
+    LoggingEventBlockSerializer serializer = new LoggingEventBlockSerializer();
+    int blockSize = serializer.toBytes(events, false).length;
+    int compressedBlockSize = serializer.toBytes(events, true).length;
+    Assert.assertTrue("Block size " + blockSize + " vs " + eventsSize, blockSize * 2 < eventsSize);
+    Assert.assertTrue("Compressed block size " + compressedBlockSize + " vs " + blockSize,
+                      compressedBlockSize < blockSize);
+  }
+
+  private ch.qos.logback.classic.spi.LoggingEvent createEvent(int i) {
+    Map<String, String> contextMap = new HashMap<>();
+    contextMap.put("p1", "ctx-val1");
+    contextMap.put("p2", null);
+
+    ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+    event.setThreadName("thread-" + (i % 2));
+    event.setLevel(Level.INFO);
+    event.setMessage("Log message {} {}");
+    event.setArgumentArray(new Object[] { Integer.toString(i), null });
+    event.setLoggerName("io.cdap.cdap.logging.serialize.LoggingEventBlockSerializerTest");
+    event.setLoggerContextRemoteView(new LoggerContextVO("logger_context1", contextMap, 12345634234L));
+    event.setThrowableProxy(new ThrowableProxy(new Exception("Test Exception " + i, new Exception())));
+    event.prepareForDeferredProcessing();
+    event.setCallerData(new StackTraceElement[] {
+      new StackTraceElement("com.Class1", "methodName1", "fileName1", i),
+      new StackTraceElement("com.Class2", "methodName2", null, 20),
+    });
+    event.getMDCPropertyMap().put("mdc1", "mdc-val1");
+    event.getMDCPropertyMap().put("mdc2", null);
+    event.setTimeStamp(1234567890L + i);
+    return event;
+  }
+}
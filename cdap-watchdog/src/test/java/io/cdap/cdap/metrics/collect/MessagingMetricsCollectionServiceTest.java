@@ -54,8 +54,18 @@ public class MessagingMetricsCollectionServiceTest extends MetricsTestBase {
 
   @Test
   public void testMessagingPublish() throws TopicNotFoundException {
+    testMessagingPublish(true);
+  }
 
-    MetricsCollectionService collectionService = new MessagingMetricsCollectionService(CConfiguration.create(),
+  @Test
+  public void testMessagingPublishNonPacked() throws TopicNotFoundException {
+    testMessagingPublish(false);
+  }
+
+  private void testMessagingPublish(boolean packed) throws TopicNotFoundException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.Metrics.MESSAGING_PACKED_PAYLOAD_ENABLED, packed);
+    MetricsCollectionService collectionService = new MessagingMetricsCollectionService(cConf,
                                                                                        messagingService,
                                                                                        recordWriter);
     collectionService.startAndWait();
@@ -88,20 +98,24 @@ public class MessagingMetricsCollectionServiceTest extends MetricsTestBase {
       try (CloseableIterator<RawMessage> iterator = messagingService.prepareFetch(topicId).fetch()) {
         while (iterator.hasNext()) {
           RawMessage message = iterator.next();
-          MetricValues metricsRecord = (MetricValues) recordReader.read(
-            new BinaryDecoder(new ByteArrayInputStream(message.getPayload())), schema);
-          StringBuilder flattenContext = new StringBuilder();
-          // for verifying expected results, sorting tags
-          Map<String, String> tags = Maps.newTreeMap();
-          tags.putAll(metricsRecord.getTags());
-          for (Map.Entry<String, String> tag : tags.entrySet()) {
-            flattenContext.append(tag.getKey()).append(".").append(tag.getValue()).append(".");
-          }
-          // removing trailing "."
-          if (flattenContext.length() > 0) {
-            flattenContext.deleteCharAt(flattenContext.length() - 1);
+          BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(message.getPayload()));
+          List<MetricValues> metricsRecords = PackedMetricValuesCodec.isPacked(message.getPayload())
+            ? PackedMetricValuesCodec.decode(decoder)
+            : Collections.singletonList((MetricValues) recordReader.read(decoder, schema));
+          for (MetricValues metricsRecord : metricsRecords) {
+            StringBuilder flattenContext = new StringBuilder();
+            // for verifying expected results, sorting tags
+            Map<String, String> tags = Maps.newTreeMap();
+            tags.putAll(metricsRecord.getTags());
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+              flattenContext.append(tag.getKey()).append(".").append(tag.getValue()).append(".");
+            }
+            // removing trailing "."
+            if (flattenContext.length() > 0) {
+              flattenContext.deleteCharAt(flattenContext.length() - 1);
+            }
+            metrics.put(flattenContext.toString(), metricsRecord);
           }
-          metrics.put(flattenContext.toString(), metricsRecord);
         }
       } catch (IOException e) {
         LOG.info("Failed to decode message to MetricValue. Skipped. {}", e.getMessage());
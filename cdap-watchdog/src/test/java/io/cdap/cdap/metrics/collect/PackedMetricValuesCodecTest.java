@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+import io.cdap.cdap.api.metrics.MetricValues;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.internal.io.ReflectionDatumWriter;
+import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link PackedMetricValuesCodec}.
+ */
+public class PackedMetricValuesCodecTest {
+
+  @Test
+  public void testEncodeDecode() throws IOException {
+    List<MetricValues> metricValues = createMetricValues(100);
+    PackedMetricValuesCodec codec = new PackedMetricValuesCodec();
+
+    // Encode twice to make sure the codec can be reused
+    for (int i = 0; i < 2; i++) {
+      byte[] payload = codec.encode(metricValues);
+      Assert.assertTrue(PackedMetricValuesCodec.isPacked(payload));
+      assertEquals(metricValues, PackedMetricValuesCodec.decode(new BinaryDecoder(new ByteArrayInputStream(payload))));
+    }
+
+    byte[] payload = codec.encode(Collections.emptyList());
+    Assert.assertTrue(PackedMetricValuesCodec.decode(new BinaryDecoder(new ByteArrayInputStream(payload))).isEmpty());
+  }
+
+  @Test
+  public void testPackedSize() throws Exception {
+    List<MetricValues> metricValues = createMetricValues(100);
+    ReflectionDatumWriter<MetricValues> writer = createWriter();
+
+    int singleSize = 0;
+    for (MetricValues values : metricValues) {
+      byte[] payload = encodeSingle(writer, values);
+      // Payload of a single MetricValues should never be mistaken as packed
+      Assert.assertFalse(PackedMetricValuesCodec.isPacked(payload));
+      singleSize += payload.length;
+    }
+
+    // Tags and metric names are stored once per payload, hence the packed payload should be much smaller
+    int packedSize = new PackedMetricValuesCodec().encode(metricValues).length;
+    Assert.assertTrue("Packed size " + packedSize + " vs " + singleSize, packedSize * 4 < singleSize);
+  }
+
+  @Test
+  public void testEmptyTags() throws Exception {
+    MetricValues values = new MetricValues(Collections.emptyMap(), "metric", 1L, 1L, MetricType.COUNTER);
+    Assert.assertFalse(PackedMetricValuesCodec.isPacked(encodeSingle(createWriter(), values)));
+
+    byte[] payload = new PackedMetricValuesCodec().encode(Collections.singletonList(values));
+    assertEquals(Collections.singletonList(values),
+                 PackedMetricValuesCodec.decode(new BinaryDecoder(new ByteArrayInputStream(payload))));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidPayload() throws Exception {
+    byte[] payload = new PackedMetricValuesCodec().encode(createMetricValues(10));
+    // Corrupt the number of strings
+    payload[2] = 1;
+    PackedMetricValuesCodec.decode(new BinaryDecoder(new ByteArrayInputStream(payload)));
+  }
+
+  private List<MetricValues> createMetricValues(int count) {
+    List<MetricValues> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Map<String, String> tags = ImmutableMap.of("ns", "default", "app", "app" + (i % 3),
+                                                 "prg", "program", "run", "run" + (i % 5));
+      result.add(new MetricValues(tags, 1500000000L + i / 10, Arrays.asList(
+        new MetricValue("system.process.events.in", MetricType.COUNTER, i),
+        new MetricValue("system.process.events.out", MetricType.COUNTER, -i),
+        new MetricValue("system.process.instance", MetricType.GAUGE, Long.MAX_VALUE - i))));
+    }
+    return result;
+  }
+
+  private ReflectionDatumWriter<MetricValues> createWriter() throws Exception {
+    Schema schema = new ReflectionSchemaGenerator().generate(MetricValues.class);
+    return new ReflectionDatumWriter<>(schema);
+  }
+
+  private byte[] encodeSingle(ReflectionDatumWriter<MetricValues> writer, MetricValues values) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writer.encode(values, new BinaryEncoder(os));
+    return os.toByteArray();
+  }
+
+  private void assertEquals(List<MetricValues> expected, List<MetricValues> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      MetricValues expectedValues = expected.get(i);
+      MetricValues actualValues = actual.get(i);
+      Assert.assertEquals(expectedValues.getTags(), actualValues.getTags());
+      Assert.assertEquals(expectedValues.getTimestamp(), actualValues.getTimestamp());
+      List<MetricValue> expectedMetrics = new ArrayList<>(expectedValues.getMetrics());
+      List<MetricValue> actualMetrics = new ArrayList<>(actualValues.getMetrics());
+      Assert.assertEquals(expectedMetrics.size(), actualMetrics.size());
+      for (int j = 0; j < expectedMetrics.size(); j++) {
+        MetricValue expectedValue = expectedMetrics.get(j);
+        MetricValue actualValue = actualMetrics.get(j);
+        Assert.assertEquals(expectedValue.getName(), actualValue.getName());
+        Assert.assertEquals(expectedValue.getType(), actualValue.getType());
+        Assert.assertEquals(expectedValue.getValue(), actualValue.getValue());
+      }
+    }
+  }
+}